@@ -25,8 +25,11 @@
 
 package java.lang;
 
+import java.util.Objects;
+
 import jdk.internal.math.FloatingDecimal;
 import jdk.internal.math.DoubleConsts;
+import jdk.internal.math.DoubleToDecimal;
 import jdk.internal.HotSpotIntrinsicCandidate;
 
 /**
@@ -204,6 +207,39 @@ public final class Double extends Number implements Comparable<Double> {
         return FloatingDecimal.toJavaFormatString(d);
     }
 
+    /**
+     * Writes a decimal representation of {@code d} into {@code dst} as
+     * ASCII bytes, starting at {@code offset}, without creating a
+     * {@code String}.
+     *
+     * <p>The layout is the one described for {@link #toString(double)}:
+     * {@code NaN}, {@code Infinity}, plain notation for magnitudes from
+     * 10<sup>-3</sup> inclusive to 10<sup>7</sup> exclusive, and
+     * computerized scientific notation otherwise. The digits are the
+     * fewest that uniquely distinguish {@code d} from the adjacent
+     * {@code double} values, except that two are used where one would
+     * do, since the layout shows at least two anyway. Among the candidates
+     * with that many digits the one closest to {@code d} is chosen. Hence
+     * {@link #parseDouble(String)} recovers {@code d} from the bytes
+     * exactly, although for some arguments the result is one or two
+     * digits shorter than {@code toString(d)}, as in {@code 2.0E23}
+     * rather than {@code 1.9999999999999998E23}.
+     *
+     * @param   d        the {@code double} to format.
+     * @param   dst      the destination array.
+     * @param   offset   the index of the first byte to write.
+     * @return  the index after the last byte written.
+     * @throws  NullPointerException  if {@code dst} is null.
+     * @throws  IndexOutOfBoundsException  if {@code offset} is negative,
+     *          or if the representation, at most 24 bytes long, does not
+     *          fit in {@code dst} from {@code offset}. Nothing is written
+     *          in that case.
+     * @since 9
+     */
+    public static int format(double d, byte[] dst, int offset) {
+        return DoubleToDecimal.toJavaFormat(d, dst, offset);
+    }
+
     /**
      * Returns a hexadecimal string representation of the
      * {@code double} argument. All characters mentioned below
@@ -539,6 +575,62 @@ public final class Double extends Number implements Comparable<Double> {
         return FloatingDecimal.parseDouble(s);
     }
 
+    /**
+     * Parses the {@link CharSequence} argument as a {@code double},
+     * beginning at the specified {@code beginIndex} and extending to
+     * {@code endIndex - 1}. The accepted syntax, including leading and
+     * trailing whitespace, and the result are those of
+     * {@link #parseDouble(String)} applied to the subsequence.
+     *
+     * <p>Plain decimals such as {@code -12.375} or {@code 6.02e23} with
+     * at most 15 significant digits are converted without creating a
+     * {@code String}. The method does not take steps to guard against
+     * the {@code CharSequence} being mutated while parsing.
+     *
+     * @param  s            the {@code CharSequence} to be parsed.
+     * @param  beginIndex   the beginning index, inclusive.
+     * @param  endIndex     the ending index, exclusive.
+     * @return the {@code double} value represented by the subsequence.
+     * @throws NullPointerException  if {@code s} is null.
+     * @throws IndexOutOfBoundsException  if {@code beginIndex} is
+     *         negative, or if {@code beginIndex} is greater than
+     *         {@code endIndex} or if {@code endIndex} is greater than
+     *         {@code s.length()}.
+     * @throws NumberFormatException if the subsequence does not contain
+     *         a parsable {@code double}.
+     * @since 9
+     */
+    public static double parseDouble(CharSequence s, int beginIndex, int endIndex)
+            throws NumberFormatException {
+        Objects.checkFromToIndex(beginIndex, endIndex, s.length());
+        return FloatingDecimal.parseDouble(s, beginIndex, endIndex);
+    }
+
+    /**
+     * Parses ASCII bytes as a {@code double}, beginning at the specified
+     * {@code beginIndex} and extending to {@code endIndex - 1}. Each byte
+     * stands for the character with the same value; otherwise this method
+     * behaves as {@link #parseDouble(CharSequence, int, int)}.
+     *
+     * @param  bytes        the array containing the bytes to be parsed.
+     * @param  beginIndex   the beginning index, inclusive.
+     * @param  endIndex     the ending index, exclusive.
+     * @return the {@code double} value represented by the range.
+     * @throws NullPointerException  if {@code bytes} is null.
+     * @throws IndexOutOfBoundsException  if {@code beginIndex} is
+     *         negative, or if {@code beginIndex} is greater than
+     *         {@code endIndex} or if {@code endIndex} is greater than
+     *         {@code bytes.length}.
+     * @throws NumberFormatException if the range does not contain a
+     *         parsable {@code double}.
+     * @since 9
+     */
+    public static double parseDouble(byte[] bytes, int beginIndex, int endIndex)
+            throws NumberFormatException {
+        Objects.checkFromToIndex(beginIndex, endIndex, bytes.length);
+        return FloatingDecimal.parseDouble(bytes, beginIndex, endIndex);
+    }
+
     /**
      * Returns {@code true} if the specified number is a
      * Not-a-Number (NaN) value, {@code false} otherwise.
@@ -498,6 +498,31 @@ public final class Long extends Number implements Comparable<Long> {
         return toUnsignedString(i, 10);
     }
 
+    /**
+     * Writes the signed decimal representation of {@code i} into
+     * {@code dst} as ASCII bytes, starting at {@code offset}. The bytes
+     * are those of {@link #toString(long)}, but no {@code String} is
+     * created, which suits writers that assemble their output in a
+     * {@code byte[]}.
+     *
+     * @param   i        the {@code long} to format.
+     * @param   dst      the destination array.
+     * @param   offset   the index of the first byte to write.
+     * @return  the index after the last byte written.
+     * @throws  NullPointerException  if {@code dst} is null.
+     * @throws  IndexOutOfBoundsException  if {@code offset} is negative,
+     *          or if the representation, at most 20 bytes long, does
+     *          not fit in {@code dst} from {@code offset}. Nothing is
+     *          written in that case.
+     * @since 9
+     */
+    public static int format(long i, byte[] dst, int offset) {
+        int size = stringSize(i);
+        Objects.checkFromIndexSize(offset, size, dst.length);
+        getChars(i, offset + size, dst);
+        return offset + size;
+    }
+
     /**
      * Places characters representing the long i into the
      * character array buf. The characters are placed into
@@ -844,6 +869,87 @@ public final class Long extends Number implements Comparable<Long> {
         }
     }
 
+    /**
+     * Parses ASCII bytes as a signed {@code long} in the specified
+     * {@code radix}, beginning at the specified {@code beginIndex} and
+     * extending to {@code endIndex - 1}. The syntax is that of
+     * {@link #parseLong(CharSequence, int, int, int)}, each byte standing for
+     * the character with the same value.
+     *
+     * @param      bytes   the array containing the {@code long}
+     *                  representation to be parsed
+     * @param      beginIndex   the beginning index, inclusive.
+     * @param      endIndex     the ending index, exclusive.
+     * @param      radix   the radix to be used while parsing {@code bytes}.
+     * @return     the signed {@code long} represented by the range in the
+     *             specified radix.
+     * @throws     NullPointerException  if {@code bytes} is null.
+     * @throws     IndexOutOfBoundsException  if {@code beginIndex} is
+     *             negative, or if {@code beginIndex} is greater than
+     *             {@code endIndex} or if {@code endIndex} is greater than
+     *             {@code bytes.length}.
+     * @throws     NumberFormatException  if the range does not contain a
+     *             parsable {@code long} in the specified {@code radix}, or
+     *             if {@code radix} is either smaller than
+     *             {@link java.lang.Character#MIN_RADIX} or larger than
+     *             {@link java.lang.Character#MAX_RADIX}.
+     * @since  9
+     */
+    public static long parseLong(byte[] bytes, int beginIndex, int endIndex, int radix)
+                throws NumberFormatException {
+        Objects.checkFromToIndex(beginIndex, endIndex, bytes.length);
+        if (radix < Character.MIN_RADIX) {
+            throw new NumberFormatException("radix " + radix +
+                                            " less than Character.MIN_RADIX");
+        }
+        if (radix > Character.MAX_RADIX) {
+            throw new NumberFormatException("radix " + radix +
+                                            " greater than Character.MAX_RADIX");
+        }
+
+        boolean negative = false;
+        int i = beginIndex;
+        long limit = -Long.MAX_VALUE;
+
+        if (i < endIndex) {
+            byte firstByte = bytes[i];
+            if (firstByte < '0') { // Possible leading "+" or "-"
+                if (firstByte == '-') {
+                    negative = true;
+                    limit = Long.MIN_VALUE;
+                } else if (firstByte != '+') {
+                    throw NumberFormatException.forBytes(bytes, beginIndex,
+                            endIndex, i);
+                }
+                i++;
+                if (i == endIndex) { // Cannot have lone "+" or "-"
+                    throw NumberFormatException.forBytes(bytes, beginIndex,
+                            endIndex, i);
+                }
+            }
+            long multmin = limit / radix;
+            long result = 0;
+            while (i < endIndex) {
+                // Accumulating negatively avoids surprises near MAX_VALUE
+                int digit = Character.digit(bytes[i] & 0xff, radix);
+                if (digit < 0 || result < multmin) {
+                    throw NumberFormatException.forBytes(bytes, beginIndex,
+                            endIndex, i);
+                }
+                result *= radix;
+                if (result < limit + digit) {
+                    throw NumberFormatException.forBytes(bytes, beginIndex,
+                            endIndex, i);
+                }
+                i++;
+                result -= digit;
+            }
+            return negative ? result : -result;
+        } else {
+            throw NumberFormatException.forInputString("");
+        }
+    }
+
     /**
      * Parses the string argument as a signed decimal {@code long}.
      * The characters in the string must all be decimal digits, except
@@ -25,6 +25,8 @@
 
 package java.lang;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Thrown to indicate that the application has attempted to convert
  * a string to one of the numeric types, but that the string does not
@@ -80,4 +82,21 @@ class NumberFormatException extends IllegalArgumentException {
                 + (errorIndex - beginIndex) + " in: \""
                 + s.subSequence(beginIndex, endIndex) + "\"");
     }
+
+    /**
+     * Factory method for making a {@code NumberFormatException}
+     * given the specified ASCII input which caused the error.
+     *
+     * @param   bytes   the input causing the error
+     * @param   beginIndex   the beginning index, inclusive.
+     * @param   endIndex     the ending index, exclusive.
+     * @param   errorIndex   the index of the first error in bytes
+     */
+    static NumberFormatException forBytes(byte[] bytes,
+            int beginIndex, int endIndex, int errorIndex) {
+        return new NumberFormatException("Error at index "
+                + (errorIndex - beginIndex) + " in: \""
+                + new String(bytes, beginIndex, endIndex - beginIndex,
+                             StandardCharsets.ISO_8859_1) + "\"");
+    }
 }
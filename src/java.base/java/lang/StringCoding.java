@@ -39,6 +39,7 @@ import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.Arrays;
 import jdk.internal.HotSpotIntrinsicCandidate;
+import jdk.internal.misc.Unsafe;
 import sun.nio.cs.HistoricallyNamedCharset;
 import sun.nio.cs.ArrayDecoder;
 import sun.nio.cs.ArrayEncoder;
@@ -146,9 +147,26 @@ class StringCoding {
         }
     }
 
+    private static final Unsafe U = Unsafe.getUnsafe();
+
+    /** The sign bits of the eight bytes of a long */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static long getLong(byte[] ba, int i) {
+        return U.getLongUnaligned(ba, Unsafe.ARRAY_BYTE_BASE_OFFSET + (long)i);
+    }
+
     @HotSpotIntrinsicCandidate
     public static boolean hasNegatives(byte[] ba, int off, int len) {
-        for (int i = off; i < off + len; i++) {
+        int i = off;
+        int limit = off + len;
+        // eight bytes at a time
+        for (int wl = limit - 7; i < wl; i += 8) {
+            if ((getLong(ba, i) & HIGH_BITS) != 0) {
+                return true;
+            }
+        }
+        for (; i < limit; i++) {
             if (ba[i] < 0) {
                 return true;
             }
@@ -156,6 +174,41 @@ class StringCoding {
         return false;
     }
 
+    /**
+     * Returns the number of non-negative (ASCII) bytes at the start of
+     * the given range of {@code ba}, reading eight bytes at a time.
+     */
+    static int countPositives(byte[] ba, int off, int len) {
+        int i = off;
+        int limit = off + len;
+        for (int wl = limit - 7; i < wl; i += 8) {
+            if ((getLong(ba, i) & HIGH_BITS) != 0) {
+                break;
+            }
+        }
+        while (i < limit && ba[i] >= 0) {
+            i++;
+        }
+        return i - off;
+    }
+
+    /**
+     * Returns the number of negative bytes in the given range of
+     * {@code ba}, reading eight bytes at a time.
+     */
+    private static int countNegatives(byte[] ba, int off, int len) {
+        int n = 0;
+        int i = off;
+        int limit = off + len;
+        for (int wl = limit - 7; i < wl; i += 8) {
+            n += Long.bitCount(getLong(ba, i) & HIGH_BITS);
+        }
+        for (; i < limit; i++) {
+            n += ba[i] >>> 31;
+        }
+        return n;
+    }
+
     // -- Decoding --
     static class StringDecoder {
         private final String requestedCharsetName;
@@ -467,12 +520,11 @@ class StringCoding {
 
     static byte[] encodeASCII(byte coder, byte[] val) {
         if (coder == LATIN1) {
-            byte[] dst = new byte[val.length];
-            for (int i = 0; i < val.length; i++) {
+            int n = countPositives(val, 0, val.length);
+            byte[] dst = Arrays.copyOf(val, val.length);
+            for (int i = n; i < val.length; i++) {
                 if (val[i] < 0) {
                     dst[i] = '?';
-                } else {
-                    dst[i] = val[i];
                 }
             }
             return dst;
@@ -502,12 +554,25 @@ class StringCoding {
         int dp = 0;
         byte[] dst;
         if (coder == LATIN1) {
-            dst = new byte[val.length << 1];
-            for (int sp = 0; sp < val.length; sp++) {
-                byte c = val[sp];
+            int sl = val.length;
+            int sp = countPositives(val, 0, sl);
+            if (sp == sl) {
+                return Arrays.copyOf(val, sl);
+            }
+            // Size the result exactly: non-ASCII bytes take two
+            dst = new byte[sl + countNegatives(val, sp, sl - sp)];
+            System.arraycopy(val, 0, dst, 0, sp);
+            dp = sp;
+            while (sp < sl) {
+                byte c = val[sp++];
                 if (c < 0) {
                     dst[dp++] = (byte)(0xc0 | ((c & 0xff) >> 6));
                     dst[dp++] = (byte)(0x80 | (c & 0x3f));
+                    // copy the following run of ascii in bulk
+                    int n = countPositives(val, sp, sl - sp);
+                    System.arraycopy(val, sp, dst, dp, n);
+                    sp += n;
+                    dp += n;
                 } else {
                     dst[dp++] = c;
                 }
@@ -104,8 +104,15 @@ class StringDecoderUTF8 extends StringCoding.StringDecoder {
     static StringCoding.Result decode(byte[] src, int sp, int len,
                                       StringCoding.Result ret) {
         int sl = sp + len;
+        // leading ascii, found eight bytes at a time
+        int n = StringCoding.countPositives(src, sp, len);
+        if (COMPACT_STRINGS && n == len) {
+            return ret.with(Arrays.copyOfRange(src, sp, sl), LATIN1);
+        }
         byte[] dst = new byte[len];
-        int dp = 0;
+        System.arraycopy(src, sp, dst, 0, n);
+        int dp = n;
+        sp += n;
         if (COMPACT_STRINGS) {   // Latin1 only loop
             while (sp < sl) {
                 int b1 = src[sp];
@@ -122,6 +129,11 @@ class StringDecoderUTF8 extends StringCoding.StringDecoder {
                                            (((byte) 0xC0 << 6) ^
                                            ((byte) 0x80 << 0)));
                         sp += 2;
+                        // copy the following run of ascii in bulk
+                        n = StringCoding.countPositives(src, sp, sl - sp);
+                        System.arraycopy(src, sp, dst, dp, n);
+                        sp += n;
+                        dp += n;
                         continue;
                     }
                 }
@@ -147,6 +159,11 @@ class StringDecoderUTF8 extends StringCoding.StringDecoder {
             int b1 = src[sp++];
             if (b1 >= 0) {
                 putChar(dst, dp++, (char) b1);
+                // inflate the following run of ascii in bulk
+                n = StringCoding.countPositives(src, sp, sl - sp);
+                StringLatin1.inflate(src, sp, dst, dp, n);
+                sp += n;
+                dp += n;
             } else if ((b1 >> 5) == -2 && (b1 & 0x1e) != 0) {
                 if (sp < sl) {
                     int b2 = src[sp++];
@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.COMPACT_STRINGS;
+import static java.lang.String.LATIN1;
+
+/**
+ * A pool of canonical strings, held in the Java heap, that can be used
+ * in place of {@link String#intern} to deduplicate strings such as the
+ * field names and tokens seen by a parser.
+ *
+ * <p>Each {@code intern} method returns the string in the pool that is
+ * equal to the given characters, adding a new one if there is none.
+ * Characters can be given as a {@code String}, as a range of any
+ * {@code CharSequence}, or as a range of bytes in a given charset; in
+ * the last two cases no string is created when an equal one is
+ * already in the pool, as long as the bytes are ISO-8859-1, or US-ASCII
+ * or UTF-8 that is entirely ASCII.
+ *
+ * <p>Unlike the pool of {@code String.intern}, the pool can be bounded,
+ * cleared, and examined.  It holds its strings weakly, so that a string
+ * no longer used elsewhere is removed from it, and it holds at most the
+ * maximum size given when it is created, removing arbitrary strings to
+ * make room for new ones.  Interning is therefore a best-effort
+ * deduplication: equal strings interned at different times are the
+ * same object only if the first was still in the pool when the second
+ * was interned, and strings should still be compared with {@code
+ * equals}.  {@link #hitCount}, {@link #missCount}, {@link
+ * #evictionCount}, {@link #size} and {@link #footprint} report on the
+ * effectiveness and cost of the pool.
+ *
+ * <p>An interner is safe for use by multiple threads.  Lookups of
+ * strings already in the pool take no lock.
+ *
+ * @since 9
+ */
+public final class StringInterner {
+
+    /*
+     * The pool is split into a power-of-two number of segments, each a
+     * hash table with its own lock.  Entries are weak references
+     * holding the hash of their string; a lookup that finds nothing in
+     * the unlocked table, which can miss entries being added or moved
+     * concurrently, is retried under the segment's lock before a string
+     * is added.  Hashes are those of String.hashCode, computed from the
+     * given characters or bytes, so that strings are compared only with
+     * candidates of the right hash.  When a segment is full, the first
+     * entry of the next non-empty bucket after a moving hand is evicted.
+     */
+
+    /** The largest number of segments. */
+    private static final int MAX_SEGMENTS = 16;
+
+    /** Estimated bytes per entry, besides the string's value array. */
+    private static final int ENTRY_OVERHEAD =
+        48 /* Entry */ + 24 /* String */ + 16 /* array header */;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int segmentMaxSize;
+    private final ReferenceQueue<String> queue = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates an unbounded interner.  Strings are removed from it only
+     * when they are no longer referenced elsewhere, or by {@link #clear}.
+     */
+    public StringInterner() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates an interner that holds at most the given number of strings.
+     *
+     * @param maximumSize the maximum number of strings in the pool
+     * @throws IllegalArgumentException if {@code maximumSize} is not
+     *         positive
+     */
+    public StringInterner(int maximumSize) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("Illegal maximum size: " +
+                                               maximumSize);
+        int n = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maximumSize));
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++)
+            segments[i] = new Segment();
+        segmentMask = n - 1;
+        segmentMaxSize = maximumSize / n;
+    }
+
+    // Interning
+
+    /**
+     * Returns the string in the pool equal to the given string, adding
+     * the given string itself if there is none.
+     *
+     * @param s the string to intern
+     * @return a string equal to {@code s}, from the pool
+     * @throws NullPointerException if {@code s} is null
+     */
+    public String intern(String s) {
+        int h = s.hashCode();
+        Segment seg = segmentFor(h);
+        for (Entry e = seg.first(h); e != null; e = e.next) {
+            String t;
+            if (e.hash == h && (t = e.get()) != null && t.equals(s)) {
+                hits.increment();
+                return t;
+            }
+        }
+        expungeStaleEntries();
+        synchronized (seg) {
+            for (Entry e = seg.first(h); e != null; e = e.next) {
+                String t;
+                if (e.hash == h && (t = e.get()) != null && t.equals(s)) {
+                    hits.increment();
+                    return t;
+                }
+            }
+            return add(seg, s, h);
+        }
+    }
+
+    /**
+     * Returns the string in the pool equal to the given character
+     * sequence, adding a string with its contents if there is none.
+     *
+     * @param cs the character sequence to intern
+     * @return a string equal to {@code cs.toString()}, from the pool
+     * @throws NullPointerException if {@code cs} is null
+     */
+    public String intern(CharSequence cs) {
+        if (cs instanceof String)
+            return intern((String)cs);
+        return intern(cs, 0, cs.length());
+    }
+
+    /**
+     * Returns the string in the pool equal to the given range of a
+     * character sequence, adding a string with its contents if there
+     * is none.  No string is created if there is one.
+     *
+     * @param cs the character sequence
+     * @param start the index of the first character to intern
+     * @param end the index after the last character to intern
+     * @return a string equal to {@code cs.subSequence(start, end)
+     *         .toString()}, from the pool
+     * @throws NullPointerException if {@code cs} is null
+     * @throws IndexOutOfBoundsException if {@code start} or {@code end}
+     *         is negative, if {@code end} is greater than {@code
+     *         cs.length()}, or if {@code start} is greater than {@code end}
+     */
+    public String intern(CharSequence cs, int start, int end) {
+        Objects.checkFromToIndex(start, end, cs.length());
+        int h = 0;
+        for (int i = start; i < end; i++)
+            h = 31 * h + cs.charAt(i);
+        Segment seg = segmentFor(h);
+        for (Entry e = seg.first(h); e != null; e = e.next) {
+            String t;
+            if (e.hash == h && (t = e.get()) != null &&
+                contentEquals(t, cs, start, end)) {
+                hits.increment();
+                return t;
+            }
+        }
+        expungeStaleEntries();
+        synchronized (seg) {
+            for (Entry e = seg.first(h); e != null; e = e.next) {
+                String t;
+                if (e.hash == h && (t = e.get()) != null &&
+                    contentEquals(t, cs, start, end)) {
+                    hits.increment();
+                    return t;
+                }
+            }
+            char[] chars = new char[end - start];
+            for (int i = start; i < end; i++)
+                chars[i - start] = cs.charAt(i);
+            return add(seg, new String(chars, 0, chars.length, null), h);
+        }
+    }
+
+    /**
+     * Returns the string in the pool equal to the given range of bytes
+     * decoded with the given charset, adding the decoded string if there
+     * is none.  No string is created if there is one and the charset is
+     * ISO-8859-1, or is US-ASCII or UTF-8 and the bytes are all ASCII.
+     * Malformed input and unmappable characters are replaced as by
+     * {@link String#String(byte[], int, int, Charset)}.
+     *
+     * @param bytes the bytes to decode
+     * @param offset the index of the first byte to decode
+     * @param length the number of bytes to decode
+     * @param charset the charset of the bytes
+     * @return a string equal to the decoded bytes, from the pool
+     * @throws NullPointerException if {@code bytes} or {@code charset}
+     *         is null
+     * @throws IndexOutOfBoundsException if {@code offset} or {@code
+     *         length} is negative, or {@code offset} is greater than
+     *         {@code bytes.length - length}
+     */
+    public String intern(byte[] bytes, int offset, int length,
+                         Charset charset) {
+        Objects.requireNonNull(charset);
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (charset != StandardCharsets.ISO_8859_1 &&
+            !((charset == StandardCharsets.UTF_8 ||
+               charset == StandardCharsets.US_ASCII) &&
+              !StringCoding.hasNegatives(bytes, offset, length)))
+            return intern(new String(bytes, offset, length, charset));
+        int end = offset + length;
+        int h = 0;
+        for (int i = offset; i < end; i++)
+            h = 31 * h + (bytes[i] & 0xff);
+        Segment seg = segmentFor(h);
+        for (Entry e = seg.first(h); e != null; e = e.next) {
+            String t;
+            if (e.hash == h && (t = e.get()) != null &&
+                latin1Equals(t, bytes, offset, length)) {
+                hits.increment();
+                return t;
+            }
+        }
+        expungeStaleEntries();
+        synchronized (seg) {
+            for (Entry e = seg.first(h); e != null; e = e.next) {
+                String t;
+                if (e.hash == h && (t = e.get()) != null &&
+                    latin1Equals(t, bytes, offset, length)) {
+                    hits.increment();
+                    return t;
+                }
+            }
+            String s = COMPACT_STRINGS
+                ? new String(Arrays.copyOfRange(bytes, offset, end), LATIN1)
+                : new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+            return add(seg, s, h);
+        }
+    }
+
+    /** Tests whether t holds the characters cs[start, end). */
+    private static boolean contentEquals(String t, CharSequence cs,
+                                         int start, int end) {
+        int len = end - start;
+        if (t.length() != len)
+            return false;
+        byte[] v = t.value();
+        if (t.coder() == LATIN1) {
+            for (int i = 0; i < len; i++) {
+                if ((char)(v[i] & 0xff) != cs.charAt(start + i))
+                    return false;
+            }
+        } else {
+            for (int i = 0; i < len; i++) {
+                if (StringUTF16.getChar(v, i) != cs.charAt(start + i))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /** Tests whether t holds the ISO-8859-1 characters b[off, off+len). */
+    private static boolean latin1Equals(String t, byte[] b, int off, int len) {
+        byte[] v = t.value();
+        if (t.coder() == LATIN1)
+            return v.length == len &&
+                Arrays.equals(v, 0, len, b, off, off + len);
+        if ((v.length >> 1) != len)
+            return false;
+        for (int i = 0; i < len; i++) {
+            if (StringUTF16.getChar(v, i) != (char)(b[off + i] & 0xff))
+                return false;
+        }
+        return true;
+    }
+
+    // Table maintenance
+
+    /**
+     * Segments are chained hash tables whose array is replaced when it
+     * grows.  All fields are written only while holding the segment's
+     * monitor; the table is volatile so that unlocked lookups see a
+     * complete array.  As in the JDK 5 ConcurrentHashMap, the next
+     * field of an entry is final: entries are only ever added at the
+     * head of a chain, and removal and rehashing copy the entries that
+     * precede the removed one or that move, rather than relinking
+     * them.  An unlocked lookup thus always walks some consistent
+     * version of a chain; if that version is out of date, the lookup
+     * only misses, and falls back to a locked lookup.
+     */
+    static final class Segment {
+        volatile Entry[] table = new Entry[8];
+        int count;
+        long bytes;   // total length of the value arrays of the entries
+        int hand;     // the next bucket to evict from
+
+        Entry first(int h) {
+            Entry[] tab = table;
+            return tab[h & (tab.length - 1)];
+        }
+    }
+
+    static final class Entry extends WeakReference<String> {
+        final int hash;
+        final int bytes;
+        final Entry next;
+
+        Entry(String s, int hash, Entry next, ReferenceQueue<String> q) {
+            super(s, q);
+            this.hash = hash;
+            this.bytes = s.value().length;
+            this.next = next;
+        }
+    }
+
+    private Segment segmentFor(int h) {
+        // use high bits of a multiplicative hash, as the low bits of h
+        // choose the bucket, and the high bits of h are zero for short
+        // strings
+        return segments[((h * 0x9E3779B9) >>> 28) & segmentMask];
+    }
+
+    /** Adds s, which is not in seg, and returns it.  Holds seg's lock. */
+    private String add(Segment seg, String s, int h) {
+        misses.increment();
+        if (seg.count >= segmentMaxSize)
+            evict(seg);
+        Entry[] tab = seg.table;
+        if (seg.count >= tab.length - (tab.length >>> 2) &&
+            tab.length < (1 << 30))
+            tab = rehash(seg);
+        int i = h & (tab.length - 1);
+        Entry e = new Entry(s, h, tab[i], queue);
+        tab[i] = e;
+        seg.count++;
+        seg.bytes += e.bytes;
+        return s;
+    }
+
+    /** Evicts one entry from seg, which is full.  Holds seg's lock. */
+    private void evict(Segment seg) {
+        Entry[] tab = seg.table;
+        int mask = tab.length - 1;
+        int i = seg.hand & mask;
+        while (tab[i] == null)
+            i = (i + 1) & mask;
+        Entry e = tab[i];
+        tab[i] = e.next;
+        seg.hand = i + 1;
+        seg.count--;
+        seg.bytes -= e.bytes;
+        if (e.get() != null)
+            evictions.increment();
+    }
+
+    /**
+     * Doubles the table of seg.  Holds seg's lock.  Each chain splits
+     * into two; the trailing run of entries that all go to the same new
+     * bucket is reused as is, and the entries before it are copied,
+     * dropping stale ones.
+     */
+    private Entry[] rehash(Segment seg) {
+        Entry[] oldTab = seg.table;
+        Entry[] newTab = new Entry[oldTab.length << 1];
+        int mask = newTab.length - 1;
+        for (Entry head : oldTab) {
+            if (head == null)
+                continue;
+            Entry lastRun = head;
+            int lastIdx = head.hash & mask;
+            for (Entry e = head.next; e != null; e = e.next) {
+                int i = e.hash & mask;
+                if (i != lastIdx) {
+                    lastIdx = i;
+                    lastRun = e;
+                }
+            }
+            newTab[lastIdx] = lastRun;
+            for (Entry e = head; e != lastRun; e = e.next) {
+                String s = e.get();
+                if (s == null) {
+                    seg.count--;
+                    seg.bytes -= e.bytes;
+                } else {
+                    int i = e.hash & mask;
+                    newTab[i] = new Entry(s, e.hash, newTab[i], queue);
+                }
+            }
+        }
+        seg.table = newTab;
+        return newTab;
+    }
+
+    /** Removes the entries whose strings have been collected. */
+    private void expungeStaleEntries() {
+        for (Object x; (x = queue.poll()) != null; ) {
+            Entry stale = (Entry)x;
+            Segment seg = segmentFor(stale.hash);
+            synchronized (seg) {
+                Entry[] tab = seg.table;
+                int i = stale.hash & (tab.length - 1);
+                Entry first = tab[i];
+                for (Entry e = first; e != null; e = e.next) {
+                    if (e == stale) {
+                        // copy the entries before stale, dropping
+                        // those that are stale too
+                        Entry newFirst = stale.next;
+                        for (Entry p = first; p != stale; p = p.next) {
+                            String s = p.get();
+                            if (s == null) {
+                                seg.count--;
+                                seg.bytes -= p.bytes;
+                            } else {
+                                newFirst = new Entry(s, p.hash, newFirst,
+                                                     queue);
+                            }
+                        }
+                        tab[i] = newFirst;
+                        seg.count--;
+                        seg.bytes -= stale.bytes;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    // Management and statistics
+
+    /**
+     * Removes all strings from the pool.  The statistics are not reset.
+     */
+    public void clear() {
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                seg.table = new Entry[8];
+                seg.count = 0;
+                seg.bytes = 0;
+                seg.hand = 0;
+            }
+        }
+        while (queue.poll() != null)
+            ;
+    }
+
+    /**
+     * Returns the number of strings in the pool.
+     *
+     * @return the number of strings in the pool
+     */
+    public int size() {
+        expungeStaleEntries();
+        int n = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                n += seg.count;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns an estimate of the number of bytes of heap used by the pool,
+     * including the strings in it.
+     *
+     * @return the estimated footprint of the pool, in bytes
+     */
+    public long footprint() {
+        expungeStaleEntries();
+        long n = 0;
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                n += seg.bytes + (long)seg.count * ENTRY_OVERHEAD +
+                    16 + 8L * seg.table.length;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of times an {@code intern} method found the
+     * string in the pool.
+     *
+     * @return the number of hits
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of times an {@code intern} method added a
+     * string to the pool.
+     *
+     * @return the number of misses
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of strings removed from the pool to keep it
+     * within its maximum size.  Strings removed because they were no
+     * longer in use are not counted.
+     *
+     * @return the number of evictions
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns a string describing the size, footprint and statistics of
+     * this interner.
+     *
+     * @return a string describing this interner
+     */
+    public String toString() {
+        return "StringInterner[size=" + size() +
+            ", footprint=" + footprint() +
+            ", hits=" + hitCount() +
+            ", misses=" + missCount() +
+            ", evictions=" + evictionCount() + "]";
+    }
+}
@@ -40,6 +40,8 @@ import sun.invoke.util.VerifyType;
 import sun.invoke.util.Wrapper;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
@@ -1753,6 +1755,18 @@ import static jdk.internal.org.objectweb.asm.Opcodes.*;
                 return GenerateJLIClassesHelper
                         .generateInvokersHolderClassBytes(className, methodTypes);
             }
+
+            @Override
+            public MethodHandle unreflect(Method method)
+                    throws IllegalAccessException {
+                return IMPL_LOOKUP.unreflect(method);
+            }
+
+            @Override
+            public MethodHandle unreflectConstructor(Constructor<?> ctor)
+                    throws IllegalAccessException {
+                return IMPL_LOOKUP.unreflectConstructor(ctor);
+            }
         });
     }
 
@@ -174,6 +174,33 @@ public class ArrayDeque<E> extends AbstractCollection<E>
             : MAX_ARRAY_SIZE;
     }
 
+    /**
+     * Trims the capacity of this deque to its current size, plus the one
+     * free slot that it always keeps.  An application can use this
+     * operation to minimize the storage of a deque that has shrunk, or
+     * that will no longer grow.  Like other modifications, this must not
+     * be invoked while the deque is being iterated.
+     *
+     * @since 9
+     */
+    public void trimToSize() {
+        final Object[] es = elements;
+        final int size = size();
+        if (es.length > size + 1) {
+            final Object[] a = new Object[size + 1];
+            final int head = this.head, tail = this.tail;
+            if (head <= tail)
+                System.arraycopy(es, head, a, 0, size);
+            else {
+                System.arraycopy(es, head, a, 0, es.length - head);
+                System.arraycopy(es, 0, a, es.length - head, tail);
+            }
+            elements = a;
+            this.head = 0;
+            this.tail = size;
+        }
+    }
+
     /**
      * Constructs an empty array deque with an initial capacity
      * sufficient to hold 16 elements.
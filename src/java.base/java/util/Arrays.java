@@ -38,6 +38,7 @@ import java.util.function.IntToDoubleFunction;
 import java.util.function.IntToLongFunction;
 import java.util.function.IntUnaryOperator;
 import java.util.function.LongBinaryOperator;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
@@ -656,16 +657,18 @@ public class Arrays {
     /**
      * Sorts the specified array into ascending numerical order.
      *
-     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
-     * array into sub-arrays that are themselves sorted and then merged. When
-     * the sub-array length reaches a minimum granularity, the sub-array is
-     * sorted using the appropriate {@link Arrays#sort(int[]) Arrays.sort}
-     * method. If the length of the specified array is less than the minimum
-     * granularity, then it is sorted using the appropriate {@link
-     * Arrays#sort(int[]) Arrays.sort} method. The algorithm requires a
-     * working space no greater than the size of the original array. The
-     * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
-     * execute any parallel tasks.
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort that distributes the array into buckets by successive
+     * bytes of the elements, counting and moving chunks of the array in
+     * parallel, and then sorts the buckets in parallel. When a bucket's
+     * length reaches a minimum granularity, it is sorted using the
+     * appropriate {@link Arrays#sort(int[]) Arrays.sort} method. If the
+     * length of the specified array is less than the minimum granularity,
+     * then it is sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method. The algorithm requires a working space no greater
+     * than the size of the original array. The {@link
+     * ForkJoinPool#commonPool() ForkJoin common pool} is used to execute any
+     * parallel tasks.
      *
      * @param a the array to be sorted
      *
@@ -677,8 +680,9 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, 0, n - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJInt.Sorter
-                (null, a, new int[n], 0, n, 0,
+            new ArraysParallelSortHelpers.FJIntRadix.Sorter
+                (null, a, new int[n], 0, false, 0, n,
+                 DualPivotQuicksort.INT_TOP_SHIFT,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
@@ -689,16 +693,18 @@ public class Arrays {
      * inclusive, to the index {@code toIndex}, exclusive. If
      * {@code fromIndex == toIndex}, the range to be sorted is empty.
      *
-     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
-     * array into sub-arrays that are themselves sorted and then merged. When
-     * the sub-array length reaches a minimum granularity, the sub-array is
-     * sorted using the appropriate {@link Arrays#sort(int[]) Arrays.sort}
-     * method. If the length of the specified array is less than the minimum
-     * granularity, then it is sorted using the appropriate {@link
-     * Arrays#sort(int[]) Arrays.sort} method. The algorithm requires a working
-     * space no greater than the size of the specified range of the original
-     * array. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
-     * used to execute any parallel tasks.
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort that distributes the range into buckets by successive
+     * bytes of the elements, counting and moving chunks of the range in
+     * parallel, and then sorts the buckets in parallel. When a bucket's
+     * length reaches a minimum granularity, it is sorted using the
+     * appropriate {@link Arrays#sort(int[]) Arrays.sort} method. If the
+     * length of the specified range is less than the minimum granularity,
+     * then it is sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method. The algorithm requires a working space no greater
+     * than the size of the specified range of the original array. The
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
+     * execute any parallel tasks.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element, inclusive, to be sorted
@@ -717,8 +723,9 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJInt.Sorter
-                (null, a, new int[n], fromIndex, n, 0,
+            new ArraysParallelSortHelpers.FJIntRadix.Sorter
+                (null, a, new int[n], fromIndex, false, 0, n,
+                 DualPivotQuicksort.INT_TOP_SHIFT,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
@@ -726,16 +733,18 @@ public class Arrays {
     /**
      * Sorts the specified array into ascending numerical order.
      *
-     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
-     * array into sub-arrays that are themselves sorted and then merged. When
-     * the sub-array length reaches a minimum granularity, the sub-array is
-     * sorted using the appropriate {@link Arrays#sort(long[]) Arrays.sort}
-     * method. If the length of the specified array is less than the minimum
-     * granularity, then it is sorted using the appropriate {@link
-     * Arrays#sort(long[]) Arrays.sort} method. The algorithm requires a
-     * working space no greater than the size of the original array. The
-     * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
-     * execute any parallel tasks.
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort that distributes the array into buckets by successive
+     * bytes of the elements, counting and moving chunks of the array in
+     * parallel, and then sorts the buckets in parallel. When a bucket's
+     * length reaches a minimum granularity, it is sorted using the
+     * appropriate {@link Arrays#sort(long[]) Arrays.sort} method. If the
+     * length of the specified array is less than the minimum granularity,
+     * then it is sorted using the appropriate {@link Arrays#sort(long[])
+     * Arrays.sort} method. The algorithm requires a working space no greater
+     * than the size of the original array. The {@link
+     * ForkJoinPool#commonPool() ForkJoin common pool} is used to execute any
+     * parallel tasks.
      *
      * @param a the array to be sorted
      *
@@ -747,8 +756,9 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, 0, n - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJLong.Sorter
-                (null, a, new long[n], 0, n, 0,
+            new ArraysParallelSortHelpers.FJLongRadix.Sorter
+                (null, a, new long[n], 0, false, 0, n,
+                 DualPivotQuicksort.LONG_TOP_SHIFT,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
@@ -759,16 +769,18 @@ public class Arrays {
      * inclusive, to the index {@code toIndex}, exclusive. If
      * {@code fromIndex == toIndex}, the range to be sorted is empty.
      *
-     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
-     * array into sub-arrays that are themselves sorted and then merged. When
-     * the sub-array length reaches a minimum granularity, the sub-array is
-     * sorted using the appropriate {@link Arrays#sort(long[]) Arrays.sort}
-     * method. If the length of the specified array is less than the minimum
-     * granularity, then it is sorted using the appropriate {@link
-     * Arrays#sort(long[]) Arrays.sort} method. The algorithm requires a working
-     * space no greater than the size of the specified range of the original
-     * array. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
-     * used to execute any parallel tasks.
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort that distributes the range into buckets by successive
+     * bytes of the elements, counting and moving chunks of the range in
+     * parallel, and then sorts the buckets in parallel. When a bucket's
+     * length reaches a minimum granularity, it is sorted using the
+     * appropriate {@link Arrays#sort(long[]) Arrays.sort} method. If the
+     * length of the specified range is less than the minimum granularity,
+     * then it is sorted using the appropriate {@link Arrays#sort(long[])
+     * Arrays.sort} method. The algorithm requires a working space no greater
+     * than the size of the specified range of the original array. The
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
+     * execute any parallel tasks.
      *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element, inclusive, to be sorted
@@ -787,8 +799,9 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJLong.Sorter
-                (null, a, new long[n], fromIndex, n, 0,
+            new ArraysParallelSortHelpers.FJLongRadix.Sorter
+                (null, a, new long[n], fromIndex, false, 0, n,
+                 DualPivotQuicksort.LONG_TOP_SHIFT,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
@@ -1515,6 +1528,89 @@ public class Arrays {
         }
     }
 
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code long} keys extracted from them by the specified function.
+     * The key of each element is extracted exactly once, and elements are
+     * ordered by {@link Long#compare(long, long)} of their keys, without
+     * invoking a {@code Comparator}.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  elements with equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote This implementation extracts the keys into a {@code long}
+     * array and sorts it, together with the permutation of element indices,
+     * using a least-significant-digit radix sort that skips any bytes shared
+     * by all keys.  The elements are then rearranged by the permutation.
+     * Temporary storage requirements are n {@code long}s, 2n {@code int}s and
+     * n object references, in addition to a second array of n {@code long}s
+     * if the keys are not already in order.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     * @throws NullPointerException if {@code a} or {@code keyExtractor} is
+     *         null
+     * @since 9
+     */
+    public static <T> void sortByLongKey(T[] a,
+                                         ToLongFunction<? super T> keyExtractor) {
+        sortByLongKey(a, 0, a.length, keyExtractor);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of objects into
+     * ascending order of the {@code long} keys extracted from them by the
+     * specified function.  The range to be sorted extends from index
+     * {@code fromIndex}, inclusive, to index {@code toIndex}, exclusive.
+     * (If {@code fromIndex==toIndex}, the range to be sorted is empty.)
+     * The key of each element is extracted exactly once, and elements are
+     * ordered by {@link Long#compare(long, long)} of their keys, without
+     * invoking a {@code Comparator}.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  elements with equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote See {@link #sortByLongKey(Object[], ToLongFunction)}.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element (inclusive) to be
+     *        sorted
+     * @param toIndex the index of the last element (exclusive) to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     * @throws NullPointerException if {@code a} or {@code keyExtractor} is
+     *         null
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > a.length}
+     * @since 9
+     */
+    public static <T> void sortByLongKey(T[] a, int fromIndex, int toIndex,
+                                         ToLongFunction<? super T> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex;
+        long[] keys = new long[n];
+        boolean sorted = true;
+        for (int i = 0; i < n; ++i) {
+            long k = keys[i] = keyExtractor.applyAsLong(a[fromIndex + i]);
+            if (i > 0 && k < keys[i - 1])
+                sorted = false;
+        }
+        if (sorted)
+            return;
+        int[] perm = new int[n];
+        for (int i = 0; i < n; ++i)
+            perm[i] = i;
+        DualPivotQuicksort.radixSort(keys, perm, 0, n, new long[n], new int[n]);
+        Object[] elements = copyOfRange(a, fromIndex, toIndex, Object[].class);
+        for (int i = 0; i < n; ++i) {
+            @SuppressWarnings("unchecked") T e = (T) elements[perm[i]];
+            a[fromIndex + i] = e;
+        }
+    }
+
     /** To be removed in a future release. */
     private static <T> void legacyMergeSort(T[] a, int fromIndex, int toIndex,
                                             Comparator<? super T> c) {
@@ -4404,6 +4500,16 @@ public class Arrays {
             Arrays.sort(a, c);
         }
 
+        @Override
+        public void parallelSort(Comparator<? super E> c) {
+            Arrays.parallelSort(a, c);
+        }
+
+        @Override
+        public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+            Arrays.sortByLongKey(a, keyExtractor);
+        }
+
         @Override
         public Iterator<E> iterator() {
             return new ArrayItr<>(a);
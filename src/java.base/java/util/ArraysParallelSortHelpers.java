@@ -63,8 +63,22 @@ import java.util.concurrent.CountedCompleter;
  * need to keep track of the arrays, and are never themselves forked,
  * so don't hold any task state.
  *
- * The primitive class versions (FJByte... FJDouble) are
- * identical to each other except for type declarations.
+ * The primitive class versions (FJByte, FJChar, FJShort, FJFloat
+ * and FJDouble) are identical to each other except for type
+ * declarations.
+ *
+ * For int and long, Arrays.parallelSort instead uses the radix
+ * sorters FJIntRadix and FJLongRadix, which avoid the merge passes.
+ * Each Sorter distributes its range by one digit (byte) of the
+ * elements, most significant first: a parallel counting Pass over
+ * chunks of the range, then a parallel stable scattering Pass into
+ * the other array (main and workspace swap roles on each level).
+ * Digits shared by all elements of the range are skipped without
+ * moving anything.  Buckets larger than the granularity are then
+ * sorted by the next digit in subtasks; runs of adjacent smaller
+ * buckets, which are already ordered with respect to each other,
+ * are sorted together sequentially, and copied back to the main
+ * array if they lie in the workspace.
  *
  * The base sequential sorts rely on non-public versions of TimSort,
  * ComparableTimSort, and DualPivotQuicksort sort methods that accept
@@ -191,9 +205,9 @@ import java.util.concurrent.CountedCompleter;
                             break;
                         lh = ln;
                         T split = a[(rh = rn >>> 1) + rb];
-                        for (int lo = 0; lo < lh; ) {
+                        for (int lo = 0; lo < lh; ) { // keep equal lefts first
                             int lm = (lo + lh) >>> 1;
-                            if (c.compare(split, a[lm + lb]) <= 0)
+                            if (c.compare(split, a[lm + lb]) < 0)
                                 lh = lm;
                             else
                                 lo = lm + 1;
@@ -563,13 +577,13 @@ import java.util.concurrent.CountedCompleter;
         }
     } // FJShort
 
-    /** int support class */
-    static final class FJInt {
+    /** float support class */
+    static final class FJFloat {
         static final class Sorter extends CountedCompleter<Void> {
             static final long serialVersionUID = 2446542900576103244L;
-            final int[] a, w;
+            final float[] a, w;
             final int base, size, wbase, gran;
-            Sorter(CountedCompleter<?> par, int[] a, int[] w, int base,
+            Sorter(CountedCompleter<?> par, float[] a, float[] w, int base,
                    int size, int wbase, int gran) {
                 super(par);
                 this.a = a; this.w = w; this.base = base; this.size = size;
@@ -577,7 +591,7 @@ import java.util.concurrent.CountedCompleter;
             }
             public final void compute() {
                 CountedCompleter<?> s = this;
-                int[] a = this.a, w = this.w; // localize all params
+                float[] a = this.a, w = this.w; // localize all params
                 int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
                 while (n > g) {
                     int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
@@ -600,9 +614,9 @@ import java.util.concurrent.CountedCompleter;
 
         static final class Merger extends CountedCompleter<Void> {
             static final long serialVersionUID = 2446542900576103244L;
-            final int[] a, w; // main and workspace arrays
+            final float[] a, w; // main and workspace arrays
             final int lbase, lsize, rbase, rsize, wbase, gran;
-            Merger(CountedCompleter<?> par, int[] a, int[] w,
+            Merger(CountedCompleter<?> par, float[] a, float[] w,
                    int lbase, int lsize, int rbase,
                    int rsize, int wbase, int gran) {
                 super(par);
@@ -613,7 +627,7 @@ import java.util.concurrent.CountedCompleter;
             }
 
             public final void compute() {
-                int[] a = this.a, w = this.w; // localize all params
+                float[] a = this.a, w = this.w; // localize all params
                 int lb = this.lbase, ln = this.lsize, rb = this.rbase,
                     rn = this.rsize, k = this.wbase, g = this.gran;
                 if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
@@ -623,7 +637,7 @@ import java.util.concurrent.CountedCompleter;
                         if (ln <= g)
                             break;
                         rh = rn;
-                        int split = a[(lh = ln >>> 1) + lb];
+                        float split = a[(lh = ln >>> 1) + lb];
                         for (int lo = 0; lo < rh; ) {
                             int rm = (lo + rh) >>> 1;
                             if (split <= a[rm + rb])
@@ -636,7 +650,7 @@ import java.util.concurrent.CountedCompleter;
                         if (rn <= g)
                             break;
                         lh = ln;
-                        int split = a[(rh = rn >>> 1) + rb];
+                        float split = a[(rh = rn >>> 1) + rb];
                         for (int lo = 0; lo < lh; ) {
                             int lm = (lo + lh) >>> 1;
                             if (split <= a[lm + lb])
@@ -656,7 +670,7 @@ import java.util.concurrent.CountedCompleter;
 
                 int lf = lb + ln, rf = rb + rn; // index bounds
                 while (lb < lf && rb < rf) {
-                    int t, al, ar;
+                    float t, al, ar;
                     if ((al = a[lb]) <= (ar = a[rb])) {
                         lb++; t = al;
                     }
@@ -672,15 +686,15 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
-    } // FJInt
+    } // FJFloat
 
-    /** long support class */
-    static final class FJLong {
+    /** double support class */
+    static final class FJDouble {
         static final class Sorter extends CountedCompleter<Void> {
             static final long serialVersionUID = 2446542900576103244L;
-            final long[] a, w;
+            final double[] a, w;
             final int base, size, wbase, gran;
-            Sorter(CountedCompleter<?> par, long[] a, long[] w, int base,
+            Sorter(CountedCompleter<?> par, double[] a, double[] w, int base,
                    int size, int wbase, int gran) {
                 super(par);
                 this.a = a; this.w = w; this.base = base; this.size = size;
@@ -688,7 +702,7 @@ import java.util.concurrent.CountedCompleter;
             }
             public final void compute() {
                 CountedCompleter<?> s = this;
-                long[] a = this.a, w = this.w; // localize all params
+                double[] a = this.a, w = this.w; // localize all params
                 int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
                 while (n > g) {
                     int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
@@ -711,9 +725,9 @@ import java.util.concurrent.CountedCompleter;
 
         static final class Merger extends CountedCompleter<Void> {
             static final long serialVersionUID = 2446542900576103244L;
-            final long[] a, w; // main and workspace arrays
+            final double[] a, w; // main and workspace arrays
             final int lbase, lsize, rbase, rsize, wbase, gran;
-            Merger(CountedCompleter<?> par, long[] a, long[] w,
+            Merger(CountedCompleter<?> par, double[] a, double[] w,
                    int lbase, int lsize, int rbase,
                    int rsize, int wbase, int gran) {
                 super(par);
@@ -724,7 +738,7 @@ import java.util.concurrent.CountedCompleter;
             }
 
             public final void compute() {
-                long[] a = this.a, w = this.w; // localize all params
+                double[] a = this.a, w = this.w; // localize all params
                 int lb = this.lbase, ln = this.lsize, rb = this.rbase,
                     rn = this.rsize, k = this.wbase, g = this.gran;
                 if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
@@ -734,7 +748,7 @@ import java.util.concurrent.CountedCompleter;
                         if (ln <= g)
                             break;
                         rh = rn;
-                        long split = a[(lh = ln >>> 1) + lb];
+                        double split = a[(lh = ln >>> 1) + lb];
                         for (int lo = 0; lo < rh; ) {
                             int rm = (lo + rh) >>> 1;
                             if (split <= a[rm + rb])
@@ -747,7 +761,7 @@ import java.util.concurrent.CountedCompleter;
                         if (rn <= g)
                             break;
                         lh = ln;
-                        long split = a[(rh = rn >>> 1) + rb];
+                        double split = a[(rh = rn >>> 1) + rb];
                         for (int lo = 0; lo < lh; ) {
                             int lm = (lo + lh) >>> 1;
                             if (split <= a[lm + lb])
@@ -767,7 +781,7 @@ import java.util.concurrent.CountedCompleter;
 
                 int lf = lb + ln, rf = rb + rn; // index bounds
                 while (lb < lf && rb < rf) {
-                    long t, al, ar;
+                    double t, al, ar;
                     if ((al = a[lb]) <= (ar = a[rb])) {
                         lb++; t = al;
                     }
@@ -783,228 +797,233 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
-    } // FJLong
+    } // FJDouble
 
-    /** float support class */
-    static final class FJFloat {
+    /** int radix sort support class */
+    static final class FJIntRadix {
         static final class Sorter extends CountedCompleter<Void> {
             static final long serialVersionUID = 2446542900576103244L;
-            final float[] a, w;
-            final int base, size, wbase, gran;
-            Sorter(CountedCompleter<?> par, float[] a, float[] w, int base,
-                   int size, int wbase, int gran) {
-                super(par);
-                this.a = a; this.w = w; this.base = base; this.size = size;
-                this.wbase = wbase; this.gran = gran;
-            }
-            public final void compute() {
-                CountedCompleter<?> s = this;
-                float[] a = this.a, w = this.w; // localize all params
-                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
-                while (n > g) {
-                    int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
-                    Relay fc = new Relay(new Merger(s, w, a, wb, h,
-                                                    wb+h, n-h, b, g));
-                    Relay rc = new Relay(new Merger(fc, a, w, b+h, q,
-                                                    b+u, n-u, wb+h, g));
-                    new Sorter(rc, a, w, b+u, n-u, wb+u, g).fork();
-                    new Sorter(rc, a, w, b+h, q, wb+h, g).fork();;
-                    Relay bc = new Relay(new Merger(fc, a, w, b, q,
-                                                    b+q, h-q, wb, g));
-                    new Sorter(bc, a, w, b+q, h-q, wb+q, g).fork();
-                    s = new EmptyCompleter(bc);
-                    n = q;
-                }
-                DualPivotQuicksort.sort(a, b, b + n - 1, w, wb, n);
-                s.tryComplete();
-            }
-        }
-
-        static final class Merger extends CountedCompleter<Void> {
-            static final long serialVersionUID = 2446542900576103244L;
-            final float[] a, w; // main and workspace arrays
-            final int lbase, lsize, rbase, rsize, wbase, gran;
-            Merger(CountedCompleter<?> par, float[] a, float[] w,
-                   int lbase, int lsize, int rbase,
-                   int rsize, int wbase, int gran) {
+            final int[] a, w;
+            final int aBase, base, size, shift, gran;
+            final boolean inW;
+            Sorter(CountedCompleter<?> par, int[] a, int[] w, int aBase,
+                   boolean inW, int base, int size, int shift, int gran) {
                 super(par);
-                this.a = a; this.w = w;
-                this.lbase = lbase; this.lsize = lsize;
-                this.rbase = rbase; this.rsize = rsize;
-                this.wbase = wbase; this.gran = gran;
+                this.a = a; this.w = w; this.aBase = aBase; this.inW = inW;
+                this.base = base; this.size = size; this.shift = shift;
+                this.gran = gran;
             }
-
             public final void compute() {
-                float[] a = this.a, w = this.w; // localize all params
-                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
-                    rn = this.rsize, k = this.wbase, g = this.gran;
-                if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
-                    throw new IllegalStateException(); // hoist checks
-                for (int lh, rh;;) {  // split larger, find point in smaller
-                    if (ln >= rn) {
-                        if (ln <= g)
-                            break;
-                        rh = rn;
-                        float split = a[(lh = ln >>> 1) + lb];
-                        for (int lo = 0; lo < rh; ) {
-                            int rm = (lo + rh) >>> 1;
-                            if (split <= a[rm + rb])
-                                rh = rm;
-                            else
-                                lo = rm + 1;
-                        }
+                int[] a = this.a, w = this.w; // localize all params
+                int ab = this.aBase, b = this.base, n = this.size;
+                int sh = this.shift, g = this.gran;
+                boolean inW = this.inW;
+                int[] src = inW ? w : a, dst = inW ? a : w;
+                int so = inW ? b : ab + b, dso = inW ? ab + b : b;
+                int k = 0, c = 0;
+                int[][] counts = null;
+                for (;; sh -= DualPivotQuicksort.RADIX_BITS) {
+                    if (n <= g || sh < 0) {
+                        if (sh >= 0)
+                            DualPivotQuicksort.sort(src, so, so + n - 1,
+                                                    dst, dso, n);
+                        if (inW)
+                            System.arraycopy(w, so, a, dso, n);
+                        tryComplete();
+                        return;
                     }
-                    else {
-                        if (rn <= g)
-                            break;
-                        lh = ln;
-                        float split = a[(rh = rn >>> 1) + rb];
-                        for (int lo = 0; lo < lh; ) {
-                            int lm = (lo + lh) >>> 1;
-                            if (split <= a[lm + lb])
-                                lh = lm;
-                            else
-                                lo = lm + 1;
-                        }
+                    k = (n + g - 1) / g;
+                    c = (n + k - 1) / k;
+                    counts = new int[k][DualPivotQuicksort.RADIX];
+                    Pass[] ps = new Pass[k];
+                    for (int i = 0; i < k; ++i)
+                        ps[i] = new Pass(src, null, so + i * c,
+                                         so + Math.min(n, (i + 1) * c),
+                                         sh, counts[i]);
+                    invokeAll(ps);
+                    int f = (sh == DualPivotQuicksort.INT_TOP_SHIFT) ?
+                        DualPivotQuicksort.RADIX >>> 1 : 0;
+                    int d = ((src[so] >>> sh) &
+                             (DualPivotQuicksort.RADIX - 1)) ^ f, t = 0;
+                    for (int[] cs : counts)
+                        t += cs[d];
+                    if (t != n) // else skip digit shared by all elements
+                        break;
+                }
+                int[] start = new int[DualPivotQuicksort.RADIX + 1];
+                for (int d = 0, pos = dso; d < DualPivotQuicksort.RADIX; ++d) {
+                    start[d] = pos - dso;
+                    for (int[] cs : counts) {
+                        int t = cs[d];
+                        cs[d] = pos;
+                        pos += t;
                     }
-                    Merger m = new Merger(this, a, w, lb + lh, ln - lh,
-                                          rb + rh, rn - rh,
-                                          k + lh + rh, g);
-                    rn = rh;
-                    ln = lh;
-                    addToPendingCount(1);
-                    m.fork();
                 }
-
-                int lf = lb + ln, rf = rb + rn; // index bounds
-                while (lb < lf && rb < rf) {
-                    float t, al, ar;
-                    if ((al = a[lb]) <= (ar = a[rb])) {
-                        lb++; t = al;
+                start[DualPivotQuicksort.RADIX] = n;
+                Pass[] ps = new Pass[k];
+                for (int i = 0; i < k; ++i)
+                    ps[i] = new Pass(src, dst, so + i * c,
+                                     so + Math.min(n, (i + 1) * c),
+                                     sh, counts[i]);
+                invokeAll(ps);
+                // Fork buckets; batch adjacent small buckets into leaves
+                int nsh = sh - DualPivotQuicksort.RADIX_BITS, run = 0;
+                for (int d = 0; d < DualPivotQuicksort.RADIX; ++d) {
+                    int lo = start[d], hi = start[d + 1];
+                    if (hi - lo > g) {
+                        if (lo > run)
+                            fork(ab, !inW, b + run, lo - run, nsh, g);
+                        fork(ab, !inW, b + lo, hi - lo, nsh, g);
+                        run = hi;
                     }
-                    else {
-                        rb++; t = ar;
+                    else if (hi - run > g) {
+                        fork(ab, !inW, b + run, lo - run, nsh, g);
+                        run = lo;
                     }
-                    w[k++] = t;
                 }
-                if (rb < rf)
-                    System.arraycopy(a, rb, w, k, rf - rb);
-                else if (lb < lf)
-                    System.arraycopy(a, lb, w, k, lf - lb);
+                if (n > run)
+                    fork(ab, !inW, b + run, n - run, nsh, g);
                 tryComplete();
             }
+            private void fork(int ab, boolean inW, int b, int n, int sh, int g) {
+                if (n > 0) {
+                    addToPendingCount(1);
+                    new Sorter(this, a, w, ab, inW, b, n, sh, g).fork();
+                }
+            }
         }
-    } // FJFloat
 
-    /** double support class */
-    static final class FJDouble {
-        static final class Sorter extends CountedCompleter<Void> {
+        /** Counts (if dst is null) or scatters one chunk by one digit. */
+        static final class Pass extends RecursiveAction {
             static final long serialVersionUID = 2446542900576103244L;
-            final double[] a, w;
-            final int base, size, wbase, gran;
-            Sorter(CountedCompleter<?> par, double[] a, double[] w, int base,
-                   int size, int wbase, int gran) {
-                super(par);
-                this.a = a; this.w = w; this.base = base; this.size = size;
-                this.wbase = wbase; this.gran = gran;
+            final int[] src, dst;
+            final int lo, hi, shift;
+            final int[] count;
+            Pass(int[] src, int[] dst, int lo, int hi, int shift, int[] count) {
+                this.src = src; this.dst = dst; this.lo = lo; this.hi = hi;
+                this.shift = shift; this.count = count;
             }
-            public final void compute() {
-                CountedCompleter<?> s = this;
-                double[] a = this.a, w = this.w; // localize all params
-                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
-                while (n > g) {
-                    int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
-                    Relay fc = new Relay(new Merger(s, w, a, wb, h,
-                                                    wb+h, n-h, b, g));
-                    Relay rc = new Relay(new Merger(fc, a, w, b+h, q,
-                                                    b+u, n-u, wb+h, g));
-                    new Sorter(rc, a, w, b+u, n-u, wb+u, g).fork();
-                    new Sorter(rc, a, w, b+h, q, wb+h, g).fork();;
-                    Relay bc = new Relay(new Merger(fc, a, w, b, q,
-                                                    b+q, h-q, wb, g));
-                    new Sorter(bc, a, w, b+q, h-q, wb+q, g).fork();
-                    s = new EmptyCompleter(bc);
-                    n = q;
-                }
-                DualPivotQuicksort.sort(a, b, b + n - 1, w, wb, n);
-                s.tryComplete();
+            protected void compute() {
+                if (dst == null)
+                    DualPivotQuicksort.radixCount(src, lo, hi, shift, count);
+                else
+                    DualPivotQuicksort.radixScatter(src, lo, hi, shift,
+                                                    count, dst);
             }
         }
+    } // FJIntRadix
 
-        static final class Merger extends CountedCompleter<Void> {
+    /** long radix sort support class */
+    static final class FJLongRadix {
+        static final class Sorter extends CountedCompleter<Void> {
             static final long serialVersionUID = 2446542900576103244L;
-            final double[] a, w; // main and workspace arrays
-            final int lbase, lsize, rbase, rsize, wbase, gran;
-            Merger(CountedCompleter<?> par, double[] a, double[] w,
-                   int lbase, int lsize, int rbase,
-                   int rsize, int wbase, int gran) {
+            final long[] a, w;
+            final int aBase, base, size, shift, gran;
+            final boolean inW;
+            Sorter(CountedCompleter<?> par, long[] a, long[] w, int aBase,
+                   boolean inW, int base, int size, int shift, int gran) {
                 super(par);
-                this.a = a; this.w = w;
-                this.lbase = lbase; this.lsize = lsize;
-                this.rbase = rbase; this.rsize = rsize;
-                this.wbase = wbase; this.gran = gran;
+                this.a = a; this.w = w; this.aBase = aBase; this.inW = inW;
+                this.base = base; this.size = size; this.shift = shift;
+                this.gran = gran;
             }
-
             public final void compute() {
-                double[] a = this.a, w = this.w; // localize all params
-                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
-                    rn = this.rsize, k = this.wbase, g = this.gran;
-                if (a == null || w == null || lb < 0 || rb < 0 || k < 0)
-                    throw new IllegalStateException(); // hoist checks
-                for (int lh, rh;;) {  // split larger, find point in smaller
-                    if (ln >= rn) {
-                        if (ln <= g)
-                            break;
-                        rh = rn;
-                        double split = a[(lh = ln >>> 1) + lb];
-                        for (int lo = 0; lo < rh; ) {
-                            int rm = (lo + rh) >>> 1;
-                            if (split <= a[rm + rb])
-                                rh = rm;
-                            else
-                                lo = rm + 1;
-                        }
+                long[] a = this.a, w = this.w; // localize all params
+                int ab = this.aBase, b = this.base, n = this.size;
+                int sh = this.shift, g = this.gran;
+                boolean inW = this.inW;
+                long[] src = inW ? w : a, dst = inW ? a : w;
+                int so = inW ? b : ab + b, dso = inW ? ab + b : b;
+                int k = 0, c = 0;
+                int[][] counts = null;
+                for (;; sh -= DualPivotQuicksort.RADIX_BITS) {
+                    if (n <= g || sh < 0) {
+                        if (sh >= 0)
+                            DualPivotQuicksort.sort(src, so, so + n - 1,
+                                                    dst, dso, n);
+                        if (inW)
+                            System.arraycopy(w, so, a, dso, n);
+                        tryComplete();
+                        return;
                     }
-                    else {
-                        if (rn <= g)
-                            break;
-                        lh = ln;
-                        double split = a[(rh = rn >>> 1) + rb];
-                        for (int lo = 0; lo < lh; ) {
-                            int lm = (lo + lh) >>> 1;
-                            if (split <= a[lm + lb])
-                                lh = lm;
-                            else
-                                lo = lm + 1;
-                        }
+                    k = (n + g - 1) / g;
+                    c = (n + k - 1) / k;
+                    counts = new int[k][DualPivotQuicksort.RADIX];
+                    Pass[] ps = new Pass[k];
+                    for (int i = 0; i < k; ++i)
+                        ps[i] = new Pass(src, null, so + i * c,
+                                         so + Math.min(n, (i + 1) * c),
+                                         sh, counts[i]);
+                    invokeAll(ps);
+                    int f = (sh == DualPivotQuicksort.LONG_TOP_SHIFT) ?
+                        DualPivotQuicksort.RADIX >>> 1 : 0;
+                    int d = ((int) (src[so] >>> sh) &
+                             (DualPivotQuicksort.RADIX - 1)) ^ f, t = 0;
+                    for (int[] cs : counts)
+                        t += cs[d];
+                    if (t != n) // else skip digit shared by all elements
+                        break;
+                }
+                int[] start = new int[DualPivotQuicksort.RADIX + 1];
+                for (int d = 0, pos = dso; d < DualPivotQuicksort.RADIX; ++d) {
+                    start[d] = pos - dso;
+                    for (int[] cs : counts) {
+                        int t = cs[d];
+                        cs[d] = pos;
+                        pos += t;
                     }
-                    Merger m = new Merger(this, a, w, lb + lh, ln - lh,
-                                          rb + rh, rn - rh,
-                                          k + lh + rh, g);
-                    rn = rh;
-                    ln = lh;
-                    addToPendingCount(1);
-                    m.fork();
                 }
-
-                int lf = lb + ln, rf = rb + rn; // index bounds
-                while (lb < lf && rb < rf) {
-                    double t, al, ar;
-                    if ((al = a[lb]) <= (ar = a[rb])) {
-                        lb++; t = al;
+                start[DualPivotQuicksort.RADIX] = n;
+                Pass[] ps = new Pass[k];
+                for (int i = 0; i < k; ++i)
+                    ps[i] = new Pass(src, dst, so + i * c,
+                                     so + Math.min(n, (i + 1) * c),
+                                     sh, counts[i]);
+                invokeAll(ps);
+                // Fork buckets; batch adjacent small buckets into leaves
+                int nsh = sh - DualPivotQuicksort.RADIX_BITS, run = 0;
+                for (int d = 0; d < DualPivotQuicksort.RADIX; ++d) {
+                    int lo = start[d], hi = start[d + 1];
+                    if (hi - lo > g) {
+                        if (lo > run)
+                            fork(ab, !inW, b + run, lo - run, nsh, g);
+                        fork(ab, !inW, b + lo, hi - lo, nsh, g);
+                        run = hi;
                     }
-                    else {
-                        rb++; t = ar;
+                    else if (hi - run > g) {
+                        fork(ab, !inW, b + run, lo - run, nsh, g);
+                        run = lo;
                     }
-                    w[k++] = t;
                 }
-                if (rb < rf)
-                    System.arraycopy(a, rb, w, k, rf - rb);
-                else if (lb < lf)
-                    System.arraycopy(a, lb, w, k, lf - lb);
+                if (n > run)
+                    fork(ab, !inW, b + run, n - run, nsh, g);
                 tryComplete();
             }
+            private void fork(int ab, boolean inW, int b, int n, int sh, int g) {
+                if (n > 0) {
+                    addToPendingCount(1);
+                    new Sorter(this, a, w, ab, inW, b, n, sh, g).fork();
+                }
+            }
         }
-    } // FJDouble
 
+        /** Counts (if dst is null) or scatters one chunk by one digit. */
+        static final class Pass extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] src, dst;
+            final int lo, hi, shift;
+            final int[] count;
+            Pass(long[] src, long[] dst, int lo, int hi, int shift, int[] count) {
+                this.src = src; this.dst = dst; this.lo = lo; this.hi = hi;
+                this.shift = shift; this.count = count;
+            }
+            protected void compute() {
+                if (dst == null)
+                    DualPivotQuicksort.radixCount(src, lo, hi, shift, count);
+                else
+                    DualPivotQuicksort.radixScatter(src, lo, hi, shift,
+                                                    count, dst);
+            }
+        }
+    } // FJLongRadix
 }
@@ -0,0 +1,906 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * A resizable list, like {@link ArrayList}, that stores its elements in a
+ * sequence of arrays ("chunks") rather than in one array, so that it
+ * grows without copying.
+ *
+ * <p>The first chunk holds up to 16 elements and, like the array of an
+ * {@code ArrayList}, grows by copying while it is small, so that short
+ * lists waste little space.  Each later chunk is as large as all the
+ * chunks before it together, so that the chunk and position of any
+ * index are computed in constant time from the bits of the index.
+ * Appending an element therefore takes constant time, without the
+ * occasional copy of the whole list that makes appends to a very large
+ * {@code ArrayList} expensive and briefly doubles its footprint;
+ * {@code get} and {@code set} are constant time, and the list is
+ * {@link RandomAccess}.  Insertion and removal at other than the end
+ * take linear time, as for {@code ArrayList}.  The unused capacity of
+ * the last chunk can be released with {@link #trimToSize}.
+ *
+ * <p>The {@link #spliterator} of this list splits at chunk boundaries
+ * where it can, so that parallel streams over it process whole arrays.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Iterators are <i>fail-fast</i> in the same way as those of
+ * {@code ArrayList}, and the list permits all elements, including
+ * {@code null}.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @param <E> the type of elements in this list
+ * @see ArrayList
+ * @since 9
+ */
+public class ChunkedArrayList<E> extends AbstractList<E>
+        implements List<E>, RandomAccess, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = -5181645219873716236L;
+
+    /*
+     * Chunk 0 holds indices [0, FIRST); chunk k >= 1 holds indices
+     * [2^(FIRST_SHIFT+k-1), 2^(FIRST_SHIFT+k)), so an index i >= FIRST
+     * lies in chunk 32 - FIRST_SHIFT - numberOfLeadingZeros(i), at
+     * offset i - highestOneBit(i).
+     *
+     * Until the list outgrows chunk 0, it is held in "first" alone,
+     * which may be shorter than FIRST, and spine is null.  Once there
+     * is a second chunk, first is full length and spine[0] == first.
+     * Chunks spine[0..chunkCount) are allocated; all are full length
+     * except possibly the last, after trimToSize.  Slots at and beyond
+     * size are always null.
+     */
+
+    /** log2 of the capacity of the first chunk. */
+    static final int FIRST_SHIFT = 4;
+
+    /** The capacity of the first chunk. */
+    static final int FIRST = 1 << FIRST_SHIFT;
+
+    /** The capacity with which the first chunk is created. */
+    private static final int MIN_FIRST = 4;
+
+    /** The largest number of chunks. */
+    private static final int MAX_CHUNKS = 32 - FIRST_SHIFT;
+
+    private static final Object[] EMPTY = {};
+
+    /** Chunk 0. */
+    private transient Object[] first;
+
+    /** All chunks, or null if there is only chunk 0. */
+    private transient Object[][] spine;
+
+    /** The number of allocated chunks in spine, if non-null. */
+    private transient int chunkCount;
+
+    /**
+     * The size of the list (the number of elements it contains).
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * Constructs an empty list.
+     */
+    public ChunkedArrayList() {
+        first = EMPTY;
+    }
+
+    /**
+     * Constructs an empty list with the specified initial capacity.
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public ChunkedArrayList(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        first = EMPTY;
+        ensureCapacity(initialCapacity);
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null
+     */
+    public ChunkedArrayList(Collection<? extends E> c) {
+        first = EMPTY;
+        addAll(c);
+    }
+
+    // Geometry
+
+    /** Returns the chunk holding index i. */
+    static int chunkIndex(int i) {
+        return (i < FIRST) ? 0 : 32 - FIRST_SHIFT - Integer.numberOfLeadingZeros(i);
+    }
+
+    /** Returns the first index held by chunk k. */
+    static int chunkStart(int k) {
+        return (k == 0) ? 0 : 1 << (FIRST_SHIFT + k - 1);
+    }
+
+    /** Returns the full capacity of chunk k. */
+    static int chunkCapacity(int k) {
+        return (k == 0) ? FIRST : 1 << (FIRST_SHIFT + k - 1);
+    }
+
+    /** Returns the offset of index i within its chunk. */
+    static int offset(int i) {
+        return (i < FIRST) ? i : i - Integer.highestOneBit(i);
+    }
+
+    /** Returns the chunk holding index i, which must be allocated. */
+    private Object[] chunkFor(int i) {
+        return (i < FIRST) ? first : spine[chunkIndex(i)];
+    }
+
+    @SuppressWarnings("unchecked")
+    E elementData(int index) {
+        return (index < FIRST) ? (E) first[index] :
+            (E) spine[chunkIndex(index)][index - Integer.highestOneBit(index)];
+    }
+
+    private void setElementData(int index, Object e) {
+        if (index < FIRST)
+            first[index] = e;
+        else
+            spine[chunkIndex(index)][index - Integer.highestOneBit(index)] = e;
+    }
+
+    // Capacity
+
+    /** Returns the number of elements the allocated chunks can hold. */
+    private long capacity() {
+        if (spine == null)
+            return first.length;
+        int k = chunkCount - 1;
+        return chunkStart(k) + spine[k].length;
+    }
+
+    /**
+     * Increases the capacity of this {@code ChunkedArrayList} instance,
+     * if necessary, to ensure that it can hold at least the number of
+     * elements specified by the minimum capacity argument.  Existing
+     * elements are not copied, except within the first 16.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > capacity())
+            grow(minCapacity);
+    }
+
+    /** Allocates chunks to hold at least minCapacity elements. */
+    private void grow(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        if (spine == null) {
+            if (minCapacity <= FIRST) {
+                int n = Math.max(Math.max(MIN_FIRST, first.length << 1),
+                                 minCapacity);
+                first = Arrays.copyOf(first, Math.min(n, FIRST));
+                return;
+            }
+            if (first.length < FIRST)
+                first = Arrays.copyOf(first, FIRST);
+            spine = new Object[Math.max(4, chunkIndex(minCapacity - 1) + 1)][];
+            spine[0] = first;
+            chunkCount = 1;
+        }
+        int last = chunkIndex(minCapacity - 1);
+        if (last >= spine.length)
+            spine = Arrays.copyOf(spine, Math.min(MAX_CHUNKS,
+                                                  Math.max(last + 1, spine.length << 1)));
+        int k = chunkCount - 1;
+        if (spine[k].length < chunkCapacity(k))     // refill a trimmed chunk
+            spine[k] = Arrays.copyOf(spine[k], chunkCapacity(k));
+        for (k = chunkCount; k <= last; k++)
+            spine[k] = new Object[chunkCapacity(k)];
+        chunkCount = Math.max(chunkCount, last + 1);
+    }
+
+    /**
+     * Trims the capacity of this {@code ChunkedArrayList} instance to be
+     * the list's current size, releasing unused chunks and shortening
+     * the last used chunk.  An application can use this operation to
+     * minimize the storage of a {@code ChunkedArrayList} instance.
+     */
+    public void trimToSize() {
+        modCount++;
+        int s = size;
+        if (s <= FIRST) {
+            spine = null;
+            chunkCount = 0;
+            if (first.length > s)
+                first = (s == 0) ? EMPTY : Arrays.copyOf(first, s);
+        } else {
+            int k = chunkIndex(s - 1), used = offset(s - 1) + 1;
+            if (spine[k].length > used)
+                spine[k] = Arrays.copyOf(spine[k], used);
+            chunkCount = k + 1;
+            spine = Arrays.copyOf(spine, chunkCount);
+        }
+    }
+
+    // Element moves
+
+    /**
+     * Copies len elements from index src to index dst, chunk by chunk,
+     * correctly for overlapping ranges.  Both ranges must lie within
+     * the allocated chunks.
+     */
+    private void move(int src, int dst, int len) {
+        if (len <= 0 || src == dst)
+            return;
+        if (dst < src) {
+            while (len > 0) {
+                int ks = chunkIndex(src), kd = chunkIndex(dst);
+                int os = offset(src), od = offset(dst);
+                int n = Math.min(len, Math.min(chunkCapacity(ks) - os,
+                                               chunkCapacity(kd) - od));
+                System.arraycopy(chunkFor(src), os, chunkFor(dst), od, n);
+                src += n;
+                dst += n;
+                len -= n;
+            }
+        } else {
+            while (len > 0) {
+                int s = src + len - 1, d = dst + len - 1;
+                int os = offset(s), od = offset(d);
+                int n = Math.min(len, Math.min(os, od) + 1);
+                System.arraycopy(chunkFor(s), os - n + 1,
+                                 chunkFor(d), od - n + 1, n);
+                len -= n;
+            }
+        }
+    }
+
+    /** Copies len elements of a from index off into this list at index at. */
+    private void copyIn(int at, Object[] a, int off, int len) {
+        while (len > 0) {
+            int o = offset(at);
+            int n = Math.min(len, chunkCapacity(chunkIndex(at)) - o);
+            System.arraycopy(a, off, chunkFor(at), o, n);
+            at += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /** Copies len elements of this list from index from into a at off. */
+    private void copyOut(int from, Object[] a, int off, int len) {
+        while (len > 0) {
+            int o = offset(from);
+            int n = Math.min(len, chunkCapacity(chunkIndex(from)) - o);
+            System.arraycopy(chunkFor(from), o, a, off, n);
+            from += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /** Nulls out the slots from index from to index to. */
+    private void clearSlots(int from, int to) {
+        while (from < to) {
+            int o = offset(from);
+            int n = Math.min(to - from, chunkCapacity(chunkIndex(from)) - o);
+            Arrays.fill(chunkFor(from), o, o + n, null);
+            from += n;
+        }
+    }
+
+    // List operations
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this list contains no elements.
+     *
+     * @return {@code true} if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return elementData(index);
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with
+     * the specified element.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        Objects.checkIndex(index, size);
+        E oldValue = elementData(index);
+        setElementData(index, element);
+        return oldValue;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        modCount++;
+        int s = size;
+        if (s >= capacity())
+            grow(s + 1);
+        setElementData(s, e);
+        size = s + 1;
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        rangeCheckForAdd(index);
+        modCount++;
+        int s = size;
+        if (s >= capacity())
+            grow(s + 1);
+        move(index, index + 1, s - index);
+        setElementData(index, element);
+        size = s + 1;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).
+     *
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        Objects.checkIndex(index, size);
+        modCount++;
+        E oldValue = elementData(index);
+        int s = size - 1;
+        move(index + 1, index, s - index);
+        setElementData(s, null);
+        size = s;
+        return oldValue;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     *
+     * @throws IndexOutOfBoundsException if {@code fromIndex} or
+     *         {@code toIndex} is out of range
+     *         ({@code fromIndex < 0 ||
+     *          toIndex > size() ||
+     *          toIndex < fromIndex})
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException(
+                    outOfBoundsMsg(fromIndex, toIndex));
+        }
+        modCount++;
+        int s = size, newSize = s - (toIndex - fromIndex);
+        move(toIndex, fromIndex, s - toIndex);
+        clearSlots(newSize, s);
+        size = newSize;
+    }
+
+    /**
+     * Removes all of the elements from this list, and releases all
+     * chunks but the first.
+     */
+    public void clear() {
+        modCount++;
+        if (spine == null)
+            Arrays.fill(first, 0, size, null);
+        else {
+            first = spine[0];
+            Arrays.fill(first, null);
+            spine = null;
+            chunkCount = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of
+     * this list, in the order that they are returned by the
+     * specified collection's Iterator.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size, c);
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position.  Shifts the element
+     * currently at that position (if any) and any subsequent elements to
+     * the right (increases their indices).  The new elements will appear
+     * in the list in the order that they are returned by the
+     * specified collection's iterator.
+     *
+     * @param index index at which to insert the first element from the
+     *              specified collection
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        rangeCheckForAdd(index);
+        Object[] a = c.toArray();
+        modCount++;
+        int numNew = a.length;
+        if (numNew == 0)
+            return false;
+        int s = size;
+        if (s + numNew < 0)
+            throw new OutOfMemoryError();
+        if (s + numNew > capacity())
+            grow(s + numNew);
+        move(index, index + numNew, s - index);
+        copyIn(index, a, 0, numNew);
+        size = s + numNew;
+        return true;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     */
+    public int indexOf(Object o) {
+        for (int i = 0, s = size; i < s; ) {
+            Object[] c = chunkFor(i);
+            int o0 = offset(i), n = Math.min(s - i, chunkCapacity(chunkIndex(i)) - o0);
+            for (int j = 0; j < n; j++) {
+                if (Objects.equals(o, c[o0 + j]))
+                    return i + j;
+            }
+            i += n;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     */
+    public int lastIndexOf(Object o) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (Objects.equals(o, elementData(i)))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * @return an array containing all of the elements in this list in
+     *         proper sequence
+     */
+    public Object[] toArray() {
+        Object[] a = new Object[size];
+        copyOut(0, a, 0, size);
+        return a;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper
+     * sequence (from first to last element); the runtime type of the returned
+     * array is that of the specified array.  If the list fits in the
+     * specified array, it is returned therein.  Otherwise, a new array is
+     * allocated with the runtime type of the specified array and the size of
+     * this list.
+     *
+     * @param a the array into which the elements of the list are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose.
+     * @return an array containing the elements of the list
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this list
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        int s = size;
+        if (a.length < s)
+            a = (T[]) java.lang.reflect.Array.newInstance(
+                a.getClass().getComponentType(), s);
+        copyOut(0, a, 0, s);
+        if (a.length > s)
+            a[s] = null;
+        return a;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final int s = size;
+        for (int i = 0; i < s && modCount == expectedModCount; ) {
+            Object[] c = chunkFor(i);
+            int n = Math.min(s - i, chunkCapacity(chunkIndex(i)) - offset(i));
+            for (int j = offset(i), end = j + n; j < end; j++)
+                action.accept((E) c[j]);
+            i += n;
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    // A tiny bit set implementation, as in ArrayList
+
+    private static long[] nBits(int n) {
+        return new long[((n - 1) >> 6) + 1];
+    }
+    private static void setBit(long[] bits, int i) {
+        bits[i >> 6] |= 1L << i;
+    }
+    private static boolean isClear(long[] bits, int i) {
+        return (bits[i >> 6] & (1L << i)) == 0;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        final int expectedModCount = modCount;
+        final int s = size;
+        int i = 0;
+        // Optimize for initial run of survivors
+        for (; i < s && !filter.test(elementData(i)); i++)
+            ;
+        // As in ArrayList, find all elements to delete before moving
+        // any, so that a predicate that throws leaves the list unchanged
+        if (i == s) {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return false;
+        }
+        final int beg = i;
+        final long[] deathRow = nBits(s - beg);
+        deathRow[0] = 1L;   // set bit 0
+        for (i = beg + 1; i < s; i++)
+            if (filter.test(elementData(i)))
+                setBit(deathRow, i - beg);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        int w = beg;
+        for (i = beg; i < s; i++)
+            if (isClear(deathRow, i - beg))
+                setElementData(w++, elementData(i));
+        clearSlots(w, s);
+        size = w;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        final int expectedModCount = modCount;
+        final int s = size;
+        for (int i = 0; i < s && modCount == expectedModCount; ) {
+            Object[] c = chunkFor(i);
+            int n = Math.min(s - i, chunkCapacity(chunkIndex(i)) - offset(i));
+            for (int j = offset(i), end = j + n; j < end; j++)
+                c[j] = operator.apply((E) c[j]);
+            i += n;
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        final int expectedModCount = modCount;
+        Object[] a = toArray();
+        Arrays.sort(a, (Comparator) c);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        copyIn(0, a, 0, a.length);
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void parallelSort(Comparator<? super E> c) {
+        final int expectedModCount = modCount;
+        Object[] a = toArray();
+        Arrays.parallelSort(a, (Comparator) c);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        copyIn(0, a, 0, a.length);
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        final int expectedModCount = modCount;
+        Object[] a = toArray();
+        Arrays.sortByLongKey(a, e -> keyExtractor.applyAsLong((E) e));
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        copyIn(0, a, 0, a.length);
+        modCount++;
+    }
+
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    private static String outOfBoundsMsg(int fromIndex, int toIndex) {
+        return "From Index: " + fromIndex + " > To Index: " + toIndex;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code ChunkedArrayList} instance.
+     * (The elements themselves are not copied.)
+     *
+     * @return a clone of this {@code ChunkedArrayList} instance
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        try {
+            ChunkedArrayList<E> v = (ChunkedArrayList<E>) super.clone();
+            v.first = EMPTY;
+            v.spine = null;
+            v.chunkCount = 0;
+            v.size = 0;
+            v.modCount = 0;
+            if (size > 0) {
+                v.grow(size);
+                v.copyIn(0, toArray(), 0, size);
+                v.size = size;
+            }
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Saves the state of the {@code ChunkedArrayList} instance to a stream
+     * (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The size of the list (int), followed by all of its
+     *             elements (each an {@code Object}) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (int i = 0; i < size; i++)
+            s.writeObject(elementData(i));
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Reconstitutes the {@code ChunkedArrayList} instance from a stream
+     * (that is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 0 || n != size)
+            throw new java.io.InvalidObjectException("Invalid size: " + n);
+        first = EMPTY;
+        if (n > 0) {
+            // Chunks are allocated as elements arrive, so a corrupt size
+            // cannot force a huge allocation
+            size = 0;
+            for (int i = 0; i < n; i++) {
+                if (i >= capacity())
+                    grow(i + 1);
+                setElementData(i, s.readObject());
+                size = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the elements in this
+     * list.  The spliterator splits at chunk boundaries where it can.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED}, and {@link Spliterator#ORDERED}.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ChunkSpliterator(0, -1, 0);
+    }
+
+    final class ChunkSpliterator implements Spliterator<E> {
+        private int index; // current index, modified on advance/split
+        private int fence; // -1 until used; then one past last index
+        private int expectedModCount; // initialized when fence set
+
+        /** Creates new spliterator covering the given range. */
+        ChunkSpliterator(int origin, int fence, int expectedModCount) {
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence to size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = modCount;
+                hi = fence = size;
+            }
+            return hi;
+        }
+
+        /**
+         * Splits at the boundary of the chunk holding the midpoint that
+         * is nearest to it, or at the midpoint if the range lies in one
+         * chunk.
+         */
+        public ChunkSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            if (lo >= mid)
+                return null;
+            int k = chunkIndex(mid);
+            if (chunkIndex(lo) != chunkIndex(hi - 1)) {
+                int start = chunkStart(k), end = start + chunkCapacity(k);
+                if (start <= lo || (end < hi && end - mid < mid - start))
+                    mid = end;
+                else
+                    mid = start;
+            }
+            return new ChunkSpliterator(lo, index = mid, expectedModCount);
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            int hi = getFence(), i = index;
+            if (i < hi) {
+                index = i + 1;
+                E e = elementData(i);
+                action.accept(e);
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            int hi = getFence(), i = index;
+            index = hi;
+            while (i < hi) {
+                Object[] c = chunkFor(i);
+                int o = offset(i);
+                int n = Math.min(hi - i, chunkCapacity(chunkIndex(i)) - o);
+                for (int j = o, end = o + n; j < end; j++)
+                    action.accept((E) c[j]);
+                i += n;
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -1331,6 +1332,14 @@ public class Collections {
         public void sort(Comparator<? super E> c) {
             throw new UnsupportedOperationException();
         }
+        @Override
+        public void parallelSort(Comparator<? super E> c) {
+            throw new UnsupportedOperationException();
+        }
+        @Override
+        public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+            throw new UnsupportedOperationException();
+        }
 
         public ListIterator<E> listIterator()   {return listIterator(0);}
 
@@ -2465,6 +2474,14 @@ public class Collections {
         public void sort(Comparator<? super E> c) {
             synchronized (mutex) {list.sort(c);}
         }
+        @Override
+        public void parallelSort(Comparator<? super E> c) {
+            synchronized (mutex) {list.parallelSort(c);}
+        }
+        @Override
+        public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+            synchronized (mutex) {list.sortByLongKey(keyExtractor);}
+        }
 
         /**
          * SynchronizedRandomAccessList instances are serialized as
@@ -3502,6 +3519,16 @@ public class Collections {
         public void sort(Comparator<? super E> c) {
             list.sort(c);
         }
+
+        @Override
+        public void parallelSort(Comparator<? super E> c) {
+            list.parallelSort(c);
+        }
+
+        @Override
+        public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+            list.sortByLongKey(keyExtractor);
+        }
     }
 
     /**
@@ -4488,6 +4515,13 @@ public class Collections {
         @Override
         public void sort(Comparator<? super E> c) {
         }
+        @Override
+        public void parallelSort(Comparator<? super E> c) {
+        }
+        @Override
+        public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+            Objects.requireNonNull(keyExtractor);
+        }
 
         // Override default methods in Collection
         @Override
@@ -4854,6 +4888,13 @@ public class Collections {
         public void sort(Comparator<? super E> c) {
         }
         @Override
+        public void parallelSort(Comparator<? super E> c) {
+        }
+        @Override
+        public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+            Objects.requireNonNull(keyExtractor);
+        }
+        @Override
         public Spliterator<E> spliterator() {
             return singletonSpliterator(element);
         }
@@ -0,0 +1,1960 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A compressed set of nonnegative {@code int} bit indices, offering the
+ * operations of {@link BitSet} with space and time proportional to the
+ * contents of the set rather than to its length.
+ *
+ * <p>The index space is divided into chunks of 2<sup>16</sup> bits, and
+ * only non-empty chunks are represented.  Each chunk is held in whichever
+ * of three forms is smallest for its contents: a sorted array of the
+ * indices of its set bits (for at most 4096 bits), a bitmap of 1024
+ * {@code long} words, or a sorted array of runs of consecutive set bits.
+ * This is the layout of <em>Roaring</em> bitmaps.  A set of a million
+ * randomly chosen indices below 2<sup>31</sup> thus occupies about 2MB,
+ * where a {@code BitSet} would need 256MB, and the logical operations
+ * {@link #and and}, {@link #or or}, {@link #xor xor} and {@link #andNot
+ * andNot} skip chunks that are absent from either operand.  The form of
+ * each chunk produced by a range or logical operation is chosen afresh;
+ * single-bit updates keep the current form where possible.
+ *
+ * <p>{@link #toByteArray} and {@link #valueOf(ByteBuffer)} use the
+ * portable Roaring serialization format, so that sets can be exchanged
+ * with other Roaring implementations, provided that they contain no
+ * indices of 2<sup>31</sup> or more.  The static methods {@link #orAll},
+ * {@link #andAll} and {@link #andCardinalities} combine many sets in
+ * parallel, using the {@link java.util.concurrent.ForkJoinPool#commonPool()
+ * common pool}.
+ *
+ * <p>Unless otherwise noted, passing a null parameter to any of the
+ * methods in a {@code CompressedBitSet} will result in a
+ * {@code NullPointerException}.
+ *
+ * <p>A {@code CompressedBitSet} is not safe for multithreaded use without
+ * external synchronization.
+ *
+ * @see BitSet
+ * @since 9
+ */
+public class CompressedBitSet implements Cloneable, java.io.Serializable {
+    /*
+     * Implementation overview.
+     *
+     * The high 16 bits of an index form the key of its chunk, and the
+     * low 16 bits its value within the chunk.  The keys of non-empty
+     * chunks are held in ascending order in keys[0..size), with their
+     * Containers in the parallel array containers.  Containers are
+     * never empty: operations that would empty one return null, and
+     * the chunk is removed.  Containers are never shared between sets.
+     *
+     * There are three kinds of Container:
+     *   ArrayContainer:  sorted char values, at most ARRAY_MAX of them
+     *   BitmapContainer: 1024 long words, more than ARRAY_MAX bits set
+     *   RunContainer:    sorted, non-adjacent runs of set values
+     * Single-bit add and remove convert between arrays and bitmaps at
+     * ARRAY_MAX, and add or remove runs in place, converting run
+     * containers to bitmaps if they grow too fragmented.  Range and
+     * logical operations are performed where possible directly on
+     * arrays (merging, or filtering by contains), and otherwise on a
+     * temporary bitmap, from which Container.fromBits chooses the
+     * smallest form.
+     */
+
+    private static final long serialVersionUID = 2906364426516424577L;
+
+    /** The number of bits in a chunk. */
+    static final int CHUNK_BITS = 1 << 16;
+
+    /** The number of long words in a bitmap container. */
+    static final int WORDS = CHUNK_BITS >>> 6;
+
+    /** The maximum cardinality of an array container. */
+    static final int ARRAY_MAX = 4096;
+
+    /** The maximum number of runs in a run container. */
+    static final int RUNS_MAX = 2047;
+
+    private transient char[] keys;
+    private transient Container[] containers;
+    private transient int size;
+
+    /**
+     * Creates a new empty compressed bit set.
+     */
+    public CompressedBitSet() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    private CompressedBitSet(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    /**
+     * Returns a new compressed bit set containing the indices of the set
+     * bits of the given bit set.
+     *
+     * @param set a bit set
+     * @return a {@code CompressedBitSet} with the same bits set
+     */
+    public static CompressedBitSet valueOf(BitSet set) {
+        CompressedBitSet r = new CompressedBitSet();
+        for (int i = set.nextSetBit(0); i >= 0; ) {
+            int j = set.nextClearBit(i);
+            r.set(i, j);
+            i = set.nextSetBit(j);
+        }
+        return r;
+    }
+
+    /**
+     * Returns a new bit set containing all of the bits of this set.
+     *
+     * @return a {@code BitSet} with the same bits set
+     */
+    public BitSet toBitSet() {
+        BitSet b = new BitSet(length());
+        for (int i = 0; i < size; i++) {
+            int base = keys[i] << 16;
+            Container c = containers[i];
+            for (int v = c.nextSetBit(0); v >= 0; ) {
+                int w = c.nextClearBit(v);
+                b.set(base + v, base + w - 1);  // avoid overflow at the top
+                b.set(base + w - 1);
+                v = (w >= CHUNK_BITS) ? -1 : c.nextSetBit(w);
+            }
+        }
+        return b;
+    }
+
+    // Chunk table
+
+    private int indexOf(int key) {
+        return Arrays.binarySearch(keys, 0, size, (char)key);
+    }
+
+    private void insertAt(int i, int key, Container c) {
+        if (size == keys.length) {
+            int n = size + (size >> 1) + 1;
+            keys = Arrays.copyOf(keys, n);
+            containers = Arrays.copyOf(containers, n);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = (char)key;
+        containers[i] = c;
+        size++;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    /** Replaces the container at index i, removing the chunk if c is null. */
+    private void replaceAt(int i, Container c) {
+        if (c == null)
+            removeAt(i);
+        else
+            containers[i] = c;
+    }
+
+    private static void checkIndex(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+    }
+
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex < 0)
+            throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                " > toIndex: " + toIndex);
+    }
+
+    // Single bits
+
+    /**
+     * Returns the value of the bit with the specified index.
+     *
+     * @param  bitIndex the bit index
+     * @return the value of the bit with the specified index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public boolean get(int bitIndex) {
+        checkIndex(bitIndex);
+        int i = indexOf(bitIndex >>> 16);
+        return i >= 0 && containers[i].contains(bitIndex & 0xFFFF);
+    }
+
+    /**
+     * Sets the bit at the specified index to {@code true}.
+     *
+     * @param  bitIndex a bit index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex) {
+        checkIndex(bitIndex);
+        int key = bitIndex >>> 16, i = indexOf(key);
+        if (i >= 0)
+            containers[i] = containers[i].add(bitIndex & 0xFFFF);
+        else
+            insertAt(-i - 1, key, new ArrayContainer((char)bitIndex));
+    }
+
+    /**
+     * Sets the bit at the specified index to the specified value.
+     *
+     * @param  bitIndex a bit index
+     * @param  value a boolean value to set
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex, boolean value) {
+        if (value)
+            set(bitIndex);
+        else
+            clear(bitIndex);
+    }
+
+    /**
+     * Sets the bit specified by the index to {@code false}.
+     *
+     * @param  bitIndex the index of the bit to be cleared
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void clear(int bitIndex) {
+        checkIndex(bitIndex);
+        int i = indexOf(bitIndex >>> 16);
+        if (i >= 0)
+            replaceAt(i, containers[i].remove(bitIndex & 0xFFFF));
+    }
+
+    /**
+     * Sets the bit at the specified index to the complement of its
+     * current value.
+     *
+     * @param  bitIndex the index of the bit to flip
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void flip(int bitIndex) {
+        if (get(bitIndex))
+            clear(bitIndex);
+        else
+            set(bitIndex);
+    }
+
+    // Ranges
+
+    /**
+     * Applies the given range operation to each chunk overlapping the
+     * range from fromIndex (inclusive) to toIndex (exclusive).
+     * op: 0 = set, 1 = clear, 2 = flip
+     */
+    private void rangeOp(int fromIndex, int toIndex, int op) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int fk = fromIndex >>> 16, lk = (toIndex - 1) >>> 16;
+        for (int key = fk; key <= lk; key++) {
+            int lo = (key == fk) ? fromIndex & 0xFFFF : 0;
+            int hi = (key == lk) ? ((toIndex - 1) & 0xFFFF) + 1 : CHUNK_BITS;
+            int i = indexOf(key);
+            if (i < 0) {
+                if (op != 1)
+                    insertAt(-i - 1, key, RunContainer.range(lo, hi));
+            } else if (lo == 0 && hi == CHUNK_BITS && op != 2) {
+                replaceAt(i, (op == 0) ? RunContainer.range(0, CHUNK_BITS) : null);
+            } else {
+                long[] bits = containers[i].toBits();
+                if (op == 0)
+                    setRange(bits, lo, hi);
+                else if (op == 1)
+                    clearRange(bits, lo, hi);
+                else
+                    flipRange(bits, lo, hi);
+                replaceAt(i, Container.fromBits(bits));
+            }
+        }
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code true}.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex) {
+        rangeOp(fromIndex, toIndex, 0);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the specified value.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @param  value value to set the selected bits to
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex, boolean value) {
+        rangeOp(fromIndex, toIndex, value ? 0 : 1);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code false}.
+     *
+     * @param  fromIndex index of the first bit to be cleared
+     * @param  toIndex index after the last bit to be cleared
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void clear(int fromIndex, int toIndex) {
+        rangeOp(fromIndex, toIndex, 1);
+    }
+
+    /**
+     * Sets each bit from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the complement of its current
+     * value.
+     *
+     * @param  fromIndex index of the first bit to flip
+     * @param  toIndex index after the last bit to flip
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void flip(int fromIndex, int toIndex) {
+        rangeOp(fromIndex, toIndex, 2);
+    }
+
+    /**
+     * Sets all of the bits in this set to {@code false}.
+     */
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    // Queries
+
+    /**
+     * Returns the index of the first bit that is set to {@code true}
+     * that occurs on or after the specified starting index. If no such
+     * bit exists then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int key = fromIndex >>> 16, i = indexOf(key);
+        if (i >= 0) {
+            int v = containers[i].nextSetBit(fromIndex & 0xFFFF);
+            if (v >= 0)
+                return (key << 16) | v;
+            i++;
+        } else {
+            i = -i - 1;
+        }
+        return (i < size) ? (keys[i] << 16) | containers[i].nextSetBit(0) : -1;
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code false}
+     * that occurs on or after the specified starting index.  If all bits
+     * from the starting index up to and including {@link
+     * Integer#MAX_VALUE} are set, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next clear bit, or {@code -1}
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int key = fromIndex >>> 16, i = indexOf(key);
+        if (i < 0)
+            return fromIndex;
+        int v = containers[i].nextClearBit(fromIndex & 0xFFFF);
+        while (v >= CHUNK_BITS) {     // chunk full from v onwards
+            if (++key > (Integer.MAX_VALUE >>> 16))
+                return -1;
+            if (++i >= size || keys[i] != key)
+                return key << 16;
+            v = containers[i].nextClearBit(0);
+        }
+        return (key << 16) | v;
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code true}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     */
+    public int previousSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException("fromIndex < -1: " + fromIndex);
+        }
+        int key = fromIndex >>> 16, i = indexOf(key);
+        if (i >= 0) {
+            int v = containers[i].previousSetBit(fromIndex & 0xFFFF);
+            if (v >= 0)
+                return (key << 16) | v;
+        } else {
+            i = -i - 1;
+        }
+        return (--i >= 0) ?
+            (keys[i] << 16) | containers[i].previousSetBit(CHUNK_BITS - 1) : -1;
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code false}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous clear bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     */
+    public int previousClearBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException("fromIndex < -1: " + fromIndex);
+        }
+        int key = fromIndex >>> 16, i = indexOf(key);
+        if (i < 0)
+            return fromIndex;
+        int v = containers[i].previousClearBit(fromIndex & 0xFFFF);
+        while (v < 0) {               // chunk full up to fromIndex
+            if (--key < 0)
+                return -1;
+            if (--i < 0 || keys[i] != key)
+                return (key << 16) | (CHUNK_BITS - 1);
+            v = containers[i].previousClearBit(CHUNK_BITS - 1);
+        }
+        return (key << 16) | v;
+    }
+
+    /**
+     * Returns the "logical size" of this set: the index of the highest
+     * set bit in the set plus one. Returns zero if the set contains no
+     * set bits.
+     *
+     * @return the logical size of this set
+     */
+    public int length() {
+        if (size == 0)
+            return 0;
+        return ((keys[size - 1] << 16) |
+                containers[size - 1].previousSetBit(CHUNK_BITS - 1)) + 1;
+    }
+
+    /**
+     * Returns true if this set contains no bits that are set
+     * to {@code true}.
+     *
+     * @return boolean indicating whether this set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this set.
+     *
+     * @return the number of bits set to {@code true} in this set
+     */
+    public int cardinality() {
+        int sum = 0;
+        for (int i = 0; i < size; i++)
+            sum += containers[i].cardinality();
+        return sum;
+    }
+
+    /**
+     * Returns an estimate of the number of bytes of memory used by the
+     * chunk containers of this set, excluding object headers.
+     *
+     * @return the approximate size of this set's data in bytes
+     */
+    public long sizeInBytes() {
+        long sum = 6L * keys.length;
+        for (int i = 0; i < size; i++)
+            sum += containers[i].sizeInBytes();
+        return sum;
+    }
+
+    /**
+     * Returns true if the specified set has any bits set to {@code true}
+     * that are also set to {@code true} in this set.
+     *
+     * @param  set set to intersect with
+     * @return boolean indicating whether this set intersects
+     *         the specified set
+     */
+    public boolean intersects(CompressedBitSet set) {
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int ki = keys[i], kj = set.keys[j];
+            if (ki < kj)
+                i++;
+            else if (ki > kj)
+                j++;
+            else if (Container.andCardinality(containers[i++],
+                                              set.containers[j++]) > 0)
+                return true;
+        }
+        return false;
+    }
+
+    // Logical operations
+
+    /**
+     * Performs a logical <b>AND</b> of this target set with the argument
+     * set. This set is modified so that each bit in it has the value
+     * {@code true} if and only if it both initially had the value
+     * {@code true} and the corresponding bit in the set argument also had
+     * the value {@code true}.
+     *
+     * @param set a compressed bit set
+     */
+    public void and(CompressedBitSet set) {
+        if (this == set)
+            return;
+        int n = 0;
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int ki = keys[i], kj = set.keys[j];
+            if (ki < kj)
+                i++;
+            else if (ki > kj)
+                j++;
+            else {
+                Container c = Container.and(containers[i++], set.containers[j++]);
+                if (c != null) {
+                    keys[n] = (char)ki;
+                    containers[n++] = c;
+                }
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this set with the set argument.
+     * This set is modified so that a bit in it has the value {@code true}
+     * if and only if it either already had the value {@code true} or the
+     * corresponding bit in the set argument has the value {@code true}.
+     *
+     * @param set a compressed bit set
+     */
+    public void or(CompressedBitSet set) {
+        if (this != set)
+            merge(set, 0);
+    }
+
+    /**
+     * Performs a logical <b>XOR</b> of this set with the set argument.
+     * This set is modified so that a bit in it has the value {@code true}
+     * if and only if one of the following statements holds:
+     * <ul>
+     * <li>The bit initially has the value {@code true}, and the
+     *     corresponding bit in the argument has the value {@code false}.
+     * <li>The bit initially has the value {@code false}, and the
+     *     corresponding bit in the argument has the value {@code true}.
+     * </ul>
+     *
+     * @param set a compressed bit set
+     */
+    public void xor(CompressedBitSet set) {
+        if (this == set)
+            clear();
+        else
+            merge(set, 1);
+    }
+
+    /**
+     * Clears all of the bits in this set whose corresponding bit is set
+     * in the specified set.
+     *
+     * @param set the set with which to mask this set
+     */
+    public void andNot(CompressedBitSet set) {
+        if (this == set) {
+            clear();
+            return;
+        }
+        int n = 0;
+        for (int i = 0, j = 0; i < size; ) {
+            int ki = keys[i], kj = (j < set.size) ? set.keys[j] : CHUNK_BITS;
+            Container c;
+            if (ki > kj) {
+                j++;
+                continue;
+            } else if (ki < kj) {
+                c = containers[i++];
+            } else {
+                c = Container.andNot(containers[i++], set.containers[j++]);
+            }
+            if (c != null) {
+                keys[n] = (char)ki;
+                containers[n++] = c;
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /** Replaces the chunks of this set by its union (op 0) or symmetric
+     * difference (op 1) with the given set. */
+    private void merge(CompressedBitSet set, int op) {
+        int cap = size + set.size;
+        char[] ks = new char[Math.max(cap, 4)];
+        Container[] cs = new Container[ks.length];
+        int n = 0;
+        for (int i = 0, j = 0; i < size || j < set.size; ) {
+            int ki = (i < size) ? keys[i] : CHUNK_BITS;
+            int kj = (j < set.size) ? set.keys[j] : CHUNK_BITS;
+            Container c;
+            int k;
+            if (ki < kj) {
+                k = ki;
+                c = containers[i++];
+            } else if (ki > kj) {
+                k = kj;
+                c = set.containers[j++].copy();
+            } else {
+                k = ki;
+                Container a = containers[i++], b = set.containers[j++];
+                c = (op == 0) ? Container.or(a, b) : Container.xor(a, b);
+            }
+            if (c != null) {
+                ks[n] = (char)k;
+                cs[n++] = c;
+            }
+        }
+        keys = ks;
+        containers = cs;
+        size = n;
+    }
+
+    // Aggregations
+
+    /**
+     * Returns the number of bits set to {@code true} in both of the given
+     * sets; that is, the cardinality of their logical <b>AND</b>, without
+     * constructing it.
+     *
+     * @param a a compressed bit set
+     * @param b another compressed bit set
+     * @return the number of bits set in both sets
+     */
+    public static int andCardinality(CompressedBitSet a, CompressedBitSet b) {
+        int sum = 0;
+        for (int i = 0, j = 0; i < a.size && j < b.size; ) {
+            int ki = a.keys[i], kj = b.keys[j];
+            if (ki < kj)
+                i++;
+            else if (ki > kj)
+                j++;
+            else
+                sum += Container.andCardinality(a.containers[i++],
+                                                b.containers[j++]);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns, for each of the given sets, the number of bits set to
+     * {@code true} in both it and the given set {@code a}. The sets are
+     * processed in parallel. This is typically used to score many
+     * candidate sets against a query set.
+     *
+     * @param a a compressed bit set
+     * @param sets the sets to intersect with {@code a}
+     * @return an array whose element {@code i} is
+     *         {@code andCardinality(a, sets[i])}
+     */
+    public static int[] andCardinalities(CompressedBitSet a,
+                                         CompressedBitSet... sets) {
+        Objects.requireNonNull(a);
+        int[] result = new int[sets.length];
+        IntStream.range(0, sets.length).parallel()
+            .forEach(i -> result[i] = andCardinality(a, sets[i]));
+        return result;
+    }
+
+    /**
+     * Returns a new set that is the logical <b>OR</b> of all the given
+     * sets. Chunks are combined in parallel.
+     *
+     * @param sets the sets to combine
+     * @return the union of the given sets
+     */
+    public static CompressedBitSet orAll(CompressedBitSet... sets) {
+        boolean[] present = new boolean[(Integer.MAX_VALUE >>> 16) + 1];
+        int n = 0;
+        for (CompressedBitSet s : sets) {
+            for (int i = 0; i < s.size; i++) {
+                if (!present[s.keys[i]]) {
+                    present[s.keys[i]] = true;
+                    n++;
+                }
+            }
+        }
+        char[] ks = new char[Math.max(n, 4)];
+        for (int k = 0, i = 0; i < n; k++) {
+            if (present[k])
+                ks[i++] = (char)k;
+        }
+        Container[] cs = new Container[ks.length];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            long[] bits = null;
+            Container only = null;
+            for (CompressedBitSet s : sets) {
+                int j = s.indexOf(ks[i]);
+                if (j < 0)
+                    continue;
+                Container c = s.containers[j];
+                if (bits != null)
+                    c.orInto(bits);
+                else if (only == null)
+                    only = c;
+                else {
+                    bits = only.toBits();
+                    c.orInto(bits);
+                }
+            }
+            cs[i] = (bits != null) ? Container.fromBits(bits) : only.copy();
+        });
+        return new CompressedBitSet(ks, cs, n).compact();
+    }
+
+    /**
+     * Returns a new set that is the logical <b>AND</b> of all the given
+     * sets. Chunks are combined in parallel.
+     *
+     * @param sets the sets to combine
+     * @return the intersection of the given sets, which is empty if
+     *         {@code sets} is empty
+     */
+    public static CompressedBitSet andAll(CompressedBitSet... sets) {
+        if (sets.length == 0)
+            return new CompressedBitSet();
+        CompressedBitSet first = sets[0];
+        for (CompressedBitSet s : sets)
+            if (s.size < first.size)
+                first = s;
+        CompressedBitSet smallest = first;
+        int n = smallest.size;
+        Container[] cs = new Container[smallest.keys.length];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            char key = smallest.keys[i];
+            Container acc = smallest.containers[i];
+            for (CompressedBitSet s : sets) {
+                if (s == smallest)
+                    continue;
+                int j = s.indexOf(key);
+                if (j < 0 || (acc = Container.and(acc, s.containers[j])) == null)
+                    return;
+            }
+            cs[i] = (acc == smallest.containers[i]) ? acc.copy() : acc;
+        });
+        return new CompressedBitSet(smallest.keys.clone(), cs, n).compact();
+    }
+
+    /** Removes null containers, returning this set. */
+    private CompressedBitSet compact() {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (containers[i] != null) {
+                keys[n] = keys[i];
+                containers[n++] = containers[i];
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+        return this;
+    }
+
+    // Iteration
+
+    /**
+     * Returns a stream of indices for which this set contains a bit in
+     * the set state. The indices are returned in order, from lowest to
+     * highest. The size of the stream is the number of bits in the set
+     * state, equal to the value returned by the {@link #cardinality()}
+     * method. The stream splits efficiently, by chunks, for parallel
+     * evaluation.
+     *
+     * <p>The stream binds to this set when the terminal stream operation
+     * commences (specifically, the spliterator for the stream is
+     * <a href="../Spliterator.html#binding"><em>late-binding</em></a>).  If
+     * the set is modified during that operation then the result is
+     * undefined.
+     *
+     * @return a stream of integers representing set indices
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(
+            () -> new ChunkSpliterator(0, size, cardinality()),
+            ChunkSpliterator.CHARACTERISTICS, false);
+    }
+
+    /**
+     * Performs the given action for the index of each set bit, in
+     * ascending order.
+     *
+     * @param action the action to be performed for each index
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action);
+        for (int i = 0; i < size; i++)
+            containers[i].forEach(keys[i] << 16, action);
+    }
+
+    /**
+     * Spliterator over the set bits of the chunks [index, fence), with
+     * the current chunk traversed from value next.
+     */
+    final class ChunkSpliterator implements Spliterator.OfInt {
+        static final int CHARACTERISTICS = Spliterator.ORDERED |
+            Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL;
+        private int index;
+        private final int fence;
+        private int next;   // next value to try in chunk index
+        private int est;
+
+        ChunkSpliterator(int index, int fence, int est) {
+            this.index = index;
+            this.fence = fence;
+            this.est = est;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            Objects.requireNonNull(action);
+            while (index < fence) {
+                int v = (next < CHUNK_BITS) ? containers[index].nextSetBit(next) : -1;
+                if (v >= 0) {
+                    next = v + 1;
+                    action.accept((keys[index] << 16) | v);
+                    return true;
+                }
+                index++;
+                next = 0;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            Objects.requireNonNull(action);
+            int i = index, hi = fence, from = next;
+            index = hi;
+            for (; i < hi; i++, from = 0) {
+                Container c = containers[i];
+                int base = keys[i] << 16;
+                if (from == 0) {
+                    c.forEach(base, action);
+                } else {
+                    for (int v = (from < CHUNK_BITS) ? c.nextSetBit(from) : -1;
+                         v >= 0;
+                         v = (v + 1 < CHUNK_BITS) ? c.nextSetBit(v + 1) : -1)
+                        action.accept(base | v);
+                }
+            }
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int lo = index + 1, mid = (lo + fence) >>> 1;
+            if (lo >= mid)
+                return null;
+            est >>>= 1;
+            ChunkSpliterator prefix = new ChunkSpliterator(index, mid, est);
+            prefix.next = next;
+            index = mid;
+            next = 0;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
+    // Object methods
+
+    /**
+     * Returns the hash code value for this set. The hash code depends
+     * only on which bits are set.
+     *
+     * @return the hash code value for this set
+     */
+    @Override
+    public int hashCode() {
+        int h = 1234;
+        for (int i = 0; i < size; i++)
+            h = 31 * h + (keys[i] ^ containers[i].contentHash());
+        return h;
+    }
+
+    /**
+     * Compares this object against the specified object.
+     * The result is {@code true} if and only if the argument is
+     * not {@code null} and is a {@code CompressedBitSet} object that has
+     * exactly the same set of bits set to {@code true} as this set.
+     *
+     * @param  obj the object to compare with
+     * @return {@code true} if the objects are the same;
+     *         {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof CompressedBitSet))
+            return false;
+        if (this == obj)
+            return true;
+        CompressedBitSet set = (CompressedBitSet) obj;
+        if (size != set.size)
+            return false;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != set.keys[i] ||
+                !containers[i].contentEquals(set.containers[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cloning this {@code CompressedBitSet} produces a new
+     * {@code CompressedBitSet} that is equal to it.
+     *
+     * @return a clone of this set
+     */
+    @Override
+    public Object clone() {
+        try {
+            CompressedBitSet result = (CompressedBitSet) super.clone();
+            result.keys = Arrays.copyOf(keys, Math.max(size, 4));
+            result.containers = new Container[result.keys.length];
+            for (int i = 0; i < size; i++)
+                result.containers[i] = containers[i].copy();
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns a string representation of this set, in the same form as
+     * {@link BitSet#toString()}.
+     *
+     * @return a string representation of this set
+     */
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("{");
+        forEach(i -> {
+            if (b.length() > 1)
+                b.append(", ");
+            b.append(i);
+        });
+        return b.append('}').toString();
+    }
+
+    // Serialization
+
+    /** Cookie of the portable format without run containers. */
+    static final int SERIAL_COOKIE_NO_RUNCONTAINER = 12346;
+
+    /** Cookie of the portable format with run containers. */
+    static final int SERIAL_COOKIE = 12347;
+
+    /** Sets with runs of fewer chunks than this omit the offset header. */
+    static final int NO_OFFSET_THRESHOLD = 4;
+
+    /**
+     * Returns a new byte array containing this set in the portable Roaring
+     * serialization format: a little-endian header describing each chunk,
+     * followed by the chunk data as sorted 16-bit values, 1024 64-bit
+     * words, or 16-bit (start, length - 1) run pairs.
+     *
+     * @return a byte array containing this set
+     * @see #valueOf(ByteBuffer)
+     */
+    public byte[] toByteArray() {
+        boolean hasRun = false;
+        for (int i = 0; i < size && !hasRun; i++)
+            hasRun = containers[i] instanceof RunContainer;
+        int header = hasRun ?
+            4 + (size + 7) / 8 + 4 * size +
+                ((size >= NO_OFFSET_THRESHOLD) ? 4 * size : 0) :
+            8 + 8 * size;
+        int total = header;
+        for (int i = 0; i < size; i++)
+            total += containers[i].serializedSize();
+        ByteBuffer bb = ByteBuffer.wrap(new byte[total])
+            .order(ByteOrder.LITTLE_ENDIAN);
+        if (hasRun) {
+            bb.putInt(SERIAL_COOKIE | ((size - 1) << 16));
+            byte[] runFlags = new byte[(size + 7) / 8];
+            for (int i = 0; i < size; i++)
+                if (containers[i] instanceof RunContainer)
+                    runFlags[i >>> 3] |= 1 << (i & 7);
+            bb.put(runFlags);
+        } else {
+            bb.putInt(SERIAL_COOKIE_NO_RUNCONTAINER);
+            bb.putInt(size);
+        }
+        for (int i = 0; i < size; i++) {
+            bb.putChar(keys[i]);
+            bb.putChar((char)(containers[i].cardinality() - 1));
+        }
+        if (!hasRun || size >= NO_OFFSET_THRESHOLD) {
+            for (int i = 0, off = header; i < size; i++) {
+                bb.putInt(off);
+                off += containers[i].serializedSize();
+            }
+        }
+        for (int i = 0; i < size; i++)
+            containers[i].serialize(bb);
+        return bb.array();
+    }
+
+    /**
+     * Returns a new compressed bit set containing the set represented by
+     * the bytes between the position and limit of the specified buffer,
+     * in the portable Roaring serialization format, as written by
+     * {@link #toByteArray}. The buffer is not modified.
+     *
+     * @param bb a byte buffer containing a serialized set
+     * @return a {@code CompressedBitSet} containing the serialized set
+     * @throws IllegalArgumentException if the buffer does not contain a
+     *         valid serialized set, or contains indices of
+     *         2<sup>31</sup> or more
+     */
+    public static CompressedBitSet valueOf(ByteBuffer bb) {
+        bb = bb.slice().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int cookie = bb.getInt(), n;
+            byte[] runFlags = null;
+            if ((cookie & 0xFFFF) == SERIAL_COOKIE) {
+                n = (cookie >>> 16) + 1;
+                runFlags = new byte[(n + 7) / 8];
+                bb.get(runFlags);
+            } else if (cookie == SERIAL_COOKIE_NO_RUNCONTAINER) {
+                n = bb.getInt();
+                if (n < 0 || n > (Integer.MAX_VALUE >>> 16) + 1)
+                    throw new IllegalArgumentException("invalid chunk count: " + n);
+            } else {
+                throw new IllegalArgumentException("invalid cookie: " + cookie);
+            }
+            char[] ks = new char[Math.max(n, 4)];
+            int[] cards = new int[n];
+            for (int i = 0; i < n; i++) {
+                ks[i] = bb.getChar();
+                cards[i] = bb.getChar() + 1;
+                if (ks[i] > (Integer.MAX_VALUE >>> 16) ||
+                    (i > 0 && ks[i] <= ks[i - 1]))
+                    throw new IllegalArgumentException("invalid chunk key: " +
+                                                       (int)ks[i]);
+            }
+            if (runFlags == null || n >= NO_OFFSET_THRESHOLD)
+                bb.position(bb.position() + 4 * n); // skip offsets
+            Container[] cs = new Container[ks.length];
+            for (int i = 0; i < n; i++) {
+                boolean run = runFlags != null &&
+                    (runFlags[i >>> 3] & (1 << (i & 7))) != 0;
+                cs[i] = run ? RunContainer.deserialize(bb) :
+                    (cards[i] <= ARRAY_MAX) ? ArrayContainer.deserialize(bb, cards[i]) :
+                    BitmapContainer.deserialize(bb);
+                if (cs[i] == null || cs[i].cardinality() != cards[i])
+                    throw new IllegalArgumentException("invalid chunk " + i);
+            }
+            return new CompressedBitSet(ks, cs, n);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated or invalid data", e);
+        }
+    }
+
+    /**
+     * Returns a new compressed bit set containing the set represented by
+     * the given bytes, in the portable Roaring serialization format.
+     *
+     * @param bytes a byte array containing a serialized set
+     * @return a {@code CompressedBitSet} containing the serialized set
+     * @throws IllegalArgumentException if the array does not contain a
+     *         valid serialized set, or contains indices of
+     *         2<sup>31</sup> or more
+     */
+    public static CompressedBitSet valueOf(byte[] bytes) {
+        return valueOf(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Saves the state of the set to a stream.
+     *
+     * @serialData The length of the portable form of the set (int),
+     *             followed by the bytes of the portable form, as returned
+     *             by {@link #toByteArray}.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        byte[] b = toByteArray();
+        s.writeInt(b.length);
+        s.write(b);
+    }
+
+    /**
+     * Reconstitutes the set from a stream.
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int len = s.readInt();
+        if (len < 8)
+            throw new InvalidObjectException("invalid length: " + len);
+        byte[] b = new byte[len];
+        s.readFully(b);
+        try {
+            CompressedBitSet set = valueOf(b);
+            keys = set.keys;
+            containers = set.containers;
+            size = set.size;
+        } catch (IllegalArgumentException e) {
+            InvalidObjectException ioe = new InvalidObjectException(e.getMessage());
+            ioe.initCause(e);
+            throw ioe;
+        }
+    }
+
+    // Containers
+
+    /**
+     * Recompresses each chunk of this set into the smallest of the three
+     * forms for its contents. Single-bit updates keep the current form
+     * of a chunk where possible, so this method may reduce the space
+     * used by a set built up by {@link #set(int)} and {@link #clear(int)},
+     * in particular one containing long runs of set bits.
+     */
+    public void runOptimize() {
+        for (int i = 0; i < size; i++)
+            containers[i] = Container.fromBits(containers[i].bitsView());
+    }
+
+    /** Sets bits [lo, hi) of the given words. */
+    static void setRange(long[] words, int lo, int hi) {
+        if (lo >= hi)
+            return;
+        int a = lo >>> 6, b = (hi - 1) >>> 6;
+        long first = -1L << lo, last = -1L >>> -hi;
+        if (a == b)
+            words[a] |= first & last;
+        else {
+            words[a] |= first;
+            for (int i = a + 1; i < b; i++)
+                words[i] = -1L;
+            words[b] |= last;
+        }
+    }
+
+    /** Clears bits [lo, hi) of the given words. */
+    static void clearRange(long[] words, int lo, int hi) {
+        if (lo >= hi)
+            return;
+        int a = lo >>> 6, b = (hi - 1) >>> 6;
+        long first = -1L << lo, last = -1L >>> -hi;
+        if (a == b)
+            words[a] &= ~(first & last);
+        else {
+            words[a] &= ~first;
+            for (int i = a + 1; i < b; i++)
+                words[i] = 0L;
+            words[b] &= ~last;
+        }
+    }
+
+    /** Flips bits [lo, hi) of the given words. */
+    static void flipRange(long[] words, int lo, int hi) {
+        if (lo >= hi)
+            return;
+        int a = lo >>> 6, b = (hi - 1) >>> 6;
+        long first = -1L << lo, last = -1L >>> -hi;
+        if (a == b)
+            words[a] ^= first & last;
+        else {
+            words[a] ^= first;
+            for (int i = a + 1; i < b; i++)
+                words[i] = ~words[i];
+            words[b] ^= last;
+        }
+    }
+
+    /**
+     * The set values, from 0 to CHUNK_BITS - 1, of one chunk. Methods
+     * returning a Container may return this, updated in place, or a
+     * replacement in another form; those that may empty the container
+     * return null instead.
+     */
+    abstract static class Container {
+        abstract int cardinality();
+        abstract boolean contains(int v);
+        abstract Container add(int v);
+        abstract Container remove(int v);
+        /** Returns the least set value >= v, or -1 if none. */
+        abstract int nextSetBit(int v);
+        /** Returns the least clear value >= v, or CHUNK_BITS if none. */
+        abstract int nextClearBit(int v);
+        /** Returns the greatest set value <= v, or -1 if none. */
+        abstract int previousSetBit(int v);
+        /** Returns the greatest clear value <= v, or -1 if none. */
+        abstract int previousClearBit(int v);
+        /** Sets the values of this container in the given words. */
+        abstract void orInto(long[] words);
+        abstract void forEach(int base, IntConsumer action);
+        abstract Container copy();
+        abstract long sizeInBytes();
+        abstract int serializedSize();
+        abstract void serialize(ByteBuffer bb);
+
+        /** Returns a new bitmap of the values of this container. */
+        long[] toBits() {
+            long[] words = new long[WORDS];
+            orInto(words);
+            return words;
+        }
+
+        /** Returns a bitmap of the values that must not be modified. */
+        long[] bitsView() {
+            return toBits();
+        }
+
+        int contentHash() {
+            long[] words = bitsView();
+            int h = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long w = words[i];
+                if (w != 0L)
+                    h = 31 * h + (i ^ (int)(w ^ (w >>> 32)));
+            }
+            return h;
+        }
+
+        boolean contentEquals(Container c) {
+            if (cardinality() != c.cardinality())
+                return false;
+            if (this instanceof ArrayContainer && c instanceof ArrayContainer)
+                return Arrays.equals(((ArrayContainer)this).values, 0, cardinality(),
+                                     ((ArrayContainer)c).values, 0, cardinality());
+            return Arrays.equals(bitsView(), c.bitsView());
+        }
+
+        /**
+         * Returns a new container of the smallest form holding the values
+         * set in the given words, or null if there are none.
+         */
+        static Container fromBits(long[] words) {
+            int card = 0, nruns = 0;
+            long prev = 0L;
+            for (long w : words) {
+                card += Long.bitCount(w);
+                nruns += Long.bitCount(w & ~((w << 1) | (prev >>> 63)));
+                prev = w;
+            }
+            if (card == 0)
+                return null;
+            int arrayBytes = (card <= ARRAY_MAX) ? 2 * card : Integer.MAX_VALUE;
+            if (2 + 4 * nruns < Math.min(arrayBytes, 8 * WORDS))
+                return RunContainer.fromBits(words, nruns, card);
+            if (card <= ARRAY_MAX)
+                return ArrayContainer.fromBits(words, card);
+            return new BitmapContainer(words.clone(), card);
+        }
+
+        static Container and(Container a, Container b) {
+            if (a instanceof ArrayContainer)
+                return ((ArrayContainer)a).filter(b, true);
+            if (b instanceof ArrayContainer)
+                return ((ArrayContainer)b).filter(a, true);
+            long[] words = a.toBits(), v = b.bitsView();
+            for (int i = 0; i < WORDS; i++)
+                words[i] &= v[i];
+            return fromBits(words);
+        }
+
+        static Container andNot(Container a, Container b) {
+            if (a instanceof ArrayContainer)
+                return ((ArrayContainer)a).filter(b, false);
+            long[] words = a.toBits(), v = b.bitsView();
+            for (int i = 0; i < WORDS; i++)
+                words[i] &= ~v[i];
+            return fromBits(words);
+        }
+
+        static Container or(Container a, Container b) {
+            if (a instanceof ArrayContainer && b instanceof ArrayContainer &&
+                a.cardinality() + b.cardinality() <= ARRAY_MAX)
+                return ArrayContainer.merge((ArrayContainer)a, (ArrayContainer)b, false);
+            long[] words = a.toBits();
+            b.orInto(words);
+            return fromBits(words);
+        }
+
+        static Container xor(Container a, Container b) {
+            if (a instanceof ArrayContainer && b instanceof ArrayContainer &&
+                a.cardinality() + b.cardinality() <= ARRAY_MAX)
+                return ArrayContainer.merge((ArrayContainer)a, (ArrayContainer)b, true);
+            long[] words = a.toBits(), v = b.bitsView();
+            for (int i = 0; i < WORDS; i++)
+                words[i] ^= v[i];
+            return fromBits(words);
+        }
+
+        static int andCardinality(Container a, Container b) {
+            if (a instanceof ArrayContainer)
+                return ((ArrayContainer)a).countIn(b);
+            if (b instanceof ArrayContainer)
+                return ((ArrayContainer)b).countIn(a);
+            long[] u = a.bitsView(), v = b.bitsView();
+            int n = 0;
+            for (int i = 0; i < WORDS; i++)
+                n += Long.bitCount(u[i] & v[i]);
+            return n;
+        }
+    }
+
+    /** A chunk of at most ARRAY_MAX values, held in ascending order. */
+    static final class ArrayContainer extends Container {
+        char[] values;
+        int card;
+
+        ArrayContainer(char[] values, int card) {
+            this.values = values;
+            this.card = card;
+        }
+
+        ArrayContainer(char v) {
+            this(new char[] { v, 0, 0, 0 }, 1);
+        }
+
+        static ArrayContainer fromBits(long[] words, int card) {
+            char[] vs = new char[card];
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                for (long w = words[i]; w != 0L; w &= w - 1)
+                    vs[n++] = (char)((i << 6) | Long.numberOfTrailingZeros(w));
+            }
+            return new ArrayContainer(vs, card);
+        }
+
+        static ArrayContainer deserialize(ByteBuffer bb, int card) {
+            char[] vs = new char[card];
+            for (int i = 0; i < card; i++) {
+                vs[i] = bb.getChar();
+                if (i > 0 && vs[i] <= vs[i - 1])
+                    return null;
+            }
+            return new ArrayContainer(vs, card);
+        }
+
+        /**
+         * Returns a new container of the values of both a and b (xor
+         * false) or of exactly one of them (xor true), or null if empty.
+         * The caller ensures the result fits in an array.
+         */
+        static ArrayContainer merge(ArrayContainer a, ArrayContainer b,
+                                    boolean xor) {
+            char[] x = a.values, y = b.values, r = new char[a.card + b.card];
+            int i = 0, j = 0, n = 0;
+            while (i < a.card && j < b.card) {
+                char u = x[i], v = y[j];
+                if (u < v) {
+                    r[n++] = u;
+                    i++;
+                } else if (u > v) {
+                    r[n++] = v;
+                    j++;
+                } else {
+                    if (!xor)
+                        r[n++] = u;
+                    i++;
+                    j++;
+                }
+            }
+            while (i < a.card)
+                r[n++] = x[i++];
+            while (j < b.card)
+                r[n++] = y[j++];
+            return (n == 0) ? null : new ArrayContainer(r, n);
+        }
+
+        /**
+         * Returns a new container of the values that are (keep true) or
+         * are not (keep false) in c, or null if there are none.
+         */
+        ArrayContainer filter(Container c, boolean keep) {
+            char[] r = new char[card];
+            int n = 0;
+            for (int i = 0; i < card; i++) {
+                if (c.contains(values[i]) == keep)
+                    r[n++] = values[i];
+            }
+            return (n == 0) ? null : new ArrayContainer(r, n);
+        }
+
+        int countIn(Container c) {
+            int n = 0;
+            for (int i = 0; i < card; i++) {
+                if (c.contains(values[i]))
+                    n++;
+            }
+            return n;
+        }
+
+        private int search(int v) {
+            return Arrays.binarySearch(values, 0, card, (char)v);
+        }
+
+        int cardinality() {
+            return card;
+        }
+
+        boolean contains(int v) {
+            return search(v) >= 0;
+        }
+
+        Container add(int v) {
+            int i = search(v);
+            if (i >= 0)
+                return this;
+            if (card == ARRAY_MAX) {
+                long[] words = toBits();
+                words[v >>> 6] |= 1L << v;
+                return new BitmapContainer(words, card + 1);
+            }
+            i = -i - 1;
+            if (card == values.length)
+                values = Arrays.copyOf(values, Math.min(card + (card >> 1) + 1,
+                                                        ARRAY_MAX));
+            System.arraycopy(values, i, values, i + 1, card - i);
+            values[i] = (char)v;
+            card++;
+            return this;
+        }
+
+        Container remove(int v) {
+            int i = search(v);
+            if (i < 0)
+                return this;
+            if (card == 1)
+                return null;
+            System.arraycopy(values, i + 1, values, i, card - i - 1);
+            card--;
+            return this;
+        }
+
+        int nextSetBit(int v) {
+            int i = search(v);
+            if (i >= 0)
+                return v;
+            i = -i - 1;
+            return (i < card) ? values[i] : -1;
+        }
+
+        int nextClearBit(int v) {
+            int i = search(v);
+            if (i < 0)
+                return v;
+            while (i + 1 < card && values[i + 1] == values[i] + 1)
+                i++;
+            return values[i] + 1;
+        }
+
+        int previousSetBit(int v) {
+            int i = search(v);
+            if (i >= 0)
+                return v;
+            i = -i - 2;
+            return (i >= 0) ? values[i] : -1;
+        }
+
+        int previousClearBit(int v) {
+            int i = search(v);
+            if (i < 0)
+                return v;
+            while (i > 0 && values[i - 1] == values[i] - 1)
+                i--;
+            return values[i] - 1;
+        }
+
+        void orInto(long[] words) {
+            for (int i = 0; i < card; i++) {
+                int v = values[i];
+                words[v >>> 6] |= 1L << v;
+            }
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < card; i++)
+                action.accept(base | values[i]);
+        }
+
+        int contentHash() {
+            // Same as Container.contentHash, without building a bitmap
+            int h = 0, j = -1;
+            long w = 0L;
+            for (int i = 0; i < card; i++) {
+                int v = values[i];
+                if ((v >>> 6) != j) {
+                    if (j >= 0)
+                        h = 31 * h + (j ^ (int)(w ^ (w >>> 32)));
+                    j = v >>> 6;
+                    w = 0L;
+                }
+                w |= 1L << v;
+            }
+            return 31 * h + (j ^ (int)(w ^ (w >>> 32)));
+        }
+
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, card), card);
+        }
+
+        long sizeInBytes() {
+            return 2L * values.length;
+        }
+
+        int serializedSize() {
+            return 2 * card;
+        }
+
+        void serialize(ByteBuffer bb) {
+            for (int i = 0; i < card; i++)
+                bb.putChar(values[i]);
+        }
+    }
+
+    /** A chunk of more than ARRAY_MAX values, held as a bitmap. */
+    static final class BitmapContainer extends Container {
+        final long[] words;
+        int card;
+
+        BitmapContainer(long[] words, int card) {
+            this.words = words;
+            this.card = card;
+        }
+
+        static BitmapContainer deserialize(ByteBuffer bb) {
+            long[] words = new long[WORDS];
+            int card = 0;
+            for (int i = 0; i < WORDS; i++)
+                card += Long.bitCount(words[i] = bb.getLong());
+            return new BitmapContainer(words, card);
+        }
+
+        int cardinality() {
+            return card;
+        }
+
+        boolean contains(int v) {
+            return (words[v >>> 6] & (1L << v)) != 0L;
+        }
+
+        Container add(int v) {
+            long w = words[v >>> 6];
+            if ((w & (1L << v)) == 0L) {
+                words[v >>> 6] = w | (1L << v);
+                card++;
+            }
+            return this;
+        }
+
+        Container remove(int v) {
+            long w = words[v >>> 6];
+            if ((w & (1L << v)) == 0L)
+                return this;
+            words[v >>> 6] = w & ~(1L << v);
+            if (--card <= ARRAY_MAX)
+                return ArrayContainer.fromBits(words, card);
+            return this;
+        }
+
+        int nextSetBit(int v) {
+            int i = v >>> 6;
+            long w = words[i] & (-1L << v);
+            while (w == 0L) {
+                if (++i == WORDS)
+                    return -1;
+                w = words[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        int nextClearBit(int v) {
+            int i = v >>> 6;
+            long w = ~words[i] & (-1L << v);
+            while (w == 0L) {
+                if (++i == WORDS)
+                    return CHUNK_BITS;
+                w = ~words[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        int previousSetBit(int v) {
+            int i = v >>> 6;
+            long w = words[i] & (-1L >>> -(v + 1));
+            while (w == 0L) {
+                if (--i < 0)
+                    return -1;
+                w = words[i];
+            }
+            return (i << 6) + 63 - Long.numberOfLeadingZeros(w);
+        }
+
+        int previousClearBit(int v) {
+            int i = v >>> 6;
+            long w = ~words[i] & (-1L >>> -(v + 1));
+            while (w == 0L) {
+                if (--i < 0)
+                    return -1;
+                w = ~words[i];
+            }
+            return (i << 6) + 63 - Long.numberOfLeadingZeros(w);
+        }
+
+        void orInto(long[] ws) {
+            for (int i = 0; i < WORDS; i++)
+                ws[i] |= words[i];
+        }
+
+        long[] toBits() {
+            return words.clone();
+        }
+
+        long[] bitsView() {
+            return words;
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < WORDS; i++) {
+                for (long w = words[i]; w != 0L; w &= w - 1)
+                    action.accept(base | (i << 6) | Long.numberOfTrailingZeros(w));
+            }
+        }
+
+        Container copy() {
+            return new BitmapContainer(words.clone(), card);
+        }
+
+        long sizeInBytes() {
+            return 8L * WORDS;
+        }
+
+        int serializedSize() {
+            return 8 * WORDS;
+        }
+
+        void serialize(ByteBuffer bb) {
+            for (long w : words)
+                bb.putLong(w);
+        }
+    }
+
+    /**
+     * A chunk held as a sequence of runs of consecutive values, as
+     * (first, last) pairs in runs[0..2*nruns). Runs are ascending and
+     * separated by at least one clear value.
+     */
+    static final class RunContainer extends Container {
+        char[] runs;
+        int nruns;
+        int card;
+
+        RunContainer(char[] runs, int nruns, int card) {
+            this.runs = runs;
+            this.nruns = nruns;
+            this.card = card;
+        }
+
+        /** Returns a container of the values [lo, hi), hi > lo. */
+        static RunContainer range(int lo, int hi) {
+            return new RunContainer(new char[] { (char)lo, (char)(hi - 1) },
+                                    1, hi - lo);
+        }
+
+        static RunContainer fromBits(long[] words, int nruns, int card) {
+            char[] runs = new char[2 * nruns];
+            int n = 0;
+            for (int v = nextSet(words, 0); v >= 0; ) {
+                int e = nextClear(words, v);
+                runs[n++] = (char)v;
+                runs[n++] = (char)(e - 1);
+                v = (e < CHUNK_BITS) ? nextSet(words, e) : -1;
+            }
+            return new RunContainer(runs, nruns, card);
+        }
+
+        private static int nextSet(long[] words, int v) {
+            int i = v >>> 6;
+            long w = words[i] & (-1L << v);
+            while (w == 0L) {
+                if (++i == WORDS)
+                    return -1;
+                w = words[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        private static int nextClear(long[] words, int v) {
+            int i = v >>> 6;
+            long w = ~words[i] & (-1L << v);
+            while (w == 0L) {
+                if (++i == WORDS)
+                    return CHUNK_BITS;
+                w = ~words[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        /**
+         * Reads a run container, coalescing adjacent runs, or returns
+         * null if the runs are empty, overlapping or out of order.
+         */
+        static RunContainer deserialize(ByteBuffer bb) {
+            int count = bb.getChar();
+            if (count == 0)
+                return null;
+            char[] runs = new char[2 * count];
+            int n = 0, card = 0;
+            for (int i = 0; i < count; i++) {
+                int first = bb.getChar(), last = first + bb.getChar();
+                if (last >= CHUNK_BITS || (n > 0 && first <= runs[n - 1]))
+                    return null;
+                if (n > 0 && first == runs[n - 1] + 1)
+                    runs[n - 1] = (char)last;
+                else {
+                    runs[n++] = (char)first;
+                    runs[n++] = (char)last;
+                }
+                card += last - first + 1;
+            }
+            return new RunContainer(runs, n >>> 1, card);
+        }
+
+        /** Returns the index of the last run starting at or before v, or -1. */
+        private int runIndex(int v) {
+            int lo = 0, hi = nruns - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (runs[2 * mid] <= v)
+                    lo = mid + 1;
+                else
+                    hi = mid - 1;
+            }
+            return hi;
+        }
+
+        int cardinality() {
+            return card;
+        }
+
+        boolean contains(int v) {
+            int r = runIndex(v);
+            return r >= 0 && v <= runs[2 * r + 1];
+        }
+
+        Container add(int v) {
+            int r = runIndex(v);
+            if (r >= 0 && v <= runs[2 * r + 1])
+                return this;
+            boolean joinsLeft = r >= 0 && runs[2 * r + 1] + 1 == v;
+            boolean joinsRight = r + 1 < nruns && runs[2 * r + 2] - 1 == v;
+            if (joinsLeft && joinsRight) {
+                runs[2 * r + 1] = runs[2 * r + 3];
+                System.arraycopy(runs, 2 * r + 4, runs, 2 * r + 2,
+                                 2 * (nruns - r - 2));
+                nruns--;
+            } else if (joinsLeft) {
+                runs[2 * r + 1] = (char)v;
+            } else if (joinsRight) {
+                runs[2 * r + 2] = (char)v;
+            } else if (nruns == RUNS_MAX) {
+                long[] words = toBits();
+                words[v >>> 6] |= 1L << v;
+                return Container.fromBits(words);
+            } else {
+                insertRun(r + 1, v, v);
+            }
+            card++;
+            return this;
+        }
+
+        Container remove(int v) {
+            int r = runIndex(v);
+            if (r < 0 || v > runs[2 * r + 1])
+                return this;
+            if (card == 1)
+                return null;
+            int first = runs[2 * r], last = runs[2 * r + 1];
+            if (first == last) {
+                System.arraycopy(runs, 2 * r + 2, runs, 2 * r,
+                                 2 * (nruns - r - 1));
+                nruns--;
+            } else if (v == first) {
+                runs[2 * r] = (char)(v + 1);
+            } else if (v == last) {
+                runs[2 * r + 1] = (char)(v - 1);
+            } else if (nruns == RUNS_MAX) {
+                long[] words = toBits();
+                words[v >>> 6] &= ~(1L << v);
+                return Container.fromBits(words);
+            } else {
+                runs[2 * r + 1] = (char)(v - 1);
+                insertRun(r + 1, v + 1, last);
+            }
+            card--;
+            return this;
+        }
+
+        private void insertRun(int r, int first, int last) {
+            if (2 * nruns == runs.length)
+                runs = Arrays.copyOf(runs, 2 * (nruns + (nruns >> 1) + 1));
+            System.arraycopy(runs, 2 * r, runs, 2 * r + 2, 2 * (nruns - r));
+            runs[2 * r] = (char)first;
+            runs[2 * r + 1] = (char)last;
+            nruns++;
+        }
+
+        int nextSetBit(int v) {
+            int r = runIndex(v);
+            if (r >= 0 && v <= runs[2 * r + 1])
+                return v;
+            return (r + 1 < nruns) ? runs[2 * r + 2] : -1;
+        }
+
+        int nextClearBit(int v) {
+            int r = runIndex(v);
+            return (r >= 0 && v <= runs[2 * r + 1]) ? runs[2 * r + 1] + 1 : v;
+        }
+
+        int previousSetBit(int v) {
+            int r = runIndex(v);
+            return (r < 0) ? -1 : Math.min(v, runs[2 * r + 1]);
+        }
+
+        int previousClearBit(int v) {
+            int r = runIndex(v);
+            return (r >= 0 && v <= runs[2 * r + 1]) ? runs[2 * r] - 1 : v;
+        }
+
+        void orInto(long[] words) {
+            for (int r = 0; r < nruns; r++)
+                setRange(words, runs[2 * r], runs[2 * r + 1] + 1);
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int r = 0; r < nruns; r++) {
+                for (int v = runs[2 * r], last = runs[2 * r + 1]; v <= last; v++)
+                    action.accept(base | v);
+            }
+        }
+
+        Container copy() {
+            return new RunContainer(Arrays.copyOf(runs, 2 * nruns), nruns, card);
+        }
+
+        long sizeInBytes() {
+            return 2L * runs.length;
+        }
+
+        int serializedSize() {
+            return 2 + 4 * nruns;
+        }
+
+        void serialize(ByteBuffer bb) {
+            bb.putChar((char)nruns);
+            for (int r = 0; r < nruns; r++) {
+                bb.putChar(runs[2 * r]);
+                bb.putChar((char)(runs[2 * r + 1] - runs[2 * r]));
+            }
+        }
+    }
+}
@@ -3178,4 +3178,127 @@ final class DualPivotQuicksort {
             sort(a, great + 1, right, false);
         }
     }
+
+    /*
+     * Radix sorting support for int and long arrays.  The parallel
+     * radix sorts in ArraysParallelSortHelpers distribute elements by
+     * one digit at a time using radixCount and radixScatter over
+     * chunks of the array, and sort small buckets using the methods
+     * above.  Digits are RADIX_BITS wide, and are taken from the
+     * two's complement representation with the sign bit flipped, so
+     * that unsigned digit order is signed numerical order.
+     */
+
+    /** The number of bits in a radix sort digit. */
+    static final int RADIX_BITS = 8;
+
+    /** The number of distinct radix sort digit values. */
+    static final int RADIX = 1 << RADIX_BITS;
+
+    /** The shift of the most significant digit of an int. */
+    static final int INT_TOP_SHIFT = Integer.SIZE - RADIX_BITS;
+
+    /** The shift of the most significant digit of a long. */
+    static final int LONG_TOP_SHIFT = Long.SIZE - RADIX_BITS;
+
+    /**
+     * Adds to count[d] the number of elements in the specified range
+     * having digit d at the given shift.
+     */
+    static void radixCount(int[] a, int low, int high, int shift, int[] count) {
+        int flip = (shift == INT_TOP_SHIFT) ? RADIX >>> 1 : 0;
+        for (int i = low; i < high; ++i) {
+            ++count[((a[i] >>> shift) & (RADIX - 1)) ^ flip];
+        }
+    }
+
+    /**
+     * Moves each element in the specified range having digit d at the
+     * given shift to dst[offset[d]++], preserving encounter order.
+     */
+    static void radixScatter(int[] a, int low, int high, int shift,
+                             int[] offset, int[] dst) {
+        int flip = (shift == INT_TOP_SHIFT) ? RADIX >>> 1 : 0;
+        for (int i = low; i < high; ++i) {
+            int v = a[i];
+            dst[offset[((v >>> shift) & (RADIX - 1)) ^ flip]++] = v;
+        }
+    }
+
+    /**
+     * Adds to count[d] the number of elements in the specified range
+     * having digit d at the given shift.
+     */
+    static void radixCount(long[] a, int low, int high, int shift, int[] count) {
+        int flip = (shift == LONG_TOP_SHIFT) ? RADIX >>> 1 : 0;
+        for (int i = low; i < high; ++i) {
+            ++count[((int) (a[i] >>> shift) & (RADIX - 1)) ^ flip];
+        }
+    }
+
+    /**
+     * Moves each element in the specified range having digit d at the
+     * given shift to dst[offset[d]++], preserving encounter order.
+     */
+    static void radixScatter(long[] a, int low, int high, int shift,
+                             int[] offset, long[] dst) {
+        int flip = (shift == LONG_TOP_SHIFT) ? RADIX >>> 1 : 0;
+        for (int i = low; i < high; ++i) {
+            long v = a[i];
+            dst[offset[((int) (v >>> shift) & (RADIX - 1)) ^ flip]++] = v;
+        }
+    }
+
+    /**
+     * Stably sorts the specified range of the keys array into ascending
+     * numerical order, permuting the values array in the same way, using
+     * a least-significant-digit radix sort.  Digits shared by all keys
+     * are skipped, so already-narrow key ranges need fewer passes.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted along with the keys
+     * @param low the index of the first element, inclusive, to be sorted
+     * @param high the index of the last element, exclusive, to be sorted
+     * @param kw a workspace array for keys, of length at least high
+     * @param vw a workspace array for values, of length at least high
+     */
+    static void radixSort(long[] keys, int[] values, int low, int high,
+                          long[] kw, int[] vw) {
+        final int digits = Long.SIZE / RADIX_BITS;
+        int n = high - low;
+        int[][] count = new int[digits][RADIX];
+        for (int i = low; i < high; ++i) {
+            long k = keys[i] ^ Long.MIN_VALUE;
+            for (int d = 0; d < digits; ++d) {
+                ++count[d][(int) (k >>> (d * RADIX_BITS)) & (RADIX - 1)];
+            }
+        }
+        long[] ks = keys, kd = kw;
+        int[] vs = values, vd = vw;
+        for (int d = 0; d < digits; ++d) {
+            int[] offset = count[d];
+            if (offset[(int) ((ks[low] ^ Long.MIN_VALUE) >>> (d * RADIX_BITS))
+                       & (RADIX - 1)] == n) {
+                continue; // all keys have the same digit
+            }
+            for (int j = 0, sum = low; j < RADIX; ++j) {
+                int c = offset[j];
+                offset[j] = sum;
+                sum += c;
+            }
+            int shift = d * RADIX_BITS;
+            for (int i = low; i < high; ++i) {
+                long k = ks[i];
+                int t = offset[(int) ((k ^ Long.MIN_VALUE) >>> shift) & (RADIX - 1)]++;
+                kd[t] = k;
+                vd[t] = vs[i];
+            }
+            long[] kt = ks; ks = kd; kd = kt;
+            int[] vt = vs; vs = vd; vd = vt;
+        }
+        if (ks != keys) {
+            System.arraycopy(ks, low, keys, low, n);
+            System.arraycopy(vs, low, values, low, n);
+        }
+    }
 }
@@ -69,6 +69,294 @@ class ImmutableCollections {
 
     static UnsupportedOperationException uoe() { return new UnsupportedOperationException(); }
 
+    // ---------- Perfect Hashing ----------
+
+    /*
+     * Larger immutable maps, and sets of Integer, Long or (deserialized)
+     * String elements, are laid out using a minimal perfect hash: a
+     * function mapping each of the n keys to a distinct slot 0..n-1, so
+     * that a map needs only 2n table entries rather than the 4n of MapN,
+     * and sets can store primitives, or bytes, densely.  Lookup of a key
+     * whose hash code no other key shares takes one probe of a redirect
+     * table plus one probe of the element table.
+     *
+     * Construction is the hash-and-displace scheme also used by jlink's
+     * PerfectHashBuilder for the jimage location index: keys are first
+     * split into (n+1)/2 buckets by their salted hash.  Buckets are then
+     * placed largest first: for each bucket with two or more keys we
+     * search for a seed that sends all its keys to free slots, and record
+     * the seed in the bucket's redirect entry.  Single-key buckets take
+     * the remaining free slots directly, recording the slot as -1 - slot.
+     * Empty buckets keep redirect entry 0, which sends a probe to an
+     * arbitrary slot whose key then fails the equality check.
+     *
+     * Keys with equal hash codes cannot be separated by any seed, so
+     * only the first key with each distinct hash code (its "primary")
+     * is placed this way, in slots 0..m-1.  The other n-m keys go to
+     * the overflow slots m..n-1 in ascending order of hash code, and
+     * the sorted array of their hash codes (see phOverflow) is kept
+     * alongside the redirect table.  A lookup that misses its primary
+     * slot binary searches that array, which is empty unless there are
+     * such collisions, and compares against each overflow key with the
+     * same hash code, so colliding keys cost about as many equals calls
+     * as they would in MapN's probe sequence.  Duplicates share a hash
+     * code, so end up in the overflow slots; each collection checks
+     * those slots once it is built, and the factory methods fall back
+     * to the probing implementations, which throw the usual
+     * IllegalArgumentException, if any duplicate is found.  They also
+     * fall back if some bucket cannot be placed within
+     * PERFECT_HASH_RETRY_LIMIT seeds.  Slot order depends on SALT, so
+     * iteration order still varies from one run to the next.
+     */
+
+    /**
+     * The minimum number of elements or mappings for which a perfect hash
+     * layout is used.  Smaller collections probe few enough entries that
+     * the cost of construction is not repaid.
+     */
+    static final int MIN_PERFECT_HASH_SIZE = 16;
+
+    /**
+     * The maximum number of seeds tried when placing a bucket.
+     */
+    static final int PERFECT_HASH_RETRY_LIMIT = 1000;
+
+    /**
+     * Mixes a hash code with a seed (the MurmurHash3 finalizer).
+     */
+    static int phMix(int h, int seed) {
+        h ^= seed * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the slot of a key with the given hash code, given the
+     * redirect table of a perfect hash of n primary keys. The slot holds
+     * the key if it is equal to any of the n primary keys.
+     */
+    static int phSlot(int[] redirect, int n, int h) {
+        int d = redirect[Math.floorMod(phMix(h, SALT), redirect.length)];
+        return (d < 0) ? -1 - d : Math.floorMod(phMix(h, d), n);
+    }
+
+    /**
+     * Returns the index in overflow (as returned by phOverflow) of the
+     * first overflow key with hash code h, or of the first key with a
+     * larger hash code if there is none. Overflow key j is in slot
+     * n - overflow.length + j, for a perfect hash of n keys.
+     */
+    static int phOverflowIndex(int[] overflow, int h) {
+        int lo = 0, hi = overflow.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (overflow[mid] < h) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns, in ascending order, the hash codes of the keys that
+     * perfectHash places in overflow slots: for each run of k keys with
+     * equal hash codes, k-1 copies of that hash code.
+     */
+    static int[] phOverflow(int[] hashes) {
+        int[] sorted = hashes.clone();
+        Arrays.sort(sorted);
+        int k = 0;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1]) {
+                sorted[k++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, k);
+    }
+
+    /**
+     * Constructs a minimal perfect hash for keys with the given hash
+     * codes, storing the slot of key i in slots[i] and returning the
+     * redirect table for use with phSlot, or returning null if some
+     * bucket could not be placed. Keys whose hash code equals that of
+     * an earlier key are stored in the overflow slots described by
+     * phOverflow(hashes), and phSlot must then be passed the number
+     * of primary keys, n - phOverflow(hashes).length.
+     */
+    static int[] perfectHash(int[] hashes, int[] slots) {
+        int n = hashes.length;
+        long[] sorted = new long[n]; // hash code and index, by hash code
+        for (int i = 0; i < n; i++) {
+            sorted[i] = ((long)hashes[i] << 32) | i;
+        }
+        Arrays.sort(sorted);
+        int m = 0;
+        int[] primary = new int[n];
+        for (int k = 0; k < n; k++) {
+            if (k == 0 || (sorted[k] >> 32) != (sorted[k - 1] >> 32)) {
+                primary[m++] = (int)sorted[k];
+            }
+        }
+        if (m == n) {
+            return placeDistinct(hashes, slots);
+        }
+        for (int k = 1, o = m; k < n; k++) {
+            if ((sorted[k] >> 32) == (sorted[k - 1] >> 32)) {
+                slots[(int)sorted[k]] = o++;
+            }
+        }
+        int[] primaryHashes = new int[m];
+        int[] primarySlots = new int[m];
+        for (int j = 0; j < m; j++) {
+            primaryHashes[j] = hashes[primary[j]];
+        }
+        int[] redirect = placeDistinct(primaryHashes, primarySlots);
+        if (redirect != null) {
+            for (int j = 0; j < m; j++) {
+                slots[primary[j]] = primarySlots[j];
+            }
+        }
+        return redirect;
+    }
+
+    /**
+     * Constructs a minimal perfect hash for keys with the given distinct
+     * hash codes, as for perfectHash.
+     */
+    private static int[] placeDistinct(int[] hashes, int[] slots) {
+        int n = hashes.length, r = (n + 1) >>> 1;
+        int[] bucket = new int[n];
+        int[] start = new int[r + 1];   // bucket b holds members[start[b]..start[b+1])
+        for (int i = 0; i < n; i++) {
+            start[(bucket[i] = Math.floorMod(phMix(hashes[i], SALT), r)) + 1]++;
+        }
+        int max = 0;
+        for (int b = 0; b < r; b++) {
+            max = Math.max(max, start[b + 1]);
+            start[b + 1] += start[b];
+        }
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(start, r);
+        for (int i = 0; i < n; i++) {
+            members[fill[bucket[i]]++] = i;
+        }
+        int[] order = new int[r];       // buckets, largest first
+        int[] pos = new int[max + 2];
+        for (int b = 0; b < r; b++) {
+            pos[max - (start[b + 1] - start[b]) + 1]++;
+        }
+        for (int k = 0; k <= max; k++) {
+            pos[k + 1] += pos[k];
+        }
+        for (int b = 0; b < r; b++) {
+            order[pos[max - (start[b + 1] - start[b])]++] = b;
+        }
+
+        int[] owner = new int[n];       // key in each slot, or -1
+        Arrays.fill(owner, -1);
+        int[] redirect = new int[r];
+        int free = 0;
+        for (int b : order) {
+            int lo = start[b], hi = start[b + 1];
+            if (hi - lo == 0) {
+                break;
+            } else if (hi - lo == 1) {
+                while (owner[free] >= 0) {
+                    free++;
+                }
+                owner[free] = members[lo];
+                slots[members[lo]] = free;
+                redirect[b] = -1 - free;
+                continue;
+            }
+            for (int seed = 1; ; seed++) {
+                if (seed > PERFECT_HASH_RETRY_LIMIT) {
+                    return null;
+                }
+                int k = lo;
+                for (; k < hi; k++) {
+                    int i = members[k];
+                    int slot = Math.floorMod(phMix(hashes[i], seed), n);
+                    if (owner[slot] >= 0) {
+                        break;
+                    }
+                    owner[slot] = i;
+                    slots[i] = slot;
+                }
+                if (k == hi) {
+                    redirect[b] = seed;
+                    break;
+                }
+                while (--k >= lo) {
+                    owner[slots[members[k]]] = -1;
+                }
+            }
+        }
+        return redirect;
+    }
+
+    /**
+     * Returns an immutable set of the given three or more elements. If
+     * copiedStrings is true, String elements are known not to be shared
+     * with the caller (as when deserializing), so may be stored as bytes.
+     */
+    @SuppressWarnings("unchecked")
+    static <E> Set<E> setN(E[] input, boolean copiedStrings) {
+        if (input.length >= MIN_PERFECT_HASH_SIZE) {
+            Class<?> c = input[0].getClass(); // implicit nullcheck of input[0]
+            Set<?> set = null;
+            if (c == Integer.class || c == Long.class ||
+                (c == String.class && copiedStrings)) {
+                boolean same = true;
+                for (E e : input) {
+                    if (e == null || e.getClass() != c) {
+                        same = false;
+                        break;
+                    }
+                }
+                if (same) {
+                    set = (c == Integer.class) ? SetInt.create(input)
+                        : (c == Long.class) ? SetLong.create(input)
+                        : SetString.create(input);
+                }
+            }
+            if (set != null) {
+                return (Set<E>) set;
+            }
+        }
+        return new SetN<>(input);
+    }
+
+    /**
+     * Returns an immutable map of the given key and value pairs, of which
+     * there must be at least two.
+     */
+    static <K,V> Map<K,V> mapN(Object... input) {
+        int n = input.length >> 1;
+        if (n >= MIN_PERFECT_HASH_SIZE) {
+            int[] hashes = new int[n];
+            for (int i = 0; i < n; i++) {
+                Objects.requireNonNull(input[(i << 1) + 1]);
+                hashes[i] = input[i << 1].hashCode(); // implicit nullcheck of key
+            }
+            int[] slots = new int[n];
+            int[] redirect = perfectHash(hashes, slots);
+            if (redirect != null) {
+                MapPH<K,V> map = new MapPH<>(input, slots, redirect,
+                                             phOverflow(hashes));
+                if (map.distinctKeys()) {
+                    return map;
+                }
+            }
+        }
+        return new MapN<>(input); // throws if there are duplicate keys
+    }
+
     // ---------- List Implementations ----------
 
     abstract static class AbstractImmutableList<E> extends AbstractList<E>
@@ -546,6 +834,386 @@ class ImmutableCollections {
         }
     }
 
+    /**
+     * A Set of Integer elements, stored as ints in perfect hash order.
+     */
+    static final class SetInt extends AbstractImmutableSet<Integer> {
+        @Stable
+        final int[] elements;
+        @Stable
+        final int[] redirect;
+
+        private SetInt(int[] elements, int[] redirect) {
+            this.elements = elements;
+            this.redirect = redirect;
+        }
+
+        static SetInt create(Object[] input) {
+            int n = input.length;
+            int[] values = new int[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = (Integer)input[i];
+            }
+            if (phOverflow(values).length != 0) {
+                return null; // equal hash codes: duplicate elements
+            }
+            int[] slots = new int[n];
+            int[] redirect = perfectHash(values, slots);
+            if (redirect == null) {
+                return null;
+            }
+            int[] elements = new int[n];
+            for (int i = 0; i < n; i++) {
+                elements[slots[i]] = values[i];
+            }
+            return new SetInt(elements, redirect);
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof Integer) {
+                int v = (Integer)o;
+                return elements[phSlot(redirect, elements.length, v)] == v;
+            }
+            Objects.requireNonNull(o);
+            return false;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<Integer>() {
+                private int idx = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return idx < elements.length;
+                }
+
+                @Override
+                public Integer next() {
+                    if (! hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return elements[idx++];
+                }
+            };
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 0;
+            for (int e : elements) {
+                h += e;
+            }
+            return h;
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        private Object writeReplace() {
+            Object[] array = new Object[elements.length];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = elements[i];
+            }
+            return new CollSer(CollSer.IMM_SET, array);
+        }
+    }
+
+    /**
+     * A Set of Long elements, stored as longs in perfect hash order.
+     */
+    static final class SetLong extends AbstractImmutableSet<Long> {
+        @Stable
+        final long[] elements;
+        @Stable
+        final int[] redirect;
+        @Stable
+        final int[] overflow;
+
+        private SetLong(long[] elements, int[] redirect, int[] overflow) {
+            this.elements = elements;
+            this.redirect = redirect;
+            this.overflow = overflow;
+        }
+
+        static SetLong create(Object[] input) {
+            int n = input.length;
+            long[] values = new long[n];
+            int[] hashes = new int[n];
+            for (int i = 0; i < n; i++) {
+                hashes[i] = Long.hashCode(values[i] = (Long)input[i]);
+            }
+            int[] slots = new int[n];
+            int[] redirect = perfectHash(hashes, slots);
+            if (redirect == null) {
+                return null;
+            }
+            long[] elements = new long[n];
+            for (int i = 0; i < n; i++) {
+                elements[slots[i]] = values[i];
+            }
+            int[] overflow = phOverflow(hashes);
+            SetLong set = new SetLong(elements, redirect, overflow);
+            for (int i = n - overflow.length; i < n; i++) {
+                if (set.indexOf(elements[i]) != i) {
+                    return null; // duplicate element
+                }
+            }
+            return set;
+        }
+
+        /**
+         * Returns the slot of the first element equal to v, or -1.
+         */
+        int indexOf(long v) {
+            int h = Long.hashCode(v), m = elements.length - overflow.length;
+            int i = phSlot(redirect, m, h);
+            if (elements[i] == v) {
+                return i;
+            }
+            for (int j = phOverflowIndex(overflow, h);
+                 j < overflow.length && overflow[j] == h; j++) {
+                if (elements[m + j] == v) {
+                    return m + j;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof Long) {
+                return indexOf((Long)o) >= 0;
+            }
+            Objects.requireNonNull(o);
+            return false;
+        }
+
+        @Override
+        public Iterator<Long> iterator() {
+            return new Iterator<Long>() {
+                private int idx = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return idx < elements.length;
+                }
+
+                @Override
+                public Long next() {
+                    if (! hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return elements[idx++];
+                }
+            };
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 0;
+            for (long e : elements) {
+                h += Long.hashCode(e);
+            }
+            return h;
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        private Object writeReplace() {
+            Object[] array = new Object[elements.length];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = elements[i];
+            }
+            return new CollSer(CollSer.IMM_SET, array);
+        }
+    }
+
+    /**
+     * A Set of String elements containing only Latin-1 characters, stored
+     * as the bytes of all elements concatenated in perfect hash order.
+     * Lookups compare against the bytes directly; iteration creates new
+     * String instances. Only used when the elements are not otherwise
+     * shared, as sharing them would then cost more space than it saves.
+     */
+    static final class SetString extends AbstractImmutableSet<String> {
+        @Stable
+        final byte[] bytes;
+        @Stable
+        final int[] offsets; // element i is bytes[offsets[i]..offsets[i+1])
+        @Stable
+        final int[] redirect;
+        @Stable
+        final int[] overflow;
+
+        private SetString(byte[] bytes, int[] offsets, int[] redirect,
+                          int[] overflow) {
+            this.bytes = bytes;
+            this.offsets = offsets;
+            this.redirect = redirect;
+            this.overflow = overflow;
+        }
+
+        static SetString create(Object[] input) {
+            int n = input.length;
+            int[] hashes = new int[n];
+            long total = 0;
+            for (int i = 0; i < n; i++) {
+                String s = (String)input[i];
+                for (int j = 0; j < s.length(); j++) {
+                    if (s.charAt(j) > 0xFF) {
+                        return null;
+                    }
+                }
+                hashes[i] = s.hashCode();
+                total += s.length();
+            }
+            if (total > Integer.MAX_VALUE - 8) {
+                return null;
+            }
+            int[] slots = new int[n];
+            int[] redirect = perfectHash(hashes, slots);
+            if (redirect == null) {
+                return null;
+            }
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                offsets[slots[i] + 1] = ((String)input[i]).length();
+            }
+            for (int i = 0; i < n; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            byte[] bytes = new byte[(int)total];
+            for (int i = 0; i < n; i++) {
+                String s = (String)input[i];
+                for (int j = 0, off = offsets[slots[i]]; j < s.length(); j++) {
+                    bytes[off + j] = (byte)s.charAt(j);
+                }
+            }
+            int[] overflow = phOverflow(hashes);
+            SetString set = new SetString(bytes, offsets, redirect, overflow);
+            for (int i = n - overflow.length; i < n; i++) {
+                if (set.indexOf(set.element(i)) != i) {
+                    return null; // duplicate element
+                }
+            }
+            return set;
+        }
+
+        /**
+         * Returns the slot of the first element equal to s, or -1.
+         */
+        int indexOf(String s) {
+            int h = s.hashCode(), m = offsets.length - 1 - overflow.length;
+            int i = phSlot(redirect, m, h);
+            if (equalsAt(i, s)) {
+                return i;
+            }
+            for (int j = phOverflowIndex(overflow, h);
+                 j < overflow.length && overflow[j] == h; j++) {
+                if (equalsAt(m + j, s)) {
+                    return m + j;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns true if the element in slot i is equal to s.
+         */
+        boolean equalsAt(int i, String s) {
+            int off = offsets[i], len = offsets[i + 1] - off;
+            if (s.length() != len) {
+                return false;
+            }
+            for (int j = 0; j < len; j++) {
+                if (s.charAt(j) != (bytes[off + j] & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof String) {
+                return indexOf((String)o) >= 0;
+            }
+            Objects.requireNonNull(o);
+            return false;
+        }
+
+        @SuppressWarnings("deprecation")
+        String element(int i) {
+            int off = offsets[i];
+            return new String(bytes, 0, off, offsets[i + 1] - off);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int idx = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return idx < offsets.length - 1;
+                }
+
+                @Override
+                public String next() {
+                    if (! hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return element(idx++);
+                }
+            };
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 0;
+            for (int i = 0; i < offsets.length - 1; i++) {
+                int eh = 0;
+                for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                    eh = 31 * eh + (bytes[j] & 0xFF);
+                }
+                h += eh;
+            }
+            return h;
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        private Object writeReplace() {
+            Object[] array = new Object[offsets.length - 1];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = element(i);
+            }
+            return new CollSer(CollSer.IMM_SET, array);
+        }
+    }
+
     // ---------- Map Implementations ----------
 
     abstract static class AbstractImmutableMap<K,V> extends AbstractMap<K,V> implements Serializable {
@@ -806,6 +1474,151 @@ class ImmutableCollections {
             return new CollSer(CollSer.IMM_MAP, array);
         }
     }
+
+    /**
+     * A perfect hash Map implementation. There is a single array "table" of
+     * keys and values interleaved, like that of MapN, but with no empty
+     * entries: the key and value of slot i are table[2i] and table[2i+1].
+     * Keys whose hash codes collide with an earlier key's are in the
+     * trailing overflow slots.
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    static final class MapPH<K,V> extends AbstractImmutableMap<K,V> {
+        @Stable
+        final Object[] table; // pairs of key, value
+        @Stable
+        final int[] redirect;
+        @Stable
+        final int[] overflow;
+
+        MapPH(Object[] input, int[] slots, int[] redirect, int[] overflow) {
+            table = new Object[input.length];
+            for (int i = 0; i < slots.length; i++) {
+                int dest = slots[i] << 1;
+                table[dest] = input[i << 1];
+                table[dest + 1] = input[(i << 1) + 1];
+            }
+            this.redirect = redirect;
+            this.overflow = overflow;
+        }
+
+        /**
+         * Returns true if no key is equal to a key in an earlier slot.
+         * Equal keys have equal hash codes, so only the overflow slots
+         * need to be checked.
+         */
+        boolean distinctKeys() {
+            for (int i = (table.length >> 1) - overflow.length;
+                 i < table.length >> 1; i++) {
+                if (probe(table[i << 1]) != i << 1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean containsKey(Object o) {
+            return probe(o) >= 0; // implicit nullcheck of o
+        }
+
+        @Override
+        public boolean containsValue(Object o) {
+            for (int i = 1; i < table.length; i += 2) {
+                if (o.equals(table[i])) { // implicit nullcheck of o
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 0;
+            for (int i = 0; i < table.length; i += 2) {
+                hash += table[i].hashCode() ^ table[i + 1].hashCode();
+            }
+            return hash;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object o) {
+            int i = probe(o);
+            if (i >= 0) {
+                return (V)table[i+1];
+            } else {
+                return null;
+            }
+        }
+
+        @Override
+        public int size() {
+            return table.length >> 1;
+        }
+
+        @Override
+        public Set<Map.Entry<K,V>> entrySet() {
+            return new AbstractSet<Map.Entry<K,V>>() {
+                @Override
+                public int size() {
+                    return MapPH.this.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<K,V>> iterator() {
+                    return new Iterator<Map.Entry<K,V>>() {
+                        int idx = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return idx < table.length;
+                        }
+
+                        @Override
+                        public Map.Entry<K,V> next() {
+                            if (hasNext()) {
+                                @SuppressWarnings("unchecked")
+                                Map.Entry<K,V> e =
+                                    new KeyValueHolder<>((K)table[idx], (V)table[idx+1]);
+                                idx += 2;
+                                return e;
+                            } else {
+                                throw new NoSuchElementException();
+                            }
+                        }
+                    };
+                }
+            };
+        }
+
+        // returns index at which the probe key is present; or if absent, -1.
+        // Callers are relying on this method to perform an implicit nullcheck
+        // of pk.
+        private int probe(Object pk) {
+            int h = pk.hashCode(), m = (table.length >> 1) - overflow.length;
+            int idx = phSlot(redirect, m, h) << 1;
+            if (pk.equals(table[idx])) {
+                return idx;
+            }
+            for (int j = phOverflowIndex(overflow, h);
+                 j < overflow.length && overflow[j] == h; j++) {
+                if (pk.equals(table[(m + j) << 1])) {
+                    return (m + j) << 1;
+                }
+            }
+            return -1;
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        private Object writeReplace() {
+            return new CollSer(CollSer.IMM_MAP, table.clone());
+        }
+    }
 }
 
 // ---------- Serialization Proxy ----------
@@ -943,14 +1756,18 @@ final class CollSer implements Serializable {
                 case IMM_LIST:
                     return List.of(array);
                 case IMM_SET:
-                    return Set.of(array);
+                    if (array.length <= 2) {
+                        return Set.of(array);
+                    } else {
+                        return ImmutableCollections.setN(array, true);
+                    }
                 case IMM_MAP:
                     if (array.length == 0) {
                         return ImmutableCollections.Map0.instance();
                     } else if (array.length == 2) {
                         return new ImmutableCollections.Map1<>(array[0], array[1]);
                     } else {
-                        return new ImmutableCollections.MapN<>(array);
+                        return ImmutableCollections.mapN(array);
                     }
                 default:
                     throw new InvalidObjectException(String.format("invalid flags 0x%x", tag));
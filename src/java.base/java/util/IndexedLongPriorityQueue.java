@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+/**
+ * A priority queue of {@code int} identifiers from a fixed range, each
+ * queued with a {@code long} priority, based on a d-ary heap.  Each
+ * identifier is queued at most once, and its priority may be looked up,
+ * lowered or changed, or the identifier removed, in constant or
+ * O(log(n)) time, without allocation.  The <em>head</em> of the queue is
+ * an identifier with the least priority; ties are broken arbitrarily.
+ *
+ * <p>This is the queue of choice for graph algorithms such as Dijkstra's
+ * shortest paths and Prim's minimum spanning tree, in which vertices
+ * are numbered densely and their tentative distances only decrease:
+ * <pre> {@code
+ * IndexedLongPriorityQueue q = new IndexedLongPriorityQueue(vertexCount);
+ * q.offer(source, 0L);
+ * while (!q.isEmpty()) {
+ *   long d = q.peekKey();
+ *   int u = q.remove();
+ *   dist[u] = d;
+ *   for (Edge e : edges[u])
+ *     if (dist[e.to] < 0)           // unsettled
+ *       q.offer(e.to, d + e.weight); // inserts, or lowers its priority
+ * }}</pre>
+ *
+ * <p>Priorities and identifiers are held in parallel primitive arrays in
+ * heap order, so that the children of a node, whose priorities are
+ * compared together, are adjacent in memory.  The arity of the heap is a
+ * power of two from 2 to 16 chosen at construction (by default 4).
+ * An additional array, indexed by identifier, locates each queued
+ * identifier in the heap.  The space used is therefore proportional to
+ * the capacity, not to the number of queued identifiers.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Multiple threads should not access an {@code IndexedLongPriorityQueue}
+ * instance concurrently if any of the threads modifies the queue.
+ *
+ * @see IndexedPriorityQueue
+ * @since 9
+ */
+public class IndexedLongPriorityQueue {
+
+    private static final int DEFAULT_ARITY = 4;
+
+    /**
+     * Priority queue represented as a balanced d-ary heap over the
+     * parallel arrays keys and ids: the children of slot k are slots
+     * (k << shift) + 1 through (k << shift) + arity.  The slot of
+     * identifier i is pos[i], or -1 if i is not queued, and
+     * ids[pos[i]] == i for each queued identifier.
+     */
+    private final long[] keys;
+    private final int[] ids;
+    private final int[] pos;
+
+    /** The number of queued identifiers. */
+    private int size;
+
+    /** log2 of the arity. */
+    private final int shift;
+
+    /**
+     * Creates an empty {@code IndexedLongPriorityQueue} of the default
+     * arity (4) for the identifiers from {@code 0} to
+     * {@code capacity - 1}.
+     *
+     * @param capacity the number of identifiers
+     * @throws IllegalArgumentException if {@code capacity} is negative
+     */
+    public IndexedLongPriorityQueue(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Creates an empty {@code IndexedLongPriorityQueue} of the specified
+     * arity for the identifiers from {@code 0} to {@code capacity - 1}.
+     *
+     * @param capacity the number of identifiers
+     * @param arity the number of children of each node of the heap
+     * @throws IllegalArgumentException if {@code capacity} is negative,
+     *         or {@code arity} is not 2, 4, 8 or 16
+     */
+    public IndexedLongPriorityQueue(int capacity, int arity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity: " + capacity);
+        if (arity < 2 || arity > 16 || (arity & (arity - 1)) != 0)
+            throw new IllegalArgumentException("arity: " + arity);
+        this.shift = Integer.numberOfTrailingZeros(arity);
+        this.keys = new long[capacity];
+        this.ids = new int[capacity];
+        this.pos = new int[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    /**
+     * Returns the number of identifiers this queue can hold, one more
+     * than the largest permitted identifier.
+     *
+     * @return the capacity of this queue
+     */
+    public int capacity() {
+        return pos.length;
+    }
+
+    /**
+     * Returns the number of children of each node of the heap.
+     *
+     * @return the arity of this queue's heap
+     */
+    public int arity() {
+        return 1 << shift;
+    }
+
+    /**
+     * Returns the number of identifiers in this queue.
+     *
+     * @return the number of identifiers in this queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains no identifiers.
+     *
+     * @return {@code true} if this queue contains no identifiers
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if the given identifier is in this queue.
+     *
+     * @param id an identifier
+     * @return {@code true} if the identifier is in this queue
+     * @throws IndexOutOfBoundsException if {@code id} is negative or not
+     *         less than the capacity
+     */
+    public boolean contains(int id) {
+        return pos[Objects.checkIndex(id, pos.length)] >= 0;
+    }
+
+    /**
+     * Returns the priority of the given identifier.
+     *
+     * @param id an identifier in this queue
+     * @return its priority
+     * @throws NoSuchElementException if the identifier is not in this
+     *         queue
+     * @throws IndexOutOfBoundsException if {@code id} is negative or not
+     *         less than the capacity
+     */
+    public long keyOf(int id) {
+        return keys[slotOf(id)];
+    }
+
+    private int slotOf(int id) {
+        int k = pos[Objects.checkIndex(id, pos.length)];
+        if (k < 0)
+            throw new NoSuchElementException("not queued: " + id);
+        return k;
+    }
+
+    /**
+     * Inserts the given identifier with the given priority.
+     *
+     * @param id an identifier not in this queue
+     * @param key its priority
+     * @throws IllegalArgumentException if the identifier is already in
+     *         this queue
+     * @throws IndexOutOfBoundsException if {@code id} is negative or not
+     *         less than the capacity
+     */
+    public void insert(int id, long key) {
+        if (pos[Objects.checkIndex(id, pos.length)] >= 0)
+            throw new IllegalArgumentException("already queued: " + id);
+        siftUp(size++, key, id);
+    }
+
+    /**
+     * Inserts the given identifier with the given priority if it is not
+     * in this queue, or lowers its priority to the given one if that is
+     * less than its current priority.
+     *
+     * @param id an identifier
+     * @param key its priority
+     * @return {@code true} if this queue changed as a result of the call
+     * @throws IndexOutOfBoundsException if {@code id} is negative or not
+     *         less than the capacity
+     */
+    public boolean offer(int id, long key) {
+        int k = pos[Objects.checkIndex(id, pos.length)];
+        if (k < 0)
+            k = size++;
+        else if (key >= keys[k])
+            return false;
+        siftUp(k, key, id);
+        return true;
+    }
+
+    /**
+     * Lowers the priority of the given identifier to the given one.
+     *
+     * @param id an identifier in this queue
+     * @param key its new priority
+     * @throws NoSuchElementException if the identifier is not in this
+     *         queue
+     * @throws IllegalArgumentException if {@code key} is greater than
+     *         the identifier's priority
+     * @throws IndexOutOfBoundsException if {@code id} is negative or not
+     *         less than the capacity
+     */
+    public void decreaseKey(int id, long key) {
+        int k = slotOf(id);
+        if (key > keys[k])
+            throw new IllegalArgumentException("key is greater: " + key);
+        siftUp(k, key, id);
+    }
+
+    /**
+     * Changes the priority of the given identifier to the given one.
+     *
+     * @param id an identifier in this queue
+     * @param key its new priority
+     * @throws NoSuchElementException if the identifier is not in this
+     *         queue
+     * @throws IndexOutOfBoundsException if {@code id} is negative or not
+     *         less than the capacity
+     */
+    public void changeKey(int id, long key) {
+        int k = slotOf(id);
+        if (key < keys[k])
+            siftUp(k, key, id);
+        else
+            siftDown(k, key, id);
+    }
+
+    /**
+     * Returns the identifier at the head of this queue, without removing
+     * it.
+     *
+     * @return the identifier with the least priority
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public int peek() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return ids[0];
+    }
+
+    /**
+     * Returns the priority of the identifier at the head of this queue.
+     *
+     * @return the least priority in this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public long peekKey() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return keys[0];
+    }
+
+    /**
+     * Removes and returns the identifier at the head of this queue.
+     *
+     * @return the identifier with the least priority
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public int remove() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        int id = ids[0];
+        removeAt(0);
+        return id;
+    }
+
+    /**
+     * Removes the given identifier from this queue, if it is present.
+     *
+     * @param id an identifier
+     * @return {@code true} if this queue changed as a result of the call
+     * @throws IndexOutOfBoundsException if {@code id} is negative or not
+     *         less than the capacity
+     */
+    public boolean remove(int id) {
+        int k = pos[Objects.checkIndex(id, pos.length)];
+        if (k < 0)
+            return false;
+        removeAt(k);
+        return true;
+    }
+
+    /**
+     * Removes all of the identifiers from this queue.  This takes time
+     * proportional to the number of queued identifiers.
+     */
+    public void clear() {
+        for (int k = 0; k < size; k++)
+            pos[ids[k]] = -1;
+        size = 0;
+    }
+
+    /**
+     * Returns the queued identifiers, in no particular order.
+     *
+     * @return a new array of the identifiers in this queue
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Returns a string representation of this queue: the queued
+     * identifiers and their priorities, in no particular order.
+     *
+     * @return a string representation of this queue
+     */
+    @Override
+    public String toString() {
+        StringJoiner sj = new StringJoiner(", ", "[", "]");
+        for (int k = 0; k < size; k++)
+            sj.add(ids[k] + "=" + keys[k]);
+        return sj.toString();
+    }
+
+    private void removeAt(int k) {
+        pos[ids[k]] = -1;
+        int s = --size;
+        if (k != s) {
+            long key = keys[s];
+            int id = ids[s];
+            siftDown(k, key, id);
+            if (pos[id] == k)
+                siftUp(k, key, id);
+        }
+    }
+
+    /**
+     * Places id with priority key at slot k, promoting it up the tree
+     * until its priority is not less than its parent's, or it is the
+     * root.
+     */
+    private void siftUp(int k, long key, int id) {
+        final long[] keys = this.keys;
+        final int[] ids = this.ids, pos = this.pos;
+        while (k > 0) {
+            int parent = (k - 1) >>> shift;
+            long p = keys[parent];
+            if (key >= p)
+                break;
+            keys[k] = p;
+            pos[ids[k] = ids[parent]] = k;
+            k = parent;
+        }
+        keys[k] = key;
+        pos[ids[k] = id] = k;
+    }
+
+    /**
+     * Places id with priority key at slot k, demoting it down the tree
+     * until its priority is not greater than its children's, or it is a
+     * leaf.
+     */
+    private void siftDown(int k, long key, int id) {
+        final long[] keys = this.keys;
+        final int[] ids = this.ids, pos = this.pos;
+        final int size = this.size, d = 1 << shift;
+        final int lastParent = (size - 2) >> shift; // -1 if size < 2
+        while (k <= lastParent) {
+            int child = (k << shift) + 1;
+            int end = Math.min(child + d, size);
+            long c = keys[child];
+            for (int j = child + 1; j < end; j++) {
+                long e = keys[j];
+                if (e < c) {
+                    c = e;
+                    child = j;
+                }
+            }
+            if (key <= c)
+                break;
+            keys[k] = c;
+            pos[ids[k] = ids[child]] = k;
+            k = child;
+        }
+        keys[k] = key;
+        pos[ids[k] = id] = k;
+    }
+}
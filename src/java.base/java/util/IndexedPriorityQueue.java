@@ -0,0 +1,735 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.Consumer;
+
+/**
+ * An unbounded priority {@linkplain Queue queue} based on a d-ary heap,
+ * supporting efficient removal and reprioritization of queued elements
+ * through {@linkplain Handle handles}.  The elements are ordered
+ * according to their {@linkplain Comparable natural ordering}, or by a
+ * {@link Comparator} provided at queue construction time, as in
+ * {@link PriorityQueue}.  Null elements are not permitted.
+ *
+ * <p>Method {@link #insert} adds an element and returns a handle for it.
+ * The handle remains valid until the element leaves the queue, and may be
+ * passed to {@link #decreaseKey decreaseKey} or {@link #replace replace}
+ * to change the element's position after its priority changes, or to
+ * {@link #remove(Handle)} to remove it, each in O(log(n)) time, without
+ * searching the queue.  This suits algorithms such as Dijkstra's
+ * shortest paths or event simulation that would otherwise leave
+ * superseded entries in a {@code PriorityQueue} and discard them when
+ * they are polled.
+ *
+ * <p>Each node of the heap has {@code arity} children, held contiguously,
+ * where the arity is a power of two from 2 to 16 chosen at construction
+ * (by default 4).  A higher arity gives a shallower heap, so insertions
+ * and priority decreases compare and move fewer elements, while removals
+ * of the head compare more of them, but with the candidates adjacent in
+ * memory.
+ *
+ * <p>The Iterator provided in method {@link #iterator()} is <em>not</em>
+ * guaranteed to traverse the elements of the queue in any particular
+ * order.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Multiple threads should not access an {@code IndexedPriorityQueue}
+ * instance concurrently if any of the threads modifies the queue.
+ * Instead, use the thread-safe {@link
+ * java.util.concurrent.IndexedPriorityBlockingQueue} class.
+ *
+ * <p>Implementation note: this implementation provides
+ * O(log(n)) time for the enqueuing and dequeuing methods
+ * ({@code offer}, {@code insert}, {@code poll}, {@code remove()},
+ * {@code remove(Handle)}, {@code decreaseKey} and {@code replace});
+ * linear time for the {@code remove(Object)} and {@code contains(Object)}
+ * methods; and constant time for the retrieval methods
+ * ({@code peek}, {@code element}, {@code contains(Handle)} and
+ * {@code size}).
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @see IndexedLongPriorityQueue
+ * @since 9
+ * @param <E> the type of elements held in this queue
+ */
+public class IndexedPriorityQueue<E> extends AbstractQueue<E> {
+
+    /**
+     * A reference to an element in an {@code IndexedPriorityQueue}, as
+     * returned by {@link IndexedPriorityQueue#insert insert}.
+     *
+     * @param <E> the type of the element
+     * @since 9
+     */
+    public interface Handle<E> {
+        /**
+         * Returns the element referred to by this handle; after a
+         * {@code replace} or {@code decreaseKey}, the new element.
+         *
+         * @return the element
+         */
+        E element();
+    }
+
+    /**
+     * Heap node bookkeeping: the element's current index in the heap
+     * arrays, or -1 once it has left the queue.
+     */
+    static final class Node<E> implements Handle<E> {
+        final IndexedPriorityQueue<E> owner;
+        E item;
+        int index;
+
+        Node(IndexedPriorityQueue<E> owner, E item) {
+            this.owner = owner;
+            this.item = item;
+        }
+
+        public E element() {
+            return item;
+        }
+
+        public String toString() {
+            return "Handle[" + item + "]";
+        }
+    }
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 11;
+
+    private static final int DEFAULT_ARITY = 4;
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Priority queue represented as a balanced d-ary heap: the children
+     * of items[k] are items[(k << shift) + 1] through
+     * items[(k << shift) + arity], and the parent of items[k] is
+     * items[(k - 1) >>> shift].  The node for items[k] is nodes[k], and
+     * nodes[k].index == k.  Comparisons read only the items array, so
+     * the children scanned by a sift are adjacent in memory.
+     */
+    transient Object[] items; // non-private to simplify nested class access
+
+    private transient Node<E>[] nodes;
+
+    /**
+     * The number of elements in the priority queue.
+     */
+    int size;
+
+    /** log2 of the arity. */
+    private final int shift;
+
+    /**
+     * The comparator, or null if priority queue uses elements'
+     * natural ordering.
+     */
+    private final Comparator<? super E> comparator;
+
+    /**
+     * The comparator used for all comparisons: comparator, or natural
+     * ordering.
+     */
+    private final Comparator<? super E> cmp;
+
+    /**
+     * The number of times this priority queue has been
+     * <i>structurally modified</i>.  See AbstractList for gory details.
+     */
+    transient int modCount;     // non-private to simplify nested class access
+
+    /**
+     * Creates an {@code IndexedPriorityQueue} of the default arity (4)
+     * that orders its elements according to their
+     * {@linkplain Comparable natural ordering}.
+     */
+    public IndexedPriorityQueue() {
+        this(DEFAULT_ARITY, null);
+    }
+
+    /**
+     * Creates an {@code IndexedPriorityQueue} of the default arity (4)
+     * whose elements are ordered according to the specified comparator.
+     *
+     * @param  comparator the comparator that will be used to order this
+     *         priority queue.  If {@code null}, the {@linkplain Comparable
+     *         natural ordering} of the elements will be used.
+     */
+    public IndexedPriorityQueue(Comparator<? super E> comparator) {
+        this(DEFAULT_ARITY, comparator);
+    }
+
+    /**
+     * Creates an {@code IndexedPriorityQueue} of the specified arity
+     * whose elements are ordered according to the specified comparator.
+     *
+     * @param  arity the number of children of each node of the heap
+     * @param  comparator the comparator that will be used to order this
+     *         priority queue.  If {@code null}, the {@linkplain Comparable
+     *         natural ordering} of the elements will be used.
+     * @throws IllegalArgumentException if {@code arity} is not 2, 4, 8
+     *         or 16
+     */
+    @SuppressWarnings("unchecked")
+    public IndexedPriorityQueue(int arity, Comparator<? super E> comparator) {
+        if (arity < 2 || arity > 16 || (arity & (arity - 1)) != 0)
+            throw new IllegalArgumentException("arity: " + arity);
+        this.shift = Integer.numberOfTrailingZeros(arity);
+        this.comparator = comparator;
+        this.cmp = (comparator != null) ? comparator :
+            (Comparator<? super E>) Comparator.naturalOrder();
+        this.items = new Object[DEFAULT_INITIAL_CAPACITY];
+        this.nodes = (Node<E>[]) new Node<?>[DEFAULT_INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the number of children of each node of the heap.
+     *
+     * @return the arity of this queue's heap
+     */
+    public int arity() {
+        return 1 << shift;
+    }
+
+    /**
+     * Increases the capacity of the arrays.
+     */
+    private void grow() {
+        int oldCapacity = items.length;
+        // Double size if small; else grow by 50%
+        int newCapacity = oldCapacity + ((oldCapacity < 64) ?
+                                         (oldCapacity + 2) :
+                                         (oldCapacity >> 1));
+        // overflow-conscious code
+        if (newCapacity - MAX_ARRAY_SIZE > 0) {
+            if (oldCapacity == MAX_ARRAY_SIZE)
+                throw new OutOfMemoryError();
+            newCapacity = MAX_ARRAY_SIZE;
+        }
+        items = Arrays.copyOf(items, newCapacity);
+        nodes = Arrays.copyOf(nodes, newCapacity);
+    }
+
+    /**
+     * Inserts the specified element into this priority queue, returning
+     * a handle through which it may later be reprioritized or removed.
+     *
+     * @param e the element to add
+     * @return a handle for the element
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public Handle<E> insert(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        modCount++;
+        int i = size;
+        if (i >= items.length)
+            grow();
+        size = i + 1;
+        Node<E> node = new Node<>(this, e);
+        siftUp(i, e, node);
+        return node;
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     *
+     * @return {@code true} (as specified by {@link Queue#offer})
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        insert(e);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        return (size == 0) ? null : (E) items[0];
+    }
+
+    /**
+     * Returns the handle of the head of this queue, or {@code null} if
+     * this queue is empty.
+     *
+     * @return the handle of the head of this queue, or {@code null}
+     */
+    public Handle<E> peekHandle() {
+        return (size == 0) ? null : nodes[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        if (size == 0)
+            return null;
+        E result = (E) items[0];
+        removeAt(0);
+        return result;
+    }
+
+    /** Returns the node of h, if it is currently in this queue, else null. */
+    private Node<E> queued(Handle<E> h) {
+        if (h instanceof Node) {
+            Node<E> node = (Node<E>) h;
+            if (node.owner == this && node.index >= 0)
+                return node;
+        }
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if the element referred to by the given handle
+     * is in this queue.
+     *
+     * @param h a handle
+     * @return {@code true} if the handle's element is in this queue
+     */
+    public boolean contains(Handle<E> h) {
+        return queued(Objects.requireNonNull(h)) != null;
+    }
+
+    /**
+     * Removes the element referred to by the given handle from this
+     * queue, if it is present.
+     *
+     * @param h a handle
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Handle<E> h) {
+        Node<E> node = queued(Objects.requireNonNull(h));
+        if (node == null)
+            return false;
+        removeAt(node.index);
+        return true;
+    }
+
+    /**
+     * Replaces the element referred to by the given handle by the given
+     * element, which must not be greater than it, moving it towards the
+     * head of the queue as required.  The given element may be the
+     * current element, after a change that lowers its priority value.
+     *
+     * @param h a handle for an element in this queue
+     * @param e the new element
+     * @throws IllegalArgumentException if the handle's element is not in
+     *         this queue, or {@code e} is greater than it
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public void decreaseKey(Handle<E> h, E e) {
+        Node<E> node = checkedNode(h, e);
+        if (e != node.item && cmp.compare(e, node.item) > 0)
+            throw new IllegalArgumentException("element is greater");
+        modCount++;
+        node.item = e;
+        siftUp(node.index, e, node);
+    }
+
+    /**
+     * Replaces the element referred to by the given handle by the given
+     * element, moving it within the queue as required.  The given element
+     * may be the current element, after a change to its priority value.
+     *
+     * @param h a handle for an element in this queue
+     * @param e the new element
+     * @throws IllegalArgumentException if the handle's element is not in
+     *         this queue
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public void replace(Handle<E> h, E e) {
+        Node<E> node = checkedNode(h, e);
+        modCount++;
+        node.item = e;
+        int k = node.index;
+        siftUp(k, e, node);
+        if (node.index == k)
+            siftDown(k, e, node);
+    }
+
+    private Node<E> checkedNode(Handle<E> h, E e) {
+        Objects.requireNonNull(h);
+        if (e == null)
+            throw new NullPointerException();
+        Node<E> node = queued(h);
+        if (node == null)
+            throw new IllegalArgumentException("handle not in queue");
+        return node;
+    }
+
+    private int indexOf(Object o) {
+        if (o != null) {
+            for (int i = 0; i < size; i++)
+                if (o.equals(items[i]))
+                    return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.  Returns {@code true} if and only if this queue contained
+     * the specified element (or equivalently, if this queue changed as a
+     * result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        int i = indexOf(o);
+        if (i == -1)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     * More formally, returns {@code true} if and only if this queue contains
+     * at least one element {@code e} such that {@code o.equals(e)}.
+     *
+     * @param o object to be checked for containment in this queue
+     * @return {@code true} if this queue contains the specified element
+     */
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue.
+     * The elements are in no particular order.
+     *
+     * @return an array containing all of the elements in this queue
+     */
+    public Object[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all of the elements from this priority queue.
+     * The queue will be empty after this call returns, and all
+     * outstanding handles refer to elements not in the queue.
+     */
+    public void clear() {
+        modCount++;
+        for (int i = 0; i < size; i++) {
+            nodes[i].index = -1;
+            nodes[i] = null;
+            items[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the comparator used to order the elements in this
+     * queue, or {@code null} if this queue is sorted according to
+     * the {@linkplain Comparable natural ordering} of its elements.
+     *
+     * @return the comparator used to order this queue, or
+     *         {@code null} if this queue is sorted according to the
+     *         natural ordering of its elements
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Removes the ith element from queue.  Returns the node of the last
+     * element if it was moved to a position before i, as for
+     * PriorityQueue.removeAt, else null.
+     */
+    @SuppressWarnings("unchecked")
+    Node<E> removeAt(int i) {
+        // assert i >= 0 && i < size;
+        modCount++;
+        nodes[i].index = -1;
+        int s = --size;
+        if (s == i) { // removed last element
+            items[i] = null;
+            nodes[i] = null;
+        } else {
+            E moved = (E) items[s];
+            Node<E> node = nodes[s];
+            items[s] = null;
+            nodes[s] = null;
+            siftDown(i, moved, node);
+            if (node.index == i) {
+                siftUp(i, moved, node);
+                if (node.index != i)
+                    return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Inserts item x with node n at position k, promoting it up the
+     * tree until it is greater than or equal to its parent, or is the
+     * root.
+     */
+    @SuppressWarnings("unchecked")
+    private void siftUp(int k, E x, Node<E> n) {
+        final Object[] es = items;
+        final Node<E>[] ns = nodes;
+        final Comparator<? super E> cmp = this.cmp;
+        while (k > 0) {
+            int parent = (k - 1) >>> shift;
+            Object e = es[parent];
+            if (cmp.compare(x, (E) e) >= 0)
+                break;
+            es[k] = e;
+            (ns[k] = ns[parent]).index = k;
+            k = parent;
+        }
+        es[k] = x;
+        (ns[k] = n).index = k;
+    }
+
+    /**
+     * Inserts item x with node n at position k, demoting it down the
+     * tree repeatedly until it is less than or equal to its children or
+     * is a leaf.  The children of a node are scanned in one pass over
+     * adjacent slots to find the least.
+     */
+    @SuppressWarnings("unchecked")
+    private void siftDown(int k, E x, Node<E> n) {
+        final Object[] es = items;
+        final Node<E>[] ns = nodes;
+        final Comparator<? super E> cmp = this.cmp;
+        final int size = this.size, d = 1 << shift;
+        final int lastParent = (size - 2) >> shift; // -1 if size < 2
+        while (k <= lastParent) {
+            int child = (k << shift) + 1;
+            int end = Math.min(child + d, size);
+            Object c = es[child];
+            for (int j = child + 1; j < end; j++) {
+                Object e = es[j];
+                if (cmp.compare((E) e, (E) c) < 0)
+                    c = es[child = j];
+            }
+            if (cmp.compare(x, (E) c) <= 0)
+                break;
+            es[k] = c;
+            (ns[k] = ns[child]).index = k;
+            k = child;
+        }
+        es[k] = x;
+        (ns[k] = n).index = k;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue. The iterator
+     * does not return the elements in any particular order.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private final class Itr implements Iterator<E> {
+        /**
+         * Index (into queue array) of element to be returned by
+         * subsequent call to next.
+         */
+        private int cursor;
+
+        /**
+         * Index of element returned by most recent call to next,
+         * unless that element came from the forgetMeNot list.
+         * Set to -1 if element is deleted by a call to remove.
+         */
+        private int lastRet = -1;
+
+        /**
+         * Nodes of elements moved from the unvisited portion of the heap
+         * into the visited portion by removals during the iteration; see
+         * PriorityQueue.Itr.
+         */
+        private ArrayDeque<Node<E>> forgetMeNot;
+
+        /**
+         * Node returned by the most recent call to next iff that
+         * element was drawn from the forgetMeNot list.
+         */
+        private Node<E> lastRetNode;
+
+        private int expectedModCount = modCount;
+
+        Itr() {}                        // prevent access constructor creation
+
+        public boolean hasNext() {
+            return cursor < size ||
+                (forgetMeNot != null && !forgetMeNot.isEmpty());
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+            if (cursor < size)
+                return (E) items[lastRet = cursor++];
+            if (forgetMeNot != null) {
+                lastRet = -1;
+                lastRetNode = forgetMeNot.poll();
+                if (lastRetNode != null)
+                    return lastRetNode.item;
+            }
+            throw new NoSuchElementException();
+        }
+
+        public void remove() {
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+            if (lastRet != -1) {
+                Node<E> moved = removeAt(lastRet);
+                lastRet = -1;
+                if (moved == null)
+                    cursor--;
+                else {
+                    if (forgetMeNot == null)
+                        forgetMeNot = new ArrayDeque<>();
+                    forgetMeNot.add(moved);
+                }
+            } else if (lastRetNode != null) {
+                IndexedPriorityQueue.this.remove(lastRetNode);
+                lastRetNode = null;
+            } else {
+                throw new IllegalStateException();
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the elements in this
+     * queue. The spliterator does not traverse elements in any particular
+     * order (the {@link Spliterator#ORDERED ORDERED} characteristic is not
+     * reported).
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED}, and {@link Spliterator#NONNULL}.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     */
+    public Spliterator<E> spliterator() {
+        return new IPQSpliterator(0, -1, 0);
+    }
+
+    final class IPQSpliterator implements Spliterator<E> {
+        private int index;            // current index, modified on advance/split
+        private int fence;            // -1 until first use
+        private int expectedModCount; // initialized when fence set
+
+        IPQSpliterator(int origin, int fence, int expectedModCount) {
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence to size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = modCount;
+                hi = fence = size;
+            }
+            return hi;
+        }
+
+        public IPQSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new IPQSpliterator(lo, index = mid, expectedModCount);
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            final Object[] a = items;
+            int i; E e;
+            for (i = index, index = hi; i < hi; i++) {
+                if ((e = (E) a[i]) == null)
+                    break;      // must be CME
+                action.accept(e);
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i, hi = getFence();
+            if ((i = index) < hi) {
+                index = i + 1;
+                E e;
+                if ((e = (E) items[i]) == null
+                    || modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                action.accept(e);
+                return true;
+            }
+            return false;
+        }
+
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+        }
+    }
+}
@@ -25,6 +25,7 @@
 
 package java.util;
 
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 
 /**
@@ -509,6 +510,83 @@ public interface List<E> extends Collection<E> {
         }
     }
 
+    /**
+     * Sorts this list according to the order induced by the specified
+     * {@link Comparator}, using the {@link java.util.concurrent.ForkJoinPool#commonPool()
+     * ForkJoin common pool} to sort large lists in parallel.  The result is
+     * the same as that of {@link #sort(Comparator) sort}, including its
+     * stability.
+     *
+     * @implSpec
+     * The default implementation obtains an array containing all elements in
+     * this list, sorts the array using
+     * {@link Arrays#parallelSort(Object[], Comparator)}, and then iterates
+     * over this list resetting each element from the corresponding position
+     * in the array.
+     *
+     * @implNote
+     * {@link ArrayList} overrides this method to sort its elements in place,
+     * without first copying them to an array.
+     *
+     * @param c the {@code Comparator} used to compare list elements.
+     *          A {@code null} value indicates that the elements'
+     *          {@linkplain Comparable natural ordering} should be used
+     * @throws ClassCastException if the list contains elements that are not
+     *         <i>mutually comparable</i> using the specified comparator
+     * @throws UnsupportedOperationException if the list's list-iterator does
+     *         not support the {@code set} operation
+     * @throws IllegalArgumentException
+     *         (<a href="Collection.html#optional-restrictions">optional</a>)
+     *         if the comparator is found to violate the {@link Comparator}
+     *         contract
+     * @since 9
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    default void parallelSort(Comparator<? super E> c) {
+        Object[] a = this.toArray();
+        Arrays.parallelSort(a, (Comparator) c);
+        ListIterator<E> i = this.listIterator();
+        for (Object e : a) {
+            i.next();
+            i.set((E) e);
+        }
+    }
+
+    /**
+     * Sorts this list into ascending order of the {@code long} keys
+     * extracted from its elements by the specified function, as if by
+     * {@code sort(Comparator.comparingLong(keyExtractor))}, but extracting
+     * the key of each element only once and without invoking a
+     * {@code Comparator}.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  elements with equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implSpec
+     * The default implementation obtains an array containing all elements in
+     * this list, sorts the array using
+     * {@link Arrays#sortByLongKey(Object[], ToLongFunction)}, and then
+     * iterates over this list resetting each element from the corresponding
+     * position in the array.
+     *
+     * @param keyExtractor the function used to extract the sort key
+     * @throws NullPointerException if the specified function is null
+     * @throws UnsupportedOperationException if the list's list-iterator does
+     *         not support the {@code set} operation
+     * @since 9
+     */
+    @SuppressWarnings("unchecked")
+    default void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        Object[] a = this.toArray();
+        Arrays.sortByLongKey(a, e -> keyExtractor.applyAsLong((E) e));
+        ListIterator<E> i = this.listIterator();
+        for (Object e : a) {
+            i.next();
+            i.set((E) e);
+        }
+    }
+
     /**
      * Removes all of the elements from this list (optional operation).
      * The list will be empty after this call returns.
@@ -0,0 +1,662 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A hash map from primitive {@code long} keys to primitive {@code long}
+ * values.  Keys and values are held in flat {@code long} arrays using
+ * open addressing with linear probing, so that no per-mapping objects
+ * are allocated and no key or value is ever boxed.
+ *
+ * <p>Methods that would return a value for an absent key, such as
+ * {@link #put put} and {@link #remove remove}, return {@code 0}, which
+ * is indistinguishable from a mapping to zero.  Use {@link #containsKey
+ * containsKey} or {@link #getOrDefault getOrDefault} when the
+ * distinction matters.
+ *
+ * <p>Keys and values may be traversed with a {@link PrimitiveIterator}
+ * or a {@link Spliterator.OfLong}, and streamed with {@link #keyStream}
+ * and {@link #valueStream}.  Iteration order is unspecified and may
+ * change when the map is resized.  Traversal is <i>fail-fast</i> on a
+ * best-effort basis, in the same manner as {@link HashMap}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently and at least one of
+ * them modifies it structurally, it must be synchronized externally.
+ *
+ * @implNote Each mapping costs 16 bytes per table slot, and the table is
+ * kept at most half full by default; by contrast a {@code HashMap<Long,
+ * Long>} entry costs a {@code Node} and two {@code Long} objects plus a
+ * table reference.  Deletion shifts later entries of a probe run back
+ * into the hole rather than leaving tombstones, so lookups never slow
+ * down after heavy churn.
+ *
+ * @see IntObjectMap
+ * @see LongObjectMap
+ * @see LongSet
+ * @since 9
+ */
+public class LongLongMap {
+
+    /**
+     * An action performed on a {@code long} key and its {@code long}
+     * value.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Performs this action on the given mapping.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        void accept(long key, long value);
+    }
+
+    /** The key marking a free table slot; mappings for it live in fields. */
+    private static final long FREE = 0L;
+
+    private long[] keys;
+    private long[] vals;
+    private boolean hasFreeKey;
+    private long freeKeyValue;
+    private int occupied;          // number of used table slots
+    private int threshold;
+    private final float loadFactor;
+    private int modCount;
+
+    /**
+     * Constructs an empty map with a default expected size and load factor.
+     */
+    public LongLongMap() {
+        this(OpenHashing.DEFAULT_EXPECTED_SIZE,
+             OpenHashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map able to hold the given number of mappings
+     * without resizing, with the default load factor.
+     *
+     * @param expectedSize the expected number of mappings
+     * @throws IllegalArgumentException if the expected size is negative
+     */
+    public LongLongMap(int expectedSize) {
+        this(expectedSize, OpenHashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map able to hold the given number of mappings
+     * without resizing, with the given load factor.
+     *
+     * @param expectedSize the expected number of mappings
+     * @param loadFactor the fraction of the table that may be occupied,
+     *        strictly between zero and one
+     * @throws IllegalArgumentException if the expected size is negative
+     *         or the load factor is out of range
+     */
+    public LongLongMap(int expectedSize, float loadFactor) {
+        this.loadFactor = OpenHashing.checkLoadFactor(loadFactor);
+        int n = OpenHashing.tableSizeFor(expectedSize, loadFactor);
+        keys = new long[n];
+        vals = new long[n];
+        threshold = OpenHashing.threshold(n, loadFactor);
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @return the number of mappings in this map
+     */
+    public int size() {
+        return hasFreeKey ? occupied + 1 : occupied;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no mappings.
+     *
+     * @return {@code true} if this map contains no mappings
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the slot holding the given non-free key, or -1 if absent.
+     */
+    private int slotOf(long key) {
+        long[] ks = keys;
+        int mask = ks.length - 1;
+        for (int i = OpenHashing.mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = ks[i];
+            if (k == key)
+                return i;
+            if (k == FREE)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the key.
+     *
+     * @param key the key
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return (key == FREE) ? hasFreeKey : slotOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * value.  This operation takes time linear in the table length.
+     *
+     * @param value the value
+     * @return {@code true} if some key maps to the value
+     */
+    public boolean containsValue(long value) {
+        if (hasFreeKey && freeKeyValue == value)
+            return true;
+        long[] ks = keys, vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            if (ks[i] != FREE && vs[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value mapped to the key, or {@code defaultValue} if
+     * this map contains no mapping for the key.
+     *
+     * @param key the key
+     * @param defaultValue the value to return if there is no mapping
+     * @return the mapped value, or {@code defaultValue}
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == FREE)
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        long[] ks = keys;
+        int mask = ks.length - 1;
+        for (int i = OpenHashing.mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = ks[i];
+            if (k == key)
+                return vals[i];
+            if (k == FREE)
+                return defaultValue;
+        }
+    }
+
+    /**
+     * Returns the value mapped to the key, or {@code 0} if this map
+     * contains no mapping for the key.
+     *
+     * @param key the key
+     * @return the mapped value, or {@code 0}
+     */
+    public long get(long key) {
+        return getOrDefault(key, 0L);
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previous value, or {@code 0} if there was no mapping
+     */
+    public long put(long key, long value) {
+        if (key == FREE) {
+            long old = freeKeyValue;
+            freeKeyValue = value;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                ++modCount;
+            }
+            return old;
+        }
+        long[] ks = keys;
+        int mask = ks.length - 1;
+        int i = OpenHashing.mix(key) & mask;
+        for (long k; (k = ks[i]) != FREE; i = (i + 1) & mask) {
+            if (k == key) {
+                long old = vals[i];
+                vals[i] = value;
+                return old;
+            }
+        }
+        if (occupied >= threshold && resize())
+            return put(key, value);
+        ks[i] = key;
+        vals[i] = value;
+        ++occupied;
+        ++modCount;
+        return 0L;
+    }
+
+    /**
+     * Associates the value with the key only if the key is not already
+     * mapped.
+     *
+     * @param key the key
+     * @param value the value
+     * @return {@code true} if a mapping was added
+     */
+    public boolean putIfAbsent(long key, long value) {
+        if (containsKey(key))
+            return false;
+        put(key, value);
+        return true;
+    }
+
+    /**
+     * Returns the value mapped to the key, first computing and storing
+     * it with the given function if the key is absent.
+     *
+     * @param key the key
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value
+     * @throws NullPointerException if the function is null
+     */
+    public long computeIfAbsent(long key, LongUnaryOperator mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        if (key == FREE) {
+            if (!hasFreeKey)
+                put(key, mappingFunction.applyAsLong(key));
+            return freeKeyValue;
+        }
+        int i = slotOf(key);
+        if (i >= 0)
+            return vals[i];
+        long v = mappingFunction.applyAsLong(key);
+        put(key, v);
+        return v;
+    }
+
+    /**
+     * If the key is absent, maps it to the value; otherwise replaces
+     * its value with the result of applying the function to the old
+     * value and the given value.  Useful for counters, for example
+     * {@code map.merge(k, 1, Long::sum)}.
+     *
+     * @param key the key
+     * @param value the value to merge
+     * @param remappingFunction the function combining old and new values
+     * @return the new value
+     * @throws NullPointerException if the function is null
+     */
+    public long merge(long key, long value,
+                      LongBinaryOperator remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        if (key == FREE) {
+            long v = hasFreeKey
+                ? remappingFunction.applyAsLong(freeKeyValue, value)
+                : value;
+            put(key, v);
+            return v;
+        }
+        int i = slotOf(key);
+        if (i < 0) {
+            put(key, value);
+            return value;
+        }
+        long v = remappingFunction.applyAsLong(vals[i], value);
+        vals[i] = v;
+        return v;
+    }
+
+    /**
+     * Removes the mapping for the key, if present.
+     *
+     * @param key the key
+     * @return the previous value, or {@code 0} if there was no mapping
+     */
+    public long remove(long key) {
+        if (key == FREE) {
+            long old = freeKeyValue;
+            if (hasFreeKey) {
+                hasFreeKey = false;
+                freeKeyValue = 0L;
+                ++modCount;
+            }
+            return old;
+        }
+        int i = slotOf(key);
+        if (i < 0)
+            return 0L;
+        long old = vals[i];
+        removeAt(i);
+        return old;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The table keeps its
+     * current length.
+     */
+    public void clear() {
+        ++modCount;
+        Arrays.fill(keys, FREE);
+        Arrays.fill(vals, 0L);
+        occupied = 0;
+        hasFreeKey = false;
+        freeKeyValue = 0L;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.
+     *
+     * @param action the action to perform
+     * @throws NullPointerException if the action is null
+     * @throws ConcurrentModificationException if the map is structurally
+     *         modified during traversal
+     */
+    public void forEach(EntryConsumer action) {
+        Objects.requireNonNull(action);
+        int mc = modCount;
+        if (hasFreeKey)
+            action.accept(FREE, freeKeyValue);
+        long[] ks = keys, vs = vals;
+        for (int i = 0; i < ks.length && mc == modCount; ++i) {
+            long k = ks[i];
+            if (k != FREE)
+                action.accept(k, vs[i]);
+        }
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns an iterator over the keys in this map.
+     *
+     * @return an iterator over the keys in this map
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return Spliterators.iterator(keySpliterator());
+    }
+
+    /**
+     * Returns an iterator over the values in this map.
+     *
+     * @return an iterator over the values in this map
+     */
+    public PrimitiveIterator.OfLong valueIterator() {
+        return Spliterators.iterator(valueSpliterator());
+    }
+
+    /**
+     * Returns a late-binding, fail-fast spliterator over the keys in
+     * this map.  It reports {@link Spliterator#SIZED} and
+     * {@link Spliterator#DISTINCT}, and splits by halving the table.
+     *
+     * @return a spliterator over the keys in this map
+     */
+    public Spliterator.OfLong keySpliterator() {
+        return new SlotSpliterator(this, true, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a late-binding, fail-fast spliterator over the values in
+     * this map.  It reports {@link Spliterator#SIZED}.
+     *
+     * @return a spliterator over the values in this map
+     */
+    public Spliterator.OfLong valueSpliterator() {
+        return new SlotSpliterator(this, false, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} of the keys in this map.
+     *
+     * @return a stream of the keys in this map
+     */
+    public LongStream keyStream() {
+        return StreamSupport.longStream(keySpliterator(), false);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} of the values in this map.
+     *
+     * @return a stream of the values in this map
+     */
+    public LongStream valueStream() {
+        return StreamSupport.longStream(valueSpliterator(), false);
+    }
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if it is also a {@code LongLongMap} with the same
+     * mappings.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongLongMap))
+            return false;
+        LongLongMap m = (LongLongMap)o;
+        if (m.size() != size())
+            return false;
+        if (hasFreeKey &&
+            (!m.hasFreeKey || m.freeKeyValue != freeKeyValue))
+            return false;
+        long[] ks = keys, vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            long k = ks[i];
+            if (k != FREE) {
+                int j = m.slotOf(k);
+                if (j < 0 || m.vals[j] != vs[i])
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as the sum over
+     * all mappings of {@code Long.hashCode(key) ^ Long.hashCode(value)},
+     * in the manner of {@link Map#hashCode}.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = hasFreeKey ? Long.hashCode(freeKeyValue) : 0;
+        long[] ks = keys, vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            long k = ks[i];
+            if (k != FREE)
+                h += Long.hashCode(k) ^ Long.hashCode(vs[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map in the same form as
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        StringJoiner sj = new StringJoiner(", ", "{", "}");
+        forEach((k, v) -> sj.add(k + "=" + v));
+        return sj.toString();
+    }
+
+    /**
+     * Deletes the entry at slot i, shifting later members of its probe
+     * run back so that no tombstone is needed.
+     */
+    private void removeAt(int i) {
+        long[] ks = keys, vs = vals;
+        int mask = ks.length - 1;
+        for (int j = i; ; ) {
+            j = (j + 1) & mask;
+            long k = ks[j];
+            if (k == FREE)
+                break;
+            if (OpenHashing.canShift(OpenHashing.mix(k) & mask, i, j)) {
+                ks[i] = k;
+                vs[i] = vs[j];
+                i = j;
+            }
+        }
+        ks[i] = FREE;
+        vs[i] = 0L;
+        --occupied;
+        ++modCount;
+    }
+
+    /**
+     * Doubles the table if possible.  Returns false if the table is at
+     * maximum capacity but still has room for another key.
+     */
+    private boolean resize() {
+        long[] oldKeys = keys, oldVals = vals;
+        int n = OpenHashing.nextTableSize(oldKeys.length);
+        if (n < 0) {
+            if (occupied >= oldKeys.length - 1)
+                throw new IllegalStateException("Map is full");
+            return false;
+        }
+        long[] ks = new long[n], vs = new long[n];
+        int mask = n - 1;
+        for (int j = 0; j < oldKeys.length; ++j) {
+            long k = oldKeys[j];
+            if (k != FREE) {
+                int i = OpenHashing.mix(k) & mask;
+                while (ks[i] != FREE)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+        keys = ks;
+        vals = vs;
+        threshold = OpenHashing.threshold(n, loadFactor);
+        ++modCount;
+        return true;
+    }
+
+    /**
+     * Spliterator over table slots.  Index {@code keys.length} stands for
+     * the free-key mapping held outside the table, so that the whole map
+     * is covered by one contiguous index range.  The fence is bound on
+     * first use.
+     */
+    static final class SlotSpliterator implements Spliterator.OfLong {
+        private final LongLongMap map;
+        private final boolean keys;  // report keys if true, else values
+        private int index;           // current slot, advanced on traversal
+        private int fence;           // one past last slot, or -1 until bound
+        private int est;             // size estimate
+        private int expectedModCount;
+
+        SlotSpliterator(LongLongMap map, boolean keys, int origin, int fence,
+                        int est, int expectedModCount) {
+            this.map = map;
+            this.keys = keys;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() {
+            int hi;
+            if ((hi = fence) < 0) {
+                LongLongMap m = map;
+                est = m.size();
+                expectedModCount = m.modCount;
+                hi = fence = m.keys.length + 1;
+            }
+            return hi;
+        }
+
+        public SlotSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new SlotSpliterator(map, keys, lo, index = mid, est >>>= 1,
+                                    expectedModCount);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            Objects.requireNonNull(action);
+            int hi = getFence();
+            LongLongMap m = map;
+            long[] ks = m.keys;
+            while (index < hi) {
+                int i = index++;
+                long e;
+                if (i < ks.length) {
+                    if (ks[i] == FREE)
+                        continue;
+                    e = keys ? ks[i] : m.vals[i];
+                }
+                else if (m.hasFreeKey)
+                    e = keys ? FREE : m.freeKeyValue;
+                else
+                    continue;
+                action.accept(e);
+                if (m.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            Objects.requireNonNull(action);
+            int hi = getFence(), i = index;
+            LongLongMap m = map;
+            long[] ks = m.keys, vs = m.vals;
+            index = hi;
+            int end = Math.min(hi, ks.length);
+            for (; i < end; ++i) {
+                long k = ks[i];
+                if (k != FREE)
+                    action.accept(keys ? k : vs[i]);
+            }
+            if (hi > ks.length && i <= ks.length && m.hasFreeKey)
+                action.accept(keys ? FREE : m.freeKeyValue);
+            if (m.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            getFence();
+            return est;
+        }
+
+        public int characteristics() {
+            return ((fence < 0 || est == map.size()) ? Spliterator.SIZED : 0) |
+                (keys ? Spliterator.DISTINCT : 0);
+        }
+    }
+}
@@ -0,0 +1,646 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A hash map from primitive {@code long} keys to object values.  Keys
+ * are held in a flat {@code long} array and values in a parallel
+ * {@code Object} array using open addressing with linear probing, so
+ * that no per-mapping objects are allocated and keys are never boxed.
+ *
+ * <p>Like {@link java.util.concurrent.ConcurrentHashMap}, this map does
+ * not permit {@code null} values, so a {@code null} result from
+ * {@link #get get} unambiguously means that the key is absent.
+ *
+ * <p>Keys may be traversed with a {@link PrimitiveIterator.OfLong} or a
+ * {@link Spliterator.OfLong} and streamed with {@link #keyStream};
+ * values may be streamed with {@link #valueStream}.  Iteration order is
+ * unspecified and may change when the map is resized.  Traversal is
+ * <i>fail-fast</i> on a best-effort basis, in the same manner as
+ * {@link HashMap}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently and at least one of
+ * them modifies it structurally, it must be synchronized externally.
+ *
+ * @implNote An empty value slot marks a free table slot, so every key,
+ * including zero, is stored in the table.  Deletion shifts later entries
+ * of a probe run back into the hole rather than leaving tombstones.
+ *
+ * @param <V> the type of mapped values
+ * @see IntObjectMap
+ * @see LongLongMap
+ * @since 9
+ */
+public class LongObjectMap<V> {
+
+    /**
+     * An action performed on a {@code long} key and its value.
+     *
+     * @param <V> the type of values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        /**
+         * Performs this action on the given mapping.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        void accept(long key, V value);
+    }
+
+    private long[] keys;
+    private Object[] vals;         // null marks a free slot
+    private int size;
+    private int threshold;
+    private final float loadFactor;
+    private int modCount;
+
+    /**
+     * Constructs an empty map with a default expected size and load factor.
+     */
+    public LongObjectMap() {
+        this(OpenHashing.DEFAULT_EXPECTED_SIZE,
+             OpenHashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map able to hold the given number of mappings
+     * without resizing, with the default load factor.
+     *
+     * @param expectedSize the expected number of mappings
+     * @throws IllegalArgumentException if the expected size is negative
+     */
+    public LongObjectMap(int expectedSize) {
+        this(expectedSize, OpenHashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map able to hold the given number of mappings
+     * without resizing, with the given load factor.
+     *
+     * @param expectedSize the expected number of mappings
+     * @param loadFactor the fraction of the table that may be occupied,
+     *        strictly between zero and one
+     * @throws IllegalArgumentException if the expected size is negative
+     *         or the load factor is out of range
+     */
+    public LongObjectMap(int expectedSize, float loadFactor) {
+        this.loadFactor = OpenHashing.checkLoadFactor(loadFactor);
+        int n = OpenHashing.tableSizeFor(expectedSize, loadFactor);
+        keys = new long[n];
+        vals = new Object[n];
+        threshold = OpenHashing.threshold(n, loadFactor);
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @return the number of mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no mappings.
+     *
+     * @return {@code true} if this map contains no mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot holding the given key, or -1 if absent.
+     */
+    private int slotOf(long key) {
+        long[] ks = keys;
+        Object[] vs = vals;
+        int mask = ks.length - 1;
+        for (int i = OpenHashing.mix(key) & mask; ; i = (i + 1) & mask) {
+            if (vs[i] == null)
+                return -1;
+            if (ks[i] == key)
+                return i;
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the key.
+     *
+     * @param key the key
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to a value
+     * equal to the given value.  This operation takes time linear in the
+     * table length.
+     *
+     * @param value the value
+     * @return {@code true} if some key maps to the value
+     */
+    public boolean containsValue(Object value) {
+        if (value != null) {
+            for (Object v : vals) {
+                if (v != null && value.equals(v))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value mapped to the key, or {@code null} if this map
+     * contains no mapping for the key.
+     *
+     * @param key the key
+     * @return the mapped value, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long[] ks = keys;
+        Object[] vs = vals;
+        int mask = ks.length - 1;
+        for (int i = OpenHashing.mix(key) & mask; ; i = (i + 1) & mask) {
+            Object v = vs[i];
+            if (v == null || ks[i] == key)
+                return (V)v;
+        }
+    }
+
+    /**
+     * Returns the value mapped to the key, or {@code defaultValue} if
+     * this map contains no mapping for the key.
+     *
+     * @param key the key
+     * @param defaultValue the value to return if there is no mapping
+     * @return the mapped value, or {@code defaultValue}
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        V v = get(key);
+        return (v == null) ? defaultValue : v;
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previous value, or {@code null} if there was no mapping
+     * @throws NullPointerException if the value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+        long[] ks = keys;
+        Object[] vs = vals;
+        int mask = ks.length - 1;
+        int i = OpenHashing.mix(key) & mask;
+        for (Object v; (v = vs[i]) != null; i = (i + 1) & mask) {
+            if (ks[i] == key) {
+                vs[i] = value;
+                return (V)v;
+            }
+        }
+        if (size >= threshold && resize())
+            return put(key, value);
+        ks[i] = key;
+        vs[i] = value;
+        ++size;
+        ++modCount;
+        return null;
+    }
+
+    /**
+     * Associates the value with the key only if the key is not already
+     * mapped.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the existing value, or {@code null} if the value was added
+     * @throws NullPointerException if the value is null
+     */
+    public V putIfAbsent(long key, V value) {
+        Objects.requireNonNull(value);
+        V v = get(key);
+        if (v == null)
+            put(key, value);
+        return v;
+    }
+
+    /**
+     * Returns the value mapped to the key, first computing and storing
+     * it with the given function if the key is absent.  If the function
+     * returns {@code null} no mapping is recorded.
+     *
+     * @param key the key
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value, or {@code null}
+     *         if the computed value is null
+     * @throws NullPointerException if the function is null
+     */
+    public V computeIfAbsent(long key,
+                             LongFunction<? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        V v = get(key);
+        if (v == null && (v = mappingFunction.apply(key)) != null)
+            put(key, v);
+        return v;
+    }
+
+    /**
+     * Removes the mapping for the key, if present.
+     *
+     * @param key the key
+     * @return the previous value, or {@code null} if there was no mapping
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = slotOf(key);
+        if (i < 0)
+            return null;
+        Object v = vals[i];
+        removeAt(i);
+        return (V)v;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The table keeps its
+     * current length.
+     */
+    public void clear() {
+        ++modCount;
+        Arrays.fill(keys, 0L);
+        Arrays.fill(vals, null);
+        size = 0;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.
+     *
+     * @param action the action to perform
+     * @throws NullPointerException if the action is null
+     * @throws ConcurrentModificationException if the map is structurally
+     *         modified during traversal
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        Objects.requireNonNull(action);
+        int mc = modCount;
+        long[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < vs.length && mc == modCount; ++i) {
+            Object v = vs[i];
+            if (v != null)
+                action.accept(ks[i], (V)v);
+        }
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns an iterator over the keys in this map.
+     *
+     * @return an iterator over the keys in this map
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return Spliterators.iterator(keySpliterator());
+    }
+
+    /**
+     * Returns a late-binding, fail-fast spliterator over the keys in
+     * this map.  It reports {@link Spliterator#SIZED} and
+     * {@link Spliterator#DISTINCT}, and splits by halving the table.
+     *
+     * @return a spliterator over the keys in this map
+     */
+    public Spliterator.OfLong keySpliterator() {
+        return new KeySpliterator<>(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a late-binding, fail-fast spliterator over the values in
+     * this map.  It reports {@link Spliterator#SIZED} and
+     * {@link Spliterator#NONNULL}.
+     *
+     * @return a spliterator over the values in this map
+     */
+    public Spliterator<V> valueSpliterator() {
+        return new ValueSpliterator<>(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} of the keys in this map.
+     *
+     * @return a stream of the keys in this map
+     */
+    public LongStream keyStream() {
+        return StreamSupport.longStream(keySpliterator(), false);
+    }
+
+    /**
+     * Returns a sequential {@code Stream} of the values in this map.
+     *
+     * @return a stream of the values in this map
+     */
+    public Stream<V> valueStream() {
+        return StreamSupport.stream(valueSpliterator(), false);
+    }
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if it is also a {@code LongObjectMap} with the same
+     * mappings.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongObjectMap))
+            return false;
+        LongObjectMap<?> m = (LongObjectMap<?>)o;
+        if (m.size != size)
+            return false;
+        long[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < vs.length; ++i) {
+            Object v = vs[i];
+            if (v != null && !v.equals(m.get(ks[i])))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as the sum over
+     * all mappings of {@code Long.hashCode(key) ^ value.hashCode()}, in
+     * the manner of {@link Map#hashCode}.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = 0;
+        long[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < vs.length; ++i) {
+            Object v = vs[i];
+            if (v != null)
+                h += Long.hashCode(ks[i]) ^ v.hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map in the same form as
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        StringJoiner sj = new StringJoiner(", ", "{", "}");
+        forEach((k, v) -> sj.add(k + "=" + (v == this ? "(this Map)" : v)));
+        return sj.toString();
+    }
+
+    /**
+     * Deletes the entry at slot i, shifting later members of its probe
+     * run back so that no tombstone is needed.
+     */
+    private void removeAt(int i) {
+        long[] ks = keys;
+        Object[] vs = vals;
+        int mask = ks.length - 1;
+        for (int j = i; ; ) {
+            j = (j + 1) & mask;
+            Object v = vs[j];
+            if (v == null)
+                break;
+            long k = ks[j];
+            if (OpenHashing.canShift(OpenHashing.mix(k) & mask, i, j)) {
+                ks[i] = k;
+                vs[i] = v;
+                i = j;
+            }
+        }
+        ks[i] = 0L;
+        vs[i] = null;
+        --size;
+        ++modCount;
+    }
+
+    /**
+     * Doubles the table if possible.  Returns false if the table is at
+     * maximum capacity but still has room for another key.
+     */
+    private boolean resize() {
+        long[] oldKeys = keys;
+        Object[] oldVals = vals;
+        int n = OpenHashing.nextTableSize(oldKeys.length);
+        if (n < 0) {
+            if (size >= oldKeys.length - 1)
+                throw new IllegalStateException("Map is full");
+            return false;
+        }
+        long[] ks = new long[n];
+        Object[] vs = new Object[n];
+        int mask = n - 1;
+        for (int j = 0; j < oldVals.length; ++j) {
+            Object v = oldVals[j];
+            if (v != null) {
+                long k = oldKeys[j];
+                int i = OpenHashing.mix(k) & mask;
+                while (vs[i] != null)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+                vs[i] = v;
+            }
+        }
+        keys = ks;
+        vals = vs;
+        threshold = OpenHashing.threshold(n, loadFactor);
+        ++modCount;
+        return true;
+    }
+
+    /**
+     * Base of key and value spliterators over table slots, in the style
+     * of HashMap.HashMapSpliterator.  The fence is bound on first use.
+     */
+    abstract static class TableSpliterator<V> {
+        final LongObjectMap<V> map;
+        int index;                  // current slot, advanced on traversal
+        int fence;                  // one past last slot, or -1 until bound
+        int est;                    // size estimate
+        int expectedModCount;
+
+        TableSpliterator(LongObjectMap<V> map, int origin, int fence,
+                         int est, int expectedModCount) {
+            this.map = map;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() {
+            int hi;
+            if ((hi = fence) < 0) {
+                LongObjectMap<V> m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.vals.length;
+            }
+            return hi;
+        }
+
+        public final long estimateSize() {
+            getFence();
+            return est;
+        }
+
+        final int sizeCharacteristic() {
+            return (fence < 0 || est == map.size) ? Spliterator.SIZED : 0;
+        }
+    }
+
+    static final class KeySpliterator<V> extends TableSpliterator<V>
+        implements Spliterator.OfLong {
+        KeySpliterator(LongObjectMap<V> map, int origin, int fence, int est,
+                       int expectedModCount) {
+            super(map, origin, fence, est, expectedModCount);
+        }
+
+        public KeySpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            Objects.requireNonNull(action);
+            int hi = getFence();
+            LongObjectMap<V> m = map;
+            Object[] vs = m.vals;
+            while (index < hi) {
+                int i = index++;
+                if (vs[i] != null) {
+                    action.accept(m.keys[i]);
+                    if (m.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            Objects.requireNonNull(action);
+            int hi = getFence(), i = index;
+            LongObjectMap<V> m = map;
+            long[] ks = m.keys;
+            Object[] vs = m.vals;
+            index = hi;
+            for (; i < hi && i < vs.length; ++i) {
+                if (vs[i] != null)
+                    action.accept(ks[i]);
+            }
+            if (m.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public int characteristics() {
+            return sizeCharacteristic() | Spliterator.DISTINCT;
+        }
+    }
+
+    static final class ValueSpliterator<V> extends TableSpliterator<V>
+        implements Spliterator<V> {
+        ValueSpliterator(LongObjectMap<V> map, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(map, origin, fence, est, expectedModCount);
+        }
+
+        public ValueSpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new ValueSpliterator<>(map, lo, index = mid, est >>>= 1,
+                                       expectedModCount);
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> action) {
+            Objects.requireNonNull(action);
+            int hi = getFence();
+            LongObjectMap<V> m = map;
+            Object[] vs = m.vals;
+            while (index < hi) {
+                Object v = vs[index++];
+                if (v != null) {
+                    action.accept((V)v);
+                    if (m.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super V> action) {
+            Objects.requireNonNull(action);
+            int hi = getFence(), i = index;
+            LongObjectMap<V> m = map;
+            Object[] vs = m.vals;
+            index = hi;
+            for (; i < hi && i < vs.length; ++i) {
+                Object v = vs[i];
+                if (v != null)
+                    action.accept((V)v);
+            }
+            if (m.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public int characteristics() {
+            return sizeCharacteristic() | Spliterator.NONNULL;
+        }
+    }
+}
@@ -0,0 +1,487 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A hash set of primitive {@code long} values.  Elements are held in a
+ * flat {@code long} array using open addressing with linear probing, so
+ * that no per-element objects are allocated and no element is boxed.
+ *
+ * <p>Elements may be traversed with a {@link PrimitiveIterator.OfLong}
+ * or a {@link Spliterator.OfLong}, and streamed with {@link #stream}.
+ * Iteration order is unspecified and may change when the set is
+ * resized.  Traversal is <i>fail-fast</i> on a best-effort basis, in the
+ * same manner as {@link HashSet}.  Elements may be removed during
+ * traversal only through {@link #removeIf removeIf}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the set concurrently and at least one of
+ * them modifies it structurally, it must be synchronized externally.
+ *
+ * @implNote Zero marks a free table slot; its membership is recorded
+ * in a separate field.  Deletion shifts later entries of a probe run
+ * back into the hole rather than leaving tombstones.
+ *
+ * @see LongLongMap
+ * @see IntSet
+ * @since 9
+ */
+public class LongSet {
+
+    /** The element marking a free table slot; its membership is a field. */
+    private static final long FREE = 0L;
+
+    private long[] elements;
+    private boolean hasFree;
+    private int occupied;          // number of used table slots
+    private int threshold;
+    private final float loadFactor;
+    private int modCount;
+
+    /**
+     * Constructs an empty set with a default expected size and load factor.
+     */
+    public LongSet() {
+        this(OpenHashing.DEFAULT_EXPECTED_SIZE,
+             OpenHashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set able to hold the given number of elements
+     * without resizing, with the default load factor.
+     *
+     * @param expectedSize the expected number of elements
+     * @throws IllegalArgumentException if the expected size is negative
+     */
+    public LongSet(int expectedSize) {
+        this(expectedSize, OpenHashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set able to hold the given number of elements
+     * without resizing, with the given load factor.
+     *
+     * @param expectedSize the expected number of elements
+     * @param loadFactor the fraction of the table that may be occupied,
+     *        strictly between zero and one
+     * @throws IllegalArgumentException if the expected size is negative
+     *         or the load factor is out of range
+     */
+    public LongSet(int expectedSize, float loadFactor) {
+        this.loadFactor = OpenHashing.checkLoadFactor(loadFactor);
+        int n = OpenHashing.tableSizeFor(expectedSize, loadFactor);
+        elements = new long[n];
+        threshold = OpenHashing.threshold(n, loadFactor);
+    }
+
+    /**
+     * Returns the number of elements in this set.
+     *
+     * @return the number of elements in this set
+     */
+    public int size() {
+        return hasFree ? occupied + 1 : occupied;
+    }
+
+    /**
+     * Returns {@code true} if this set contains no elements.
+     *
+     * @return {@code true} if this set contains no elements
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns {@code true} if this set contains the value.
+     *
+     * @param value the value
+     * @return {@code true} if this set contains the value
+     */
+    public boolean contains(long value) {
+        if (value == FREE)
+            return hasFree;
+        long[] es = elements;
+        int mask = es.length - 1;
+        for (int i = OpenHashing.mix(value) & mask; ; i = (i + 1) & mask) {
+            long e = es[i];
+            if (e == value)
+                return true;
+            if (e == FREE)
+                return false;
+        }
+    }
+
+    /**
+     * Adds the value to this set if it is not already present.
+     *
+     * @param value the value
+     * @return {@code true} if this set did not already contain the value
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (hasFree)
+                return false;
+            hasFree = true;
+            ++modCount;
+            return true;
+        }
+        long[] es = elements;
+        int mask = es.length - 1;
+        int i = OpenHashing.mix(value) & mask;
+        for (long e; (e = es[i]) != FREE; i = (i + 1) & mask) {
+            if (e == value)
+                return false;
+        }
+        if (occupied >= threshold && resize())
+            return add(value);
+        es[i] = value;
+        ++occupied;
+        ++modCount;
+        return true;
+    }
+
+    /**
+     * Removes the value from this set if it is present.
+     *
+     * @param value the value
+     * @return {@code true} if this set contained the value
+     */
+    public boolean remove(long value) {
+        if (value == FREE) {
+            if (!hasFree)
+                return false;
+            hasFree = false;
+            ++modCount;
+            return true;
+        }
+        long[] es = elements;
+        int mask = es.length - 1;
+        for (int i = OpenHashing.mix(value) & mask; ; i = (i + 1) & mask) {
+            long e = es[i];
+            if (e == value) {
+                removeAt(i);
+                return true;
+            }
+            if (e == FREE)
+                return false;
+        }
+    }
+
+    /**
+     * Removes all of the elements of this set that satisfy the given
+     * predicate.
+     *
+     * @param filter a predicate which returns {@code true} for elements
+     *        to be removed
+     * @return {@code true} if any elements were removed
+     * @throws NullPointerException if the filter is null
+     */
+    public boolean removeIf(LongPredicate filter) {
+        Objects.requireNonNull(filter);
+        int before = size();
+        if (hasFree && filter.test(FREE)) {
+            hasFree = false;
+            ++modCount;
+        }
+        long[] es = elements;
+        // A removal may shift a later element into slot i, so slot i is
+        // re-examined; elements shifted from the wrapped-around start of
+        // the table were already tested and kept, so re-testing is benign.
+        for (int i = 0; i < es.length; ) {
+            long e = es[i];
+            if (e != FREE && filter.test(e))
+                removeAt(i);
+            else
+                ++i;
+        }
+        return size() != before;
+    }
+
+    /**
+     * Removes all of the elements from this set.  The table keeps its
+     * current length.
+     */
+    public void clear() {
+        ++modCount;
+        Arrays.fill(elements, FREE);
+        occupied = 0;
+        hasFree = false;
+    }
+
+    /**
+     * Performs the given action for each element of this set.
+     *
+     * @param action the action to perform
+     * @throws NullPointerException if the action is null
+     * @throws ConcurrentModificationException if the set is structurally
+     *         modified during traversal
+     */
+    public void forEach(LongConsumer action) {
+        spliterator().forEachRemaining(action);
+    }
+
+    /**
+     * Returns an iterator over the elements of this set.
+     *
+     * @return an iterator over the elements of this set
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * Returns a late-binding, fail-fast spliterator over the elements of
+     * this set.  It reports {@link Spliterator#SIZED} and
+     * {@link Spliterator#DISTINCT}, and splits by halving the table.
+     *
+     * @return a spliterator over the elements of this set
+     */
+    public Spliterator.OfLong spliterator() {
+        return new SlotSpliterator(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} of the elements of this set.
+     *
+     * @return a stream of the elements of this set
+     */
+    public LongStream stream() {
+        return StreamSupport.longStream(spliterator(), false);
+    }
+
+    /**
+     * Returns a new array containing the elements of this set.
+     *
+     * @return an array of the elements of this set
+     */
+    public long[] toArray() {
+        long[] a = new long[size()];
+        int n = 0;
+        if (hasFree)
+            a[n++] = FREE;
+        for (long e : elements) {
+            if (e != FREE)
+                a[n++] = e;
+        }
+        return a;
+    }
+
+    /**
+     * Compares the specified object with this set for equality.  Returns
+     * {@code true} if it is also a {@code LongSet} with the same elements.
+     *
+     * @param o object to be compared for equality with this set
+     * @return {@code true} if the specified object is equal to this set
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongSet))
+            return false;
+        LongSet s = (LongSet)o;
+        if (s.size() != size() || s.hasFree != hasFree)
+            return false;
+        for (long e : elements) {
+            if (e != FREE && !s.contains(e))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this set, defined as the sum of
+     * {@code Long.hashCode} of its elements, in the manner of
+     * {@link Set#hashCode}.
+     *
+     * @return the hash code value for this set
+     */
+    public int hashCode() {
+        int h = 0;
+        for (long e : elements)
+            h += Long.hashCode(e);
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this set in the same form as
+     * {@link AbstractCollection#toString}.
+     *
+     * @return a string representation of this set
+     */
+    public String toString() {
+        StringJoiner sj = new StringJoiner(", ", "[", "]");
+        forEach(e -> sj.add(Long.toString(e)));
+        return sj.toString();
+    }
+
+    /**
+     * Deletes the element at slot i, shifting later members of its probe
+     * run back so that no tombstone is needed.
+     */
+    private void removeAt(int i) {
+        long[] es = elements;
+        int mask = es.length - 1;
+        for (int j = i; ; ) {
+            j = (j + 1) & mask;
+            long e = es[j];
+            if (e == FREE)
+                break;
+            if (OpenHashing.canShift(OpenHashing.mix(e) & mask, i, j)) {
+                es[i] = e;
+                i = j;
+            }
+        }
+        es[i] = FREE;
+        --occupied;
+        ++modCount;
+    }
+
+    /**
+     * Doubles the table if possible.  Returns false if the table is at
+     * maximum capacity but still has room for another element.
+     */
+    private boolean resize() {
+        long[] old = elements;
+        int n = OpenHashing.nextTableSize(old.length);
+        if (n < 0) {
+            if (occupied >= old.length - 1)
+                throw new IllegalStateException("Set is full");
+            return false;
+        }
+        long[] es = new long[n];
+        int mask = n - 1;
+        for (long e : old) {
+            if (e != FREE) {
+                int i = OpenHashing.mix(e) & mask;
+                while (es[i] != FREE)
+                    i = (i + 1) & mask;
+                es[i] = e;
+            }
+        }
+        elements = es;
+        threshold = OpenHashing.threshold(n, loadFactor);
+        ++modCount;
+        return true;
+    }
+
+    /**
+     * Spliterator over table slots.  Index {@code elements.length} stands
+     * for the free value held outside the table, so that the whole set is
+     * covered by one contiguous index range.  The fence is bound on first
+     * use.
+     */
+    static final class SlotSpliterator implements Spliterator.OfLong {
+        private final LongSet set;
+        private int index;           // current slot, advanced on traversal
+        private int fence;           // one past last slot, or -1 until bound
+        private int est;             // size estimate
+        private int expectedModCount;
+
+        SlotSpliterator(LongSet set, int origin, int fence, int est,
+                        int expectedModCount) {
+            this.set = set;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() {
+            int hi;
+            if ((hi = fence) < 0) {
+                LongSet s = set;
+                est = s.size();
+                expectedModCount = s.modCount;
+                hi = fence = s.elements.length + 1;
+            }
+            return hi;
+        }
+
+        public SlotSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new SlotSpliterator(set, lo, index = mid, est >>>= 1,
+                                    expectedModCount);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            Objects.requireNonNull(action);
+            int hi = getFence();
+            LongSet s = set;
+            long[] es = s.elements;
+            while (index < hi) {
+                int i = index++;
+                long e;
+                if (i < es.length) {
+                    if ((e = es[i]) == FREE)
+                        continue;
+                }
+                else if (s.hasFree)
+                    e = FREE;
+                else
+                    continue;
+                action.accept(e);
+                if (s.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            Objects.requireNonNull(action);
+            int hi = getFence(), i = index;
+            LongSet s = set;
+            long[] es = s.elements;
+            index = hi;
+            int end = Math.min(hi, es.length);
+            for (; i < end; ++i) {
+                long e = es[i];
+                if (e != FREE)
+                    action.accept(e);
+            }
+            if (hi > es.length && i <= es.length && s.hasFree)
+                action.accept(FREE);
+            if (s.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            getFence();
+            return est;
+        }
+
+        public int characteristics() {
+            return ((fence < 0 || est == set.size()) ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT;
+        }
+    }
+}
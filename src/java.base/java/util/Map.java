@@ -1614,7 +1614,7 @@ public interface Map<K, V> {
                 kva[a++] = entry.getKey();
                 kva[a++] = entry.getValue();
             }
-            return new ImmutableCollections.MapN<>(kva);
+            return ImmutableCollections.mapN(kva);
         }
     }
 
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+/**
+ * Shared sizing and hashing support for the open-addressing primitive
+ * collections {@link IntObjectMap}, {@link LongObjectMap},
+ * {@link LongLongMap}, {@link IntSet} and {@link LongSet}.
+ *
+ * <p>All of these tables use linear probing over power-of-two sized
+ * arrays, so the low bits of the hash select the home slot.  Keys are
+ * therefore scrambled with a multiplicative (Fibonacci) mix and the high
+ * half of the product is folded down, so that sequential or strided keys
+ * (ids, timestamps, prices in ticks) do not form long probe runs.
+ */
+final class OpenHashing {
+    private OpenHashing() { }
+
+    /**
+     * The largest table length.  Must be a power of two no larger
+     * than the largest array length.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none is specified in a constructor.
+     * Lower than HashMap's default since probe lengths under linear
+     * probing grow quickly past one half.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The expected number of mappings used when none is specified.
+     */
+    static final int DEFAULT_EXPECTED_SIZE = 8;
+
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    /**
+     * Checks a load factor passed to a constructor.
+     */
+    static float checkLoadFactor(float loadFactor) {
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        return loadFactor;
+    }
+
+    /**
+     * Returns the power of two table length able to hold the given
+     * number of keys without exceeding the load factor.
+     */
+    static int tableSizeFor(int expectedSize, float loadFactor) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               expectedSize);
+        long n = (long)Math.ceil(expectedSize / (double)loadFactor);
+        if (n >= MAXIMUM_CAPACITY)
+            return MAXIMUM_CAPACITY;
+        return Integer.highestOneBit((int)Math.max(1L, n - 1L)) << 1;
+    }
+
+    /**
+     * Returns the number of occupied slots a table of the given length
+     * may hold before it must grow.  At least one slot is always left
+     * free so that unsuccessful probes terminate.
+     */
+    static int threshold(int tableLength, float loadFactor) {
+        return Math.min(tableLength - 1, (int)(tableLength * loadFactor));
+    }
+
+    /**
+     * Returns the length of the table that replaces one of the given
+     * length, or -1 if the table cannot grow.
+     */
+    static int nextTableSize(int tableLength) {
+        return (tableLength >= MAXIMUM_CAPACITY) ? -1 : tableLength << 1;
+    }
+
+    /**
+     * Returns true if an entry found at slot {@code j}, whose home slot
+     * is {@code home}, may be shifted back into the hole at slot
+     * {@code hole}; that is, if {@code home} is not cyclically within
+     * {@code (hole, j]}.  Used by the backward-shift deletion common to
+     * all the tables, which avoids tombstones.
+     */
+    static boolean canShift(int home, int hole, int j) {
+        return (hole <= j) ? (home <= hole || home > j)
+                           : (home <= hole && home > j);
+    }
+}
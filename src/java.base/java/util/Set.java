@@ -697,7 +697,7 @@ public interface Set<E> extends Collection<E> {
             case 2:
                 return new ImmutableCollections.Set2<>(elements[0], elements[1]);
             default:
-                return new ImmutableCollections.SetN<>(elements);
+                return ImmutableCollections.setN(elements, false);
         }
     }
 }
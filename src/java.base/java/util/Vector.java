@@ -27,6 +27,7 @@ package java.util;
 
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 
 /**
@@ -1390,6 +1391,26 @@ public class Vector<E>
         modCount++;
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized void parallelSort(Comparator<? super E> c) {
+        final int expectedModCount = modCount;
+        Arrays.parallelSort((E[]) elementData, 0, elementCount, c);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+        final int expectedModCount = modCount;
+        Arrays.sortByLongKey((E[]) elementData, 0, elementCount, keyExtractor);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
     /**
      * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
      * and <em>fail-fast</em> {@link Spliterator} over the elements in this
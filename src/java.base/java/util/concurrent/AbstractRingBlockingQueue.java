@@ -0,0 +1,304 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written with assistance from members of JCP JSR-166 Expert Group
+ * and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shared blocking support for the lock-free array queues {@link
+ * SpscArrayQueue} and {@link MpmcArrayQueue}, and for the work-stealing
+ * queue of {@link ThreadPoolExecutor}.
+ *
+ * <p>Subclasses implement the non-blocking {@link #offer(Object)} and
+ * {@link #poll()} without locks, and call {@link #signalNotEmpty} and
+ * {@link #signalNotFull} after each successful insertion or removal.
+ * Those calls cost a single volatile read unless a thread is actually
+ * blocked, so threads park (on the conditions of a lock that is never
+ * touched on the fast path) only when the queue is full or empty.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+abstract class AbstractRingBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * Blocked threads follow a Dekker-style handshake with the
+     * lock-free paths: a waiter first publishes itself in
+     * consumersWaiting (or producersWaiting), then rechecks the queue
+     * before awaiting; an updater first publishes its update with a
+     * volatile write, then reads the waiter count.  Because all four
+     * accesses are volatile, at least one side observes the other, so
+     * either the waiter finds the element (or space), or the updater
+     * signals.  Signals are issued under the lock, so a waiter that has
+     * registered but not yet awaited cannot miss one.  Waiters that
+     * wake and find more work remaining, or that are cancelled by
+     * interrupt or timeout, pass the signal on.
+     */
+
+    /** Guards the conditions; not used on uncontended paths. */
+    final ReentrantLock lock = new ReentrantLock();
+
+    /** Condition for waiting takes */
+    private final Condition notEmpty = lock.newCondition();
+
+    /** Condition for waiting puts */
+    private final Condition notFull = lock.newCondition();
+
+    /** Number of consumers registered to wait; updated under lock. */
+    private volatile int consumersWaiting;
+
+    /** Number of producers registered to wait; updated under lock. */
+    private volatile int producersWaiting;
+
+    /**
+     * Returns the (fixed) capacity of this queue.
+     */
+    abstract int capacity();
+
+    /**
+     * Wakes a consumer if any is waiting.  Called after an insertion
+     * has been published with a volatile write.
+     */
+    final void signalNotEmpty() {
+        if (consumersWaiting != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wakes a producer if any is waiting.  Called after a removal has
+     * been published with a volatile write.
+     */
+    final void signalNotFull() {
+        if (producersWaiting != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        if (offer(e))
+            return;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ++producersWaiting;
+            try {
+                while (!offer(e))
+                    notFull.await();
+            } catch (InterruptedException ie) {
+                if (size() < capacity())
+                    notFull.signal();
+                throw ie;
+            } finally {
+                --producersWaiting;
+            }
+            if (size() < capacity())
+                notFull.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        Objects.requireNonNull(e);
+        if (offer(e))
+            return true;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ++producersWaiting;
+            try {
+                while (!offer(e)) {
+                    if (nanos <= 0L) {
+                        if (size() < capacity())
+                            notFull.signal();
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            } catch (InterruptedException ie) {
+                if (size() < capacity())
+                    notFull.signal();
+                throw ie;
+            } finally {
+                --producersWaiting;
+            }
+            if (size() < capacity())
+                notFull.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public E take() throws InterruptedException {
+        E e;
+        if ((e = poll()) != null)
+            return e;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ++consumersWaiting;
+            try {
+                while ((e = poll()) == null)
+                    notEmpty.await();
+            } catch (InterruptedException ie) {
+                if (!isEmpty())
+                    notEmpty.signal();
+                throw ie;
+            } finally {
+                --consumersWaiting;
+            }
+            if (!isEmpty())
+                notEmpty.signal();
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e;
+        if ((e = poll()) != null)
+            return e;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ++consumersWaiting;
+            try {
+                while ((e = poll()) == null) {
+                    if (nanos <= 0L) {
+                        if (!isEmpty())
+                            notEmpty.signal();
+                        return null;
+                    }
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+            } catch (InterruptedException ie) {
+                if (!isEmpty())
+                    notEmpty.signal();
+                throw ie;
+            } finally {
+                --consumersWaiting;
+            }
+            if (!isEmpty())
+                notEmpty.signal();
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints) accept
+     * without blocking.  This is always equal to the capacity of this
+     * queue less its current {@code size}.
+     *
+     * <p>Note that you <em>cannot</em> always tell if an attempt to
+     * insert an element will succeed by inspecting {@code
+     * remainingCapacity} because it may be the case that another
+     * thread is about to insert or remove an element.
+     */
+    public int remainingCapacity() {
+        return capacity() - size();
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        for (E e; n < maxElements && (e = poll()) != null; n++)
+            c.add(e);
+        return n;
+    }
+
+    public String toString() {
+        return Helpers.collectionToString(this);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written with assistance from members of JCP JSR-166 Expert Group
+ * and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+/**
+ * A management interface for the statistics of a {@link
+ * ConcurrentCache}, as returned by {@link ConcurrentCache#mxBean}.
+ * Its name follows the MXBean convention, so that an instance may be
+ * registered with a platform MBean server, for example with
+ * <pre> {@code
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(
+ *     cache.mxBean(), new ObjectName("com.example:type=Cache,name=users"));}</pre>
+ *
+ * <p>Counts are cumulative since the cache was created, and each value
+ * is read from the cache when the method is invoked.  Different values
+ * are not read atomically with respect to each other, or to concurrent
+ * cache operations.
+ *
+ * @since 9
+ */
+public interface CacheMXBean {
+
+    /**
+     * Returns the number of lookups that returned a cached value.
+     *
+     * @return the number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups that found no cached value,
+     * including those that then loaded one.
+     *
+     * @return the number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Returns the ratio of hits to lookups, or {@code 1.0} if there have
+     * been no lookups.
+     *
+     * @return the hit rate, from {@code 0.0} to {@code 1.0}
+     */
+    double getHitRate();
+
+    /**
+     * Returns the number of values successfully loaded by a mapping
+     * function.
+     *
+     * @return the number of successful loads
+     */
+    long getLoadSuccessCount();
+
+    /**
+     * Returns the number of mapping function invocations that threw an
+     * exception or returned {@code null}.
+     *
+     * @return the number of failed loads
+     */
+    long getLoadFailureCount();
+
+    /**
+     * Returns the mean time spent in mapping functions, in nanoseconds,
+     * or zero if there have been no loads.
+     *
+     * @return the mean load latency
+     */
+    double getMeanLoadNanos();
+
+    /**
+     * Returns the 99th percentile of the time spent in mapping functions,
+     * in nanoseconds, or zero if there have been no loads.
+     *
+     * @return the 99th percentile load latency
+     */
+    long getLoadNanos99thPercentile();
+
+    /**
+     * Returns the number of entries evicted to keep the cache within its
+     * maximum size.
+     *
+     * @return the number of size-based evictions
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the number of entries removed because they expired.
+     *
+     * @return the number of expirations
+     */
+    long getExpirationCount();
+
+    /**
+     * Returns the number of entries removed because their weakly or
+     * softly referenced values were reclaimed by the garbage collector.
+     *
+     * @return the number of collected values
+     */
+    long getCollectedCount();
+
+    /**
+     * Returns the approximate number of entries in the cache, as by
+     * {@link ConcurrentCache#estimatedSize}.
+     *
+     * @return the estimated number of entries
+     */
+    long getEstimatedSize();
+
+    /**
+     * Returns the maximum number of entries of the cache, or {@code -1}
+     * if it is unbounded.
+     *
+     * @return the maximum size, or {@code -1}
+     */
+    long getMaximumSize();
+}
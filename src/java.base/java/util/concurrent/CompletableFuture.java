@@ -43,6 +43,8 @@ import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import jdk.internal.perf.PerfCounter;
+import sun.security.action.GetPropertyAction;
 
 /**
  * A {@link Future} that may be explicitly completed (setting its
@@ -226,6 +228,21 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      *   any source should trigger a cleanStack of other sources.
      *   Each AnyOf completion can reach others via a shared array.
      *
+     * * Stage arguments and composed stages are read via method
+     *   asFuture rather than toCompletableFuture, so that a
+     *   MinimalStage (as returned by completedStage or minimalStage)
+     *   is used directly instead of being copied, which would
+     *   otherwise allocate another future (and, if not yet complete,
+     *   a UniRelay) per use.
+     *
+     * * When enabled by system property
+     *   java.util.concurrent.CompletableFuture.counters, performance
+     *   counters (see class Counters) record how many dependent
+     *   actions ran immediately without creating a Completion, and
+     *   how many Completions were pushed to await a source.  These
+     *   guide tuning of stage graphs in which most sources are
+     *   expected to be complete by the time dependents are added.
+     *
      * Note that the generic type parameters of methods vary according
      * to whether "this" is a source, dependent, or completion.
      *
@@ -452,6 +469,36 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return e;
     }
 
+    /**
+     * Returns s as a CompletableFuture, avoiding the copy made by
+     * MinimalStage.toCompletableFuture.
+     */
+    static <U> CompletableFuture<U> asFuture(CompletionStage<U> s) {
+        return (s instanceof MinimalStage)
+            ? (MinimalStage<U>)s : s.toCompletableFuture();
+    }
+
+    /** Whether to maintain the performance counters in class Counters. */
+    static final boolean COUNTERS =
+        Boolean.parseBoolean(GetPropertyAction.privilegedGetProperty(
+            "java.util.concurrent.CompletableFuture.counters"));
+
+    /**
+     * Performance counters, visible via jcmd PerfCounter.print and
+     * jstat, initialized and updated only if COUNTERS is true.  Each
+     * PerfCounter.increment acquires the counter's monitor, so when
+     * enabled every dependent stage added takes a lock shared by all
+     * threads; the counters are meant for diagnosis, not production.
+     */
+    static final class Counters {
+        /** Dependent actions run immediately, without a Completion. */
+        static final PerfCounter IMMEDIATE = PerfCounter.newPerfCounter(
+            "java.util.concurrent.CompletableFuture.immediateCompletions");
+        /** Completions pushed onto a stack to await a source. */
+        static final PerfCounter DEFERRED = PerfCounter.newPerfCounter(
+            "java.util.concurrent.CompletableFuture.deferredCompletions");
+    }
+
     // Modes for Completion.tryFire. Signedness matters.
     static final int SYNC   =  0;
     static final int ASYNC  =  1;
@@ -579,12 +626,14 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      */
     final void unipush(Completion c) {
         if (c != null) {
-            while (!tryPushStack(c)) {
+            boolean pushed;
+            while (!(pushed = tryPushStack(c))) {
                 if (result != null) {
                     NEXT.set(c, null);
                     break;
                 }
             }
+            if (COUNTERS && pushed) Counters.DEFERRED.increment();
             if (result != null)
                 c.tryFire(SYNC);
         }
@@ -664,6 +713,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private <V> CompletableFuture<V> uniApplyNow(
         Object r, Executor e, Function<? super T,? extends V> f) {
         Throwable x;
+        if (COUNTERS && e == null) Counters.IMMEDIATE.increment();
         CompletableFuture<V> d = newIncompleteFuture();
         if (r instanceof AltResult) {
             if ((x = ((AltResult)r).ex) != null) {
@@ -737,6 +787,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private CompletableFuture<Void> uniAcceptNow(
         Object r, Executor e, Consumer<? super T> f) {
         Throwable x;
+        if (COUNTERS && e == null) Counters.IMMEDIATE.increment();
         CompletableFuture<Void> d = newIncompleteFuture();
         if (r instanceof AltResult) {
             if ((x = ((AltResult)r).ex) != null) {
@@ -804,6 +855,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
 
     private CompletableFuture<Void> uniRunNow(Object r, Executor e, Runnable f) {
         Throwable x;
+        if (COUNTERS && e == null) Counters.IMMEDIATE.increment();
         CompletableFuture<Void> d = newIncompleteFuture();
         if (r instanceof AltResult && (x = ((AltResult)r).ex) != null)
             d.result = encodeThrowable(x, r);
@@ -879,8 +931,10 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         Object r;
         if ((r = result) == null)
             unipush(new UniWhenComplete<T>(e, d, this, f));
-        else if (e == null)
+        else if (e == null) {
+            if (COUNTERS) Counters.IMMEDIATE.increment();
             d.uniWhenComplete(r, f, null);
+        }
         else {
             try {
                 e.execute(new UniWhenComplete<T>(null, d, this, f));
@@ -942,8 +996,10 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         Object r;
         if ((r = result) == null)
             unipush(new UniHandle<T,V>(e, d, this, f));
-        else if (e == null)
+        else if (e == null) {
+            if (COUNTERS) Counters.IMMEDIATE.increment();
             d.uniHandle(r, f, null);
+        }
         else {
             try {
                 e.execute(new UniHandle<T,V>(null, d, this, f));
@@ -1000,8 +1056,10 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         Object r;
         if ((r = result) == null)
             unipush(new UniExceptionally<T>(d, this, f));
-        else
+        else {
+            if (COUNTERS) Counters.IMMEDIATE.increment();
             d.uniExceptionally(r, f, null);
+        }
         return d;
     }
 
@@ -1069,7 +1127,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
                     if (mode <= 0 && !claim())
                         return null;
                     @SuppressWarnings("unchecked") T t = (T) r;
-                    CompletableFuture<V> g = f.apply(t).toCompletableFuture();
+                    CompletableFuture<V> g = asFuture(f.apply(t));
                     if ((r = g.result) != null)
                         d.completeRelay(r);
                     else {
@@ -1094,6 +1152,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         if ((r = result) == null)
             unipush(new UniCompose<T,V>(e, d, this, f));
         else if (e == null) {
+            if (COUNTERS) Counters.IMMEDIATE.increment();
             if (r instanceof AltResult) {
                 if ((x = ((AltResult)r).ex) != null) {
                     d.result = encodeThrowable(x, r);
@@ -1103,7 +1162,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
             }
             try {
                 @SuppressWarnings("unchecked") T t = (T) r;
-                CompletableFuture<V> g = f.apply(t).toCompletableFuture();
+                CompletableFuture<V> g = asFuture(f.apply(t));
                 if ((s = g.result) != null)
                     d.result = encodeRelay(s);
                 else {
@@ -1162,6 +1221,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         if (c != null) {
             while (result == null) {
                 if (tryPushStack(c)) {
+                    if (COUNTERS) Counters.DEFERRED.increment();
                     if (b.result == null)
                         b.unipush(new CoCompletion(c));
                     else if (result != null)
@@ -1245,13 +1305,15 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         Executor e, CompletionStage<U> o,
         BiFunction<? super T,? super U,? extends V> f) {
         CompletableFuture<U> b; Object r, s;
-        if (f == null || (b = o.toCompletableFuture()) == null)
+        if (f == null || (b = asFuture(o)) == null)
             throw new NullPointerException();
         CompletableFuture<V> d = newIncompleteFuture();
         if ((r = result) == null || (s = b.result) == null)
             bipush(b, new BiApply<T,U,V>(e, d, this, b, f));
-        else if (e == null)
+        else if (e == null) {
+            if (COUNTERS) Counters.IMMEDIATE.increment();
             d.biApply(r, s, f, null);
+        }
         else
             try {
                 e.execute(new BiApply<T,U,V>(null, d, this, b, f));
@@ -1321,13 +1383,15 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         Executor e, CompletionStage<U> o,
         BiConsumer<? super T,? super U> f) {
         CompletableFuture<U> b; Object r, s;
-        if (f == null || (b = o.toCompletableFuture()) == null)
+        if (f == null || (b = asFuture(o)) == null)
             throw new NullPointerException();
         CompletableFuture<Void> d = newIncompleteFuture();
         if ((r = result) == null || (s = b.result) == null)
             bipush(b, new BiAccept<T,U>(e, d, this, b, f));
-        else if (e == null)
+        else if (e == null) {
+            if (COUNTERS) Counters.IMMEDIATE.increment();
             d.biAccept(r, s, f, null);
+        }
         else
             try {
                 e.execute(new BiAccept<T,U>(null, d, this, b, f));
@@ -1384,13 +1448,15 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private CompletableFuture<Void> biRunStage(Executor e, CompletionStage<?> o,
                                                Runnable f) {
         CompletableFuture<?> b; Object r, s;
-        if (f == null || (b = o.toCompletableFuture()) == null)
+        if (f == null || (b = asFuture(o)) == null)
             throw new NullPointerException();
         CompletableFuture<Void> d = newIncompleteFuture();
         if ((r = result) == null || (s = b.result) == null)
             bipush(b, new BiRun<>(e, d, this, b, f));
-        else if (e == null)
+        else if (e == null) {
+            if (COUNTERS) Counters.IMMEDIATE.increment();
             d.biRun(r, s, f, null);
+        }
         else
             try {
                 e.execute(new BiRun<>(null, d, this, b, f));
@@ -1464,12 +1530,14 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      */
     final void orpush(CompletableFuture<?> b, BiCompletion<?,?,?> c) {
         if (c != null) {
-            while (!tryPushStack(c)) {
+            boolean pushed;
+            while (!(pushed = tryPushStack(c))) {
                 if (result != null) {
                     NEXT.set(c, null);
                     break;
                 }
             }
+            if (COUNTERS && pushed) Counters.DEFERRED.increment();
             if (result != null)
                 c.tryFire(SYNC);
             else
@@ -1519,7 +1587,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private <U extends T,V> CompletableFuture<V> orApplyStage(
         Executor e, CompletionStage<U> o, Function<? super T, ? extends V> f) {
         CompletableFuture<U> b;
-        if (f == null || (b = o.toCompletableFuture()) == null)
+        if (f == null || (b = asFuture(o)) == null)
             throw new NullPointerException();
 
         Object r; CompletableFuture<? extends T> z;
@@ -1575,7 +1643,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private <U extends T> CompletableFuture<Void> orAcceptStage(
         Executor e, CompletionStage<U> o, Consumer<? super T> f) {
         CompletableFuture<U> b;
-        if (f == null || (b = o.toCompletableFuture()) == null)
+        if (f == null || (b = asFuture(o)) == null)
             throw new NullPointerException();
 
         Object r; CompletableFuture<? extends T> z;
@@ -1628,7 +1696,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private CompletableFuture<Void> orRunStage(Executor e, CompletionStage<?> o,
                                                Runnable f) {
         CompletableFuture<?> b;
-        if (f == null || (b = o.toCompletableFuture()) == null)
+        if (f == null || (b = asFuture(o)) == null)
             throw new NullPointerException();
 
         Object r; CompletableFuture<?> z;
@@ -0,0 +1,1223 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written with assistance from members of JCP JSR-166 Expert Group
+ * and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.LongHistogram;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A thread-safe cache, bounded by size and/or time, built on a {@link
+ * ConcurrentHashMap}.  Lookups never block or acquire locks, and the
+ * bookkeeping for eviction, expiration and reclamation is amortized
+ * over cache operations, so a {@code ConcurrentCache} may be used
+ * where a {@link java.util.WeakHashMap} or an access-ordered
+ * {@link java.util.LinkedHashMap} would otherwise be wrapped in an
+ * external lock.
+ *
+ * <p>Caches are created with a {@link Builder}:
+ * <pre> {@code
+ * ConcurrentCache<String, Graph> graphs = ConcurrentCache.<String, Graph>newBuilder()
+ *     .maximumSize(10_000)
+ *     .expireAfterWrite(10, TimeUnit.MINUTES)
+ *     .build();
+ * Graph g = graphs.get(key, k -> createExpensiveGraph(k));}</pre>
+ *
+ * <p><b>Size-based eviction.</b> A cache with a {@linkplain
+ * Builder#maximumSize maximum size} evicts entries when it grows beyond
+ * it, temporarily exceeding it by at most the number of concurrent
+ * writers.  The entries to evict are chosen by the {@link
+ * EvictionPolicy}: either least-recently-used, or by default
+ * <em>Window TinyLFU</em>, which admits a new entry into the main
+ * region of the cache only if it has been used more often, as estimated
+ * by a compact frequency sketch, than the entry it would displace.
+ * TinyLFU is resistant to scans and usually has a substantially higher
+ * hit rate than LRU; the small LRU window in front of the main region
+ * lets bursts of new entries build up their frequencies.
+ *
+ * <p><b>Expiration.</b> Entries may expire a fixed time after they were
+ * last written, or last read, or both.  Expired entries are never
+ * returned; they are removed, in amortized constant time, by a
+ * hierarchical timer wheel that is advanced during other operations
+ * and by {@link #cleanUp}.
+ *
+ * <p><b>Reference-based values.</b> Values may be held through {@link
+ * WeakReference weak} or {@link SoftReference soft} references, so
+ * that the garbage collector may reclaim them; the entries of reclaimed
+ * values are then removed using a {@link ReferenceQueue}.  Keys are
+ * always strongly held and compared by {@code equals}.
+ *
+ * <p><b>Statistics.</b> Hit, miss, load, eviction and load latency
+ * statistics are recorded with {@link LongAdder} and {@link
+ * LongHistogram}, and are available through {@link #mxBean}, which may
+ * be registered for monitoring through JMX.
+ *
+ * <p>Neither keys nor values may be {@code null}.  Mapping functions
+ * passed to {@link #get(Object, Function) get} are invoked at most once
+ * per key at a time, as for {@link ConcurrentHashMap#compute}, and must
+ * not modify the cache.
+ *
+ * @since 9
+ * @param <K> the type of keys
+ * @param <V> the type of cached values
+ */
+public class ConcurrentCache<K,V> {
+    /*
+     * Overview:
+     *
+     * The map holds Nodes, each containing the key, the value (or a
+     * Reference to it), and the write and access times.  Map
+     * operations are the source of truth: an entry is in the cache iff
+     * its node is in the map and has neither expired nor lost its
+     * value.  The policy structures -- the LRU deques, the frequency
+     * sketch, and the timer wheel -- are maintained only while holding
+     * evictionLock, and lag behind the map:
+     *
+     * - Writes (put, remove, loads) update the map with atomic
+     *   ConcurrentHashMap operations, marking removed nodes RETIRED,
+     *   then take evictionLock to link or unlink the node and perform
+     *   maintenance.  A node that is retired before it is linked is
+     *   never linked, so writes racing on one key cannot leave stale
+     *   policy state.
+     *
+     * - Reads record the node in a lossy, striped ring buffer (one
+     *   CAS), selected by the thread's ThreadLocalRandom probe.  When a
+     *   buffer is full, the reader tries (but does not wait) to take
+     *   evictionLock and replay all buffered reads into the policy.
+     *   Reads dropped because of contention only make the policy
+     *   slightly less accurate.
+     *
+     * - Maintenance drains the read buffers, removes entries whose
+     *   referents were collected, advances the timer wheel, and evicts
+     *   until within the maximum size.  Removal from the map during
+     *   maintenance uses the conditional remove(key, node), so that
+     *   entries replaced concurrently are left alone.
+     *
+     * Window TinyLFU: nodes enter an LRU window of about 1% of the
+     * maximum size.  Nodes leaving the window become candidates at the
+     * tail of the probation segment of the main region; each candidate
+     * duels the probation head (the main region's LRU victim) and the
+     * one with the lower estimated frequency is evicted.  Nodes read
+     * while in probation are promoted to the protected segment (80% of
+     * the main region), whose overflow is demoted back to probation.
+     * To resist attacks that inflate the frequency of a victim, a
+     * candidate with a moderate frequency is occasionally admitted at
+     * random.  The frequency sketch is a 4-bit count-min sketch that
+     * halves all counters once the number of increments reaches ten
+     * times the maximum size, so that frequencies decay.
+     *
+     * Timer wheel: nodes of caches that expire are linked into the
+     * buckets of a five-level hierarchical wheel by expiration time.
+     * Level i has buckets of 2^SHIFT[i] ns (about 1s, 1m, 1h, 1d and
+     * 52d); a node goes in the lowest level whose range covers its
+     * delay.  Advancing the wheel visits only the buckets whose time
+     * has passed at each level, expiring their nodes or moving them to
+     * a lower level.  Reads check expiration directly, so the wheel
+     * need only be timely enough to reclaim space.
+     */
+
+    /**
+     * The eviction policies of a size-bounded cache.
+     *
+     * @since 9
+     */
+    public enum EvictionPolicy {
+        /** Evicts the least recently used entry. */
+        LRU,
+        /**
+         * Window TinyLFU: admits entries to the main region of the
+         * cache according to their estimated frequency of use.
+         */
+        WINDOW_TINY_LFU
+    }
+
+    /**
+     * A builder of {@link ConcurrentCache} instances.  By default, a
+     * cache is unbounded, never expires entries, and holds values
+     * strongly.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of cached values
+     * @since 9
+     */
+    public static final class Builder<K,V> {
+        long maximumSize = -1L;
+        EvictionPolicy policy = EvictionPolicy.WINDOW_TINY_LFU;
+        long expireAfterWriteNanos = -1L;
+        long expireAfterAccessNanos = -1L;
+        int valueStrength = STRONG;
+        int initialCapacity = 16;
+        LongSupplier ticker;
+
+        Builder() {}
+
+        /**
+         * Sets the maximum number of entries of the cache.
+         *
+         * @param maximumSize the maximum size
+         * @return this builder
+         * @throws IllegalArgumentException if {@code maximumSize} is
+         *         negative
+         */
+        public Builder<K,V> maximumSize(long maximumSize) {
+            if (maximumSize < 0L)
+                throw new IllegalArgumentException();
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Sets the policy used to choose entries to evict when the cache
+         * exceeds its maximum size.
+         *
+         * @param policy the eviction policy
+         * @return this builder
+         */
+        public Builder<K,V> evictionPolicy(EvictionPolicy policy) {
+            this.policy = Objects.requireNonNull(policy);
+            return this;
+        }
+
+        /**
+         * Specifies that entries expire the given time after they were
+         * created or last written.
+         *
+         * @param duration the time, in units of {@code unit}
+         * @param unit the unit of {@code duration}
+         * @return this builder
+         * @throws IllegalArgumentException if {@code duration} is negative
+         */
+        public Builder<K,V> expireAfterWrite(long duration, TimeUnit unit) {
+            expireAfterWriteNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        /**
+         * Specifies that entries expire the given time after they were
+         * created, last written or last read.
+         *
+         * @param duration the time, in units of {@code unit}
+         * @param unit the unit of {@code duration}
+         * @return this builder
+         * @throws IllegalArgumentException if {@code duration} is negative
+         */
+        public Builder<K,V> expireAfterAccess(long duration, TimeUnit unit) {
+            expireAfterAccessNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        private static long toNanos(long duration, TimeUnit unit) {
+            if (duration < 0L)
+                throw new IllegalArgumentException();
+            // Bounded so that times plus durations cannot overflow
+            return Math.min(unit.toNanos(duration), Long.MAX_VALUE >>> 2);
+        }
+
+        /**
+         * Specifies that values are held through {@link WeakReference}s.
+         *
+         * @return this builder
+         */
+        public Builder<K,V> weakValues() {
+            valueStrength = WEAK;
+            return this;
+        }
+
+        /**
+         * Specifies that values are held through {@link SoftReference}s,
+         * and so are reclaimed, in globally least-recently-used order,
+         * in response to memory demand.
+         *
+         * @return this builder
+         */
+        public Builder<K,V> softValues() {
+            valueStrength = SOFT;
+            return this;
+        }
+
+        /**
+         * Sets the initial capacity of the underlying map.
+         *
+         * @param initialCapacity the initial capacity
+         * @return this builder
+         * @throws IllegalArgumentException if {@code initialCapacity} is
+         *         negative
+         */
+        public Builder<K,V> initialCapacity(int initialCapacity) {
+            if (initialCapacity < 0)
+                throw new IllegalArgumentException();
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the source of nanosecond time used for expiration and load
+         * latencies, in place of {@link System#nanoTime}; typically for
+         * testing.
+         *
+         * @param ticker a source of nanosecond time
+         * @return this builder
+         */
+        public Builder<K,V> ticker(LongSupplier ticker) {
+            this.ticker = Objects.requireNonNull(ticker);
+            return this;
+        }
+
+        /**
+         * Returns a new cache with the settings of this builder.
+         *
+         * @return a new cache
+         */
+        public ConcurrentCache<K,V> build() {
+            return new ConcurrentCache<K,V>(this);
+        }
+    }
+
+    /**
+     * Returns a new builder of caches.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of cached values
+     * @return a new builder
+     */
+    public static <K,V> Builder<K,V> newBuilder() {
+        return new Builder<K,V>();
+    }
+
+    // Value strengths
+    static final int STRONG = 0, WEAK = 1, SOFT = 2;
+
+    // Node states
+    static final int ALIVE = 0, RETIRED = 1, DEAD = 2;
+
+    // Node queues
+    static final int NONE = 0, WINDOW = 1, PROBATION = 2, PROTECTED = 3;
+
+    /** Number of CPUS, to place bounds on some sizings */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** The number of read buffers, a power of two. */
+    static final int READ_BUFFERS =
+        Math.min(64, Integer.highestOneBit(Math.max(1, 4 * NCPU - 1)) << 1);
+
+    /**
+     * A cache entry.  The key, value and times are read without
+     * locking; the remaining fields are guarded by evictionLock.
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile Object value;      // V, or Reference<V> with a key
+        volatile long writeTime;
+        volatile long accessTime;
+        volatile int state;         // ALIVE, RETIRED or DEAD
+        int queue;                  // NONE, WINDOW, PROBATION or PROTECTED
+        Node<K,V> prev, next;       // in the queue's deque
+        Node<K,V> timerPrev, timerNext; // in a timer wheel bucket
+
+        Node(K key, Object value, long now) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = this.accessTime = now;
+        }
+
+        /** Creates a timer wheel bucket sentinel. */
+        Node() {
+            this.key = null;
+            this.timerPrev = this.timerNext = this;
+        }
+    }
+
+    /** A weakly held value, remembering its key. */
+    static final class WeakValue<V> extends WeakReference<V> {
+        final Object key;
+        WeakValue(Object key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+
+    /** A softly held value, remembering its key. */
+    static final class SoftValue<V> extends SoftReference<V> {
+        final Object key;
+        SoftValue(Object key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+
+    final ConcurrentHashMap<Object, Node<K,V>> map;
+    final long maximumSize;
+    final boolean tinyLfu;
+    final long expireAfterWriteNanos;
+    final long expireAfterAccessNanos;
+    final boolean expires;
+    final int valueStrength;
+    final ReferenceQueue<V> refQueue;
+    final LongSupplier ticker;
+    final long baseNanos;
+    final ReadBuffer[] readBuffers;
+
+    final ReentrantLock evictionLock = new ReentrantLock();
+
+    /** Set when a read finds an entry needing removal. */
+    volatile boolean drainRequired;
+
+    // Policy state, guarded by evictionLock
+    final NodeDeque<K,V> window = new NodeDeque<>();
+    final NodeDeque<K,V> probation = new NodeDeque<>();
+    final NodeDeque<K,V> protectedQueue = new NodeDeque<>();
+    long windowSize, protectedSize, linkedSize;
+    final long windowMaximum, protectedMaximum;
+    final FrequencySketch sketch;
+    final TimerWheel<K,V> timerWheel;
+
+    // Statistics
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder loadSuccesses = new LongAdder();
+    final LongAdder loadFailures = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder expirations = new LongAdder();
+    final LongAdder collections = new LongAdder();
+    final LongHistogram loadNanos = new LongHistogram();
+
+    ConcurrentCache(Builder<K,V> b) {
+        this.map = new ConcurrentHashMap<>(b.initialCapacity);
+        this.maximumSize = b.maximumSize;
+        this.expireAfterWriteNanos = b.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = b.expireAfterAccessNanos;
+        this.expires = expireAfterWriteNanos >= 0L || expireAfterAccessNanos >= 0L;
+        this.valueStrength = b.valueStrength;
+        this.refQueue = (valueStrength == STRONG) ? null : new ReferenceQueue<V>();
+        this.ticker = (b.ticker != null) ? b.ticker : System::nanoTime;
+        this.baseNanos = ticker.getAsLong();
+        this.tinyLfu = maximumSize > 0L &&
+            b.policy == EvictionPolicy.WINDOW_TINY_LFU;
+        if (tinyLfu) {
+            windowMaximum = Math.max(1L, maximumSize / 100L);
+            protectedMaximum = (maximumSize - windowMaximum) * 4L / 5L;
+            sketch = new FrequencySketch(maximumSize);
+        } else {
+            windowMaximum = Long.MAX_VALUE;
+            protectedMaximum = 0L;
+            sketch = null;
+        }
+        this.timerWheel = expires ? new TimerWheel<K,V>() : null;
+        ReadBuffer[] rbs = new ReadBuffer[READ_BUFFERS];
+        for (int i = 0; i < rbs.length; i++)
+            rbs[i] = new ReadBuffer();
+        this.readBuffers = rbs;
+    }
+
+    /** Returns the current time relative to baseNanos. */
+    final long now() {
+        return ticker.getAsLong() - baseNanos;
+    }
+
+    /** Returns the time at which the node expires. */
+    final long expiresAt(Node<K,V> node) {
+        long t = Long.MAX_VALUE;
+        if (expireAfterWriteNanos >= 0L)
+            t = node.writeTime + expireAfterWriteNanos;
+        if (expireAfterAccessNanos >= 0L)
+            t = Math.min(t, node.accessTime + expireAfterAccessNanos);
+        return t;
+    }
+
+    final boolean hasExpired(Node<K,V> node, long now) {
+        return expires && now - expiresAt(node) >= 0L;
+    }
+
+    final Object wrap(Object key, V value) {
+        switch (valueStrength) {
+        case WEAK: return new WeakValue<V>(key, value, refQueue);
+        case SOFT: return new SoftValue<V>(key, value, refQueue);
+        default:   return value;
+        }
+    }
+
+    /** Returns the node's value, or null if it has been collected. */
+    @SuppressWarnings("unchecked")
+    final V valueOf(Node<K,V> node) {
+        Object v = node.value;
+        return (valueStrength == STRONG) ? (V) v : ((Reference<V>) v).get();
+    }
+
+    /** Returns the node's value if it is live at the given time, else null. */
+    final V liveValue(Node<K,V> node, long now) {
+        if (node == null || node.state != ALIVE || hasExpired(node, now))
+            return null;
+        return valueOf(node);
+    }
+
+    // Public operations
+
+    /**
+     * Returns the value associated with the key in this cache, or
+     * {@code null} if there is none.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the cached value, or {@code null}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getIfPresent(Object key) {
+        Node<K,V> node = map.get(key);
+        long now = expires ? now() : 0L;
+        V value = liveValue(node, now);
+        if (value == null) {
+            misses.increment();
+            if (node != null) {
+                drainRequired = true;
+                tryMaintenance();
+            }
+            return null;
+        }
+        if (expireAfterAccessNanos >= 0L)
+            node.accessTime = now;
+        afterRead(node);
+        hits.increment();
+        return value;
+    }
+
+    /**
+     * Returns the value associated with the key in this cache, obtaining
+     * it from the mapping function if necessary.  The mapping function
+     * is invoked at most once at a time for a given key, while other
+     * threads attempting to load the same key wait; if it returns
+     * {@code null} or throws, no mapping is recorded, and the result or
+     * exception is returned or rethrown.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the key, or {@code null} if the computed value is null
+     * @throws NullPointerException if the specified key or
+     *         mappingFunction is null
+     * @throws IllegalStateException if the computation detectably
+     *         attempts a recursive update to this cache that would
+     *         otherwise never complete
+     * @throws RuntimeException or Error if the mappingFunction does so,
+     *         in which case the mapping is left unestablished
+     */
+    public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        Node<K,V> node = map.get(key);
+        long now = expires ? now() : 0L;
+        V value = liveValue(node, now);
+        if (value != null) {
+            if (expireAfterAccessNanos >= 0L)
+                node.accessTime = now;
+            afterRead(node);
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        @SuppressWarnings("unchecked")
+        Node<K,V>[] changed = (Node<K,V>[]) new Node<?,?>[2]; // {old, new}
+        @SuppressWarnings("unchecked")
+        V[] result = (V[]) new Object[1];
+        map.compute(key, (k, n) -> {
+            long t = expires ? now() : 0L;
+            V v = liveValue(n, t);
+            if (v != null) {                 // loaded by another thread
+                result[0] = v;
+                return n;
+            }
+            if (n != null) {
+                n.state = RETIRED;
+                changed[0] = n;
+            }
+            long start = ticker.getAsLong();
+            try {
+                v = mappingFunction.apply(key);
+            } catch (RuntimeException | Error ex) {
+                loadFailures.increment();
+                throw ex;
+            } finally {
+                loadNanos.record(Math.max(0L, ticker.getAsLong() - start));
+            }
+            if (v == null) {
+                loadFailures.increment();
+                return null;
+            }
+            loadSuccesses.increment();
+            result[0] = v;
+            return changed[1] = new Node<K,V>(key, wrap(key, v), t);
+        });
+        if (changed[0] != null || changed[1] != null)
+            afterWrite(changed[0], changed[1], null);
+        return result[0];
+    }
+
+    /**
+     * Associates the value with the key in this cache, replacing any
+     * existing value.
+     *
+     * @param key the key with which the value is to be associated
+     * @param value the value to be associated with the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public void put(K key, V value) {
+        Objects.requireNonNull(value);
+        @SuppressWarnings("unchecked")
+        Node<K,V>[] changed = (Node<K,V>[]) new Node<?,?>[3]; // {old, new, updated}
+        map.compute(key, (k, n) -> {
+            long t = expires ? now() : 0L;
+            if (n != null && n.state == ALIVE && !hasExpired(n, t) &&
+                (valueStrength == STRONG || valueOf(n) != null)) {
+                n.value = wrap(key, value);
+                n.writeTime = n.accessTime = t;
+                changed[2] = n;
+                return n;
+            }
+            if (n != null) {
+                n.state = RETIRED;
+                changed[0] = n;
+            }
+            return changed[1] = new Node<K,V>(key, wrap(key, value), t);
+        });
+        afterWrite(changed[0], changed[1], changed[2]);
+    }
+
+    /**
+     * Removes the entry for the key from this cache, if present.
+     *
+     * @param key the key whose entry is to be removed
+     * @return the value previously associated with the key, or
+     *         {@code null} if there was none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        Node<K,V> node = map.remove(key);
+        if (node == null)
+            return null;
+        V value = liveValue(node, expires ? now() : 0L);
+        node.state = RETIRED;
+        afterWrite(node, null, null);
+        return value;
+    }
+
+    /**
+     * Removes all of the entries from this cache.
+     */
+    public void clear() {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            for (Node<K,V> node : map.values()) {
+                if (map.remove(node.key, node)) {
+                    node.state = RETIRED;
+                    discard(node);
+                }
+            }
+            maintenance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the approximate number of entries in this cache.  The
+     * value may include entries that have expired or whose values have
+     * been collected, but that have not yet been removed.
+     *
+     * @return the estimated number of entries
+     */
+    public long estimatedSize() {
+        return map.mappingCount();
+    }
+
+    /**
+     * Performs any pending maintenance: applies buffered reads to the
+     * eviction policy, and removes expired entries, entries whose values
+     * have been collected, and entries exceeding the maximum size.
+     * Maintenance is otherwise performed as a side effect of other
+     * operations, so this method need only be invoked by applications
+     * that require prompt removal, for example of a rarely used cache.
+     */
+    public void cleanUp() {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            maintenance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a live view of the statistics of this cache, which may be
+     * registered with an MBean server.
+     *
+     * @return the statistics of this cache
+     */
+    public CacheMXBean mxBean() {
+        return new Stats();
+    }
+
+    /** The statistics view of the cache. */
+    final class Stats implements CacheMXBean {
+        public long getHitCount() { return hits.sum(); }
+        public long getMissCount() { return misses.sum(); }
+        public double getHitRate() {
+            long h = hits.sum(), n = h + misses.sum();
+            return (n == 0L) ? 1.0 : (double)h / n;
+        }
+        public long getLoadSuccessCount() { return loadSuccesses.sum(); }
+        public long getLoadFailureCount() { return loadFailures.sum(); }
+        public double getMeanLoadNanos() {
+            return loadNanos.snapshot().getMean();
+        }
+        public long getLoadNanos99thPercentile() {
+            return loadNanos.snapshot().getValueAtPercentile(99.0);
+        }
+        public long getEvictionCount() { return evictions.sum(); }
+        public long getExpirationCount() { return expirations.sum(); }
+        public long getCollectedCount() { return collections.sum(); }
+        public long getEstimatedSize() { return estimatedSize(); }
+        public long getMaximumSize() { return maximumSize; }
+        public String toString() {
+            return "CacheStats[hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", loadSuccesses=" + getLoadSuccessCount() +
+                ", loadFailures=" + getLoadFailureCount() +
+                ", evictions=" + getEvictionCount() +
+                ", expirations=" + getExpirationCount() +
+                ", collected=" + getCollectedCount() + "]";
+        }
+    }
+
+    // Read and write bookkeeping
+
+    /** Records a read of the node, performing maintenance if needed. */
+    final void afterRead(Node<K,V> node) {
+        int probe;
+        if ((probe = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();
+            probe = ThreadLocalRandom.getProbe();
+        }
+        int r = readBuffers[probe & (READ_BUFFERS - 1)].offer(node);
+        if (r == ReadBuffer.FAILED)
+            ThreadLocalRandom.advanceProbe(probe);
+        else if (r == ReadBuffer.FULL || drainRequired)
+            tryMaintenance();
+    }
+
+    /**
+     * Applies a write to the policy: unlinks the retired node, links
+     * the added node, or records an update of the updated node; then
+     * performs maintenance.  Buffered reads happened before the write,
+     * so they are replayed first; otherwise they would move older
+     * entries past the node just added.
+     */
+    final void afterWrite(Node<K,V> retired, Node<K,V> added,
+                          Node<K,V> updated) {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            drainReadBuffers();
+            if (retired != null)
+                discard(retired);
+            if (added != null && added.state == ALIVE)
+                link(added);
+            if (updated != null && updated.queue != NONE) {
+                onAccess(updated);
+                if (expires)
+                    timerWheel.reschedule(updated, expiresAt(updated));
+            }
+            maintainPolicy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    final void tryMaintenance() {
+        final ReentrantLock lock = evictionLock;
+        if (lock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Policy, all called only while holding evictionLock
+
+    final void maintenance() {
+        drainReadBuffers();
+        maintainPolicy();
+    }
+
+    final void drainReadBuffers() {
+        drainRequired = false;
+        for (ReadBuffer rb : readBuffers)
+            rb.drain(this);
+    }
+
+    /** Performs the maintenance other than replaying buffered reads. */
+    final void maintainPolicy() {
+        if (refQueue != null)
+            drainValueReferences();
+        if (expires)
+            timerWheel.advance(this, now());
+        if (maximumSize >= 0L)
+            evict();
+    }
+
+    /** Adds a new node to the policy. */
+    final void link(Node<K,V> node) {
+        node.queue = WINDOW;
+        window.addLast(node);
+        windowSize++;
+        linkedSize++;
+        if (sketch != null)
+            sketch.increment(node.key.hashCode());
+        if (expires)
+            timerWheel.schedule(node, expiresAt(node));
+    }
+
+    /** Removes a retired node from the policy, if linked. */
+    final void discard(Node<K,V> node) {
+        switch (node.queue) {
+        case WINDOW:    window.remove(node);         windowSize--;    break;
+        case PROBATION: probation.remove(node);                       break;
+        case PROTECTED: protectedQueue.remove(node); protectedSize--; break;
+        default:        break;
+        }
+        if (node.queue != NONE) {
+            node.queue = NONE;
+            linkedSize--;
+        }
+        if (node.timerNext != null)
+            TimerWheel.unlink(node);
+        node.state = DEAD;
+    }
+
+    /** Applies a buffered read to the policy. */
+    final void onAccess(Node<K,V> node) {
+        int q = node.queue;
+        if (q == NONE)                  // not yet linked, or discarded
+            return;
+        if (sketch != null)
+            sketch.increment(node.key.hashCode());
+        if (q == WINDOW)
+            window.moveToLast(node);
+        else if (q == PROTECTED)
+            protectedQueue.moveToLast(node);
+        else {                          // promote from probation
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedQueue.addLast(node);
+            protectedSize++;
+            while (protectedSize > protectedMaximum) {
+                Node<K,V> demoted = protectedQueue.pollFirst();
+                protectedSize--;
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+        }
+        if (expireAfterAccessNanos >= 0L)
+            timerWheel.reschedule(node, expiresAt(node));
+    }
+
+    /** Evicts nodes until the cache is within its maximum size. */
+    final void evict() {
+        if (!tinyLfu) {
+            while (linkedSize > maximumSize)
+                evictNode(window.peekFirst());
+            return;
+        }
+        int candidates = 0;
+        while (windowSize > windowMaximum) {
+            Node<K,V> node = window.pollFirst();
+            windowSize--;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            candidates++;
+        }
+        while (linkedSize > maximumSize) {
+            Node<K,V> victim = probation.peekFirst();
+            if (victim == null) {       // tiny caches: main region is protected
+                victim = protectedQueue.peekFirst();
+                if (victim == null)
+                    victim = window.peekFirst();
+                evictNode(victim);
+                continue;
+            }
+            Node<K,V> candidate = probation.peekLast();
+            if (candidates == 0 || candidate == victim) {
+                evictNode(victim);
+                continue;
+            }
+            candidates--;
+            evictNode(admit(candidate.key.hashCode(), victim.key.hashCode())
+                      ? victim : candidate);
+        }
+    }
+
+    /** The frequency at which a candidate may be admitted at random. */
+    static final int ADMIT_HASHDOS_THRESHOLD = 6;
+
+    /** Returns true if the candidate should replace the victim. */
+    final boolean admit(int candidateHash, int victimHash) {
+        int candidateFreq = sketch.frequency(candidateHash);
+        int victimFreq = sketch.frequency(victimHash);
+        if (candidateFreq > victimFreq)
+            return true;
+        if (candidateFreq < ADMIT_HASHDOS_THRESHOLD)
+            return false;
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    /** Removes a node chosen for size eviction. */
+    final void evictNode(Node<K,V> node) {
+        if (map.remove(node.key, node))
+            evictions.increment();
+        node.state = RETIRED;
+        discard(node);
+    }
+
+    /**
+     * Removes a node from the timer wheel whose expiration time has
+     * passed, returning false if it has not in fact expired.
+     */
+    final boolean expireNode(Node<K,V> node, long now) {
+        if (node.state == ALIVE && !hasExpired(node, now))
+            return false;
+        if (map.remove(node.key, node))
+            expirations.increment();
+        node.state = RETIRED;
+        discard(node);
+        return true;
+    }
+
+    final void drainValueReferences() {
+        Reference<? extends V> ref;
+        while ((ref = refQueue.poll()) != null) {
+            Object key = (ref instanceof WeakValue) ?
+                ((WeakValue<?>) ref).key : ((SoftValue<?>) ref).key;
+            Node<K,V> node = map.get(key);
+            if (node != null && node.value == ref &&
+                map.remove(key, node)) {
+                collections.increment();
+                node.state = RETIRED;
+                discard(node);
+            }
+        }
+    }
+
+    /**
+     * A doubly-linked deque of nodes through their prev and next
+     * fields.
+     */
+    static final class NodeDeque<K,V> {
+        Node<K,V> first, last;
+
+        Node<K,V> peekFirst() { return first; }
+        Node<K,V> peekLast() { return last; }
+
+        void addLast(Node<K,V> node) {
+            Node<K,V> l = last;
+            node.prev = l;
+            node.next = null;
+            last = node;
+            if (l == null)
+                first = node;
+            else
+                l.next = node;
+        }
+
+        void remove(Node<K,V> node) {
+            Node<K,V> p = node.prev, n = node.next;
+            if (p == null)
+                first = n;
+            else
+                p.next = n;
+            if (n == null)
+                last = p;
+            else
+                n.prev = p;
+            node.prev = node.next = null;
+        }
+
+        Node<K,V> pollFirst() {
+            Node<K,V> f = first;
+            if (f != null)
+                remove(f);
+            return f;
+        }
+
+        void moveToLast(Node<K,V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * A striped lossy ring buffer of reads.  Readers claim a slot with
+     * one CAS on writeCounter, and give up if the CAS fails or the
+     * buffer is full; the maintenance thread consumes slots in order.
+     */
+    static final class ReadBuffer {
+        static final int SIZE = 16;
+        static final int SUCCESS = 0, FAILED = 1, FULL = 2;
+
+        final Object[] slots = new Object[SIZE];
+        volatile long readCounter;
+        volatile long writeCounter;
+
+        int offer(Object node) {
+            long tail = writeCounter;
+            if (tail - readCounter >= SIZE)
+                return FULL;
+            if (!WRITE_COUNTER.compareAndSet(this, tail, tail + 1L))
+                return FAILED;
+            SLOTS.setRelease(slots, (int)tail & (SIZE - 1), node);
+            return SUCCESS;
+        }
+
+        @SuppressWarnings("unchecked")
+        <K,V> void drain(ConcurrentCache<K,V> cache) {
+            long head = readCounter, tail = writeCounter;
+            for (; head != tail; head++) {
+                int i = (int)head & (SIZE - 1);
+                Object node = SLOTS.getAcquire(slots, i);
+                if (node == null)       // not yet published
+                    break;
+                slots[i] = null;
+                cache.onAccess((Node<K,V>) node);
+            }
+            readCounter = head;
+        }
+
+        private static final VarHandle WRITE_COUNTER;
+        private static final VarHandle SLOTS =
+            MethodHandles.arrayElementVarHandle(Object[].class);
+        static {
+            try {
+                WRITE_COUNTER = MethodHandles.lookup().findVarHandle(
+                    ReadBuffer.class, "writeCounter", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * A 4-bit count-min sketch estimating the frequency of keys, by
+     * their hash codes, with periodic aging.  Each long in the table
+     * holds sixteen counters; a key uses one counter in each of four
+     * table entries chosen by independent hashes.
+     */
+    static final class FrequencySketch {
+        static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final long ONE_MASK = 0x1111111111111111L;
+
+        final long[] table;
+        final int tableMask;
+        final int sampleSize;
+        int size;
+
+        FrequencySketch(long maximumSize) {
+            int n = (int)Math.min(maximumSize, 1 << 26);
+            int length = Math.max(8, Integer.highestOneBit(n - 1) << 1);
+            table = new long[length];
+            tableMask = length - 1;
+            sampleSize = (int)Math.min(10L * maximumSize, Integer.MAX_VALUE);
+        }
+
+        static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+
+        int indexOf(int item, int i) {
+            long hash = (item + SEED[i]) * SEED[i];
+            hash += hash >>> 32;
+            return (int)hash & tableMask;
+        }
+
+        int frequency(int hashCode) {
+            int hash = spread(hashCode), start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                long word = table[indexOf(hash, i)];
+                int count = (int)((word >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int hashCode) {
+            int hash = spread(hashCode), start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i), offset = (start + i) << 2;
+                long mask = 0xfL << offset;
+                if ((table[index] & mask) != mask) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++size >= sampleSize)
+                reset();
+        }
+
+        /** Halves every counter, and the size. */
+        void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (odd >>> 2);
+        }
+    }
+
+    /**
+     * A hierarchical timer wheel of nodes, keyed by expiration time
+     * relative to the cache's baseNanos.
+     */
+    static final class TimerWheel<K,V> {
+        static final int[] BUCKETS = { 64, 64, 32, 4, 1 };
+        static final int[] SHIFT = { 30, 36, 42, 46, 52 };
+
+        final Node<K,V>[][] wheel;
+        long nanos;     // the time the wheel was last advanced to
+
+        @SuppressWarnings("unchecked")
+        TimerWheel() {
+            wheel = (Node<K,V>[][]) new Node<?,?>[BUCKETS.length][];
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = (Node<K,V>[]) new Node<?,?>[BUCKETS[i]];
+                for (int j = 0; j < BUCKETS[i]; j++)
+                    wheel[i][j] = new Node<K,V>();
+            }
+        }
+
+        /** Returns the sentinel of the bucket for the given time. */
+        Node<K,V> bucketFor(long time) {
+            long delay = time - nanos;
+            int last = wheel.length - 1;
+            for (int i = 0; i < last; i++) {
+                if (delay < (1L << SHIFT[i + 1])) {
+                    long ticks = time >>> SHIFT[i];
+                    return wheel[i][(int)ticks & (BUCKETS[i] - 1)];
+                }
+            }
+            return wheel[last][0];
+        }
+
+        void schedule(Node<K,V> node, long time) {
+            // Overdue nodes go in the current bucket, not one already passed
+            Node<K,V> sentinel = bucketFor(Math.max(time, nanos));
+            Node<K,V> tail = sentinel.timerPrev;
+            node.timerPrev = tail;
+            node.timerNext = sentinel;
+            tail.timerNext = node;
+            sentinel.timerPrev = node;
+        }
+
+        void reschedule(Node<K,V> node, long time) {
+            if (node.timerNext != null) {
+                unlink(node);
+                schedule(node, time);
+            }
+        }
+
+        static <K,V> void unlink(Node<K,V> node) {
+            Node<K,V> p = node.timerPrev, n = node.timerNext;
+            p.timerNext = n;
+            n.timerPrev = p;
+            node.timerPrev = node.timerNext = null;
+        }
+
+        /**
+         * Advances the wheel to the given time, expiring or cascading
+         * the nodes of each bucket whose time has passed.
+         */
+        void advance(ConcurrentCache<K,V> cache, long now) {
+            long previous = nanos;
+            if (now - previous <= 0L)
+                return;
+            nanos = now;
+            for (int i = 0; i < SHIFT.length; i++) {
+                long previousTicks = previous >>> SHIFT[i];
+                long currentTicks = now >>> SHIFT[i];
+                if (currentTicks == previousTicks)
+                    break;
+                expire(cache, i, previousTicks, currentTicks);
+            }
+        }
+
+        void expire(ConcurrentCache<K,V> cache, int level,
+                    long previousTicks, long currentTicks) {
+            Node<K,V>[] buckets = wheel[level];
+            int mask = buckets.length - 1;
+            int steps = (int)Math.min(currentTicks - previousTicks + 1L,
+                                      buckets.length);
+            int start = (int)previousTicks & mask;
+            for (int i = start; i < start + steps; i++) {
+                Node<K,V> sentinel = buckets[i & mask];
+                Node<K,V> node = sentinel.timerNext;
+                sentinel.timerPrev = sentinel.timerNext = sentinel;
+                while (node != sentinel) {
+                    Node<K,V> next = node.timerNext;
+                    node.timerPrev = node.timerNext = null;
+                    if (!cache.expireNode(node, nanos))
+                        schedule(node, cache.expiresAt(node));
+                    node = next;
+                }
+            }
+        }
+    }
+}
@@ -555,21 +555,43 @@ public class ConcurrentLinkedQueue<E> extends AbstractQueue<E>
      * @throws IllegalArgumentException if the collection is this queue
      */
     public boolean addAll(Collection<? extends E> c) {
+        return offerAll(c) > 0;
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of
+     * this queue, in the order that they are returned by the specified
+     * collection's iterator.  The elements are first linked into a
+     * private chain of nodes, which is then appended with a single
+     * CAS, so that they become visible to consumers atomically and
+     * contiguously, and at a cost close to that of a single
+     * {@link #offer}.
+     *
+     * @param c the elements to be inserted into this queue
+     * @return the number of elements inserted
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     * @throws IllegalArgumentException if the collection is this queue
+     * @since 9
+     */
+    public int offerAll(Collection<? extends E> c) {
         if (c == this)
             // As historically specified in AbstractQueue#addAll
             throw new IllegalArgumentException();
 
         // Copy c into a private chain of Nodes
         Node<E> beginningOfTheEnd = null, last = null;
+        int n = 0;
         for (E e : c) {
             Node<E> newNode = new Node<E>(Objects.requireNonNull(e));
             if (beginningOfTheEnd == null)
                 beginningOfTheEnd = last = newNode;
             else
                 last.appendRelaxed(last = newNode);
+            ++n;
         }
         if (beginningOfTheEnd == null)
-            return false;
+            return 0;
 
         // Atomically append the chain at the tail of this collection
         for (Node<E> t = tail, p = t;;) {
@@ -586,7 +608,7 @@ public class ConcurrentLinkedQueue<E> extends AbstractQueue<E>
                         if (last.next == null)
                             TAIL.weakCompareAndSet(this, t, last);
                     }
-                    return true;
+                    return n;
                 }
                 // Lost CAS race to another thread; re-read next
             }
@@ -602,6 +624,63 @@ public class ConcurrentLinkedQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Removes at most the given number of elements from the head of
+     * this queue, in order, and passes each to the given action.
+     *
+     * <p>Each element is claimed individually, so concurrent pollers
+     * never observe an element twice, but the head pointer is
+     * advanced past the whole run of claimed nodes with a single CAS
+     * at the end of the batch, rather than once per element as with
+     * repeated calls to {@link #poll}.
+     *
+     * <p>If the action throws an exception, the element being
+     * processed has already been removed and is lost; elements not
+     * yet removed remain in the queue, and the exception is relayed
+     * to the caller.
+     *
+     * @param action the action to perform on each removed element
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws NullPointerException if the action is null
+     * @since 9
+     */
+    public int drainTo(Consumer<? super E> action, int maxElements) {
+        Objects.requireNonNull(action);
+        int n = 0;
+        if (maxElements <= 0)
+            return n;
+        restartFromHead: for (;;) {
+            Node<E> h = head, last = null;
+            try {
+                for (Node<E> p = h, q;; p = q) {
+                    final E item;
+                    if ((item = p.item) != null && p.casItem(item, null)) {
+                        // Successful CAS is the linearization point
+                        // for item to be removed from this queue.
+                        last = p;
+                        ++n;
+                        action.accept(item);
+                        if (n >= maxElements)
+                            return n;
+                    }
+                    if ((q = p.next) == null) {
+                        last = p;
+                        return n;
+                    }
+                    else if (p == q)
+                        continue restartFromHead;
+                }
+            } finally {
+                // Every node from h through last is now dead
+                if (last != null) {
+                    Node<E> q = last.next;
+                    updateHead(h, (q != null && q != last) ? q : last);
+                }
+            }
+        }
+    }
+
     public String toString() {
         String[] a = null;
         restartFromHead: for (;;) {
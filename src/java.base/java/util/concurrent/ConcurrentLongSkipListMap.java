@@ -0,0 +1,1504 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written with assistance from members of JCP JSR-166 Expert Group
+ * and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.LongObjectMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A scalable concurrent sorted map from primitive {@code long} keys to
+ * values.  This class uses the same lock-free skip list algorithms as
+ * {@link ConcurrentSkipListMap}, ordered by {@link Long#compare}, but
+ * holds keys unboxed and compares them directly, so that neither
+ * lookups nor updates allocate {@code Long} objects.  It is intended
+ * for indexes such as time series keyed by timestamp, and supports
+ * the bulk operations {@link #removeRange} and {@link #putAllSorted}.
+ *
+ * <p>This class provides expected average <i>log(n)</i> time cost for
+ * the {@code containsKey}, {@code get}, {@code put} and {@code remove}
+ * operations and their variants.  Insertion, removal, update, and
+ * access operations safely execute concurrently by multiple threads.
+ * Iterators, spliterators and streams are
+ * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+ *
+ * <p>All {@link Entry} objects returned by methods in this class
+ * represent snapshots of mappings at the time they were produced.  As
+ * with {@code ConcurrentSkipListMap}, the {@code size} method is
+ * <em>not</em> a constant-time operation, the bulk operations are
+ * <em>not</em> guaranteed to be performed atomically, and this class
+ * does not permit {@code null} values.
+ *
+ * @since 9
+ * @param <V> the type of mapped values
+ */
+public class ConcurrentLongSkipListMap<V> {
+    /*
+     * This is a specialization of ConcurrentSkipListMap; see that
+     * class for an explanation of the algorithms and of the local
+     * variable naming conventions.  Marker nodes are identified, as
+     * there, by a value field pointing to themselves; their (and the
+     * base header's) key field is unused.
+     */
+
+    /**
+     * A snapshot of a mapping of a {@code long} key to a value.
+     *
+     * @param <V> the type of the value
+     */
+    public static final class Entry<V> {
+        private final long key;
+        private final V value;
+
+        Entry(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Returns the key of this mapping.
+         *
+         * @return the key
+         */
+        public long getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value of this mapping.
+         *
+         * @return the value
+         */
+        public V getValue() {
+            return value;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry))
+                return false;
+            Entry<?> e = (Entry<?>)o;
+            return key == e.key && value.equals(e.value);
+        }
+
+        public int hashCode() {
+            return Long.hashCode(key) ^ value.hashCode();
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * Special value used to identify base-level header.
+     */
+    static final Object BASE_HEADER = new Object();
+
+    /**
+     * The maximum level of an index tower.
+     */
+    private static final int MAX_LEVEL = 32;
+
+    /**
+     * The topmost head index of the skiplist.
+     */
+    private volatile HeadIndex<V> head;
+
+    /**
+     * Constructs a new, empty map.
+     */
+    public ConcurrentLongSkipListMap() {
+        head = new HeadIndex<V>(new Node<V>(0L, BASE_HEADER, null),
+                                null, null, 1);
+    }
+
+    /**
+     * compareAndSet head node.
+     */
+    private boolean casHead(HeadIndex<V> cmp, HeadIndex<V> val) {
+        return HEAD.compareAndSet(this, cmp, val);
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * Nodes hold keys and values, and are singly linked in sorted
+     * order, possibly with some intervening marker nodes.
+     */
+    static final class Node<V> {
+        final long key;
+        volatile Object value;
+        volatile Node<V> next;
+
+        /**
+         * Creates a new regular node.
+         */
+        Node(long key, Object value, Node<V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        /**
+         * Creates a new marker node.
+         */
+        Node(Node<V> next) {
+            this.key = 0L;
+            this.value = this;
+            this.next = next;
+        }
+
+        boolean casValue(Object cmp, Object val) {
+            return VALUE.compareAndSet(this, cmp, val);
+        }
+
+        boolean casNext(Node<V> cmp, Node<V> val) {
+            return NEXT.compareAndSet(this, cmp, val);
+        }
+
+        boolean isBaseHeader() {
+            return value == BASE_HEADER;
+        }
+
+        /**
+         * Tries to append a deletion marker to this node.
+         */
+        boolean appendMarker(Node<V> f) {
+            return casNext(f, new Node<V>(f));
+        }
+
+        /**
+         * Helps out a deletion by appending marker or unlinking from
+         * predecessor.
+         */
+        void helpDelete(Node<V> b, Node<V> f) {
+            if (f == next && this == b.next) {
+                if (f == null || f.value != f) // not already marked
+                    casNext(f, new Node<V>(f));
+                else
+                    b.casNext(this, f.next);
+            }
+        }
+
+        /**
+         * Returns value if this node contains a valid key-value pair,
+         * else null.
+         */
+        V getValidValue() {
+            Object v = value;
+            if (v == this || v == BASE_HEADER)
+                return null;
+            @SuppressWarnings("unchecked") V vv = (V)v;
+            return vv;
+        }
+
+        /**
+         * Returns a snapshot of the mapping if this node holds a
+         * valid value, else null.
+         */
+        Entry<V> createSnapshot() {
+            Object v = value;
+            if (v == null || v == this || v == BASE_HEADER)
+                return null;
+            @SuppressWarnings("unchecked") V vv = (V)v;
+            return new Entry<V>(key, vv);
+        }
+
+        // VarHandle mechanics
+        private static final VarHandle VALUE;
+        private static final VarHandle NEXT;
+        static {
+            try {
+                MethodHandles.Lookup l = MethodHandles.lookup();
+                VALUE = l.findVarHandle(Node.class, "value", Object.class);
+                NEXT = l.findVarHandle(Node.class, "next", Node.class);
+            } catch (ReflectiveOperationException e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /* ---------------- Indexing -------------- */
+
+    /**
+     * Index nodes represent the levels of the skip list.
+     */
+    static class Index<V> {
+        final Node<V> node;
+        final Index<V> down;
+        volatile Index<V> right;
+
+        Index(Node<V> node, Index<V> down, Index<V> right) {
+            this.node = node;
+            this.down = down;
+            this.right = right;
+        }
+
+        final boolean casRight(Index<V> cmp, Index<V> val) {
+            return RIGHT.compareAndSet(this, cmp, val);
+        }
+
+        final boolean indexesDeletedNode() {
+            return node.value == null;
+        }
+
+        /**
+         * Tries to CAS newSucc as successor, unless the indexed node
+         * is known to be deleted.
+         */
+        final boolean link(Index<V> succ, Index<V> newSucc) {
+            Node<V> n = node;
+            newSucc.right = succ;
+            return n.value != null && casRight(succ, newSucc);
+        }
+
+        /**
+         * Tries to CAS right field to skip over apparent successor
+         * succ, unless the indexed node is known to be deleted.
+         */
+        final boolean unlink(Index<V> succ) {
+            return node.value != null && casRight(succ, succ.right);
+        }
+
+        // VarHandle mechanics
+        private static final VarHandle RIGHT;
+        static {
+            try {
+                MethodHandles.Lookup l = MethodHandles.lookup();
+                RIGHT = l.findVarHandle(Index.class, "right", Index.class);
+            } catch (ReflectiveOperationException e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * Nodes heading each level keep track of their level.
+     */
+    static final class HeadIndex<V> extends Index<V> {
+        final int level;
+        HeadIndex(Node<V> node, Index<V> down, Index<V> right, int level) {
+            super(node, down, right);
+            this.level = level;
+        }
+    }
+
+    /* ---------------- Traversal -------------- */
+
+    /**
+     * Returns a base-level node with key strictly less than given key,
+     * or the base-level header if there is no such node, unlinking
+     * indexes to deleted nodes found along the way.
+     */
+    private Node<V> findPredecessor(long key) {
+        for (;;) {
+            for (Index<V> q = head, r = q.right, d;;) {
+                if (r != null) {
+                    Node<V> n = r.node;
+                    long k = n.key;
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            break;           // restart
+                        r = q.right;         // reread r
+                        continue;
+                    }
+                    if (key > k) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if ((d = q.down) == null)
+                    return q.node;
+                q = d;
+                r = d.right;
+            }
+        }
+    }
+
+    /**
+     * Returns node holding key or null if no such, clearing out any
+     * deleted nodes seen along the way.
+     */
+    private Node<V> findNode(long key) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                // inconsistent read
+                    break;
+                if ((v = n.value) == null) {    // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)  // b is deleted
+                    break;
+                long k = n.key;
+                if (key == k)
+                    return n;
+                if (key < k)
+                    break outer;
+                b = n;
+                n = f;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets value for key, or null if absent.
+     */
+    private V doGet(long key) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                // inconsistent read
+                    break;
+                if ((v = n.value) == null) {    // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)  // b is deleted
+                    break;
+                long k = n.key;
+                if (key == k) {
+                    @SuppressWarnings("unchecked") V vv = (V)v;
+                    return vv;
+                }
+                if (key < k)
+                    break outer;
+                b = n;
+                n = f;
+            }
+        }
+        return null;
+    }
+
+    /* ---------------- Insertion -------------- */
+
+    /**
+     * Main insertion method.  Adds element if not present, or
+     * replaces value if present and onlyIfAbsent is false.
+     *
+     * @param onlyIfAbsent if should not insert if already present
+     * @return the old value, or null if newly inserted
+     */
+    private V doPut(long key, V value, boolean onlyIfAbsent) {
+        Node<V> z;             // added node
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                if (n != null) {
+                    Object v;
+                    Node<V> f = n.next;
+                    if (n != b.next)               // inconsistent read
+                        break;
+                    if ((v = n.value) == null) {   // n is deleted
+                        n.helpDelete(b, f);
+                        break;
+                    }
+                    if (b.value == null || v == n) // b is deleted
+                        break;
+                    long k = n.key;
+                    if (key > k) {
+                        b = n;
+                        n = f;
+                        continue;
+                    }
+                    if (key == k) {
+                        if (onlyIfAbsent || n.casValue(v, value)) {
+                            @SuppressWarnings("unchecked") V vv = (V)v;
+                            return vv;
+                        }
+                        break; // restart if lost race to replace value
+                    }
+                    // else key < k; fall through
+                }
+                z = new Node<V>(key, value, n);
+                if (!b.casNext(n, z))
+                    break;         // restart if lost race to append to b
+                break outer;
+            }
+        }
+        addIndices(z, null);
+        return null;
+    }
+
+    /**
+     * Adds index nodes for a newly inserted node, with a random level
+     * chosen as in ConcurrentSkipListMap.doPut, growing the head by at
+     * most one level.  Each level's insertion point is searched from
+     * the corresponding element of fingers, if non-null and still
+     * usable, else from the head.  Levels are linked top-down.
+     *
+     * @param z the new node
+     * @param fingers the last index node added at each level by a
+     *        bulk insertion, or null
+     */
+    private void addIndices(Node<V> z, Index<V>[] fingers) {
+        int rnd = ThreadLocalRandom.nextSecondarySeed();
+        if ((rnd & 0x80000001) != 0) // test highest and lowest bits
+            return;
+        int level = 1;
+        while (((rnd >>>= 1) & 1) != 0)
+            ++level;
+        for (HeadIndex<V> h;;) {                    // maybe add a level
+            h = head;
+            if (level <= h.level)
+                break;
+            level = h.level + 1;
+            if (casHead(h, new HeadIndex<V>(h.node, h, null, level)))
+                break;
+        }
+        @SuppressWarnings("unchecked")
+        Index<V>[] idxs = (Index<V>[])new Index<?>[level + 1];
+        Index<V> idx = null;
+        for (int j = 1; j <= level; ++j)
+            idxs[j] = idx = new Index<V>(z, idx, null);
+        long key = z.key;
+        for (int j = level; j >= 1; --j) {
+            Index<V> t = idxs[j], q;
+            if (fingers == null || (q = fingers[j]) == null ||
+                q.indexesDeletedNode() || key <= q.node.key)
+                q = findIndexPredecessor(key, j);
+            for (Index<V> r = (q == null) ? null : q.right; q != null;) {
+                if (r != null) {
+                    Node<V> n = r.node;
+                    long k = n.key;
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            r = (q = findIndexPredecessor(key, j)) == null
+                                ? null : q.right;
+                        else
+                            r = q.right;
+                        continue;
+                    }
+                    if (key > k) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if (q.link(r, t)) {
+                    if (fingers != null)
+                        fingers[j] = t;
+                    break;
+                }
+                r = (q = findIndexPredecessor(key, j)) == null
+                    ? null : q.right;
+            }
+            if (z.value == null) {                  // deleted meanwhile
+                findNode(key);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the index node at the given level with key strictly
+     * less than the given key (or that level's head), or null if the
+     * list no longer has that many levels.
+     */
+    private Index<V> findIndexPredecessor(long key, int level) {
+        outer: for (;;) {
+            HeadIndex<V> h = head;
+            int j = h.level;
+            if (j < level)
+                return null;
+            for (Index<V> q = h, r = q.right;;) {
+                if (r != null) {
+                    Node<V> n = r.node;
+                    long k = n.key;
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            continue outer;
+                        r = q.right;
+                        continue;
+                    }
+                    if (key > k) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if (j == level)
+                    return q;
+                q = q.down;
+                r = q.right;
+                --j;
+            }
+        }
+    }
+
+    /* ---------------- Deletion -------------- */
+
+    /**
+     * Main deletion method. Locates node, nulls value, appends a
+     * deletion marker, unlinks predecessor, removes associated index
+     * nodes, and possibly reduces head index level.
+     *
+     * @param value if non-null, the value that must be
+     * associated with key
+     * @return the old value, or null if not found
+     */
+    private V doRemove(long key, Object value) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                    // inconsistent read
+                    break;
+                if ((v = n.value) == null) {        // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    break;
+                long k = n.key;
+                if (key < k)
+                    break outer;
+                if (key > k) {
+                    b = n;
+                    n = f;
+                    continue;
+                }
+                if (value != null && !value.equals(v))
+                    break outer;
+                if (!n.casValue(v, null))
+                    break;
+                if (!n.appendMarker(f) || !b.casNext(n, f))
+                    findNode(key);                  // retry via findNode
+                else {
+                    findPredecessor(key);           // clean index
+                    if (head.right == null)
+                        tryReduceLevel();
+                }
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Possibly reduce head level if it has no nodes, as in
+     * ConcurrentSkipListMap.
+     */
+    private void tryReduceLevel() {
+        HeadIndex<V> h = head;
+        HeadIndex<V> d;
+        HeadIndex<V> e;
+        if (h.level > 3 &&
+            (d = (HeadIndex<V>)h.down) != null &&
+            (e = (HeadIndex<V>)d.down) != null &&
+            e.right == null &&
+            d.right == null &&
+            h.right == null &&
+            casHead(h, d) && // try to set
+            h.right != null) // recheck
+            casHead(d, h);   // try to backout
+    }
+
+    /**
+     * Range deletion, as in ConcurrentSkipListMap.doRemoveRange:
+     * marks every node in [lo, hi] in one traversal, unlinks the run
+     * with one CAS, and then skips each level's run of index nodes
+     * with one CAS per level.
+     *
+     * @return the number of mappings removed
+     */
+    private int doRemoveRange(long lo, long hi) {
+        int removed = 0;
+        outer: for (;;) {
+            Node<V> b = findPredecessor(lo), n = b.next;
+            for (;;) {                              // find first in range
+                Object v;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                    // inconsistent read
+                    continue outer;
+                if ((v = n.value) == null) {        // n is deleted
+                    n.helpDelete(b, f);
+                    continue outer;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    continue outer;
+                if (lo <= n.key)
+                    break;
+                b = n;
+                n = f;
+            }
+            Node<V> p = n;
+            while (p != null) {                     // delete and mark run
+                Object v = p.value;
+                if (v == p) {                       // p is a marker
+                    p = p.next;
+                    continue;
+                }
+                if (p.key > hi)
+                    break;
+                if (v != null) {
+                    if (!p.casValue(v, null))
+                        continue;                   // retry p
+                    ++removed;
+                }
+                Node<V> f = p.next;
+                if (f != null && f.value == f)      // already marked
+                    p = f.next;
+                else if (p.appendMarker(f))
+                    p = f;
+            }
+            if (p != n && !b.casNext(n, p))         // unlink whole run
+                findNode(lo);
+            clearIndexRun(lo);
+            if (head.right == null)
+                tryReduceLevel();
+            break;
+        }
+        return removed;
+    }
+
+    /**
+     * Variant of findPredecessor that skips each level's run of
+     * index nodes to deleted nodes with a single CAS.
+     */
+    private void clearIndexRun(long key) {
+        outer: for (;;) {
+            for (Index<V> q = head, r = q.right, d;;) {
+                if (r != null) {
+                    Node<V> n = r.node;
+                    if (n.value == null) {
+                        Index<V> s = r.right;
+                        while (s != null && s.indexesDeletedNode())
+                            s = s.right;
+                        if (q.indexesDeletedNode() || !q.casRight(r, s))
+                            continue outer;     // restart
+                        r = s;
+                        continue;
+                    }
+                    if (key > n.key) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if ((d = q.down) == null)
+                    return;
+                q = d;
+                r = d.right;
+            }
+        }
+    }
+
+    /* ---------------- Finding first and last elements -------------- */
+
+    /**
+     * Returns first valid node, or null if empty.
+     */
+    final Node<V> findFirst() {
+        for (Node<V> b, n;;) {
+            if ((n = (b = head.node).next) == null)
+                return null;
+            if (n.value != null)
+                return n;
+            n.helpDelete(b, n.next);
+        }
+    }
+
+    /**
+     * Returns last valid node, or null if empty.
+     */
+    final Node<V> findLast() {
+        Index<V> q = head;
+        for (;;) {
+            Index<V> d, r;
+            if ((r = q.right) != null) {
+                if (r.indexesDeletedNode()) {
+                    q.unlink(r);
+                    q = head; // restart
+                }
+                else
+                    q = r;
+            } else if ((d = q.down) != null) {
+                q = d;
+            } else {
+                for (Node<V> b = q.node, n = b.next;;) {
+                    if (n == null)
+                        return b.isBaseHeader() ? null : b;
+                    Node<V> f = n.next;            // inconsistent read
+                    if (n != b.next)
+                        break;
+                    Object v = n.value;
+                    if (v == null) {                 // n is deleted
+                        n.helpDelete(b, f);
+                        break;
+                    }
+                    if (b.value == null || v == n)      // b is deleted
+                        break;
+                    b = n;
+                    n = f;
+                }
+                q = head; // restart
+            }
+        }
+    }
+
+    /**
+     * Removes first entry; returns its snapshot, or null if empty.
+     */
+    private Entry<V> doRemoveFirstEntry() {
+        for (Node<V> b, n;;) {
+            if ((n = (b = head.node).next) == null)
+                return null;
+            Node<V> f = n.next;
+            if (n != b.next)
+                continue;
+            Object v = n.value;
+            if (v == null) {
+                n.helpDelete(b, f);
+                continue;
+            }
+            if (!n.casValue(v, null))
+                continue;
+            if (!n.appendMarker(f) || !b.casNext(n, f))
+                findFirst(); // retry
+            clearIndexToFirst();
+            @SuppressWarnings("unchecked") V vv = (V)v;
+            return new Entry<V>(n.key, vv);
+        }
+    }
+
+    /**
+     * Clears out index nodes associated with deleted first entry.
+     */
+    private void clearIndexToFirst() {
+        for (;;) {
+            for (Index<V> q = head;;) {
+                Index<V> r = q.right;
+                if (r != null && r.indexesDeletedNode() && !q.unlink(r))
+                    break;
+                if ((q = q.down) == null) {
+                    if (head.right == null)
+                        tryReduceLevel();
+                    return;
+                }
+            }
+        }
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    // Control values OR'ed as arguments to findNear
+
+    private static final int EQ = 1;
+    private static final int LT = 2;
+    private static final int GT = 0; // Actually checked as !LT
+
+    /**
+     * Utility for ceiling, floor, lower, higher methods.
+     *
+     * @param rel the relation -- OR'ed combination of EQ, LT, GT
+     * @return nearest node fitting relation, or null if no such
+     */
+    final Node<V> findNear(long key, int rel) {
+        for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    return ((rel & LT) == 0 || b.isBaseHeader()) ? null : b;
+                Node<V> f = n.next;
+                if (n != b.next)                  // inconsistent read
+                    break;
+                if ((v = n.value) == null) {      // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    break;
+                int c = Long.compare(key, n.key);
+                if ((c == 0 && (rel & EQ) != 0) ||
+                    (c <  0 && (rel & LT) == 0))
+                    return n;
+                if ( c <= 0 && (rel & LT) != 0)
+                    return b.isBaseHeader() ? null : b;
+                b = n;
+                n = f;
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the results of findNear.
+     */
+    private Entry<V> getNear(long key, int rel) {
+        for (;;) {
+            Node<V> n = findNear(key, rel);
+            if (n == null)
+                return null;
+            Entry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /* ------ Map API methods ------ */
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return doGet(key) != null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if there is no mapping
+     */
+    public V get(long key) {
+        return doGet(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or the given defaultValue if this map contains no mapping for the key.
+     *
+     * @param key the key
+     * @param defaultValue the value to return if this map contains
+     *        no mapping for the given key
+     * @return the mapping for the key, if present; else the defaultValue
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        V v;
+        return (v = doGet(key)) == null ? defaultValue : v;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+        return doPut(key, value, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V putIfAbsent(long key, V value) {
+        Objects.requireNonNull(value);
+        return doPut(key, value, true);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this map unless {@code null}.  The function
+     * is <em>NOT</em> guaranteed to be applied once atomically only
+     * if the value is not present.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the mappingFunction is null
+     */
+    public V computeIfAbsent(long key,
+                             LongFunction<? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        V v, p, r;
+        if ((v = doGet(key)) == null &&
+            (r = mappingFunction.apply(key)) != null)
+            v = (p = doPut(key, r, true)) == null ? r : p;
+        return v;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key key for which mapping should be removed
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     */
+    public V remove(long key) {
+        return doRemove(key, null);
+    }
+
+    /**
+     * Removes the entry for a key only if currently mapped to a
+     * given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value expected to be associated with the specified key
+     * @return {@code true} if the value was removed
+     */
+    public boolean remove(long key, Object value) {
+        return value != null && doRemove(key, value) != null;
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to a given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param oldValue value expected to be associated with the specified key
+     * @param newValue value to be associated with the specified key
+     * @return {@code true} if the value was replaced
+     * @throws NullPointerException if any of the values are null
+     */
+    public boolean replace(long key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null)
+            throw new NullPointerException();
+        for (;;) {
+            Node<V> n; Object v;
+            if ((n = findNode(key)) == null)
+                return false;
+            if ((v = n.value) != null) {
+                if (!oldValue.equals(v))
+                    return false;
+                if (n.casValue(v, newValue))
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to some value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V replace(long key, V value) {
+        Objects.requireNonNull(value);
+        for (;;) {
+            Node<V> n; Object v;
+            if ((n = findNode(key)) == null)
+                return null;
+            if ((v = n.value) != null && n.casValue(v, value)) {
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.  If this
+     * map contains more than {@code Integer.MAX_VALUE} elements, it
+     * returns {@code Integer.MAX_VALUE}.  This is <em>NOT</em> a
+     * constant-time operation.
+     *
+     * @return the number of elements in this map
+     */
+    public int size() {
+        long count = 0;
+        for (Node<V> n = findFirst(); n != null; n = n.next) {
+            if (n.getValidValue() != null)
+                ++count;
+        }
+        return (count >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) count;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return findFirst() == null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        for (;;) {
+            Node<V> b, n;
+            HeadIndex<V> h = head, d = (HeadIndex<V>)h.down;
+            if (d != null)
+                casHead(h, d);            // remove levels
+            else if ((b = h.node) != null && (n = b.next) != null) {
+                Node<V> f = n.next;     // remove values
+                if (n == b.next) {
+                    Object v = n.value;
+                    if (v == null)
+                        n.helpDelete(b, f);
+                    else if (n.casValue(v, null) && n.appendMarker(f))
+                        b.casNext(n, f);
+                }
+            }
+            else
+                break;
+        }
+    }
+
+    /* ------ Bulk operations ------ */
+
+    /**
+     * Removes all of the mappings with keys from {@code fromKey},
+     * inclusive, to {@code toKey}, exclusive, marking the range in a
+     * single traversal and then unlinking it, with its index nodes,
+     * using one compare-and-set per level.  Each mapping is removed
+     * atomically, but the operation as a whole is not: mappings
+     * concurrently inserted into the range may or may not be removed.
+     *
+     * <p>A mapping for {@code Long.MAX_VALUE} is never removed by this
+     * method; use {@link #removeRange(long, boolean, long, boolean)}
+     * with an inclusive upper bound for that.
+     *
+     * @param fromKey low endpoint (inclusive) of the keys to remove
+     * @param toKey high endpoint (exclusive) of the keys to remove
+     * @return the number of mappings removed
+     * @throws IllegalArgumentException if {@code fromKey} is greater
+     *         than {@code toKey}
+     */
+    public int removeRange(long fromKey, long toKey) {
+        return removeRange(fromKey, true, toKey, false);
+    }
+
+    /**
+     * Removes all of the mappings with keys from {@code fromKey} to
+     * {@code toKey}, as for {@link #removeRange(long, long)}.  If
+     * {@code fromKey} and {@code toKey} are equal, the range is empty
+     * unless both {@code fromInclusive} and {@code toInclusive} are
+     * true.
+     *
+     * @param fromKey low endpoint of the keys to remove
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be removed
+     * @param toKey high endpoint of the keys to remove
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be removed
+     * @return the number of mappings removed
+     * @throws IllegalArgumentException if {@code fromKey} is greater
+     *         than {@code toKey}
+     */
+    public int removeRange(long fromKey, boolean fromInclusive,
+                           long toKey, boolean toInclusive) {
+        if (fromKey > toKey)
+            throw new IllegalArgumentException("inconsistent range");
+        if (fromKey == toKey && !(fromInclusive && toInclusive))
+            return 0;
+        // Convert to inclusive bounds; fromKey < toKey if either is open
+        long lo = fromInclusive ? fromKey : fromKey + 1L;
+        long hi = toInclusive ? toKey : toKey - 1L;
+        return (lo > hi) ? 0 : doRemoveRange(lo, hi);
+    }
+
+    /**
+     * Associates each of the given keys with the value at the same
+     * index, replacing any existing mappings for those keys.  The keys
+     * must be strictly ascending; they are inserted in a single pass
+     * that resumes each search, at every level, from the previous
+     * insertion point rather than from the head of the map.  This
+     * operation is not atomic: concurrent readers may observe some but
+     * not all of the new mappings.
+     *
+     * @param keys the keys, in strictly ascending order
+     * @param values the values
+     * @throws IllegalArgumentException if the arrays differ in length
+     *         or the keys are not strictly ascending
+     * @throws NullPointerException if either array or any value is null
+     */
+    public void putAllSorted(long[] keys, V[] values) {
+        int len = keys.length;
+        if (values.length != len)
+            throw new IllegalArgumentException();
+        for (int i = 0; i < len; ++i) {
+            if (values[i] == null)
+                throw new NullPointerException();
+            if (i > 0 && keys[i] <= keys[i - 1])
+                throw new IllegalArgumentException("keys not ascending");
+        }
+        @SuppressWarnings("unchecked")
+        Index<V>[] fingers = (Index<V>[])new Index<?>[MAX_LEVEL + 1];
+        Node<V> finger = null;          // node holding the previous key
+        for (int i = 0; i < len; ++i) {
+            long key = keys[i];
+            V value = values[i];
+            Node<V> z = null;           // added node
+            outer: for (Node<V> b = finger;;) {
+                if (b == null || b.value == null || key <= b.key)
+                    b = findPredecessor(key);
+                for (Node<V> n = b.next;;) {
+                    if (n != null) {
+                        Object v;
+                        Node<V> f = n.next;
+                        if (n != b.next)               // inconsistent read
+                            break;
+                        if ((v = n.value) == null) {   // n is deleted
+                            n.helpDelete(b, f);
+                            break;
+                        }
+                        if (b.value == null || v == n) // b is deleted
+                            break;
+                        long k = n.key;
+                        if (key > k) {
+                            b = n;
+                            n = f;
+                            continue;
+                        }
+                        if (key == k) {
+                            if (n.casValue(v, value)) {
+                                finger = n;
+                                break outer;
+                            }
+                            break; // restart if lost race to replace value
+                        }
+                        // else key < k; fall through
+                    }
+                    z = new Node<V>(key, value, n);
+                    if (!b.casNext(n, z)) {
+                        z = null;
+                        break;     // restart if lost race to append to b
+                    }
+                    finger = z;
+                    break outer;
+                }
+                b = null;                              // restart from head
+            }
+            if (z != null)
+                addIndices(z, fingers);
+        }
+    }
+
+    /* ------ Navigation ------ */
+
+    /**
+     * Returns the first (lowest) key currently in this map.
+     *
+     * @return the first key
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long firstKey() {
+        Node<V> n = findFirst();
+        if (n == null)
+            throw new NoSuchElementException();
+        return n.key;
+    }
+
+    /**
+     * Returns the last (highest) key currently in this map.
+     *
+     * @return the last key
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long lastKey() {
+        Node<V> n = findLast();
+        if (n == null)
+            throw new NoSuchElementException();
+        return n.key;
+    }
+
+    /**
+     * Returns a snapshot of the mapping with the least key, or
+     * {@code null} if the map is empty.
+     *
+     * @return the first entry, or {@code null} if empty
+     */
+    public Entry<V> firstEntry() {
+        for (;;) {
+            Node<V> n = findFirst();
+            if (n == null)
+                return null;
+            Entry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the mapping with the greatest key, or
+     * {@code null} if the map is empty.
+     *
+     * @return the last entry, or {@code null} if empty
+     */
+    public Entry<V> lastEntry() {
+        for (;;) {
+            Node<V> n = findLast();
+            if (n == null)
+                return null;
+            Entry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Removes and returns a snapshot of the mapping with the least
+     * key, or {@code null} if the map is empty.
+     *
+     * @return the removed first entry, or {@code null} if empty
+     */
+    public Entry<V> pollFirstEntry() {
+        return doRemoveFirstEntry();
+    }
+
+    /**
+     * Returns a snapshot of the mapping with the greatest key strictly
+     * less than the given key, or {@code null} if there is no such key.
+     *
+     * @param key the key
+     * @return the entry, or {@code null} if none
+     */
+    public Entry<V> lowerEntry(long key) {
+        return getNear(key, LT);
+    }
+
+    /**
+     * Returns a snapshot of the mapping with the greatest key less than
+     * or equal to the given key, or {@code null} if there is no such key.
+     *
+     * @param key the key
+     * @return the entry, or {@code null} if none
+     */
+    public Entry<V> floorEntry(long key) {
+        return getNear(key, LT|EQ);
+    }
+
+    /**
+     * Returns a snapshot of the mapping with the least key greater than
+     * or equal to the given key, or {@code null} if there is no such key.
+     *
+     * @param key the key
+     * @return the entry, or {@code null} if none
+     */
+    public Entry<V> ceilingEntry(long key) {
+        return getNear(key, GT|EQ);
+    }
+
+    /**
+     * Returns a snapshot of the mapping with the least key strictly
+     * greater than the given key, or {@code null} if there is no such key.
+     *
+     * @param key the key
+     * @return the entry, or {@code null} if none
+     */
+    public Entry<V> higherEntry(long key) {
+        return getNear(key, GT);
+    }
+
+    /* ------ Traversal ------ */
+
+    /**
+     * Performs the given action for each mapping in ascending key order.
+     *
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     */
+    public void forEach(LongObjectMap.EntryConsumer<? super V> action) {
+        Objects.requireNonNull(action);
+        V v;
+        for (Node<V> n = findFirst(); n != null; n = n.next) {
+            if ((v = n.getValidValue()) != null)
+                action.accept(n.key, v);
+        }
+    }
+
+    /**
+     * Performs the given action, in ascending key order, for each
+     * mapping with a key from {@code fromKey}, inclusive, to {@code
+     * toKey}, exclusive.
+     *
+     * @param fromKey low endpoint (inclusive) of the keys
+     * @param toKey high endpoint (exclusive) of the keys
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     */
+    public void forEach(long fromKey, long toKey,
+                        LongObjectMap.EntryConsumer<? super V> action) {
+        Objects.requireNonNull(action);
+        V v;
+        for (Node<V> n = findNear(fromKey, GT|EQ);
+             n != null; n = n.next) {
+            if ((v = n.getValidValue()) != null) {
+                if (n.key >= toKey)
+                    break;
+                action.accept(n.key, v);
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over the keys of this map, in ascending order.
+     *
+     * @return an iterator over the keys of this map
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return new KeyIterator<V>(this);
+    }
+
+    /**
+     * Returns a sequential stream of the keys of this map, in
+     * ascending order.
+     *
+     * @return a stream of the keys of this map
+     */
+    public LongStream keyStream() {
+        return StreamSupport.longStream(
+            Spliterators.spliteratorUnknownSize(
+                keyIterator(), Spliterator.ORDERED | Spliterator.DISTINCT |
+                Spliterator.SORTED | Spliterator.NONNULL |
+                Spliterator.CONCURRENT), false);
+    }
+
+    /**
+     * Returns a sequential stream of the values of this map, in
+     * ascending order of their keys.
+     *
+     * @return a stream of the values of this map
+     */
+    public Stream<V> valueStream() {
+        Stream.Builder<V> b = Stream.builder();
+        forEach((k, v) -> b.accept(v));
+        return b.build();
+    }
+
+    /**
+     * Iterator over keys, advancing past deleted nodes as in
+     * ConcurrentSkipListMap.Iter.
+     */
+    static final class KeyIterator<V> implements PrimitiveIterator.OfLong {
+        private final ConcurrentLongSkipListMap<V> map;
+        /** the last node returned by next() */
+        private Node<V> lastReturned;
+        /** the next node to return from next(); */
+        private Node<V> next;
+
+        KeyIterator(ConcurrentLongSkipListMap<V> map) {
+            this.map = map;
+            for (;;) {
+                if ((next = map.findFirst()) == null)
+                    break;
+                if (next.getValidValue() != null)
+                    break;
+            }
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public long nextLong() {
+            Node<V> n;
+            if ((n = next) == null)
+                throw new NoSuchElementException();
+            lastReturned = n;
+            for (;;) {
+                if ((next = next.next) == null)
+                    break;
+                if (next.getValidValue() != null)
+                    break;
+            }
+            return n.key;
+        }
+
+        public void remove() {
+            Node<V> l = lastReturned;
+            if (l == null)
+                throw new IllegalStateException();
+            map.remove(l.key);
+            lastReturned = null;
+        }
+    }
+
+    /* ------ Object methods ------ */
+
+    /**
+     * Returns a string representation of this map, listing its
+     * mappings in ascending key order.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(k).append('=').append(v == this ? "(this Map)" : v);
+        });
+        return sb.append('}').toString();
+    }
+
+    // VarHandle mechanics
+    private static final VarHandle HEAD;
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            HEAD = l.findVarHandle(ConcurrentLongSkipListMap.class, "head",
+                                   HeadIndex.class);
+        } catch (ReflectiveOperationException e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,746 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written with assistance from members of JCP JSR-166 Expert Group
+ * and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A concurrent hash map from fixed-length binary keys to fixed-length
+ * binary values whose entries live outside the Java heap, in direct
+ * {@link ByteBuffer}s or in {@link MappedByteBuffer}s of a file.  Because
+ * the table holds no Java objects, even very large maps add nothing to
+ * the work of the garbage collector.
+ *
+ * <p>Every key is exactly {@link #keySize} bytes and every value exactly
+ * {@link #valueSize} bytes; both are copied into and out of the map, so
+ * the arrays passed to its methods may be reused by the caller and no
+ * objects are allocated on lookups or updates.
+ *
+ * <p>The table is divided into a power-of-two number of segments, each
+ * an open-addressing hash table in its own buffer guarded by its own
+ * {@link StampedLock}.  Updates take the segment's write lock.
+ * Retrievals first run under an optimistic read stamp and fall back to
+ * the read lock only if a writer intervened, so they normally acquire no
+ * lock at all.  A segment that fills past its load factor is rehashed
+ * into a buffer twice its size while the other segments remain
+ * available, so growth proceeds incrementally, one segment at a time.
+ *
+ * <p>A map created by {@link #open open} is backed by a file, which may
+ * be reopened after a restart to recover its contents.  Its segments are
+ * mapped regions of the file, sized when the file is created; they do
+ * not grow, and an insertion into a full segment throws {@link
+ * IllegalStateException}.  Updates reach the file when the operating
+ * system writes back the mapped pages, or on {@link #force}.
+ *
+ * <p>Aggregate status methods such as {@link #mappingCount} are typically
+ * useful only when the map is not undergoing concurrent updates, in the
+ * same manner as {@link ConcurrentHashMap}.
+ *
+ * @since 9
+ */
+public class ConcurrentOffHeapMap implements AutoCloseable {
+
+    /*
+     * Overview:
+     *
+     * Each segment buffer is an array of fixed-size slots.  A slot
+     * starts with a 4-byte int holding the (spread, nonzero) hash of
+     * its key, or zero if the slot is free, followed by the key bytes
+     * and then the value bytes.  Slots are padded to a multiple of 4
+     * bytes.  The high bits of the hash select the segment and the low
+     * bits the home slot; collisions are resolved by linear probing.
+     * Deletion shifts later members of a probe run back into the hole
+     * (using the stored hashes to find their home slots), so the table
+     * never accumulates tombstones.
+     *
+     * Optimistic readers may observe a segment mid-update.  They never
+     * act on what they read until the stamp validates, and their probe
+     * loops are bounded by the slot count, so a torn view can at worst
+     * cause a retry under the read lock.
+     *
+     * A file-backed map starts with a header page recording the
+     * geometry, followed by the segments at fixed offsets.  Segment
+     * counts are not stored; they are recomputed by scanning when the
+     * file is reopened.
+     */
+
+    /** Bytes in the slot header holding the hash. */
+    private static final int HASH_BYTES = 4;
+
+    /** The largest segment buffer, leaving room below Integer.MAX_VALUE. */
+    private static final int MAX_SEGMENT_BYTES = 1 << 30;
+
+    /** The smallest number of slots in a segment. */
+    private static final int MIN_SEGMENT_SLOTS = 16;
+
+    /** The default number of segments, bounding write concurrency. */
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    /** The fraction of a segment that may be occupied before it grows. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** File header layout. */
+    private static final long FILE_MAGIC = 0x4f66664865617031L;
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_BYTES = 4096;
+
+    /**
+     * A segment of the table.  Extends StampedLock to simplify some
+     * locking and avoid separate construction.
+     */
+    static final class Segment extends StampedLock {
+        private static final long serialVersionUID = 5207829234977119743L;
+
+        /** The slot array; replaced only under the write lock. */
+        volatile ByteBuffer table;
+        /** Number of occupied slots; written only under the write lock. */
+        volatile int count;
+        /** Whether the table may be replaced by a larger one. */
+        final boolean growable;
+
+        Segment(ByteBuffer table, boolean growable) {
+            this.table = table;
+            this.growable = growable;
+        }
+    }
+
+    private final int keySize;
+    private final int valueSize;
+    private final int slotSize;
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final FileChannel channel;   // null unless file-backed
+    private volatile boolean closed;
+
+    /**
+     * Creates a new, empty map held in direct buffers, with a default
+     * initial capacity.
+     *
+     * @param keySize the length in bytes of every key
+     * @param valueSize the length in bytes of every value
+     * @throws IllegalArgumentException if {@code keySize} is not positive
+     *         or {@code valueSize} is negative
+     */
+    public ConcurrentOffHeapMap(int keySize, int valueSize) {
+        this(keySize, valueSize, DEFAULT_SEGMENTS * MIN_SEGMENT_SLOTS / 2);
+    }
+
+    /**
+     * Creates a new, empty map held in direct buffers, sized to hold
+     * about the given number of mappings before any segment grows.
+     *
+     * @param keySize the length in bytes of every key
+     * @param valueSize the length in bytes of every value
+     * @param expectedSize the expected number of mappings
+     * @throws IllegalArgumentException if {@code keySize} is not positive,
+     *         {@code valueSize} or {@code expectedSize} is negative, or the
+     *         size is too large to represent
+     */
+    public ConcurrentOffHeapMap(int keySize, int valueSize, long expectedSize) {
+        this.keySize = keySize;
+        this.valueSize = valueSize;
+        this.slotSize = slotSize(keySize, valueSize);
+        this.channel = null;
+        long[] geometry = geometry(slotSize, expectedSize);
+        int nsegs = (int)geometry[0], slots = (int)geometry[1];
+        this.segments = new Segment[nsegs];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(nsegs);
+        for (int i = 0; i < nsegs; ++i)
+            segments[i] = new Segment(
+                ByteBuffer.allocateDirect(slots * slotSize), true);
+    }
+
+    private ConcurrentOffHeapMap(int keySize, int valueSize, FileChannel ch,
+                                 int nsegs, int slots) throws IOException {
+        this.keySize = keySize;
+        this.valueSize = valueSize;
+        this.slotSize = slotSize(keySize, valueSize);
+        this.channel = ch;
+        this.segments = new Segment[nsegs];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(nsegs);
+        long segBytes = (long)slots * slotSize;
+        for (int i = 0; i < nsegs; ++i) {
+            MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_WRITE,
+                                        HEADER_BYTES + i * segBytes,
+                                        segBytes);
+            Segment s = new Segment(b, false);
+            int n = 0;
+            for (int off = 0; off < b.capacity(); off += slotSize) {
+                if (b.getInt(off) != 0)
+                    ++n;
+            }
+            s.count = n;
+            segments[i] = s;
+        }
+    }
+
+    /**
+     * Opens, creating if necessary, a map backed by the given file.
+     *
+     * <p>If the file is empty or does not exist, it is initialized with
+     * room for about {@code capacity} mappings.  Otherwise its contents
+     * are recovered and {@code capacity} is ignored; the key and value
+     * sizes must match those the file was created with.
+     *
+     * @param file the path of the file
+     * @param keySize the length in bytes of every key
+     * @param valueSize the length in bytes of every value
+     * @param capacity the number of mappings to provide room for when
+     *        creating the file
+     * @return a map backed by the file
+     * @throws IllegalArgumentException if a size is out of range or does
+     *         not match an existing file
+     * @throws IOException if an I/O error occurs or the file is not a map
+     *         file
+     */
+    public static ConcurrentOffHeapMap open(Path file, int keySize,
+                                            int valueSize, long capacity)
+        throws IOException {
+        int slotSize = slotSize(keySize, valueSize);
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                                          StandardOpenOption.READ,
+                                          StandardOpenOption.WRITE);
+        try {
+            ByteBuffer h = ByteBuffer.allocate(28);
+            int nsegs, slots;
+            if (ch.size() == 0L) {
+                long[] geometry = geometry(slotSize, capacity);
+                nsegs = (int)geometry[0];
+                slots = (int)geometry[1];
+                h.putLong(FILE_MAGIC).putInt(FILE_VERSION).putInt(keySize)
+                    .putInt(valueSize).putInt(nsegs).putInt(slots);
+                h.flip();
+                ch.write(h, 0L);
+                // Extend the file so that every segment maps zeroed slots
+                ch.write(ByteBuffer.allocate(1),
+                         HEADER_BYTES + (long)nsegs * slots * slotSize - 1);
+            } else {
+                while (h.hasRemaining() && ch.read(h, h.position()) > 0)
+                    ;
+                h.flip();
+                if (h.remaining() < 28 || h.getLong() != FILE_MAGIC ||
+                    h.getInt() != FILE_VERSION)
+                    throw new IOException("Not a map file: " + file);
+                int k = h.getInt(), v = h.getInt();
+                if (k != keySize || v != valueSize)
+                    throw new IllegalArgumentException(
+                        "File has key size " + k + " and value size " + v);
+                nsegs = h.getInt();
+                slots = h.getInt();
+                if (nsegs <= 0 || Integer.bitCount(nsegs) != 1 ||
+                    slots < MIN_SEGMENT_SLOTS || Integer.bitCount(slots) != 1 ||
+                    (long)slots * slotSize > MAX_SEGMENT_BYTES ||
+                    ch.size() < HEADER_BYTES + (long)nsegs * slots * slotSize)
+                    throw new IOException("Corrupt map file: " + file);
+            }
+            return new ConcurrentOffHeapMap(keySize, valueSize, ch,
+                                            nsegs, slots);
+        } catch (Throwable ex) {
+            ch.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the padded slot size for the given key and value sizes.
+     */
+    private static int slotSize(int keySize, int valueSize) {
+        if (keySize <= 0 || valueSize < 0)
+            throw new IllegalArgumentException();
+        long n = ((long)HASH_BYTES + keySize + valueSize + 3L) & ~3L;
+        if (n > MAX_SEGMENT_BYTES / MIN_SEGMENT_SLOTS)
+            throw new IllegalArgumentException("Entry too large");
+        return (int)n;
+    }
+
+    /**
+     * Returns {segment count, slots per segment} for a table holding
+     * about expectedSize entries of the given slot size.
+     */
+    private static long[] geometry(int slotSize, long expectedSize) {
+        if (expectedSize < 0L)
+            throw new IllegalArgumentException();
+        long slots = Math.max((long)(expectedSize / LOAD_FACTOR) + 1L,
+                              (long)DEFAULT_SEGMENTS * MIN_SEGMENT_SLOTS);
+        long maxSegSlots = Long.highestOneBit(MAX_SEGMENT_BYTES / slotSize);
+        int nsegs = DEFAULT_SEGMENTS;
+        while ((slots + nsegs - 1) / nsegs > maxSegSlots) {
+            if (nsegs >= 1 << 16)
+                throw new IllegalArgumentException("Map too large");
+            nsegs <<= 1;
+        }
+        long perSeg = (slots + nsegs - 1) / nsegs;
+        int segSlots = MIN_SEGMENT_SLOTS;
+        while (segSlots < perSeg)
+            segSlots <<= 1;
+        return new long[] { nsegs, segSlots };
+    }
+
+    /**
+     * Spreads the hash of a key, reserving zero to mark free slots.
+     */
+    static int hash(byte[] key) {
+        int h = 1;
+        for (byte b : key)
+            h = 31 * h + b;
+        h *= 0x9E3779B9;
+        h ^= h >>> 16;
+        return (h == 0) ? 1 : h;
+    }
+
+    private Segment segmentFor(int h) {
+        return segments[(segmentShift == 32) ? 0 : h >>> segmentShift];
+    }
+
+    private void checkKey(byte[] key) {
+        if (key.length != keySize)
+            throw new IllegalArgumentException("Key length " + key.length);
+        if (closed)
+            throw new IllegalStateException("Map closed");
+    }
+
+    private void checkValue(byte[] value) {
+        if (value.length != valueSize)
+            throw new IllegalArgumentException("Value length " + value.length);
+    }
+
+    /**
+     * Returns the byte offset of the slot holding the key, or -1 if the
+     * key is absent.  Probing is bounded so that readers holding only an
+     * optimistic stamp cannot spin on a torn view.
+     */
+    private int find(ByteBuffer t, int h, byte[] key) {
+        int ss = slotSize, n = t.capacity() / ss, mask = n - 1;
+        for (int i = h & mask, probes = 0; probes < n;
+             i = (i + 1) & mask, ++probes) {
+            int off = i * ss, sh = t.getInt(off);
+            if (sh == 0)
+                break;
+            if (sh == h && keyEquals(t, off + HASH_BYTES, key))
+                return off;
+        }
+        return -1;
+    }
+
+    private static boolean keyEquals(ByteBuffer t, int off, byte[] key) {
+        int i = 0, n = key.length;
+        for (; i + 8 <= n; i += 8) {
+            if (t.getLong(off + i) != getLong(key, i))
+                return false;
+        }
+        for (; i < n; ++i) {
+            if (t.get(off + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    /** Reads a big-endian long from a byte array, matching ByteBuffer. */
+    private static long getLong(byte[] b, int i) {
+        return ((long)b[i] << 56) | ((b[i + 1] & 0xffL) << 48) |
+            ((b[i + 2] & 0xffL) << 40) | ((b[i + 3] & 0xffL) << 32) |
+            ((b[i + 4] & 0xffL) << 24) | ((b[i + 5] & 0xffL) << 16) |
+            ((b[i + 6] & 0xffL) << 8) | (b[i + 7] & 0xffL);
+    }
+
+    private static void copyOut(ByteBuffer t, int off, byte[] dst) {
+        for (int i = 0; i < dst.length; ++i)
+            dst[i] = t.get(off + i);
+    }
+
+    private static void copyIn(ByteBuffer t, int off, byte[] src) {
+        for (int i = 0; i < src.length; ++i)
+            t.put(off + i, src[i]);
+    }
+
+    /**
+     * Returns the length in bytes of every key.
+     *
+     * @return the key size
+     */
+    public int keySize() {
+        return keySize;
+    }
+
+    /**
+     * Returns the length in bytes of every value.
+     *
+     * @return the value size
+     */
+    public int valueSize() {
+        return valueSize;
+    }
+
+    /**
+     * Copies the value mapped to the key into {@code value}, if present.
+     * The array is left unspecified if this method returns {@code false}.
+     *
+     * @param key the key
+     * @param value the array receiving the value
+     * @return {@code true} if the key was present
+     * @throws NullPointerException if an argument is null
+     * @throws IllegalArgumentException if an argument has the wrong length
+     * @throws IllegalStateException if this map has been closed
+     */
+    public boolean get(byte[] key, byte[] value) {
+        checkKey(key);
+        checkValue(value);
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        long stamp = s.tryOptimisticRead();
+        if (stamp != 0L) {
+            ByteBuffer t = s.table;
+            int off = find(t, h, key);
+            if (off >= 0)
+                copyOut(t, off + HASH_BYTES + keySize, value);
+            if (s.validate(stamp))
+                return off >= 0;
+        }
+        stamp = s.readLock();
+        try {
+            ByteBuffer t = s.table;
+            int off = find(t, h, key);
+            if (off < 0)
+                return false;
+            copyOut(t, off + HASH_BYTES + keySize, value);
+            return true;
+        } finally {
+            s.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the key.
+     *
+     * @param key the key
+     * @return {@code true} if the key is present
+     * @throws NullPointerException if the key is null
+     * @throws IllegalArgumentException if the key has the wrong length
+     * @throws IllegalStateException if this map has been closed
+     */
+    public boolean containsKey(byte[] key) {
+        checkKey(key);
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        long stamp = s.tryOptimisticRead();
+        if (stamp != 0L) {
+            boolean found = find(s.table, h, key) >= 0;
+            if (s.validate(stamp))
+                return found;
+        }
+        stamp = s.readLock();
+        try {
+            return find(s.table, h, key) >= 0;
+        } finally {
+            s.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous value.
+     *
+     * @param key the key
+     * @param value the value
+     * @return {@code true} if the key was not previously present
+     * @throws NullPointerException if an argument is null
+     * @throws IllegalArgumentException if an argument has the wrong length
+     * @throws IllegalStateException if this map has been closed, or if the
+     *         key is new and its segment is full and cannot grow
+     */
+    public boolean put(byte[] key, byte[] value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * Maps the key to the value only if the key is not already present.
+     *
+     * @param key the key
+     * @param value the value
+     * @return {@code true} if the mapping was added
+     * @throws NullPointerException if an argument is null
+     * @throws IllegalArgumentException if an argument has the wrong length
+     * @throws IllegalStateException if this map has been closed, or if the
+     *         key is new and its segment is full and cannot grow
+     */
+    public boolean putIfAbsent(byte[] key, byte[] value) {
+        return putVal(key, value, true);
+    }
+
+    private boolean putVal(byte[] key, byte[] value, boolean onlyIfAbsent) {
+        checkKey(key);
+        checkValue(value);
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        long stamp = s.writeLock();
+        try {
+            ByteBuffer t = s.table;
+            int off = find(t, h, key);
+            if (off >= 0) {
+                if (!onlyIfAbsent)
+                    copyIn(t, off + HASH_BYTES + keySize, value);
+                return false;
+            }
+            int slots = t.capacity() / slotSize;
+            if (s.count + 1 > (int)(slots * LOAD_FACTOR))
+                t = grow(s, slots);
+            int ss = slotSize, mask = t.capacity() / ss - 1, i = h & mask;
+            while (t.getInt(i * ss) != 0)
+                i = (i + 1) & mask;
+            off = i * ss;
+            copyIn(t, off + HASH_BYTES, key);
+            copyIn(t, off + HASH_BYTES + keySize, value);
+            t.putInt(off, h);
+            s.count = s.count + 1;
+            return true;
+        } finally {
+            s.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Doubles the table of a segment whose write lock is held, or throws
+     * if the segment cannot grow and has no room for another entry.
+     */
+    private ByteBuffer grow(Segment s, int slots) {
+        ByteBuffer old = s.table;
+        int ss = slotSize;
+        if (!s.growable || (long)slots * 2 * ss > MAX_SEGMENT_BYTES) {
+            if (s.count + 1 >= slots)
+                throw new IllegalStateException("Segment full");
+            return old;
+        }
+        int n = slots << 1, mask = n - 1;
+        ByteBuffer t = ByteBuffer.allocateDirect(n * ss);
+        for (int off = 0; off < old.capacity(); off += ss) {
+            int h = old.getInt(off);
+            if (h != 0) {
+                int i = h & mask;
+                while (t.getInt(i * ss) != 0)
+                    i = (i + 1) & mask;
+                int dst = i * ss;
+                for (int j = 0; j < ss; j += 4)
+                    t.putInt(dst + j, old.getInt(off + j));
+            }
+        }
+        s.table = t;
+        return t;
+    }
+
+    /**
+     * Removes the mapping for the key, if present.
+     *
+     * @param key the key
+     * @return {@code true} if the key was present
+     * @throws NullPointerException if the key is null
+     * @throws IllegalArgumentException if the key has the wrong length
+     * @throws IllegalStateException if this map has been closed
+     */
+    public boolean remove(byte[] key) {
+        checkKey(key);
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        long stamp = s.writeLock();
+        try {
+            ByteBuffer t = s.table;
+            int off = find(t, h, key);
+            if (off < 0)
+                return false;
+            int ss = slotSize, mask = t.capacity() / ss - 1;
+            int hole = off / ss;
+            for (int j = hole; ; ) {
+                j = (j + 1) & mask;
+                int jh = t.getInt(j * ss);
+                if (jh == 0)
+                    break;
+                int home = jh & mask;
+                if ((hole <= j) ? (home <= hole || home > j)
+                                : (home <= hole && home > j)) {
+                    int src = j * ss, dst = hole * ss;
+                    for (int k = 0; k < ss; k += 4)
+                        t.putInt(dst + k, t.getInt(src + k));
+                    hole = j;
+                }
+            }
+            t.putInt(hole * ss, 0);
+            s.count = s.count - 1;
+            return true;
+        } finally {
+            s.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of mappings.  This method should be used
+     * instead of {@link #size} because a large map may contain more
+     * mappings than can be represented as an int.  The value returned is
+     * an estimate; the actual count may differ if there are concurrent
+     * insertions or removals.
+     *
+     * @return the number of mappings
+     */
+    public long mappingCount() {
+        long n = 0L;
+        for (Segment s : segments)
+            n += s.count;
+        return n;
+    }
+
+    /**
+     * Returns the number of mappings, or {@code Integer.MAX_VALUE} if
+     * there are more.
+     *
+     * @return the number of mappings, saturated to an int
+     * @see #mappingCount
+     */
+    public int size() {
+        long n = mappingCount();
+        return (n > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no mappings.
+     *
+     * @return {@code true} if this map contains no mappings
+     */
+    public boolean isEmpty() {
+        return mappingCount() == 0L;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  Segments keep their
+     * current capacity.
+     */
+    public void clear() {
+        for (Segment s : segments) {
+            long stamp = s.writeLock();
+            try {
+                ByteBuffer t = s.table;
+                for (int off = 0; off < t.capacity(); off += slotSize)
+                    t.putInt(off, 0);
+                s.count = 0;
+            } finally {
+                s.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Performs the given action for each mapping, one segment at a time
+     * under that segment's read lock.  The buffers passed to the action
+     * are read-only views of the key and value bytes that are reused for
+     * every mapping, so they must not be retained after the action
+     * returns.  The action must not update this map.
+     *
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public void forEach(BiConsumer<? super ByteBuffer,
+                                   ? super ByteBuffer> action) {
+        Objects.requireNonNull(action);
+        if (closed)
+            throw new IllegalStateException("Map closed");
+        int ss = slotSize;
+        for (Segment s : segments) {
+            long stamp = s.readLock();
+            try {
+                ByteBuffer t = s.table;
+                ByteBuffer k = t.asReadOnlyBuffer(), v = t.asReadOnlyBuffer();
+                for (int off = 0; off < t.capacity(); off += ss) {
+                    if (t.getInt(off) != 0) {
+                        int ko = off + HASH_BYTES, vo = ko + keySize;
+                        k.limit(vo);
+                        k.position(ko);
+                        v.limit(vo + valueSize);
+                        v.position(vo);
+                        action.accept(k, v);
+                    }
+                }
+            } finally {
+                s.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Forces any updates to a file-backed map to be written to the
+     * storage device.  Has no effect on a map held in direct buffers.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void force() throws IOException {
+        if (channel == null)
+            return;
+        for (Segment s : segments) {
+            long stamp = s.readLock();
+            try {
+                ((MappedByteBuffer)s.table).force();
+            } finally {
+                s.unlockRead(stamp);
+            }
+        }
+        channel.force(true);
+    }
+
+    /**
+     * Closes this map.  A file-backed map is first {@linkplain #force
+     * forced} to storage.  Subsequent operations throw {@link
+     * IllegalStateException}; the buffers themselves are released when
+     * they become unreachable.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        if (channel != null) {
+            try {
+                force();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -51,6 +51,7 @@ import java.util.Map;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.Spliterator;
@@ -358,6 +359,12 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
 
     private static final long serialVersionUID = -8627078645895051609L;
 
+    /**
+     * The maximum level of an index tower built by doPut or
+     * addIndices, which use at most 31 random bits per node.
+     */
+    private static final int MAX_LEVEL = 32;
+
     /**
      * Special value used to identify base-level header.
      */
@@ -1025,6 +1032,236 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
             casHead(d, h);   // try to backout
     }
 
+    /* ---------------- Bulk operations -------------- */
+
+    /**
+     * Main range deletion method.  Locates the first node in range as
+     * in doRemove, then in a single traversal nulls the value of, and
+     * appends a marker to, each node in the range.  The nodes of the
+     * resulting run, and the markers between them, can no longer
+     * change their next fields, so the whole run can be unlinked from
+     * its (live) predecessor with one CAS.  If that CAS fails, the
+     * run is instead unlinked node by node, via findNode or findFirst
+     * as in doRemove.  Index nodes are then cleared by
+     * clearIndexRun, which skips each level's run of indexes to
+     * deleted nodes with one CAS per level.
+     *
+     * Each removal is individually atomic, as in clear().  Nodes
+     * inserted concurrently into the range before the traversal
+     * reaches their position are removed; those inserted behind it
+     * are not.
+     *
+     * @param lo low bound, or null if unbounded
+     * @param loInclusive true if lo is inclusive
+     * @param hi high bound, or null if unbounded
+     * @param hiInclusive true if hi is inclusive
+     * @return the number of mappings removed
+     */
+    final int doRemoveRange(K lo, boolean loInclusive,
+                            K hi, boolean hiInclusive) {
+        Comparator<? super K> cmp = comparator;
+        int removed = 0;
+        outer: for (;;) {
+            Node<K,V> b = (lo == null) ? head.node : findPredecessor(lo, cmp);
+            Node<K,V> n = b.next;
+            for (;;) {                              // find first in range
+                Object v; int c;
+                if (n == null)
+                    break outer;
+                Node<K,V> f = n.next;
+                if (n != b.next)                    // inconsistent read
+                    continue outer;
+                if ((v = n.value) == null) {        // n is deleted
+                    n.helpDelete(b, f);
+                    continue outer;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    continue outer;
+                if (lo == null || (c = cpr(cmp, lo, n.key)) < 0 ||
+                    (c == 0 && loInclusive))
+                    break;
+                b = n;
+                n = f;
+            }
+            Node<K,V> p = n;
+            while (p != null) {                     // delete and mark run
+                Object v = p.value; int c;
+                if (v == p) {                       // p is a marker
+                    p = p.next;
+                    continue;
+                }
+                if (hi != null && ((c = cpr(cmp, p.key, hi)) > 0 ||
+                                   (c == 0 && !hiInclusive)))
+                    break;
+                if (v != null) {
+                    if (!p.casValue(v, null))
+                        continue;                   // retry p
+                    ++removed;
+                }
+                Node<K,V> f = p.next;
+                if (f != null && f.value == f)      // already marked
+                    p = f.next;
+                else if (p.appendMarker(f))
+                    p = f;
+            }
+            if (p != n && !b.casNext(n, p)) {       // unlink whole run
+                if (lo == null)
+                    findFirst();
+                else
+                    findNode(lo);
+            }
+            clearIndexRun(lo, cmp);
+            if (head.right == null)
+                tryReduceLevel();
+            break;
+        }
+        return removed;
+    }
+
+    /**
+     * Variant of findPredecessor used after range deletion.  At each
+     * level, a run of index nodes to deleted nodes is skipped with a
+     * single CAS, rather than one unlink per index node.
+     *
+     * @param key the key, or null to clear only from the head
+     */
+    private void clearIndexRun(Object key, Comparator<? super K> cmp) {
+        outer: for (;;) {
+            for (Index<K,V> q = head, r = q.right, d;;) {
+                if (r != null) {
+                    Node<K,V> n = r.node;
+                    if (n.value == null) {
+                        Index<K,V> s = r.right;
+                        while (s != null && s.indexesDeletedNode())
+                            s = s.right;
+                        if (q.indexesDeletedNode() || !q.casRight(r, s))
+                            continue outer;     // restart
+                        r = s;
+                        continue;
+                    }
+                    if (key != null && cpr(cmp, key, n.key) > 0) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if ((d = q.down) == null)
+                    return;
+                q = d;
+                r = d.right;
+            }
+        }
+    }
+
+    /**
+     * Variant of findPredecessor for index-level insertion: returns
+     * the index node at the given level with key strictly less than
+     * the given key (or that level's head), or null if the list no
+     * longer has that many levels.
+     */
+    private Index<K,V> findIndexPredecessor(K key, Comparator<? super K> cmp,
+                                            int level) {
+        outer: for (;;) {
+            HeadIndex<K,V> h = head;
+            int j = h.level;
+            if (j < level)
+                return null;
+            for (Index<K,V> q = h, r = q.right;;) {
+                if (r != null) {
+                    Node<K,V> n = r.node;
+                    K k = n.key;
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            continue outer;
+                        r = q.right;
+                        continue;
+                    }
+                    if (cpr(cmp, key, k) > 0) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if (j == level)
+                    return q;
+                q = q.down;
+                r = q.right;
+                --j;
+            }
+        }
+    }
+
+    /**
+     * Adds index nodes for a node newly inserted by putAllSorted,
+     * choosing its level as in doPut.  Each level is searched from
+     * the index node last added at that level (in fingers), so that
+     * ascending insertions traverse each level only once overall.
+     * Levels are linked top-down, as in doPut.
+     *
+     * @param z the new node
+     * @param fingers the last index node added at each level
+     */
+    private void addIndices(Node<K,V> z, Comparator<? super K> cmp,
+                            Index<K,V>[] fingers) {
+        int rnd = ThreadLocalRandom.nextSecondarySeed();
+        if ((rnd & 0x80000001) != 0)
+            return;
+        int level = 1;
+        while (((rnd >>>= 1) & 1) != 0)
+            ++level;
+        for (HeadIndex<K,V> h;;) {                  // maybe add a level
+            h = head;
+            if (level <= h.level)
+                break;
+            level = h.level + 1;
+            if (casHead(h, new HeadIndex<K,V>(h.node, h, null, level)))
+                break;
+        }
+        @SuppressWarnings("unchecked")
+        Index<K,V>[] idxs = (Index<K,V>[])new Index<?,?>[level + 1];
+        Index<K,V> idx = null;
+        for (int j = 1; j <= level; ++j)
+            idxs[j] = idx = new Index<K,V>(z, idx, null);
+        K key = z.key;
+        for (int j = level; j >= 1; --j) {
+            Index<K,V> t = idxs[j];
+            Index<K,V> q = fingers[j];
+            if (q == null || q.indexesDeletedNode() ||
+                cpr(cmp, key, q.node.key) <= 0)
+                q = findIndexPredecessor(key, cmp, j);
+            for (Index<K,V> r = (q == null) ? null : q.right; q != null;) {
+                if (r != null) {
+                    Node<K,V> n = r.node;
+                    // compare before deletion check avoids needing recheck
+                    int c = cpr(cmp, key, n.key);
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            r = (q = findIndexPredecessor(key, cmp, j)) == null
+                                ? null : q.right;
+                        else
+                            r = q.right;
+                        continue;
+                    }
+                    if (c > 0) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if (q.link(r, t)) {
+                    fingers[j] = t;
+                    break;
+                }
+                r = (q = findIndexPredecessor(key, cmp, j)) == null
+                    ? null : q.right;
+            }
+            if (z.value == null) {                  // deleted meanwhile
+                findNode(key);
+                return;
+            }
+        }
+    }
+
     /* ---------------- Finding and removing first element -------------- */
 
     /**
@@ -1670,6 +1907,171 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /**
+     * Removes all of the mappings with keys from {@code fromKey},
+     * inclusive, to {@code toKey}, exclusive.  Unlike clearing the
+     * corresponding {@link #subMap(Object, Object) subMap} one key at a
+     * time, this marks the entire range in a single traversal and then
+     * unlinks it, together with its index nodes, with one
+     * compare-and-set per level, so that concurrent readers need not
+     * step past each removed entry.  Each mapping is removed
+     * atomically, but the operation as a whole is not: mappings
+     * concurrently inserted into the range may or may not be removed.
+     *
+     * <p>Equivalent to {@link #removeRange(Object, boolean, Object,
+     * boolean) removeRange(fromKey, true, toKey, false)}.
+     *
+     * @param fromKey low endpoint (inclusive) of the keys to remove
+     * @param toKey high endpoint (exclusive) of the keys to remove
+     * @return the number of mappings removed
+     * @throws ClassCastException if {@code fromKey} and {@code toKey}
+     *         cannot be compared to one another using this map's
+     *         comparator (or, if the map has no comparator, using
+     *         natural ordering)
+     * @throws NullPointerException if {@code fromKey} or {@code toKey}
+     *         is null
+     * @throws IllegalArgumentException if {@code fromKey} is greater
+     *         than {@code toKey}
+     * @since 9
+     */
+    public int removeRange(K fromKey, K toKey) {
+        return removeRange(fromKey, true, toKey, false);
+    }
+
+    /**
+     * Removes all of the mappings with keys ranging from {@code
+     * fromKey} to {@code toKey}, as for {@link #removeRange(Object,
+     * Object)}.  The endpoints are included as for the corresponding
+     * {@link #subMap(Object, boolean, Object, boolean) subMap}; if
+     * {@code fromKey} and {@code toKey} are equal, the range is empty
+     * unless both {@code fromInclusive} and {@code toInclusive} are
+     * true.
+     *
+     * @param fromKey low endpoint of the keys to remove
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be removed
+     * @param toKey high endpoint of the keys to remove
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be removed
+     * @return the number of mappings removed
+     * @throws ClassCastException if {@code fromKey} and {@code toKey}
+     *         cannot be compared to one another using this map's
+     *         comparator (or, if the map has no comparator, using
+     *         natural ordering)
+     * @throws NullPointerException if {@code fromKey} or {@code toKey}
+     *         is null
+     * @throws IllegalArgumentException if {@code fromKey} is greater
+     *         than {@code toKey}
+     * @since 9
+     */
+    public int removeRange(K fromKey, boolean fromInclusive,
+                           K toKey, boolean toInclusive) {
+        if (fromKey == null || toKey == null)
+            throw new NullPointerException();
+        if (cpr(comparator, fromKey, toKey) > 0)
+            throw new IllegalArgumentException("inconsistent range");
+        return doRemoveRange(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    /**
+     * Copies all of the mappings from the specified sorted map to this
+     * map, replacing any existing mappings for the same keys.  If the
+     * given map is ordered by the same comparator as this map (as
+     * determined by {@code equals}), entries are inserted in a single
+     * ascending pass that resumes each search, at every level, from
+     * the previous insertion point, rather than from the head of the
+     * map.  Otherwise this method behaves as {@link #putAll}.  This
+     * operation is not atomic: concurrent readers may observe some
+     * but not all of the new mappings.
+     *
+     * @param m mappings to be stored in this map
+     * @throws ClassCastException if a key of the specified map cannot
+     *         be compared with the keys currently in this map
+     * @throws NullPointerException if the specified map or any of its
+     *         keys or values are null
+     * @since 9
+     */
+    public void putAllSorted(SortedMap<? extends K, ? extends V> m) {
+        if (!Objects.equals(m.comparator(), comparator)) {
+            for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+                put(e.getKey(), e.getValue());
+            return;
+        }
+        Comparator<? super K> cmp = comparator;
+        @SuppressWarnings("unchecked")
+        Index<K,V>[] fingers = (Index<K,V>[])new Index<?,?>[MAX_LEVEL + 1];
+        Node<K,V> finger = null;        // node holding the previous key
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            K key = e.getKey();
+            V value = e.getValue();
+            if (key == null || value == null)
+                throw new NullPointerException();
+            Node<K,V> z = null;         // added node
+            outer: for (Node<K,V> b = finger;;) {
+                if (b == null || b.value == null || cpr(cmp, key, b.key) <= 0)
+                    b = findPredecessor(key, cmp);
+                for (Node<K,V> n = b.next;;) {
+                    if (n != null) {
+                        Object v; int c;
+                        Node<K,V> f = n.next;
+                        if (n != b.next)               // inconsistent read
+                            break;
+                        if ((v = n.value) == null) {   // n is deleted
+                            n.helpDelete(b, f);
+                            break;
+                        }
+                        if (b.value == null || v == n) // b is deleted
+                            break;
+                        if ((c = cpr(cmp, key, n.key)) > 0) {
+                            b = n;
+                            n = f;
+                            continue;
+                        }
+                        if (c == 0) {
+                            if (n.casValue(v, value)) {
+                                finger = n;
+                                break outer;
+                            }
+                            break; // restart if lost race to replace value
+                        }
+                        // else c < 0; fall through
+                    } else if (b == head.node) {
+                        // map is empty, so type check key now
+                        cpr(cmp, key, key);
+                    }
+                    z = new Node<K,V>(key, value, n);
+                    if (!b.casNext(n, z)) {
+                        z = null;
+                        break;     // restart if lost race to append to b
+                    }
+                    finger = z;
+                    break outer;
+                }
+                b = null;                              // restart from head
+            }
+            if (z != null)
+                addIndices(z, cmp, fingers);
+        }
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * If the map is a {@link SortedMap} with the same ordering as this
+     * map, this is performed as by {@link #putAllSorted}.
+     *
+     * @param m mappings to be stored in this map
+     * @throws ClassCastException if a key of the specified map cannot
+     *         be compared with the keys currently in this map
+     * @throws NullPointerException if the specified map or any of its
+     *         keys or values are null
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        if (m instanceof SortedMap)
+            putAllSorted((SortedMap<? extends K, ? extends V>)m);
+        else
+            super.putAll(m);
+    }
+
     /**
      * If the specified key is not already associated with a value,
      * attempts to compute its value using the given mapping function
@@ -2893,13 +3295,7 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
         }
 
         public void clear() {
-            Comparator<? super K> cmp = m.comparator;
-            for (ConcurrentSkipListMap.Node<K,V> n = loNode(cmp);
-                 isBeforeEnd(n, cmp);
-                 n = n.next) {
-                if (n.getValidValue() != null)
-                    m.remove(n.key);
-            }
+            m.doRemoveRange(lo, loInclusive, hi, hiInclusive);
         }
 
         /* ----------------  ConcurrentMap API methods -------------- */
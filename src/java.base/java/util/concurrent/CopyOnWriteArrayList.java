@@ -36,6 +36,7 @@ package java.util.concurrent;
 
 import java.lang.reflect.Field;
 import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
@@ -50,6 +51,7 @@ import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 
 /**
@@ -893,6 +895,78 @@ public class CopyOnWriteArrayList<E>
         setArray(es);
     }
 
+    public void parallelSort(Comparator<? super E> c) {
+        synchronized (lock) {
+            parallelSort(c, 0, getArray().length);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void parallelSort(Comparator<? super E> c, int i, int end) {
+        // assert Thread.holdsLock(lock);
+        final Object[] es = getArray().clone();
+        Arrays.parallelSort(es, i, end, (Comparator<Object>)c);
+        setArray(es);
+    }
+
+    public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        synchronized (lock) {
+            sortByLongKey(keyExtractor, 0, getArray().length);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void sortByLongKey(ToLongFunction<? super E> keyExtractor, int i, int end) {
+        // assert Thread.holdsLock(lock);
+        final Object[] es = getArray().clone();
+        Arrays.sortByLongKey(es, i, end, (ToLongFunction<Object>)keyExtractor);
+        setArray(es);
+    }
+
+    /**
+     * Atomically applies a batch of changes to this list.  The given
+     * action is performed, while holding this list's lock, on a private
+     * mutable copy of the list's contents, which then replaces them.
+     * Any number of additions, removals and replacements made by the
+     * action thus cost two copies of the array, one into the list passed
+     * to the action and one to publish the result, and other threads
+     * see either none or all of them.
+     *
+     * <p>The list passed to the action must not be used after the action
+     * returns.  If the action throws an exception, or modifies this list
+     * other than through the list passed to it, this list is restored to
+     * its contents before the call, and the exception, or a {@code
+     * ConcurrentModificationException}, is relayed to the caller.
+     *
+     * @param action the action to apply to a copy of this list
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modifies
+     *         this list other than through the list passed to it
+     * @since 9
+     */
+    public void mutate(Consumer<? super List<E>> action) {
+        Objects.requireNonNull(action);
+        synchronized (lock) {
+            final Object[] es = getArray();
+            final ArrayList<E> copy = new ArrayList<>(es.length + 16);
+            for (int i = 0; i < es.length; i++)
+                copy.add(elementAt(es, i));
+            boolean done = false;
+            try {
+                action.accept(copy);
+                // Did action reentrantly modify the list?
+                if (es != getArray())
+                    throw new ConcurrentModificationException();
+                setArray(copy.toArray());
+                done = true;
+            } finally {
+                if (!done && es != getArray())
+                    setArray(es);   // undo reentrant modifications
+            }
+        }
+    }
+
     /**
      * Saves this list to a stream (that is, serializes it).
      *
@@ -1357,6 +1431,23 @@ public class CopyOnWriteArrayList<E>
             }
         }
 
+        public void parallelSort(Comparator<? super E> c) {
+            synchronized (l.lock) {
+                checkForComodification();
+                l.parallelSort(c, offset, offset + size);
+                expectedArray = l.getArray();
+            }
+        }
+
+        public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+            Objects.requireNonNull(keyExtractor);
+            synchronized (l.lock) {
+                checkForComodification();
+                l.sortByLongKey(keyExtractor, offset, offset + size);
+                expectedArray = l.getArray();
+            }
+        }
+
         public boolean removeAll(Collection<?> c) {
             Objects.requireNonNull(c);
             return bulkRemove(e -> c.contains(e));
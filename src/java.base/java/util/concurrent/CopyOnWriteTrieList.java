@@ -0,0 +1,1253 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.lang.reflect.Field;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread-safe list with the semantics of {@link CopyOnWriteArrayList},
+ * in which each mutative operation creates a new version of the list
+ * that shares almost all of its structure with the previous one.
+ *
+ * <p>Elements are held in a persistent 32-way trie of arrays, as in a
+ * "persistent vector".  Reading an element follows at most
+ * log<sub>32</sub>(n) array references, and never takes a lock.
+ * {@code set}, and {@code add} or {@code remove} at the end of the
+ * list, copy only the arrays on the path to the element, so they take
+ * time and space proportional to log<sub>32</sub>(n) rather than to
+ * n, as they do in {@code CopyOnWriteArrayList}.  Adding or removing
+ * elsewhere copies the part of the list after the position.  Large
+ * lists that are updated often, such as big listener registries, thus
+ * generate far less garbage than with {@code CopyOnWriteArrayList},
+ * at the price of somewhat slower indexed reads.
+ *
+ * <p>Iterators, spliterators and {@link #snapshot snapshots} use the
+ * version of the list current when they were created; they never
+ * change, need no synchronization, and never throw {@code
+ * ConcurrentModificationException}.  Element-changing operations on
+ * iterators are not supported, and throw {@code
+ * UnsupportedOperationException}.  Mutations are serialized by a
+ * lock; {@link #mutate} applies several of them as one atomic change.
+ * The list returned by {@link #subList} is a view that should only
+ * be used while the list is not otherwise modified.
+ *
+ * <p>All elements are permitted, including {@code null}.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code CopyOnWriteTrieList}
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from
+ * the {@code CopyOnWriteTrieList} in another thread.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @since 9
+ * @param <E> the type of elements held in this list
+ */
+public class CopyOnWriteTrieList<E> extends AbstractList<E>
+    implements List<E>, RandomAccess, Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = -2391720393164573460L;
+
+    /** The lock protecting all mutators. */
+    final transient Object lock = new Object();
+
+    /** The current version, accessed only via getTrie/setTrie. */
+    private transient volatile Trie<E> trie;
+
+    final Trie<E> getTrie() {
+        return trie;
+    }
+
+    /**
+     * Sets the current version.  Also bumps modCount, so that subList
+     * views detect changes not made through them.
+     */
+    final void setTrie(Trie<E> t) {
+        modCount++;
+        trie = t;
+    }
+
+    /**
+     * Creates an empty list.
+     */
+    public CopyOnWriteTrieList() {
+        trie = Trie.empty();
+    }
+
+    /**
+     * Creates a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param c the collection of initially held elements
+     * @throws NullPointerException if the specified collection is null
+     */
+    public CopyOnWriteTrieList(Collection<? extends E> c) {
+        if (c.getClass() == CopyOnWriteTrieList.class) {
+            // Tries are never mutated, so sharing c's is safe
+            @SuppressWarnings("unchecked")
+            Trie<E> t = (Trie<E>) ((CopyOnWriteTrieList<?>)c).getTrie();
+            trie = t;
+        } else {
+            Object[] a = c.toArray();
+            trie = Trie.of(a, a.length);
+        }
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return getTrie().size;
+    }
+
+    /**
+     * Returns {@code true} if this list contains no elements.
+     *
+     * @return {@code true} if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return getTrie().size == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E get(int index) {
+        return getTrie().get(index);
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(Object o) {
+        return getTrie().indexOf(o) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int indexOf(Object o) {
+        return getTrie().indexOf(o);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int lastIndexOf(Object o) {
+        return getTrie().lastIndexOf(o);
+    }
+
+    /**
+     * Returns an unmodifiable list holding the current contents of this
+     * list.  The snapshot takes constant time to create, shares its
+     * structure with this list, and is not affected by later changes
+     * to this list.
+     *
+     * @return a snapshot of this list
+     */
+    public List<E> snapshot() {
+        return getTrie();
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * @return an array containing all the elements in this list
+     */
+    public Object[] toArray() {
+        return getTrie().toArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ArrayStoreException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public <T> T[] toArray(T[] a) {
+        return getTrie().toArray(a);
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with the
+     * specified element.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        synchronized (lock) {
+            Trie<E> t = getTrie();
+            E oldValue = t.get(index);
+            if (oldValue != element)
+                setTrie(t.update(index, element));
+            return oldValue;
+        }
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        synchronized (lock) {
+            setTrie(getTrie().append(e));
+            return true;
+        }
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        synchronized (lock) {
+            setTrie(getTrie().insert(index, element));
+        }
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).  Returns the element that was removed from the list.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        synchronized (lock) {
+            Trie<E> t = getTrie();
+            E oldValue = t.get(index);
+            setTrie(t.delete(index, index + 1));
+            return oldValue;
+        }
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.  If this list does not contain the element, it is
+     * unchanged.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean remove(Object o) {
+        synchronized (lock) {
+            Trie<E> t = getTrie();
+            int index = t.indexOf(o);
+            if (index < 0)
+                return false;
+            setTrie(t.delete(index, index + 1));
+            return true;
+        }
+    }
+
+    /**
+     * Appends the element, if not present.
+     *
+     * @param e element to be added to this list, if absent
+     * @return {@code true} if the element was added
+     */
+    public boolean addIfAbsent(E e) {
+        synchronized (lock) {
+            Trie<E> t = getTrie();
+            if (t.indexOf(e) >= 0)
+                return false;
+            setTrie(t.append(e));
+            return true;
+        }
+    }
+
+    /**
+     * Removes all of the elements from this list.
+     * The list will be empty after this call returns.
+     */
+    public void clear() {
+        synchronized (lock) {
+            setTrie(Trie.empty());
+        }
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive, in a
+     * single update.  Invoked by {@code subList(fromIndex, toIndex).clear()}.
+     *
+     * @throws IndexOutOfBoundsException if {@code fromIndex} or
+     *         {@code toIndex} is out of range
+     *         ({@code fromIndex < 0 || toIndex > size() || toIndex < fromIndex})
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        synchronized (lock) {
+            Trie<E> t = getTrie();
+            if (fromIndex < 0 || toIndex > t.size() || toIndex < fromIndex)
+                throw new IndexOutOfBoundsException();
+            if (fromIndex != toIndex)
+                setTrie(t.delete(fromIndex, toIndex));
+        }
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end
+     * of this list, in the order that they are returned by the specified
+     * collection's iterator.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        Object[] cs = c.toArray();
+        if (cs.length == 0)
+            return false;
+        synchronized (lock) {
+            setTrie(getTrie().appendAll(cs, 0, cs.length));
+            return true;
+        }
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position.  Shifts the element
+     * currently at that position (if any) and any subsequent elements to
+     * the right (increases their indices).  The new elements will appear
+     * in this list in the order that they are returned by the
+     * specified collection's iterator.
+     *
+     * @param index index at which to insert the first element
+     *        from the specified collection
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        Object[] cs = c.toArray();
+        synchronized (lock) {
+            Trie<E> t = getTrie();
+            if (index < 0 || index > t.size)
+                throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + t.size);
+            if (cs.length == 0)
+                return false;
+            setTrie(t.insertAll(index, cs));
+            return true;
+        }
+    }
+
+    /**
+     * Removes from this list all of its elements that are contained in
+     * the specified collection.
+     *
+     * @param c collection containing elements to be removed from this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean removeAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return bulkRemove(e -> c.contains(e));
+    }
+
+    /**
+     * Retains only the elements in this list that are contained in the
+     * specified collection.
+     *
+     * @param c collection containing elements to be retained in this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean retainAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return bulkRemove(e -> !c.contains(e));
+    }
+
+    /**
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        return bulkRemove(filter);
+    }
+
+    private boolean bulkRemove(Predicate<? super E> filter) {
+        synchronized (lock) {
+            final Trie<E> t = getTrie();
+            final Object[] es = t.toArray();
+            int w = 0;
+            for (Object x : es) {
+                @SuppressWarnings("unchecked") E e = (E) x;
+                if (!filter.test(e))
+                    es[w++] = e;
+            }
+            // Did filter reentrantly modify the list?
+            if (t != getTrie())
+                throw new ConcurrentModificationException();
+            if (w == es.length)
+                return false;
+            setTrie(Trie.of(es, w));
+            return true;
+        }
+    }
+
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        synchronized (lock) {
+            final Trie<E> t = getTrie();
+            final Object[] es = t.toArray();
+            for (int i = 0; i < es.length; i++) {
+                @SuppressWarnings("unchecked") E e = (E) es[i];
+                es[i] = operator.apply(e);
+            }
+            if (t != getTrie())
+                throw new ConcurrentModificationException();
+            setTrie(Trie.of(es, es.length));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        synchronized (lock) {
+            final Object[] es = getTrie().toArray();
+            Arrays.sort(es, (Comparator<Object>)c);
+            setTrie(Trie.of(es, es.length));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void parallelSort(Comparator<? super E> c) {
+        synchronized (lock) {
+            final Object[] es = getTrie().toArray();
+            Arrays.parallelSort(es, (Comparator<Object>)c);
+            setTrie(Trie.of(es, es.length));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        synchronized (lock) {
+            final Object[] es = getTrie().toArray();
+            Arrays.sortByLongKey(es, (ToLongFunction<Object>)keyExtractor);
+            setTrie(Trie.of(es, es.length));
+        }
+    }
+
+    /**
+     * Atomically applies a batch of changes to this list.  The given
+     * action is performed, while holding this list's lock, on a private
+     * mutable list that starts out with the contents of this list and
+     * shares its structure, and which then becomes the new contents of
+     * this list.  Other threads see either none or all of the changes
+     * made by the action.
+     *
+     * <p>The list passed to the action must not be used after the action
+     * returns.  If the action throws an exception, or modifies this list
+     * other than through the list passed to it, this list is restored to
+     * its contents before the call, and the exception, or a {@code
+     * ConcurrentModificationException}, is relayed to the caller.
+     *
+     * @param action the action to apply
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modifies
+     *         this list other than through the list passed to it
+     */
+    public void mutate(Consumer<? super List<E>> action) {
+        Objects.requireNonNull(action);
+        synchronized (lock) {
+            final Trie<E> t = getTrie();
+            final Editor<E> editor = new Editor<>(t);
+            boolean done = false;
+            try {
+                action.accept(editor);
+                // Did action reentrantly modify the list?
+                if (t != getTrie())
+                    throw new ConcurrentModificationException();
+                if (editor.trie != t)
+                    setTrie(editor.trie);
+                done = true;
+            } finally {
+                if (!done && t != getTrie())
+                    setTrie(t);     // undo reentrant modifications
+            }
+        }
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        getTrie().forEach(action);
+    }
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove} method.
+     *
+     * @return an iterator over the elements in this list in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return getTrie().listIterator(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove}, {@code set} or {@code add} methods.
+     */
+    public ListIterator<E> listIterator() {
+        return getTrie().listIterator(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove}, {@code set} or {@code add} methods.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public ListIterator<E> listIterator(int index) {
+        return getTrie().listIterator(index);
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this list.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#IMMUTABLE},
+     * {@link Spliterator#ORDERED}, {@link Spliterator#SIZED}, and
+     * {@link Spliterator#SUBSIZED}.
+     *
+     * <p>The spliterator provides a snapshot of the state of the list
+     * when the spliterator was constructed. No synchronization is needed while
+     * operating on the spliterator.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    public Spliterator<E> spliterator() {
+        return getTrie().spliterator();
+    }
+
+    public boolean equals(Object o) {
+        return o == this || getTrie().equals(o);
+    }
+
+    public int hashCode() {
+        return getTrie().hashCode();
+    }
+
+    public String toString() {
+        return getTrie().toString();
+    }
+
+    /**
+     * Returns a shallow copy of this list.  (The elements themselves
+     * are not copied.)  This takes constant time, since the copy shares
+     * the current version of this list.
+     *
+     * @return a clone of this list
+     */
+    public Object clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            CopyOnWriteTrieList<E> clone =
+                (CopyOnWriteTrieList<E>) super.clone();
+            clone.resetLock();
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError();
+        }
+    }
+
+    /**
+     * Saves this list to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The size of the list (int), followed by all of its
+     *             elements (each an Object) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+
+        s.defaultWriteObject();
+
+        Trie<E> t = getTrie();
+        s.writeInt(t.size);
+        for (Object element : t)
+            s.writeObject(element);
+    }
+
+    /**
+     * Reconstitutes this list from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+
+        s.defaultReadObject();
+
+        // bind to new lock
+        resetLock();
+
+        int len = s.readInt();
+        if (len < 0)
+            throw new java.io.InvalidObjectException("Invalid size: " + len);
+        Object[] buf = new Object[Math.min(len, Trie.WIDTH)];
+        Trie<E> t = Trie.empty();
+        for (int i = 0, n = 0; i < len; i++) {
+            buf[n++] = s.readObject();
+            if (n == buf.length || i == len - 1) {
+                t = t.appendAll(buf, 0, n);
+                n = 0;
+            }
+        }
+        trie = t;
+    }
+
+    /** Initializes the lock; for use when deserializing or cloning. */
+    private void resetLock() {
+        Field lockField = java.security.AccessController.doPrivileged(
+            (java.security.PrivilegedAction<Field>) () -> {
+                try {
+                    Field f = CopyOnWriteTrieList.class
+                        .getDeclaredField("lock");
+                    f.setAccessible(true);
+                    return f;
+                } catch (ReflectiveOperationException e) {
+                    throw new Error(e);
+                }});
+        try {
+            lockField.set(this, new Object());
+        } catch (IllegalAccessException e) {
+            throw new Error(e);
+        }
+    }
+
+    /**
+     * An immutable version of the list: a persistent vector.
+     *
+     * The first tailOffset() elements are held in full leaf arrays of
+     * WIDTH elements, reached from root through shift/BITS levels of
+     * interior arrays of WIDTH slots, unused slots being null.  The
+     * remaining 1 to WIDTH elements (none if empty) are in tail, which
+     * is exactly as long as needed.  All arrays are never modified once
+     * the Trie holding them is published, so any number of versions
+     * may share them.
+     */
+    static final class Trie<E> extends AbstractList<E> implements RandomAccess {
+        static final int BITS = 5;
+        static final int WIDTH = 1 << BITS;
+        static final int MASK = WIDTH - 1;
+
+        private static final Object[] EMPTY_NODE = new Object[WIDTH];
+        private static final Object[] EMPTY_TAIL = {};
+        private static final Trie<?> EMPTY =
+            new Trie<>(0, BITS, EMPTY_NODE, EMPTY_TAIL);
+
+        final int size;
+        final int shift;
+        final Object[] root;
+        final Object[] tail;
+
+        Trie(int size, int shift, Object[] root, Object[] tail) {
+            this.size = size;
+            this.shift = shift;
+            this.root = root;
+            this.tail = tail;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <E> Trie<E> empty() {
+            return (Trie<E>) EMPTY;
+        }
+
+        /** Builds a trie holding the first n elements of a. */
+        static <E> Trie<E> of(Object[] a, int n) {
+            if (n == 0)
+                return empty();
+            int tailOff = tailOffset(n);
+            Object[] tail = Arrays.copyOfRange(a, tailOff, n, Object[].class);
+            if (tailOff == 0)
+                return new Trie<>(n, BITS, EMPTY_NODE, tail);
+            int count = tailOff >>> BITS;
+            Object[] level = new Object[count];
+            for (int i = 0; i < count; i++)
+                level[i] = Arrays.copyOfRange(a, i << BITS, (i + 1) << BITS,
+                                              Object[].class);
+            int shift = BITS;
+            for (; count > WIDTH; shift += BITS) {
+                int parents = (count + MASK) >>> BITS;
+                Object[] up = new Object[parents];
+                for (int p = 0; p < parents; p++) {
+                    Object[] node = new Object[WIDTH];
+                    int from = p << BITS;
+                    System.arraycopy(level, from, node, 0,
+                                     Math.min(WIDTH, count - from));
+                    up[p] = node;
+                }
+                level = up;
+                count = parents;
+            }
+            Object[] root = Arrays.copyOf(level, WIDTH);
+            return new Trie<>(n, shift, root, tail);
+        }
+
+        /** Returns the number of elements held in the tree, not the tail. */
+        static int tailOffset(int size) {
+            return (size <= WIDTH) ? 0 : ((size - 1) >>> BITS) << BITS;
+        }
+
+        /** Returns the leaf array holding index i. */
+        Object[] leafFor(int i) {
+            if (i >= tailOffset(size))
+                return tail;
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS)
+                node = (Object[]) node[(i >>> level) & MASK];
+            return node;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            Objects.checkIndex(index, size);
+            return (E) leafFor(index)[index & MASK];
+        }
+
+        // Updates, each returning a new version
+
+        Trie<E> update(int index, Object e) {
+            Objects.checkIndex(index, size);
+            if (index >= tailOffset(size)) {
+                Object[] t = tail.clone();
+                t[index & MASK] = e;
+                return new Trie<>(size, shift, root, t);
+            }
+            return new Trie<>(size, shift, assoc(shift, root, index, e), tail);
+        }
+
+        private static Object[] assoc(int level, Object[] node, int i,
+                                      Object e) {
+            Object[] copy = node.clone();
+            if (level == 0)
+                copy[i & MASK] = e;
+            else {
+                int sub = (i >>> level) & MASK;
+                copy[sub] = assoc(level - BITS, (Object[]) node[sub], i, e);
+            }
+            return copy;
+        }
+
+        Trie<E> append(Object e) {
+            int n = tail.length;
+            if (n < WIDTH) {
+                Object[] t = Arrays.copyOf(tail, n + 1);
+                t[n] = e;
+                return new Trie<>(size + 1, shift, root, t);
+            }
+            // The tail is full; push it into the tree
+            Object[] newRoot;
+            int newShift = shift;
+            if ((size >>> BITS) > (1 << shift)) {   // root overflow
+                newRoot = new Object[WIDTH];
+                newRoot[0] = root;
+                newRoot[1] = newPath(shift, tail);
+                newShift += BITS;
+            } else
+                newRoot = pushTail(shift, root, tail);
+            return new Trie<>(size + 1, newShift, newRoot, new Object[] { e });
+        }
+
+        private Object[] pushTail(int level, Object[] parent, Object[] leaf) {
+            int sub = ((size - 1) >>> level) & MASK;
+            Object[] copy = parent.clone();
+            if (level == BITS)
+                copy[sub] = leaf;
+            else {
+                Object[] child = (Object[]) parent[sub];
+                copy[sub] = (child != null)
+                    ? pushTail(level - BITS, child, leaf)
+                    : newPath(level - BITS, leaf);
+            }
+            return copy;
+        }
+
+        private static Object[] newPath(int level, Object[] leaf) {
+            if (level == 0)
+                return leaf;
+            Object[] node = new Object[WIDTH];
+            node[0] = newPath(level - BITS, leaf);
+            return node;
+        }
+
+        /** Appends len elements of a, starting at off. */
+        Trie<E> appendAll(Object[] a, int off, int len) {
+            Trie<E> t = this;
+            while (len > 0) {
+                int n = t.tail.length;
+                if (n == WIDTH) {
+                    t = t.append(a[off++]);
+                    len--;
+                } else {
+                    int k = Math.min(WIDTH - n, len);
+                    Object[] tail = Arrays.copyOf(t.tail, n + k);
+                    System.arraycopy(a, off, tail, n, k);
+                    t = new Trie<>(t.size + k, t.shift, t.root, tail);
+                    off += k;
+                    len -= k;
+                }
+            }
+            return t;
+        }
+
+        /** Returns the first n elements of this trie. */
+        Trie<E> truncate(int n) {
+            Trie<E> t = this;
+            while (t.size > n) {
+                int tailOff = tailOffset(t.size);
+                if (n > tailOff)
+                    return new Trie<>(n, t.shift, t.root,
+                                      Arrays.copyOf(t.tail, n - tailOff));
+                t = (tailOff == 0) ? empty() : t.dropTail();
+            }
+            return t;
+        }
+
+        /** Removes the tail, moving the last leaf of the tree into it. */
+        private Trie<E> dropTail() {
+            int newSize = tailOffset(size);
+            Object[] newTail = leafFor(newSize - 1);
+            Object[] newRoot = popTail(shift, root, newSize - 1);
+            int newShift = shift;
+            if (newRoot == null)
+                newRoot = EMPTY_NODE;
+            if (shift > BITS && newRoot[1] == null) {
+                newRoot = (Object[]) newRoot[0];
+                newShift -= BITS;
+            }
+            return new Trie<>(newSize, newShift, newRoot, newTail);
+        }
+
+        /** Removes the leaf holding index i, the last in the tree. */
+        private static Object[] popTail(int level, Object[] node, int i) {
+            int sub = (i >>> level) & MASK;
+            if (level > BITS) {
+                Object[] child = popTail(level - BITS, (Object[]) node[sub], i);
+                if (child == null && sub == 0)
+                    return null;
+                Object[] copy = node.clone();
+                copy[sub] = child;
+                return copy;
+            } else if (sub == 0)
+                return null;
+            else {
+                Object[] copy = node.clone();
+                copy[sub] = null;
+                return copy;
+            }
+        }
+
+        Trie<E> insert(int index, Object e) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + size);
+            if (index == size)
+                return append(e);
+            Object[] rest = copyRange(index, size);
+            return truncate(index).append(e).appendAll(rest, 0, rest.length);
+        }
+
+        Trie<E> insertAll(int index, Object[] a) {
+            Object[] rest = copyRange(index, size);
+            return truncate(index).appendAll(a, 0, a.length)
+                .appendAll(rest, 0, rest.length);
+        }
+
+        Trie<E> delete(int from, int to) {
+            Object[] rest = copyRange(to, size);
+            return truncate(from).appendAll(rest, 0, rest.length);
+        }
+
+        /** Copies the elements from index from to index to into a new array. */
+        Object[] copyRange(int from, int to) {
+            Object[] a = new Object[to - from];
+            for (int i = from, w = 0; i < to; ) {
+                Object[] leaf = leafFor(i);
+                int o = i & MASK;
+                int n = Math.min(to - i, leaf.length - o);
+                System.arraycopy(leaf, o, a, w, n);
+                i += n;
+                w += n;
+            }
+            return a;
+        }
+
+        // Queries
+
+        public Object[] toArray() {
+            return copyRange(0, size);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            Object[] es = toArray();
+            if (a.length < es.length)
+                return (T[]) Arrays.copyOf(es, es.length, a.getClass());
+            System.arraycopy(es, 0, a, 0, es.length);
+            if (a.length > es.length)
+                a[es.length] = null;
+            return a;
+        }
+
+        public int indexOf(Object o) {
+            for (int i = 0; i < size; ) {
+                Object[] leaf = leafFor(i);
+                for (int j = 0; j < leaf.length; j++) {
+                    if (Objects.equals(o, leaf[j]))
+                        return i + j;
+                }
+                i += leaf.length;
+            }
+            return -1;
+        }
+
+        public int lastIndexOf(Object o) {
+            for (int i = size - 1; i >= 0; ) {
+                Object[] leaf = leafFor(i);
+                for (int j = i & MASK; j >= 0; j--) {
+                    if (Objects.equals(o, leaf[j]))
+                        return (i & ~MASK) + j;
+                }
+                i = (i & ~MASK) - 1;
+            }
+            return -1;
+        }
+
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEach(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            for (int i = 0; i < size; ) {
+                Object[] leaf = leafFor(i);
+                for (Object x : leaf)
+                    action.accept((E) x);
+                i += leaf.length;
+            }
+        }
+
+        public Iterator<E> iterator() {
+            return new Itr<>(this, 0);
+        }
+
+        public ListIterator<E> listIterator() {
+            return new Itr<>(this, 0);
+        }
+
+        public ListIterator<E> listIterator(int index) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + size);
+            return new Itr<>(this, index);
+        }
+
+        public Spliterator<E> spliterator() {
+            return new TrieSpliterator<>(this, 0, size);
+        }
+    }
+
+    /**
+     * A snapshot iterator over a Trie, caching the current leaf.
+     */
+    static final class Itr<E> implements ListIterator<E> {
+        private final Trie<E> trie;
+        private Object[] leaf;
+        private int leafBase = -1;
+        private int cursor;
+
+        Itr(Trie<E> trie, int cursor) {
+            this.trie = trie;
+            this.cursor = cursor;
+        }
+
+        @SuppressWarnings("unchecked")
+        private E elementAt(int i) {
+            int base = i & ~Trie.MASK;
+            if (base != leafBase) {
+                leaf = trie.leafFor(i);
+                leafBase = base;
+            }
+            return (E) leaf[i & Trie.MASK];
+        }
+
+        public boolean hasNext() {
+            return cursor < trie.size;
+        }
+
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        public E next() {
+            if (! hasNext())
+                throw new NoSuchElementException();
+            return elementAt(cursor++);
+        }
+
+        public E previous() {
+            if (! hasPrevious())
+                throw new NoSuchElementException();
+            return elementAt(--cursor);
+        }
+
+        public int nextIndex() {
+            return cursor;
+        }
+
+        public int previousIndex() {
+            return cursor-1;
+        }
+
+        /**
+         * Not supported. Always throws UnsupportedOperationException.
+         * @throws UnsupportedOperationException always; {@code remove}
+         *         is not supported by this iterator.
+         */
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported. Always throws UnsupportedOperationException.
+         * @throws UnsupportedOperationException always; {@code set}
+         *         is not supported by this iterator.
+         */
+        public void set(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported. Always throws UnsupportedOperationException.
+         * @throws UnsupportedOperationException always; {@code add}
+         *         is not supported by this iterator.
+         */
+        public void add(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            final int size = trie.size;
+            for (int i = cursor; i < size; i++)
+                action.accept(elementAt(i));
+            cursor = size;
+        }
+    }
+
+    /**
+     * A spliterator over a range of a Trie, splitting at leaf
+     * boundaries where possible.
+     */
+    static final class TrieSpliterator<E> implements Spliterator<E> {
+        private final Trie<E> trie;
+        private int index;
+        private final int fence;
+
+        TrieSpliterator(Trie<E> trie, int origin, int fence) {
+            this.trie = trie;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        public TrieSpliterator<E> trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            if (mid - lo >= Trie.WIDTH)
+                mid &= ~Trie.MASK;
+            return (lo >= mid) ? null
+                : new TrieSpliterator<>(trie, lo, index = mid);
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            int i = index;
+            if (i < fence) {
+                index = i + 1;
+                action.accept((E) trie.leafFor(i)[i & Trie.MASK]);
+                return true;
+            }
+            return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            int i = index, hi = fence;
+            index = hi;
+            while (i < hi) {
+                Object[] leaf = trie.leafFor(i);
+                int o = i & Trie.MASK;
+                int end = Math.min(leaf.length, o + (hi - i));
+                for (int j = o; j < end; j++)
+                    action.accept((E) leaf[j]);
+                i += end - o;
+            }
+        }
+
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        public int characteristics() {
+            return Spliterator.IMMUTABLE | Spliterator.ORDERED |
+                Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+    /**
+     * The mutable list passed to the action of mutate, which builds a
+     * new version without publishing it.
+     */
+    static final class Editor<E> extends AbstractList<E>
+        implements RandomAccess {
+        Trie<E> trie;
+
+        Editor(Trie<E> trie) {
+            this.trie = trie;
+        }
+
+        public int size() {
+            return trie.size;
+        }
+
+        public E get(int index) {
+            return trie.get(index);
+        }
+
+        public E set(int index, E element) {
+            E oldValue = trie.get(index);
+            trie = trie.update(index, element);
+            return oldValue;
+        }
+
+        public boolean add(E e) {
+            modCount++;
+            trie = trie.append(e);
+            return true;
+        }
+
+        public void add(int index, E element) {
+            modCount++;
+            trie = trie.insert(index, element);
+        }
+
+        public E remove(int index) {
+            E oldValue = trie.get(index);
+            modCount++;
+            trie = trie.delete(index, index + 1);
+            return oldValue;
+        }
+
+        public boolean addAll(Collection<? extends E> c) {
+            Object[] cs = c.toArray();
+            modCount++;
+            trie = trie.appendAll(cs, 0, cs.length);
+            return cs.length != 0;
+        }
+
+        protected void removeRange(int fromIndex, int toIndex) {
+            modCount++;
+            trie = trie.delete(fromIndex, toIndex);
+        }
+
+        public void clear() {
+            modCount++;
+            trie = Trie.empty();
+        }
+
+        public boolean removeIf(Predicate<? super E> filter) {
+            Objects.requireNonNull(filter);
+            Object[] es = trie.toArray();
+            int w = 0;
+            for (Object x : es) {
+                @SuppressWarnings("unchecked") E e = (E) x;
+                if (!filter.test(e))
+                    es[w++] = e;
+            }
+            if (w == es.length)
+                return false;
+            modCount++;
+            trie = Trie.of(es, w);
+            return true;
+        }
+    }
+}
@@ -304,6 +304,55 @@ public class Executors {
         return new ScheduledThreadPoolExecutor(corePoolSize, threadFactory);
     }
 
+    /**
+     * Creates a thread pool that can schedule commands to run after a
+     * given delay, or to execute periodically, keeping delayed tasks
+     * in a timing wheel.  Scheduling and cancelling a task take
+     * constant time, at the cost of enabling tasks only at tick
+     * boundaries, which suits large numbers of mostly cancelled
+     * timeouts.
+     * @param corePoolSize the number of threads to keep in the pool,
+     * even if they are idle
+     * @param tickDuration the resolution of the timing wheel
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @return a newly created scheduled thread pool
+     * @throws IllegalArgumentException if {@code corePoolSize < 0}
+     * or {@code tickDuration <= 0}
+     * @throws NullPointerException if unit is null
+     * @since 9
+     */
+    public static ScheduledExecutorService newTimingWheelScheduledThreadPool(
+            int corePoolSize, long tickDuration, TimeUnit unit) {
+        return new ScheduledThreadPoolExecutor(corePoolSize, tickDuration, unit);
+    }
+
+    /**
+     * Creates a thread pool that can schedule commands to run after a
+     * given delay, or to execute periodically, keeping delayed tasks
+     * in a timing wheel.  Scheduling and cancelling a task take
+     * constant time, at the cost of enabling tasks only at tick
+     * boundaries, which suits large numbers of mostly cancelled
+     * timeouts.
+     * @param corePoolSize the number of threads to keep in the pool,
+     * even if they are idle
+     * @param tickDuration the resolution of the timing wheel
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param threadFactory the factory to use when the executor
+     * creates a new thread
+     * @return a newly created scheduled thread pool
+     * @throws IllegalArgumentException if {@code corePoolSize < 0}
+     * or {@code tickDuration <= 0}
+     * @throws NullPointerException if unit or threadFactory is null
+     * @since 9
+     */
+    public static ScheduledExecutorService newTimingWheelScheduledThreadPool(
+            int corePoolSize, long tickDuration, TimeUnit unit,
+            ThreadFactory threadFactory) {
+        return new ScheduledThreadPoolExecutor(
+            corePoolSize, tickDuration, unit, threadFactory,
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
     /**
      * Returns an object that delegates all defined {@link
      * ExecutorService} methods to the given executor, but not any
@@ -1388,13 +1388,7 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      * @throws IllegalArgumentException {@inheritDoc}
      */
     public int drainTo(Collection<? super E> c) {
-        Objects.requireNonNull(c);
-        if (c == this)
-            throw new IllegalArgumentException();
-        int n = 0;
-        for (E e; (e = poll()) != null; n++)
-            c.add(e);
-        return n;
+        return drainTo(c, Integer.MAX_VALUE);
     }
 
     /**
@@ -1405,10 +1399,146 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
         Objects.requireNonNull(c);
         if (c == this)
             throw new IllegalArgumentException();
+        return drainTo(c::add, maxElements);
+    }
+
+    /**
+     * Removes at most the given number of elements from the head of
+     * this queue, in order, and passes each to the given action.
+     * Producers blocked in {@link #transfer} on a removed element are
+     * released as if by {@link #poll}.
+     *
+     * <p>Each element is matched individually, so concurrent consumers
+     * never observe an element twice, but the head pointer is
+     * advanced past the whole run of matched nodes with a single CAS
+     * at the end of the batch, rather than once per element as with
+     * repeated calls to {@link #poll}.
+     *
+     * <p>If the action throws an exception, the element being
+     * processed has already been removed and is lost; elements not
+     * yet removed remain in the queue, and the exception is relayed
+     * to the caller.
+     *
+     * @param action the action to perform on each removed element
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws NullPointerException if the action is null
+     * @since 9
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(Consumer<? super E> action, int maxElements) {
+        Objects.requireNonNull(action);
+        int n = 0;
+        if (maxElements <= 0)
+            return n;
+        restart: for (;;) {
+            Node h = head, last = null;
+            try {
+                for (Node p = h, q;; p = q) {
+                    final Object item;
+                    if (p.isData) {
+                        if ((item = p.item) != null && p.tryMatch(item, null)) {
+                            last = p;
+                            ++n;
+                            action.accept((E) item);
+                            if (n >= maxElements)
+                                return n;
+                        }
+                    }
+                    else if (p.item == null)
+                        return n;       // waiting consumers; no data
+                    if ((q = p.next) == null)
+                        return n;
+                    if (p == q)
+                        continue restart;
+                }
+            } finally {
+                // Every node from h through last is now matched
+                if (last != null && last != h)
+                    skipDeadNodesNearHead(h, last);
+            }
+        }
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of
+     * this queue, in the order that they are returned by the specified
+     * collection's iterator.  Attempts to {@code addAll} of a queue to
+     * itself result in {@code IllegalArgumentException}.
+     *
+     * @param c the elements to be inserted into this queue
+     * @return {@code true} if this queue changed as a result of the call
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     * @throws IllegalArgumentException if the collection is this queue
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        return offerAll(c) > 0;
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection, in the
+     * order that they are returned by the specified collection's
+     * iterator.  Elements are first handed to any consumers already
+     * waiting in {@link #take} or timed {@link #poll(long,TimeUnit)
+     * poll}; the remainder, linked beforehand into a private chain of
+     * nodes, are appended at the tail with a single CAS.  As the queue
+     * is unbounded, this method never blocks and inserts every element.
+     *
+     * @param c the elements to be inserted into this queue
+     * @return the number of elements inserted
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     * @throws IllegalArgumentException if the collection is this queue
+     * @since 9
+     */
+    public int offerAll(Collection<? extends E> c) {
+        if (c == this)
+            // As historically specified in AbstractQueue#addAll
+            throw new IllegalArgumentException();
+
+        // Copy c into a private chain of Nodes
+        Node first = null, last = null;
         int n = 0;
-        for (E e; n < maxElements && (e = poll()) != null; n++)
-            c.add(e);
-        return n;
+        for (E e : c) {
+            Node newNode = new Node(Objects.requireNonNull(e));
+            if (first == null)
+                first = last = newNode;
+            else
+                last.appendRelaxed(last = newNode);
+            ++n;
+        }
+        if (first == null)
+            return 0;
+
+        // As in xfer, but matching waiting consumers with successive
+        // chain elements before appending what is left of the chain.
+        restart: for (Node t = null, h = null;;) {
+            for (Node p = (t != (t = tail) && t.isData) ? t
+                     : (h = head);; ) {
+                final Node q;
+                if (!p.isData && p.item == null) {
+                    if (h == null) h = head;
+                    if (p.tryMatch(null, first.item)) {
+                        if (h != p) skipDeadNodesNearHead(h, p);
+                        if ((first = first.next) == null)
+                            return n;
+                    }
+                }
+                if ((q = p.next) == null) {
+                    if (!p.casNext(null, first)) continue;
+                    if (!casTail(t, last)) {
+                        // Try a little harder to update tail,
+                        // since we may be adding many elements.
+                        t = tail;
+                        if (last.next == null)
+                            casTail(t, last);
+                    }
+                    return n;
+                }
+                if (p == (p = q)) continue restart;
+            }
+        }
     }
 
     /**
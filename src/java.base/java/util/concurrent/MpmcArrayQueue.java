@@ -0,0 +1,377 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written with assistance from members of JCP JSR-166 Expert Group
+ * and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by a
+ * ring buffer, for any number of producer and consumer threads.  This
+ * queue orders elements FIFO (first-in-first-out) with respect to the
+ * order in which insertions complete.
+ *
+ * <p>Unlike {@link ArrayBlockingQueue}, neither insertion nor removal
+ * acquires a lock: producers claim slots by CAS on a tail sequence
+ * number, consumers claim them by CAS on a head sequence number, and
+ * each slot is handed over through its own sequence number, so
+ * producers contend only with each other on one padded counter, and
+ * consumers likewise.  Threads block, in {@link #put} and {@link #take}
+ * and their timed forms, only when the queue is full or empty
+ * respectively.
+ *
+ * <p>This queue may be used as the work queue of a {@link
+ * ThreadPoolExecutor}, including its {@code remove} and {@code purge}
+ * methods.  Interior removal ({@link #remove(Object)} and {@link
+ * Iterator#remove}) replaces the element with a marker that is no
+ * longer counted by {@link #size}; the slot itself is reclaimed when
+ * the marker reaches the head of the queue.
+ *
+ * <p>The capacity is rounded up to a power of two.  Iterators are
+ * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>
+ * and traverse a snapshot of the elements present when they were
+ * created.
+ *
+ * @since 9
+ * @param <E> the type of elements held in this queue
+ */
+public class MpmcArrayQueue<E> extends AbstractRingBlockingQueue<E> {
+
+    /*
+     * This is a variant of Dmitry Vyukov's bounded MPMC queue.  Each
+     * slot i has a sequence number: when it equals a claimant's tail
+     * index t (with i == t & mask) the slot is free for the producer
+     * that claims t; when it equals t + 1 the slot holds the element
+     * inserted at t; after removal it is advanced to t + capacity, the
+     * tail index that will next use it.  Producers claim tail indices
+     * by CAS; consumers claim head indices the same way.
+     *
+     * Slot contents are cleared by getAndSet rather than a plain
+     * read, so that interior removal can race safely with the
+     * consumer: remove(Object) CASes the element to REMOVED, and
+     * whichever of the two succeeds owns the element.  Markers are
+     * counted in "removed" so that size() can discount them, and
+     * markers that reach the head are consumed eagerly (see sweep), so
+     * that removal frees capacity as soon as the queue allows.
+     *
+     * Sequence numbers are written with volatile stores, which also
+     * provide the ordering needed by the blocking handshake in
+     * AbstractRingBlockingQueue.
+     */
+
+    /** Marks an element removed from the interior of the queue. */
+    private static final Object REMOVED = new Object();
+
+    /** The number of REMOVED markers not yet consumed. */
+    private volatile long removed;
+
+    private final Object[] buffer;
+    private final long[] sequences;
+    private final int mask;
+
+    /** The next tail (insertion) index, claimed by CAS. */
+    @jdk.internal.vm.annotation.Contended("p")
+    private volatile long tail;
+
+    /** The next head (removal) index, claimed by CAS. */
+    @jdk.internal.vm.annotation.Contended("c")
+    private volatile long head;
+
+    /**
+     * Creates a {@code MpmcArrayQueue} with at least the given
+     * capacity, rounded up to a power of two no less than two.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1} or is
+     *         larger than {@code 1 << 30}
+     */
+    public MpmcArrayQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException();
+        // At least two slots, so that "full for t" and "free for t + 1"
+        // have distinct sequence numbers
+        int n = (capacity <= 2) ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        buffer = new Object[n];
+        sequences = new long[n];
+        for (int i = 0; i < n; ++i)
+            sequences[i] = i;
+        mask = n - 1;
+    }
+
+    final int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false} if
+     * this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        final long[] seqs = sequences;
+        for (long t = tail;;) {
+            int i = (int)t & mask;
+            long d = (long)SEQ.getVolatile(seqs, i) - t;
+            if (d == 0L) {
+                if (TAIL.weakCompareAndSet(this, t, t + 1L)) {
+                    ELEM.set(buffer, i, e);
+                    SEQ.setVolatile(seqs, i, t + 1L);
+                    signalNotEmpty();
+                    return true;
+                }
+            }
+            else if (d < 0L && t == tail)
+                return false;           // full: slot not yet freed
+            t = tail;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        final long[] seqs = sequences;
+        for (long h = head;;) {
+            int i = (int)h & mask;
+            long d = (long)SEQ.getVolatile(seqs, i) - (h + 1L);
+            if (d == 0L) {
+                if (HEAD.weakCompareAndSet(this, h, h + 1L)) {
+                    Object e = ELEM.getAndSet(buffer, i, null);
+                    SEQ.setVolatile(seqs, i, h + buffer.length);
+                    signalNotFull();
+                    if (e != REMOVED) {
+                        if (removed != 0L)
+                            sweep();
+                        return (E) e;
+                    }
+                    REMOVED_COUNT.getAndAdd(this, -1L);
+                }
+            }
+            else if (d < 0L && h == head)
+                return null;            // empty: slot not yet published
+            h = head;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final long[] seqs = sequences;
+        for (long h = head, t = tail; h < t; ++h) {
+            int i = (int)h & mask;
+            if ((long)SEQ.getVolatile(seqs, i) != h + 1L)
+                break;
+            Object e = ELEM.getVolatile(buffer, i);
+            if (e != null && e != REMOVED)
+                return (E) e;
+        }
+        return null;
+    }
+
+    public int size() {
+        for (;;) {
+            long h = head, t = tail, r = removed;
+            if (h == head) {
+                long n = t - h - r;
+                return (n <= 0L) ? 0 : (int)Math.min(n, buffer.length);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        return o != null && removeElement(o, false) >= 0;
+    }
+
+    /**
+     * Removes a single instance of o, as remove(Object) does, for the
+     * work-stealing queue of ThreadPoolExecutor.
+     *
+     * @return -1 if o was not found, else the number of slots freed
+     */
+    final int removeAndSweep(Object o) {
+        return (o == null) ? -1 : removeElement(o, false);
+    }
+
+    /**
+     * Marks as removed the first published slot holding o, comparing
+     * by identity or by equals.  A CAS on the slot arbitrates against
+     * the consumer's getAndSet.  Returns -1 if there is no such slot,
+     * else the number of slots then freed by sweep.
+     */
+    private int removeElement(Object o, boolean identity) {
+        final long[] seqs = sequences;
+        for (long h = head, t = tail; h < t; ++h) {
+            int i = (int)h & mask;
+            if ((long)SEQ.getVolatile(seqs, i) != h + 1L)
+                continue;
+            Object e = ELEM.getVolatile(buffer, i);
+            if (e != null && e != REMOVED &&
+                (identity ? e == o : o.equals(e)) &&
+                ELEM.compareAndSet(buffer, i, e, REMOVED)) {
+                REMOVED_COUNT.getAndAdd(this, 1L);
+                return sweep();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Consumes REMOVED markers at the head of the queue, exactly as
+     * poll would, so that their slots become free for producers.
+     * Markers are never replaced, so a slot seen holding one still
+     * does once its head index is claimed.
+     *
+     * @return the number of slots freed
+     */
+    private int sweep() {
+        final long[] seqs = sequences;
+        int n = 0;
+        for (long h; ; ) {
+            int i = (int)(h = head) & mask;
+            if ((long)SEQ.getVolatile(seqs, i) != h + 1L ||
+                ELEM.getVolatile(buffer, i) != REMOVED)
+                break;
+            if (HEAD.compareAndSet(this, h, h + 1L)) {
+                ELEM.set(buffer, i, null);
+                SEQ.setVolatile(seqs, i, h + buffer.length);
+                REMOVED_COUNT.getAndAdd(this, -1L);
+                signalNotFull();
+                ++n;
+            }
+        }
+        return n;
+    }
+
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (Object e : toArray())
+                if (o.equals(e))
+                    return true;
+        }
+        return false;
+    }
+
+    public Object[] toArray() {
+        final long[] seqs = sequences;
+        long h = head, t = tail;
+        Object[] a = new Object[(int)Math.max(0L, Math.min(t - h, buffer.length))];
+        int n = 0;
+        for (; h < t && n < a.length; ++h) {
+            int i = (int)h & mask;
+            if ((long)SEQ.getVolatile(seqs, i) != h + 1L)
+                continue;
+            Object e = ELEM.getVolatile(buffer, i);
+            if (e != null && e != REMOVED)
+                a[n++] = e;
+        }
+        return (n == a.length) ? a : Arrays.copyOf(a, n);
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in proper
+     * sequence, from a snapshot taken when the iterator is created.
+     * Its {@code remove} method removes the element from this queue if
+     * it is still present.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    private class Itr implements Iterator<E> {
+        private final Object[] snapshot;
+        private int cursor;
+        private int lastRet = -1;
+
+        Itr(Object[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public boolean hasNext() {
+            return cursor < snapshot.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= snapshot.length)
+                throw new NoSuchElementException();
+            return (E) snapshot[lastRet = cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            removeElement(snapshot[lastRet], true);
+            lastRet = -1;
+        }
+    }
+
+    // VarHandle mechanics
+    private static final VarHandle TAIL;
+    private static final VarHandle HEAD;
+    private static final VarHandle REMOVED_COUNT;
+    static final VarHandle ELEM =
+        MethodHandles.arrayElementVarHandle(Object[].class);
+    static final VarHandle SEQ =
+        MethodHandles.arrayElementVarHandle(long[].class);
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            TAIL = l.findVarHandle(MpmcArrayQueue.class, "tail", long.class);
+            HEAD = l.findVarHandle(MpmcArrayQueue.class, "head", long.class);
+            REMOVED_COUNT = l.findVarHandle(MpmcArrayQueue.class, "removed", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -38,15 +38,22 @@ package java.util.concurrent;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 /**
  * A {@link ThreadPoolExecutor} that can additionally schedule
@@ -70,6 +77,22 @@ import java.util.concurrent.locks.ReentrantLock;
  * {@link #setRemoveOnCancelPolicy} to cause tasks to be immediately
  * removed from the work queue at time of cancellation.
  *
+ * <p>By default, delayed tasks are held in a priority queue, so that
+ * scheduling and removing a task take time logarithmic in the number
+ * of queued tasks, and all threads contend for a single lock.  An
+ * executor constructed with a <em>tick duration</em> instead holds
+ * tasks in a hierarchical timing wheel, for which scheduling and
+ * cancellation take constant time, and scheduling does not normally
+ * acquire any lock.  This suits large numbers of timeouts that are
+ * usually cancelled before they elapse.  In exchange, tasks become
+ * enabled only at the first tick boundary at or after their trigger
+ * time, and tasks enabled at the same tick are not necessarily
+ * enabled in FIFO order.  With a timing wheel, cancelled tasks are
+ * discarded at the latest when their delay elapses, and under the
+ * {@linkplain #setRemoveOnCancelPolicy remove-on-cancel policy} they
+ * are removed in batches, so that the queue holds at most about as
+ * many cancelled tasks as live ones.
+ *
  * <p>Successive executions of a periodic task scheduled via
  * {@link #scheduleAtFixedRate scheduleAtFixedRate} or
  * {@link #scheduleWithFixedDelay scheduleWithFixedDelay}
@@ -137,7 +160,8 @@ public class ScheduledThreadPoolExecutor
      *    using ExecutorService rather than ScheduledExecutorService
      *    methods, which are treated as tasks with a delay of zero.
      *
-     * 2. Using a custom queue (DelayedWorkQueue), a variant of
+     * 2. Using a custom queue (DelayedWorkQueue, or TimingWheelQueue
+     *    when constructed with a tick duration), a variant of
      *    unbounded DelayQueue. The lack of capacity constraint and
      *    the fact that corePoolSize and maximumPoolSize are
      *    effectively identical simplifies some execution mechanics
@@ -283,8 +307,13 @@ public class ScheduledThreadPoolExecutor
             // if heapIndex < 0, then OOTA guarantees that we have surely
             // been removed; else we recheck under lock in remove()
             boolean cancelled = super.cancel(mayInterruptIfRunning);
-            if (cancelled && removeOnCancel && heapIndex >= 0)
-                remove(this);
+            if (cancelled && removeOnCancel) {
+                int i = heapIndex;
+                if (i >= 0)
+                    remove(this);
+                else if (i == TimingWheelQueue.WHEEL_INDEX)
+                    ((TimingWheelQueue) getQueue()).cancellations.increment();
+            }
             return cancelled;
         }
 
@@ -373,6 +402,24 @@ public class ScheduledThreadPoolExecutor
                     ((RunnableScheduledFuture<?>) e).cancel(false);
             q.clear();
         }
+        else if (q instanceof TimingWheelQueue) {
+            // Remove in one pass; a removal per task is a linear search
+            ArrayList<RunnableScheduledFuture<?>> dropped = new ArrayList<>();
+            q.removeIf(e -> {
+                if (e instanceof RunnableScheduledFuture) {
+                    RunnableScheduledFuture<?> t =
+                        (RunnableScheduledFuture<?>)e;
+                    if ((t.isPeriodic() ? !keepPeriodic : !keepDelayed) ||
+                        t.isCancelled()) {
+                        dropped.add(t);
+                        return true;
+                    }
+                }
+                return false;
+            });
+            for (RunnableScheduledFuture<?> t : dropped)
+                t.cancel(false);
+        }
         else {
             // Traverse snapshot to avoid iterator exceptions
             for (Object e : q.toArray()) {
@@ -512,6 +559,68 @@ public class ScheduledThreadPoolExecutor
               new DelayedWorkQueue(), threadFactory, handler);
     }
 
+    /**
+     * Creates a new {@code ScheduledThreadPoolExecutor} that holds
+     * delayed tasks in a timing wheel with the given tick duration.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param tickDuration the resolution of the timing wheel; each task
+     *        becomes enabled at the first tick at or after its trigger time
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @throws IllegalArgumentException if {@code corePoolSize < 0}
+     *         or {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit} is null
+     * @since 9
+     */
+    public ScheduledThreadPoolExecutor(int corePoolSize,
+                                       long tickDuration,
+                                       TimeUnit unit) {
+        this(corePoolSize, tickDuration, unit,
+             Executors.defaultThreadFactory(), new AbortPolicy());
+    }
+
+    /**
+     * Creates a new {@code ScheduledThreadPoolExecutor} that holds
+     * delayed tasks in a timing wheel with the given tick duration,
+     * and with the given initial parameters.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param tickDuration the resolution of the timing wheel; each task
+     *        becomes enabled at the first tick at or after its trigger time
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @throws IllegalArgumentException if {@code corePoolSize < 0}
+     *         or {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit}, {@code threadFactory}
+     *         or {@code handler} is null
+     * @since 9
+     */
+    public ScheduledThreadPoolExecutor(int corePoolSize,
+                                       long tickDuration,
+                                       TimeUnit unit,
+                                       ThreadFactory threadFactory,
+                                       RejectedExecutionHandler handler) {
+        super(corePoolSize, Integer.MAX_VALUE,
+              DEFAULT_KEEPALIVE_MILLIS, MILLISECONDS,
+              new TimingWheelQueue(tickNanos(tickDuration, unit)),
+              threadFactory, handler);
+    }
+
+    /**
+     * Validates a tick duration, returning it in nanoseconds.
+     */
+    private static long tickNanos(long tickDuration, TimeUnit unit) {
+        long nanos = unit.toNanos(tickDuration);
+        if (tickDuration <= 0L || nanos <= 0L)
+            throw new IllegalArgumentException();
+        return nanos;
+    }
+
     /**
      * Returns the nanoTime-based trigger time of a delayed action.
      */
@@ -1317,4 +1426,732 @@ public class ScheduledThreadPoolExecutor
             }
         }
     }
+
+    /**
+     * Delay queue based on a hierarchical timing wheel, used by
+     * executors constructed with a tick duration.  As with
+     * DelayedWorkQueue, this class must be declared as a
+     * BlockingQueue<Runnable> even though it can only hold
+     * RunnableScheduledFutures.
+     */
+    static class TimingWheelQueue extends AbstractQueue<Runnable>
+        implements BlockingQueue<Runnable> {
+
+        /*
+         * Time is divided into ticks of tickNanos since origin, and
+         * each task is due at the first tick at or after its trigger
+         * time.  Tick numbers are treated as base-64 numerals of up to
+         * LEVELS digits.  Level L has 64 slots, and a task with tick d
+         * is kept at the level of the most significant digit in which
+         * d differs from currentTick, in the slot given by that digit
+         * of d.  So all tasks at level L agree with currentTick above
+         * digit L and exceed it at digit L, and a bitmap of occupied
+         * slots per level locates the next slot to come due with a
+         * single numberOfTrailingZeros.  The lowest non-empty level
+         * always holds the next event.  When currentTick reaches a
+         * slot, its tasks are due (at level 0) or are cascaded into
+         * lower levels; each task is thus moved at most LEVELS times,
+         * and scheduling, cancellation and expiry are O(1) apart from
+         * this bounded cascading.  Advancing over empty ticks costs
+         * nothing, so an idle wheel never needs to wake up.
+         *
+         * Tasks within a slot are kept in doubly linked lists of
+         * Nodes, allowing O(1) removal by iterators (as in purge).
+         * Removal by task (remove(Object)) is a linear search, as for
+         * decorated tasks in DelayedWorkQueue, so cancellation is
+         * normally lazy: cancelled tasks are dropped as soon as their
+         * slot is cascaded or expires.  When removeOnCancel is set,
+         * ScheduledFutureTask.cancel instead counts cancellations, and
+         * the wheel is swept once they exceed half its size, so
+         * retention stays proportional to the live tasks at O(1)
+         * amortized cost per cancellation.
+         *
+         * Insertion does not take the lock: new nodes are pushed on
+         * a Treiber stack (pending), which is moved into the wheel by
+         * threads taking tasks.  Takers use the leader-follower
+         * protocol of DelayedWorkQueue.  Before waiting, the leader
+         * publishes in signalTick the tick at which it will wake up
+         * (Long.MAX_VALUE if it waits indefinitely, and
+         * Long.MIN_VALUE when no thread is waiting), and then
+         * rechecks pending.  An inserter first pushes its node, and
+         * then takes the lock to signal only if the node is due before
+         * signalTick.  As each side writes before reading the other's
+         * volatile field, either the leader sees the node or the
+         * inserter signals.  In steady state, with a leader waiting for
+         * the next expiry, scheduling tasks further in the future than
+         * that never touches the lock.
+         */
+
+        /** heapIndex of a ScheduledFutureTask held by this queue. */
+        static final int WHEEL_INDEX = -2;
+
+        private static final int SLOT_BITS = 6;
+        private static final int SLOTS = 1 << SLOT_BITS;
+        private static final int SLOT_MASK = SLOTS - 1;
+        /** Number of digits in a (non-negative) tick number. */
+        private static final int LEVELS = (63 + SLOT_BITS - 1) / SLOT_BITS;
+
+        /** Size below which cancelled tasks are never swept. */
+        private static final int MIN_SWEEP_COUNT = 64;
+
+        static final class Node {
+            final RunnableScheduledFuture<?> task;
+            final long tick;
+            Node next;
+            Node prev;
+            /** Index in slots while in the wheel, else -1. */
+            int slot = -1;
+
+            Node(RunnableScheduledFuture<?> task, long tick) {
+                this.task = task;
+                this.tick = tick;
+            }
+        }
+
+        private final long tickNanos;
+        private final long origin = System.nanoTime();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+        /** Thread designated to wait for the next expiry. */
+        private Thread leader;
+
+        private final Node[] slots = new Node[LEVELS * SLOTS];
+        private final long[] occupied = new long[LEVELS];
+        private long currentTick;
+        /** Number of nodes in slots. */
+        private int count;
+        /** Expired tasks, in expiry order. */
+        private final ArrayDeque<RunnableScheduledFuture<?>> ready =
+            new ArrayDeque<>();
+
+        /** Stack of nodes not yet moved into the wheel. */
+        private volatile Node pending;
+        /** Nodes due before this tick must be signalled. */
+        private volatile long signalTick = Long.MIN_VALUE;
+        /** Cancellations of tasks in the wheel since the last sweep. */
+        final LongAdder cancellations = new LongAdder();
+
+        TimingWheelQueue(long tickNanos) {
+            this.tickNanos = tickNanos;
+        }
+
+        /**
+         * Sets f's heapIndex if it is a ScheduledFutureTask.
+         */
+        private static void setIndex(RunnableScheduledFuture<?> f, int idx) {
+            if (f instanceof ScheduledFutureTask)
+                ((ScheduledFutureTask)f).heapIndex = idx;
+        }
+
+        /**
+         * Returns the first tick at or after the given delay from now.
+         */
+        private long tickFor(long delay) {
+            long t = tickNanos, rel = System.nanoTime() - origin;
+            if (delay <= 0L)
+                return rel / t;
+            long d = rel / t + delay / t + (rel % t + delay % t + t - 1L) / t;
+            return (d < 0L) ? Long.MAX_VALUE : d; // overflow
+        }
+
+        /**
+         * Returns the nanoseconds from now until the given tick.
+         */
+        private long nanosUntil(long tick) {
+            long t = tickNanos;
+            return (tick >= Long.MAX_VALUE / t) ? Long.MAX_VALUE
+                : tick * t - (System.nanoTime() - origin);
+        }
+
+        /**
+         * Places a node in the wheel, or its task in ready if it is due.
+         * Call only when holding lock.
+         */
+        private void insert(Node p) {
+            long c = currentTick, d = p.tick;
+            if (d <= c)
+                ready.add(p.task);
+            else {
+                int level = (63 - Long.numberOfLeadingZeros(d ^ c)) / SLOT_BITS;
+                int s = (int)(d >>> (level * SLOT_BITS)) & SLOT_MASK;
+                int i = level * SLOTS + s;
+                Node h = slots[i];
+                p.prev = null;
+                if ((p.next = h) != null)
+                    h.prev = p;
+                slots[i] = p;
+                p.slot = i;
+                occupied[level] |= 1L << s;
+                ++count;
+            }
+        }
+
+        /**
+         * Removes a node from the wheel.  Call only when holding lock.
+         */
+        private void unlink(Node p) {
+            int i = p.slot;
+            Node prev = p.prev, next = p.next;
+            if (prev != null)
+                prev.next = next;
+            else if ((slots[i] = next) == null)
+                occupied[i >>> SLOT_BITS] &= ~(1L << (i & SLOT_MASK));
+            if (next != null)
+                next.prev = prev;
+            p.next = p.prev = null;
+            p.slot = -1;
+            --count;
+        }
+
+        /**
+         * Returns true, after clearing its index, if p's task is
+         * cancelled and should be dropped.
+         */
+        private static boolean discard(Node p) {
+            if (p.task.isCancelled()) {
+                setIndex(p.task, -1);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Moves pending nodes into the wheel.  Call only when holding lock.
+         */
+        private void drainPending() {
+            Node p = (Node) PENDING.getAndSet(this, null);
+            if (p != null) {
+                Node r = null;          // reverse into submission order
+                for (Node n; p != null; p = n) {
+                    n = p.next;
+                    p.next = r;
+                    r = p;
+                }
+                for (Node n; r != null; r = n) {
+                    n = r.next;
+                    r.next = null;
+                    if (!discard(r))
+                        insert(r);
+                }
+            }
+        }
+
+        /**
+         * Returns the tick of the next slot to come due, or
+         * Long.MAX_VALUE if the wheel is empty.  Call only when holding
+         * lock.
+         */
+        private long nextEventTick() {
+            for (int level = 0; level < LEVELS; ++level) {
+                long bits = occupied[level];
+                if (bits != 0L) {
+                    int shift = level * SLOT_BITS, up = shift + SLOT_BITS;
+                    long c = currentTick;
+                    return ((up < 64) ? (c >>> up) << up : 0L) |
+                        ((long)Long.numberOfTrailingZeros(bits) << shift);
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Advances currentTick to the given tick, moving due tasks to
+         * ready and cascading others.  Call only when holding lock.
+         */
+        private void advance(long target) {
+            for (long e; count > 0 && (e = nextEventTick()) <= target; ) {
+                int level = 0;
+                while (occupied[level] == 0L)
+                    ++level;
+                int s = Long.numberOfTrailingZeros(occupied[level]);
+                int i = level * SLOTS + s;
+                Node p = slots[i];
+                slots[i] = null;
+                occupied[level] &= ~(1L << s);
+                currentTick = e;
+                for (Node n; p != null; p = n) {
+                    n = p.next;
+                    p.next = p.prev = null;
+                    p.slot = -1;
+                    --count;
+                    if (!discard(p))
+                        insert(p);
+                }
+            }
+            if (target > currentTick)
+                currentTick = target;
+        }
+
+        /**
+         * Unlinks all cancelled tasks if enough have been counted.
+         * Call only when holding lock.
+         */
+        private void maybeSweep() {
+            long c;
+            if (count >= MIN_SWEEP_COUNT &&
+                (c = cancellations.sum()) > (count >>> 1)) {
+                cancellations.add(-c);
+                for (int level = 0; level < LEVELS; ++level) {
+                    for (long bits = occupied[level]; bits != 0L;
+                         bits &= bits - 1) {
+                        int i = level * SLOTS + Long.numberOfTrailingZeros(bits);
+                        for (Node p = slots[i], n; p != null; p = n) {
+                            n = p.next;
+                            if (discard(p))
+                                unlink(p);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the next expired uncancelled task, or null if none.
+         * Call only when holding lock.
+         */
+        private RunnableScheduledFuture<?> pollExpired() {
+            drainPending();
+            advance((System.nanoTime() - origin) / tickNanos);
+            maybeSweep();
+            for (RunnableScheduledFuture<?> f; (f = ready.poll()) != null; ) {
+                setIndex(f, -1);
+                if (!f.isCancelled())
+                    return f;
+            }
+            return null;
+        }
+
+        /**
+         * Returns the wheel node holding x, or null if none.  Call
+         * only when holding lock.
+         */
+        private Node findNode(Object x) {
+            for (int level = 0; level < LEVELS; ++level) {
+                for (long bits = occupied[level]; bits != 0L; bits &= bits - 1) {
+                    int i = level * SLOTS + Long.numberOfTrailingZeros(bits);
+                    for (Node p = slots[i]; p != null; p = p.next)
+                        if (x.equals(p.task))
+                            return p;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Passes on leadership before a taker returns.  Call only when
+         * holding lock.
+         */
+        private void handOff() {
+            if (lock.hasWaiters(available)) {
+                if (leader == null) {
+                    signalTick = Long.MAX_VALUE;
+                    available.signal();
+                }
+                else if (!ready.isEmpty())
+                    available.signal();
+            }
+            else if (leader == null)
+                signalTick = Long.MIN_VALUE;
+        }
+
+        public boolean offer(Runnable x) {
+            if (x == null)
+                throw new NullPointerException();
+            RunnableScheduledFuture<?> e = (RunnableScheduledFuture<?>)x;
+            Node p = new Node(e, tickFor(e.getDelay(NANOSECONDS)));
+            setIndex(e, WHEEL_INDEX);
+            for (Node h;;) {
+                p.next = h = pending;
+                if (PENDING.compareAndSet(this, h, p))
+                    break;
+            }
+            if (p.tick < signalTick) {
+                final ReentrantLock lock = this.lock;
+                lock.lock();
+                try {
+                    leader = null;
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return true;
+        }
+
+        public void put(Runnable e) {
+            offer(e);
+        }
+
+        public boolean add(Runnable e) {
+            return offer(e);
+        }
+
+        public boolean offer(Runnable e, long timeout, TimeUnit unit) {
+            return offer(e);
+        }
+
+        public RunnableScheduledFuture<?> poll() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return pollExpired();
+            } finally {
+                handOff();
+                lock.unlock();
+            }
+        }
+
+        public RunnableScheduledFuture<?> take() throws InterruptedException {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                for (;;) {
+                    RunnableScheduledFuture<?> f = pollExpired();
+                    if (f != null)
+                        return f;
+                    if (leader != null)
+                        available.await();
+                    else {
+                        Thread thisThread = Thread.currentThread();
+                        leader = thisThread;
+                        try {
+                            long next = nextEventTick();
+                            signalTick = next;
+                            if (pending == null) { // recheck after publishing
+                                if (next == Long.MAX_VALUE)
+                                    available.await();
+                                else
+                                    available.awaitNanos(nanosUntil(next));
+                            }
+                        } finally {
+                            if (leader == thisThread)
+                                leader = null;
+                        }
+                    }
+                }
+            } finally {
+                handOff();
+                lock.unlock();
+            }
+        }
+
+        public RunnableScheduledFuture<?> poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                for (;;) {
+                    RunnableScheduledFuture<?> f = pollExpired();
+                    if (f != null)
+                        return f;
+                    if (nanos <= 0L)
+                        return null;
+                    if (leader != null)
+                        nanos = available.awaitNanos(nanos);
+                    else {
+                        Thread thisThread = Thread.currentThread();
+                        leader = thisThread;
+                        try {
+                            long next = nextEventTick();
+                            signalTick = next;
+                            if (pending == null) {
+                                long delay = (next == Long.MAX_VALUE)
+                                    ? nanos : Math.min(nanos, nanosUntil(next));
+                                long timeLeft = available.awaitNanos(delay);
+                                nanos -= delay - timeLeft;
+                            }
+                        } finally {
+                            if (leader == thisThread)
+                                leader = null;
+                        }
+                    }
+                }
+            } finally {
+                handOff();
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns a task with the earliest trigger time.  This requires
+         * a traversal, but is used by the executor only to constrain
+         * delays of nearly Long.MAX_VALUE.
+         */
+        public RunnableScheduledFuture<?> peek() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                drainPending();
+                RunnableScheduledFuture<?> first = ready.peek();
+                if (first == null) {
+                    for (Node p : nodes())
+                        if (first == null || p.task.compareTo(first) < 0)
+                            first = p.task;
+                }
+                return first;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the nodes in the wheel.  Call only when holding lock.
+         */
+        private ArrayList<Node> nodes() {
+            ArrayList<Node> a = new ArrayList<>(count);
+            for (int level = 0; level < LEVELS; ++level) {
+                for (long bits = occupied[level]; bits != 0L; bits &= bits - 1) {
+                    int i = level * SLOTS + Long.numberOfTrailingZeros(bits);
+                    for (Node p = slots[i]; p != null; p = p.next)
+                        a.add(p);
+                }
+            }
+            return a;
+        }
+
+        public boolean contains(Object x) {
+            if (x == null)
+                return false;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                drainPending();
+                return ready.contains(x) || findNode(x) != null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean remove(Object x) {
+            if (x == null)
+                return false;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                drainPending();
+                Node p;
+                if (ready.remove(x))
+                    setIndex((RunnableScheduledFuture<?>)x, -1);
+                else if ((p = findNode(x)) != null) {
+                    unlink(p);
+                    setIndex(p.task, -1);
+                }
+                else
+                    return false;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Removes, in a single traversal, all tasks matching the
+         * given predicate, which is invoked while holding the lock.
+         */
+        public boolean removeIf(Predicate<? super Runnable> filter) {
+            Objects.requireNonNull(filter);
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                drainPending();
+                boolean removed = false;
+                for (Iterator<RunnableScheduledFuture<?>> it = ready.iterator();
+                     it.hasNext(); ) {
+                    RunnableScheduledFuture<?> f = it.next();
+                    if (filter.test(f)) {
+                        it.remove();
+                        setIndex(f, -1);
+                        removed = true;
+                    }
+                }
+                for (Node p : nodes()) {
+                    if (filter.test(p.task)) {
+                        unlink(p);
+                        setIndex(p.task, -1);
+                        removed = true;
+                    }
+                }
+                return removed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int size() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                drainPending();
+                return count + ready.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        public int remainingCapacity() {
+            return Integer.MAX_VALUE;
+        }
+
+        public void clear() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                drainPending();
+                for (RunnableScheduledFuture<?> f : ready)
+                    setIndex(f, -1);
+                ready.clear();
+                for (Node p : nodes()) {
+                    p.next = p.prev = null;
+                    p.slot = -1;
+                    setIndex(p.task, -1);
+                }
+                Arrays.fill(slots, null);
+                Arrays.fill(occupied, 0L);
+                count = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            if (c == null)
+                throw new NullPointerException();
+            if (c == this)
+                throw new IllegalArgumentException();
+            if (maxElements <= 0)
+                return 0;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                drainPending();
+                advance((System.nanoTime() - origin) / tickNanos);
+                RunnableScheduledFuture<?> f;
+                int n = 0;
+                while (n < maxElements && (f = ready.peek()) != null) {
+                    if (!f.isCancelled()) {
+                        c.add(f);   // In this order, in case add() throws.
+                        ++n;
+                    }
+                    ready.poll();
+                    setIndex(f, -1);
+                }
+                return n;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the queued tasks as nodes, those already expired
+         * first.  Call only when holding lock.
+         */
+        private Node[] snapshot() {
+            drainPending();
+            ArrayList<Node> a = new ArrayList<>(count + ready.size());
+            for (RunnableScheduledFuture<?> f : ready)
+                a.add(new Node(f, currentTick));
+            a.addAll(nodes());
+            return a.toArray(new Node[0]);
+        }
+
+        public Object[] toArray() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                Node[] nodes = snapshot();
+                Object[] a = new Object[nodes.length];
+                for (int i = 0; i < a.length; ++i)
+                    a[i] = nodes[i].task;
+                return a;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            Object[] es = toArray();
+            int size = es.length;
+            if (a.length < size)
+                return (T[]) Arrays.copyOf(es, size, a.getClass());
+            System.arraycopy(es, 0, a, 0, size);
+            if (a.length > size)
+                a[size] = null;
+            return a;
+        }
+
+        public Iterator<Runnable> iterator() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return new Itr(snapshot());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Snapshot iterator whose remove unlinks a node still in the
+         * wheel directly, and otherwise falls back to remove(Object).
+         */
+        private class Itr implements Iterator<Runnable> {
+            final Node[] array;
+            int cursor;        // index of next element to return; initially 0
+            int lastRet = -1;  // index of last element returned; -1 if no such
+
+            Itr(Node[] array) {
+                this.array = array;
+            }
+
+            public boolean hasNext() {
+                return cursor < array.length;
+            }
+
+            public Runnable next() {
+                if (cursor >= array.length)
+                    throw new NoSuchElementException();
+                return array[lastRet = cursor++].task;
+            }
+
+            public void remove() {
+                if (lastRet < 0)
+                    throw new IllegalStateException();
+                Node p = array[lastRet];
+                lastRet = -1;
+                final ReentrantLock lock = TimingWheelQueue.this.lock;
+                lock.lock();
+                try {
+                    if (p.slot >= 0) {
+                        unlink(p);
+                        setIndex(p.task, -1);
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                TimingWheelQueue.this.remove(p.task);
+            }
+        }
+
+        // VarHandle mechanics
+        private static final VarHandle PENDING;
+        static {
+            try {
+                MethodHandles.Lookup l = MethodHandles.lookup();
+                PENDING = l.findVarHandle(TimingWheelQueue.class, "pending",
+                                          Node.class);
+            } catch (ReflectiveOperationException e) {
+                throw new Error(e);
+            }
+        }
+    }
 }
@@ -0,0 +1,246 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written with assistance from members of JCP JSR-166 Expert Group
+ * and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by a
+ * ring buffer, for use by exactly one producer thread and one consumer
+ * thread.  This queue orders elements FIFO (first-in-first-out).
+ *
+ * <p>Insertion and removal acquire no lock and perform no CAS: each
+ * side advances its own padded index with an ordered store and reads
+ * the other side's index only when its cached copy suggests the queue
+ * is full (for the producer) or empty (for the consumer).  Threads
+ * block, in {@link #put} and {@link #take} and their timed forms, only
+ * when the queue is full or empty respectively.
+ *
+ * <p>The results are undefined if more than one thread inserts, or
+ * more than one thread removes, elements concurrently.  Interior
+ * removal is not supported: {@link #remove(Object)} and the {@code
+ * remove} method of its iterator throw {@link
+ * UnsupportedOperationException}.  This queue is therefore not
+ * suitable as the work queue of a {@link ThreadPoolExecutor}, which
+ * removes tasks that race with shutdown and drains the queue from the
+ * thread calling {@code shutdownNow}; use {@link MpmcArrayQueue}
+ * instead.
+ *
+ * <p>The capacity is rounded up to a power of two.  Methods that
+ * inspect the queue from other threads, such as {@link #size} and
+ * {@link #iterator}, are
+ * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+ *
+ * @since 9
+ * @param <E> the type of elements held in this queue
+ */
+public class SpscArrayQueue<E> extends AbstractRingBlockingQueue<E> {
+
+    /*
+     * This is Lamport's single-producer single-consumer ring buffer,
+     * with each side keeping a cached copy of the other's index so
+     * that the shared index cache line is read only once per lap in
+     * steady state.  The producer and consumer fields are segregated
+     * into separate @Contended groups.
+     *
+     * Indices are published with volatile stores, which order the
+     * slot write (or clear) before the index update and also provide
+     * the ordering needed by the blocking handshake in
+     * AbstractRingBlockingQueue.
+     */
+
+    private final Object[] buffer;
+    private final int mask;
+
+    /** The next insertion index; written only by the producer. */
+    @jdk.internal.vm.annotation.Contended("p")
+    private volatile long tail;
+
+    /** Producer's cached copy of head. */
+    @jdk.internal.vm.annotation.Contended("p")
+    private long headCache;
+
+    /** The next removal index; written only by the consumer. */
+    @jdk.internal.vm.annotation.Contended("c")
+    private volatile long head;
+
+    /** Consumer's cached copy of tail. */
+    @jdk.internal.vm.annotation.Contended("c")
+    private long tailCache;
+
+    /**
+     * Creates a {@code SpscArrayQueue} with at least the given
+     * capacity, rounded up to a power of two.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1} or is
+     *         larger than {@code 1 << 30}
+     */
+    public SpscArrayQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException();
+        int n = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        buffer = new Object[n];
+        mask = n - 1;
+    }
+
+    final int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false} if
+     * this queue is full.  Must be called only from the producer thread.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        final Object[] buf = buffer;
+        long t = (long)TAIL.get(this);
+        if (t - headCache >= buf.length &&
+            t - (headCache = head) >= buf.length)
+            return false;
+        ELEM.set(buf, (int)t & mask, e);
+        tail = t + 1L;
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns {@code
+     * null} if this queue is empty.  Must be called only from the
+     * consumer thread.
+     *
+     * @return the head of this queue, or {@code null} if this queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        final Object[] buf = buffer;
+        long h = (long)HEAD.get(this);
+        if (h >= tailCache && h >= (tailCache = tail))
+            return null;
+        int i = (int)h & mask;
+        Object e = ELEM.get(buf, i);
+        ELEM.set(buf, i, null);
+        head = h + 1L;
+        signalNotFull();
+        return (E) e;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long h = head;
+        return (h < tail) ? (E) ELEM.getVolatile(buffer, (int)h & mask)
+                          : null;
+    }
+
+    public int size() {
+        for (;;) {
+            long h = head, t = tail;
+            if (h == head) {
+                long n = t - h;
+                return (n <= 0L) ? 0 : (int)Math.min(n, buffer.length);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return head >= tail;
+    }
+
+    /**
+     * Always throws {@code UnsupportedOperationException}; this queue
+     * supports removal only at the head.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Object[] toArray() {
+        long h = head, t = tail;
+        Object[] a = new Object[(int)Math.max(0L, Math.min(t - h, buffer.length))];
+        int n = 0;
+        for (; h < t && n < a.length; ++h) {
+            Object e = ELEM.getVolatile(buffer, (int)h & mask);
+            if (e != null)
+                a[n++] = e;
+        }
+        return (n == a.length) ? a : Arrays.copyOf(a, n);
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in proper
+     * sequence, from a snapshot taken when the iterator is created.
+     * The iterator does not support removal.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @SuppressWarnings("unchecked")
+    public Spliterator<E> spliterator() {
+        return (Spliterator<E>) Spliterators.spliterator(
+            toArray(), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    // VarHandle mechanics
+    private static final VarHandle TAIL;
+    private static final VarHandle HEAD;
+    private static final VarHandle ELEM =
+        MethodHandles.arrayElementVarHandle(Object[].class);
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            TAIL = l.findVarHandle(SpscArrayQueue.class, "tail", long.class);
+            HEAD = l.findVarHandle(SpscArrayQueue.class, "head", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -81,6 +81,13 @@ import java.util.function.Consumer;
  * immediately or with bounded timeout), but provide an opportunity to
  * interpose a handler and then retry.
  *
+ * <p>Subscribers that can process items in groups may instead use
+ * method {@link #subscribeBatched subscribeBatched}, in which case
+ * items are delivered in lists, optionally postponing delivery by a
+ * bounded delay so that more items are grouped together.  This
+ * reduces per-item signalling overhead, especially when there are
+ * many subscribers and items are published at a high rate.
+ *
  * <p>If any Subscriber method throws an exception, its subscription
  * is cancelled.  If a handler is supplied as a constructor argument,
  * it is invoked before cancellation upon an exception in method
@@ -313,9 +320,71 @@ public class SubmissionPublisher<T> implements Flow.Publisher<T>,
      */
     public void subscribe(Flow.Subscriber<? super T> subscriber) {
         if (subscriber == null) throw new NullPointerException();
-        BufferedSubscription<T> subscription =
-            new BufferedSubscription<T>(subscriber, executor,
-                                        onNextHandler, maxBufferCapacity);
+        doSubscribe(new BufferedSubscription<T>(subscriber, executor,
+                                                onNextHandler,
+                                                maxBufferCapacity, 0, 0L));
+    }
+
+    /**
+     * Adds the given Subscriber of batches of items unless already
+     * subscribed, as in method {@link #subscribe}, except that
+     * published items are delivered to the subscriber's {@link
+     * Flow.Subscriber#onNext(Object) onNext} method in new {@link
+     * List}s holding, in publication order, up to {@code maxBatchSize}
+     * items that are available when the list is formed.  Demand
+     * requested via {@link Flow.Subscription#request(long) request}
+     * counts lists, not items, so each list consumes one unit of
+     * demand.
+     *
+     * <p>If {@code maxDelay} is positive, then when no delivery is in
+     * progress and fewer than {@code maxBatchSize} items are
+     * buffered, the start of delivery is postponed for up to this
+     * delay, so that items published in rapid succession are
+     * delivered together and the subscriber's consumer task is
+     * started about once per batch rather than once per item.
+     * Otherwise delivery starts as soon as items are available, and
+     * batches form only from items published while earlier ones are
+     * being delivered.
+     *
+     * <p>The batching subscriber is included, as an ordinary {@code
+     * Flow.Subscriber}, in the results of methods such as {@link
+     * #getSubscribers} and {@link #getNumberOfSubscribers}, and the
+     * {@code handler} supplied in the constructor, if any, is invoked
+     * with it upon exceptions in {@code onNext}.
+     *
+     * @param subscriber the subscriber
+     * @param maxBatchSize the maximum number of items in each list
+     * @param maxDelay the maximum time to postpone delivery so that
+     * more items may be batched, in units of {@code unit}, or zero to
+     * deliver without delay
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     * {@code maxDelay} parameter
+     * @throws NullPointerException if subscriber or unit is null
+     * @throws IllegalArgumentException if maxBatchSize is not
+     * positive or maxDelay is negative
+     * @since 9
+     */
+    @SuppressWarnings("unchecked")
+    public void subscribeBatched(Flow.Subscriber<? super List<T>> subscriber,
+                                 int maxBatchSize, long maxDelay,
+                                 TimeUnit unit) {
+        if (subscriber == null || unit == null)
+            throw new NullPointerException();
+        if (maxBatchSize <= 0)
+            throw new IllegalArgumentException("batch size must be positive");
+        if (maxDelay < 0L)
+            throw new IllegalArgumentException("negative delay");
+        // Each onNext argument is a List; see BufferedSubscription.consume
+        doSubscribe(new BufferedSubscription<T>(
+                        (Flow.Subscriber<? super T>)(Flow.Subscriber<?>)
+                        subscriber, executor, onNextHandler,
+                        maxBufferCapacity, maxBatchSize,
+                        unit.toNanos(maxDelay)));
+    }
+
+    /** Common implementation for both forms of subscribe */
+    private void doSubscribe(BufferedSubscription<T> subscription) {
+        Flow.Subscriber<? super T> subscriber = subscription.subscriber;
         synchronized (this) {
             for (BufferedSubscription<T> b = clients, pred = null;;) {
                 if (b == null) {
@@ -967,6 +1036,21 @@ public class SubmissionPublisher<T> implements Flow.Publisher<T>,
      * ForkJoinPool, the producer attempts to help run consumer tasks
      * via ForkJoinPool.helpAsyncBlocker before blocking.
      *
+     * A subscription made by subscribeBatched has a positive
+     * maxBatch. Its consumer takes up to maxBatch consecutive
+     * buffered items at a time (CASing each slot, as for single
+     * items, to cope with races with growAndAdd), publishes the new
+     * head and decrements demand once for the whole list, and
+     * passes the list to onNext in place of an item.  If batchDelay
+     * is also positive, startOnOffer does not execute a consumer
+     * task directly when it would otherwise start one while fewer
+     * than maxBatch items are buffered, but sets ACTIVE and
+     * schedules startOrDisable via a CompletableFuture delayed
+     * executor.  Offers arriving meanwhile see ACTIVE and need only
+     * ensure CONSUME, so wakeups are coalesced, and the consumer
+     * then drains everything buffered.  Starts triggered by request,
+     * onSubscribe and onComplete are never delayed.
+     *
      * This class uses @Contended and heuristic field declaration
      * ordering to reduce false-sharing-based memory contention among
      * instances of BufferedSubscription, but it does not currently
@@ -992,6 +1076,9 @@ public class SubmissionPublisher<T> implements Flow.Publisher<T>,
         Flow.Subscriber<? super T> subscriber; // null if disabled
         Executor executor;                 // null if disabled
         BiConsumer<? super Flow.Subscriber<? super T>, ? super Throwable> onNextHandler;
+        final int maxBatch;                // > 0 if batched
+        final long batchDelay;             // > 0 if delayed start
+        Executor delayer;                  // if batchDelay > 0
         volatile Throwable pendingError;   // holds until onError issued
         volatile Thread waiter;            // blocked producer thread
         T putItem;                         // for offer within ManagedBlocker
@@ -1018,11 +1105,17 @@ public class SubmissionPublisher<T> implements Flow.Publisher<T>,
                              Executor executor,
                              BiConsumer<? super Flow.Subscriber<? super T>,
                              ? super Throwable> onNextHandler,
-                             int maxBufferCapacity) {
+                             int maxBufferCapacity,
+                             int maxBatch, long batchDelay) {
             this.subscriber = subscriber;
             this.executor = executor;
             this.onNextHandler = onNextHandler;
             this.maxCapacity = maxBufferCapacity;
+            this.maxBatch = maxBatch;
+            this.batchDelay = batchDelay;
+            if (batchDelay > 0L)
+                this.delayer = CompletableFuture.delayedExecutor(
+                    batchDelay, TimeUnit.NANOSECONDS, Runnable::run);
             this.array = new Object[maxBufferCapacity < DEFAULT_INITIAL_CAP ?
                                     (maxBufferCapacity < 2 ? // at least 2 slots
                                      2 : maxBufferCapacity) :
@@ -1200,7 +1293,12 @@ public class SubmissionPublisher<T> implements Flow.Publisher<T>,
                     break;
                 else if (CTL.compareAndSet(this, c, c | (ACTIVE | CONSUME))) {
                     try {
-                        e.execute(new ConsumerTask<T>(this));
+                        Executor d;
+                        if (batchDelay > 0L && tail - head < maxBatch &&
+                            (d = delayer) != null)
+                            d.execute(this::startOrDisable);
+                        else
+                            e.execute(new ConsumerTask<T>(this));
                         break;
                     } catch (RuntimeException | Error ex) { // back out
                         do {} while (((c = ctl) & DISABLED) == 0 &&
@@ -1227,6 +1325,7 @@ public class SubmissionPublisher<T> implements Flow.Publisher<T>,
         private void detach() {
             Thread w = waiter;
             executor = null;
+            delayer = null;
             subscriber = null;
             pendingError = null;
             signalWaiter(w);
@@ -1435,7 +1534,24 @@ public class SubmissionPublisher<T> implements Flow.Publisher<T>,
                     else if (((c & CONSUME) != 0 ||
                               CTL.compareAndSet(this, c, c | CONSUME)) &&
                              QA.compareAndSet(a, i, x, null)) {
-                        HEAD.setRelease(this, ++h);
+                        int m = maxBatch;
+                        if (m > 0) {                   // take a batch
+                            int t = tail, k = t - h;
+                            ArrayList<Object> batch =
+                                new ArrayList<>((k < m) ? k : m);
+                            batch.add(x);
+                            while (++h != t && batch.size() < m) {
+                                Object z = QA.getAcquire(a, i = (n - 1) & h);
+                                if (z == null ||       // resized
+                                    !QA.compareAndSet(a, i, z, null))
+                                    break;
+                                batch.add(z);
+                            }
+                            x = batch;
+                        }
+                        else
+                            ++h;
+                        HEAD.setRelease(this, h);
                         DEMAND.getAndAdd(this, -1L);
                         if ((w = waiter) != null)
                             signalWaiter(w);
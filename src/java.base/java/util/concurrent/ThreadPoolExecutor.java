@@ -36,10 +36,14 @@
 package java.util.concurrent;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.AbstractQueuedSynchronizer;
 import java.util.concurrent.locks.Condition;
@@ -202,6 +206,18 @@ import java.util.concurrent.locks.ReentrantLock;
  * may encounter unacceptable scheduling overhead, which also
  * decreases throughput.
  *
+ * <li><em>Work stealing.</em> The constructors taking a {@code
+ * queueCapacity} rather than a {@code BlockingQueue} create an
+ * internal queue that is split into several lock-free queues, one per
+ * worker (shared when there are more workers than available
+ * processors).  A worker takes tasks from its own queue, and steals
+ * from the others only when its own is empty, so that workers do not
+ * all contend on a single queue head.  Submitting threads spread tasks
+ * across the queues.  Pool sizing, rejection and the hook methods
+ * behave as with any other bounded or unbounded queue, but tasks are
+ * only roughly executed in submission order.  This mode suits large
+ * numbers of short, independent tasks on machines with many cores.
+ *
  * </ol>
  *
  * </dd>
@@ -616,6 +632,8 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         Runnable firstTask;
         /** Per-thread task counter */
         volatile long completedTasks;
+        /** Index of own queue in work-stealing mode, else -1. */
+        final int home;
 
         // TODO: switch to AbstractQueuedLongSynchronizer and move
         // completedTasks into the lock word.
@@ -627,6 +645,8 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         Worker(Runnable firstTask) {
             setState(-1); // inhibit interrupts until runWorker
             this.firstTask = firstTask;
+            this.home = (workQueue instanceof StealingQueue)
+                ? ((StealingQueue) workQueue).nextHome() : -1;
             this.thread = getThreadFactory().newThread(this);
         }
 
@@ -1052,10 +1072,14 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      *    both before and after the timed wait, and if the queue is
      *    non-empty, this worker is not the last thread in the pool.
      *
+     * In work-stealing mode, the worker's own queue (and then the
+     * others) is polled before any blocking wait.
+     *
+     * @param w the worker
      * @return task, or null if the worker must exit, in which case
      *         workerCount is decremented
      */
-    private Runnable getTask() {
+    private Runnable getTask(Worker w) {
         boolean timedOut = false; // Did the last poll() time out?
 
         for (;;) {
@@ -1081,7 +1105,11 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             }
 
             try {
-                Runnable r = timed ?
+                Runnable r;
+                if (w.home >= 0 &&
+                    (r = ((StealingQueue) workQueue).poll(w.home)) != null)
+                    return r;
+                r = timed ?
                     workQueue.poll(keepAliveTime, TimeUnit.NANOSECONDS) :
                     workQueue.take();
                 if (r != null)
@@ -1143,7 +1171,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         w.unlock(); // allow interrupts
         boolean completedAbruptly = true;
         try {
-            while (task != null || (task = getTask()) != null) {
+            while (task != null || (task = getTask(w)) != null) {
                 w.lock();
                 // If pool is stopping, ensure thread is interrupted;
                 // if not, ensure thread is not interrupted.  This
@@ -1334,6 +1362,88 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         this.handler = handler;
     }
 
+    /**
+     * Creates a new work-stealing {@code ThreadPoolExecutor} with the
+     * given initial parameters and default thread factory and rejected
+     * execution handler.  Tasks are held in an internal queue with a
+     * separate part per worker, as described for work stealing in the
+     * class documentation; otherwise the pool behaves as if created
+     * with a queue of the given capacity.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param queueCapacity the minimum number of tasks that may be
+     *        held before they are executed, or {@link Integer#MAX_VALUE}
+     *        for no bound.  Bounded capacities are divided among the
+     *        per-worker queues and may be rounded up.
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}<br>
+     *         {@code queueCapacity <= 0}
+     * @since 9
+     */
+    public ThreadPoolExecutor(int corePoolSize,
+                              int maximumPoolSize,
+                              long keepAliveTime,
+                              TimeUnit unit,
+                              int queueCapacity) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+             queueCapacity, Executors.defaultThreadFactory(), defaultHandler);
+    }
+
+    /**
+     * Creates a new work-stealing {@code ThreadPoolExecutor} with the
+     * given initial parameters.  Tasks are held in an internal queue
+     * with a separate part per worker, as described for work stealing
+     * in the class documentation; otherwise the pool behaves as if
+     * created with a queue of the given capacity.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param queueCapacity the minimum number of tasks that may be
+     *        held before they are executed, or {@link Integer#MAX_VALUE}
+     *        for no bound.  Bounded capacities are divided among the
+     *        per-worker queues and may be rounded up.
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}<br>
+     *         {@code queueCapacity <= 0}
+     * @throws NullPointerException if {@code threadFactory} or
+     *         {@code handler} is null
+     * @since 9
+     */
+    public ThreadPoolExecutor(int corePoolSize,
+                              int maximumPoolSize,
+                              long keepAliveTime,
+                              TimeUnit unit,
+                              int queueCapacity,
+                              ThreadFactory threadFactory,
+                              RejectedExecutionHandler handler) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+             new StealingQueue(maximumPoolSize, queueCapacity),
+             threadFactory, handler);
+    }
+
     /**
      * Executes the given task sometime in the future.  The task
      * may execute in a new thread or in an existing pooled thread.
@@ -2025,6 +2135,188 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     protected void terminated() { }
 
+    /**
+     * The work queue used in work-stealing mode.  It holds one
+     * lock-free queue per "home", a power of two no greater than the
+     * smaller of maximumPoolSize and the number of processors, and
+     * each worker is assigned a home in turn.  Workers poll their home
+     * first (via poll(int) in getTask) and then the others; blocking
+     * takes (and polls by non-workers) scan all homes starting at a
+     * per-thread probe.  Submissions pick a home by the submitting
+     * thread's probe, advancing it each time so that even a single
+     * submitter spreads tasks over all homes; if that home is full
+     * the others are tried in turn before offer fails.
+     *
+     * Bounded homes are MpmcArrayQueues, whose consumer side is also
+     * safe for multiple (stealing) threads; unbounded ones are
+     * ConcurrentLinkedQueues.  Blocking uses the waiter handshake of
+     * AbstractRingBlockingQueue, which costs submitters one volatile
+     * read when no worker is idle.
+     */
+    static final class StealingQueue
+        extends AbstractRingBlockingQueue<Runnable> {
+        final Queue<Runnable>[] queues;
+        private final int capacity;
+        private final AtomicInteger homes = new AtomicInteger();
+
+        @SuppressWarnings("unchecked")
+        StealingQueue(int parallelism, int capacity) {
+            if (capacity <= 0)
+                throw new IllegalArgumentException();
+            int p = Math.max(1, Math.min(parallelism,
+                                         Runtime.getRuntime().availableProcessors()));
+            int n = (p == 1) ? 1 : Integer.highestOneBit(p - 1) << 1;
+            Queue<Runnable>[] qs = (Queue<Runnable>[]) new Queue<?>[n];
+            long cap = 0L;
+            if (capacity == Integer.MAX_VALUE) {
+                for (int i = 0; i < n; ++i)
+                    qs[i] = new ConcurrentLinkedQueue<Runnable>();
+                cap = Integer.MAX_VALUE;
+            } else {
+                int c = (int)Math.min(((long)capacity + n - 1) / n, 1 << 30);
+                for (int i = 0; i < n; ++i) {
+                    MpmcArrayQueue<Runnable> q = new MpmcArrayQueue<>(c);
+                    cap += q.capacity();
+                    qs[i] = q;
+                }
+            }
+            this.queues = qs;
+            this.capacity = (int)Math.min(cap, Integer.MAX_VALUE);
+        }
+
+        /** Returns the home index for a new worker. */
+        int nextHome() {
+            return homes.getAndIncrement() & (queues.length - 1);
+        }
+
+        int capacity() {
+            return capacity;
+        }
+
+        public boolean offer(Runnable e) {
+            Objects.requireNonNull(e);
+            int h;
+            if ((h = ThreadLocalRandom.getProbe()) == 0) {
+                ThreadLocalRandom.localInit();
+                h = ThreadLocalRandom.getProbe();
+            }
+            ThreadLocalRandom.advanceProbe(h);
+            final Queue<Runnable>[] qs = queues;
+            final int m = qs.length - 1;
+            for (int i = h, k = m; ; ++i, --k) {
+                if (qs[i & m].offer(e)) {
+                    signalNotEmpty();
+                    return true;
+                }
+                if (k == 0)
+                    return false;
+            }
+        }
+
+        /**
+         * Polls the given home and then the others, without blocking.
+         */
+        Runnable poll(int home) {
+            final Queue<Runnable>[] qs = queues;
+            final int m = qs.length - 1;
+            for (int i = home, k = m; ; ++i, --k) {
+                Runnable r;
+                if ((r = qs[i & m].poll()) != null) {
+                    signalNotFull();
+                    return r;
+                }
+                if (k == 0)
+                    return null;
+            }
+        }
+
+        public Runnable poll() {
+            return poll(ThreadLocalRandom.getProbe());
+        }
+
+        public Runnable peek() {
+            for (Queue<Runnable> q : queues) {
+                Runnable r;
+                if ((r = q.peek()) != null)
+                    return r;
+            }
+            return null;
+        }
+
+        public int size() {
+            long n = 0L;
+            for (Queue<Runnable> q : queues)
+                n += q.size();
+            return (int)Math.min(n, Integer.MAX_VALUE);
+        }
+
+        public boolean isEmpty() {
+            for (Queue<Runnable> q : queues)
+                if (!q.isEmpty())
+                    return false;
+            return true;
+        }
+
+        public boolean remove(Object o) {
+            for (Queue<Runnable> q : queues) {
+                if (q instanceof MpmcArrayQueue) {
+                    // Only slots freed at the head make room for producers
+                    int freed = ((MpmcArrayQueue<?>)q).removeAndSweep(o);
+                    if (freed >= 0) {
+                        if (freed > 0)
+                            signalNotFull();
+                        return true;
+                    }
+                }
+                else if (q.remove(o))
+                    return true;        // unbounded: producers never wait
+            }
+            return false;
+        }
+
+        public boolean contains(Object o) {
+            for (Queue<Runnable> q : queues)
+                if (q.contains(o))
+                    return true;
+            return false;
+        }
+
+        public Iterator<Runnable> iterator() {
+            return new Itr();
+        }
+
+        /** Traverses each home queue in turn, using its own iterator. */
+        private final class Itr implements Iterator<Runnable> {
+            private int index;
+            private Iterator<Runnable> it = Collections.emptyIterator();
+            private Iterator<Runnable> lastIt;
+
+            public boolean hasNext() {
+                while (!it.hasNext()) {
+                    if (index >= queues.length)
+                        return false;
+                    it = queues[index++].iterator();
+                }
+                return true;
+            }
+
+            public Runnable next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                lastIt = it;
+                return it.next();
+            }
+
+            public void remove() {
+                if (lastIt == null)
+                    throw new IllegalStateException();
+                lastIt.remove();
+                lastIt = null;
+                signalNotFull();
+            }
+        }
+    }
+
     /* Predefined RejectedExecutionHandlers */
 
     /**
@@ -0,0 +1,570 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written with assistance from members of JCP JSR-166 Expert Group
+ * and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent.atomic;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A histogram of non-negative {@code long} values, such as latencies in
+ * nanoseconds, that may be recorded concurrently by many threads.
+ *
+ * <p>Values are counted in log-linear buckets: values below
+ * 2<sup>p+1</sup>, where {@code p} is the {@linkplain
+ * #LongHistogram(long, int) precision}, each have their own bucket, and
+ * each higher range from 2<sup>k</sup> to 2<sup>k+1</sup>-1 is divided
+ * into 2<sup>p</sup> equal buckets of 2<sup>k-p</sup> values.  Either
+ * bound of the bucket counting a value therefore differs from that value
+ * by less than 2<sup>-p</sup> of it (and not at all below
+ * 2<sup>p+1</sup>), and the number of buckets grows only logarithmically
+ * with the largest trackable value.
+ *
+ * <p>Like {@link LongAdder}, this class stripes its state to reduce
+ * contention.  A histogram starts with a single set of buckets; when
+ * concurrent recordings collide, additional sets are added, up to the
+ * number of CPUs, and each thread records into the set selected by its
+ * {@link ThreadLocalRandom} probe.  Each set is padded so that sets
+ * updated by different cores do not share cache lines.
+ *
+ * <p>Method {@link #snapshot} combines the sets without blocking
+ * recorders.  The result is <em>NOT</em> an atomic snapshot;
+ * invocation in the absence of concurrent updates returns an accurate
+ * result, but recordings that occur while the snapshot is being taken
+ * might be only partially incorporated.  Snapshots are immutable and may
+ * be {@linkplain Snapshot#merge merged} with one another, or {@linkplain
+ * #add(Snapshot) added} into a live histogram, for example to aggregate
+ * per-shard histograms.
+ *
+ * @since 9
+ */
+public class LongHistogram {
+    /*
+     * Each Stripe holds a padded long[] of bucket counts followed by
+     * the sum, minimum and maximum of the values recorded into it.
+     * Counts and the sum are updated with atomic adds; minimum and
+     * maximum with conditional CASes that rarely write once the
+     * extremes settle.
+     *
+     * Contention is detected by a failed CAS on the bucket count, as
+     * in Striped64.  On contention, the recording is completed with an
+     * atomic add, and the stripes table is doubled (up to NCPU) or the
+     * thread's probe is rehashed, reusing Striped64's probe mechanics.
+     * Stripes are created lazily under the stripesBusy spinlock.
+     */
+
+    /** Longs of padding before and after the counts of each stripe. */
+    private static final int PAD = 16;
+
+    /** Offsets of the summary slots after the buckets. */
+    private static final int SUM = 0, MIN = 1, MAX = 2, SUMMARY_SLOTS = 3;
+
+    /** The largest supported precision. */
+    private static final int MAX_PRECISION = 16;
+
+    /** The precision used when none is specified. */
+    private static final int DEFAULT_PRECISION = 7;
+
+    private static final VarHandle AA =
+        MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * A padded set of buckets.
+     */
+    static final class Stripe {
+        final long[] slots;
+
+        Stripe(int buckets) {
+            long[] a = new long[PAD + buckets + SUMMARY_SLOTS + PAD];
+            a[PAD + buckets + MIN] = Long.MAX_VALUE;
+            a[PAD + buckets + MAX] = Long.MIN_VALUE;
+            slots = a;
+        }
+    }
+
+    private final int precision;
+    private final int bucketCount;
+    private final long highestTrackableValue;
+
+    /** Table of stripes, a power of two in length; never empty. */
+    private volatile Stripe[] stripes;
+
+    /** Spinlock (locked via CAS) used when resizing and creating stripes. */
+    private volatile int stripesBusy;
+
+    /**
+     * Creates a histogram able to track all non-negative {@code long}
+     * values with a default precision of 7 bits (a relative error below
+     * one percent).
+     */
+    public LongHistogram() {
+        this(Long.MAX_VALUE, DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a histogram tracking values up to the given value with the
+     * given precision.  Larger values are counted in the highest bucket.
+     *
+     * @param highestTrackableValue the largest value to be distinguished
+     * @param precision the number of bits retained for each value after
+     *        its highest one bit, between 1 and 16
+     * @throws IllegalArgumentException if {@code highestTrackableValue}
+     *         is negative or {@code precision} is out of range
+     */
+    public LongHistogram(long highestTrackableValue, int precision) {
+        if (highestTrackableValue < 0L ||
+            precision < 1 || precision > MAX_PRECISION)
+            throw new IllegalArgumentException();
+        this.precision = precision;
+        this.highestTrackableValue = highestTrackableValue;
+        this.bucketCount = indexFor(highestTrackableValue, precision) + 1;
+        this.stripes = new Stripe[] { new Stripe(bucketCount) };
+    }
+
+    /**
+     * Returns the bucket index for a value.
+     */
+    static int indexFor(long value, int precision) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude < precision)
+            return (int)value;
+        int shift = magnitude - precision;
+        return (shift << precision) + (int)(value >>> shift);
+    }
+
+    /**
+     * Returns the smallest value counted in a bucket.
+     */
+    static long lowerBound(int index, int precision) {
+        int shift = (index >>> precision) - 1;
+        if (shift < 0)
+            return index;
+        long sub = index - ((long)shift << precision);
+        return sub << shift;
+    }
+
+    /**
+     * Returns the largest value counted in a bucket.
+     */
+    static long upperBound(int index, int precision) {
+        int shift = (index >>> precision) - 1;
+        if (shift < 0)
+            return index;
+        return lowerBound(index, precision) + ((1L << shift) - 1L);
+    }
+
+    /**
+     * Returns the precision of this histogram, in bits.
+     *
+     * @return the precision
+     */
+    public int precision() {
+        return precision;
+    }
+
+    /**
+     * Records one occurrence of the value.
+     *
+     * @param value the value
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void record(long value) {
+        record(value, 1L);
+    }
+
+    /**
+     * Records the given number of occurrences of the value.
+     *
+     * @param value the value
+     * @param count the number of occurrences
+     * @throws IllegalArgumentException if the value or count is negative
+     */
+    public void record(long value, long count) {
+        if (value < 0L || count < 0L)
+            throw new IllegalArgumentException();
+        if (count == 0L)
+            return;
+        int i = PAD + indexFor(Math.min(value, highestTrackableValue),
+                               precision);
+        Stripe[] ss = stripes;
+        int h = Striped64.getProbe();
+        Stripe s = ss[h & (ss.length - 1)];
+        long c;
+        if (s == null ||
+            !AA.weakCompareAndSet(s.slots, i,
+                                  c = (long)AA.getVolatile(s.slots, i),
+                                  c + count))
+            s = contended(i, count, h);
+        recordSummary(s.slots, value, count);
+    }
+
+    private void recordSummary(long[] a, long value, long count) {
+        int b = PAD + bucketCount;
+        AA.getAndAdd(a, b + SUM, value * count);
+        long m;
+        while (value < (m = (long)AA.getVolatile(a, b + MIN)) &&
+               !AA.weakCompareAndSet(a, b + MIN, m, value))
+            ;
+        while (value > (m = (long)AA.getVolatile(a, b + MAX)) &&
+               !AA.weakCompareAndSet(a, b + MAX, m, value))
+            ;
+    }
+
+    /**
+     * Completes a recording whose fast path found no stripe or failed
+     * its CAS, then adapts the table for the next recording by this
+     * thread: creating a missing stripe, doubling the table while it is
+     * smaller than the number of CPUs, or else moving to another stripe.
+     * Returns the stripe that was updated.
+     */
+    private Stripe contended(int i, long count, int h) {
+        if (h == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = Striped64.getProbe();
+        }
+        Stripe[] ss = stripes;
+        int n = ss.length;
+        Stripe s = ss[h & (n - 1)];
+        if (stripesBusy == 0 && STRIPESBUSY.compareAndSet(this, 0, 1)) {
+            try {
+                if (stripes == ss) {
+                    if (s == null)
+                        ss[h & (n - 1)] = s = new Stripe(bucketCount);
+                    else if (n < Striped64.NCPU)
+                        stripes = Arrays.copyOf(ss, n << 1);
+                }
+            } finally {
+                stripesBusy = 0;
+            }
+        }
+        if (s == null)
+            s = ss[0];
+        AA.getAndAdd(s.slots, i, count);
+        Striped64.advanceProbe(h);
+        return s;
+    }
+
+    /**
+     * Adds the counts of a snapshot into this histogram, for example to
+     * aggregate histograms kept per shard or per interval.
+     *
+     * @param snapshot the snapshot
+     * @throws IllegalArgumentException if the snapshot was taken from a
+     *         histogram with a different precision or range
+     */
+    public void add(Snapshot snapshot) {
+        if (snapshot.precision != precision ||
+            snapshot.counts.length != bucketCount)
+            throw new IllegalArgumentException("Incompatible histogram");
+        if (snapshot.totalCount == 0L)
+            return;
+        Stripe[] ss = stripes;
+        Stripe s = ss[Striped64.getProbe() & (ss.length - 1)];
+        if (s == null)
+            s = ss[0];
+        long[] a = s.slots, counts = snapshot.counts;
+        for (int j = 0; j < counts.length; ++j) {
+            if (counts[j] != 0L)
+                AA.getAndAdd(a, PAD + j, counts[j]);
+        }
+        int b = PAD + bucketCount;
+        AA.getAndAdd(a, b + SUM, snapshot.sum);
+        recordSummary(a, snapshot.min, 0L);
+        recordSummary(a, snapshot.max, 0L);
+    }
+
+    /**
+     * Returns a snapshot combining all recordings so far.  Recorders are
+     * not blocked; see the class description for the consistency of the
+     * result.
+     *
+     * @return a snapshot of this histogram
+     */
+    public Snapshot snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * Equivalent in effect to {@link #snapshot} followed by {@link
+     * #reset}, for example at the end of a reporting interval.  If there
+     * are recordings concurrent with this method, each is either
+     * included in the returned snapshot or left in this histogram, but
+     * the minimum and maximum may be attributed to either.
+     *
+     * @return a snapshot of this histogram before reset
+     */
+    public Snapshot snapshotThenReset() {
+        return collect(true);
+    }
+
+    /**
+     * Resets this histogram to its initial empty state.  Because this
+     * method is intrinsically racy, it should only be used when it is
+     * known that no threads are concurrently recording.
+     */
+    public void reset() {
+        collect(true);
+    }
+
+    private Snapshot collect(boolean reset) {
+        int nb = bucketCount, b = PAD + nb;
+        long[] counts = new long[nb];
+        long total = 0L, sum = 0L;
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (Stripe s : stripes) {
+            if (s == null)
+                continue;
+            long[] a = s.slots;
+            for (int j = 0; j < nb; ++j) {
+                long c = reset ? (long)AA.getAndSet(a, PAD + j, 0L)
+                               : (long)AA.getVolatile(a, PAD + j);
+                counts[j] += c;
+                total += c;
+            }
+            sum += reset ? (long)AA.getAndSet(a, b + SUM, 0L)
+                         : (long)AA.getVolatile(a, b + SUM);
+            min = Math.min(min, reset
+                           ? (long)AA.getAndSet(a, b + MIN, Long.MAX_VALUE)
+                           : (long)AA.getVolatile(a, b + MIN));
+            max = Math.max(max, reset
+                           ? (long)AA.getAndSet(a, b + MAX, Long.MIN_VALUE)
+                           : (long)AA.getVolatile(a, b + MAX));
+        }
+        return new Snapshot(precision, counts, total, sum, min, max);
+    }
+
+    /**
+     * Returns the String representation of the current snapshot.
+     * @return the String representation of the current snapshot
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable set of counts taken from a {@link LongHistogram}.
+     *
+     * @since 9
+     */
+    public static final class Snapshot {
+        final int precision;
+        final long[] counts;
+        final long totalCount;
+        final long sum;
+        final long min;
+        final long max;
+
+        Snapshot(int precision, long[] counts, long totalCount, long sum,
+                 long min, long max) {
+            this.precision = precision;
+            this.counts = counts;
+            this.totalCount = totalCount;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of values recorded.
+         *
+         * @return the number of values recorded
+         */
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * Returns the sum of the values recorded.  The sum is not checked
+         * for overflow.
+         *
+         * @return the sum of the values recorded
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the smallest value recorded, or {@code Long.MAX_VALUE}
+         * if none.
+         *
+         * @return the smallest value recorded
+         */
+        public long getMin() {
+            return min;
+        }
+
+        /**
+         * Returns the largest value recorded, or {@code Long.MIN_VALUE}
+         * if none.
+         *
+         * @return the largest value recorded
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the arithmetic mean of the values recorded, or zero if
+         * none.
+         *
+         * @return the mean of the values recorded
+         */
+        public double getMean() {
+            return (totalCount > 0L) ? (double)sum / totalCount : 0.0d;
+        }
+
+        /**
+         * Returns an upper bound, accurate to the histogram's precision,
+         * of the value at the given percentile: the smallest bucket bound
+         * below or at which that percentage of the recorded values lie.
+         *
+         * @param percentile the percentile, from 0 to 100
+         * @return the value at the percentile, or zero if no values have
+         *         been recorded
+         * @throws IllegalArgumentException if the percentile is out of
+         *         range
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (!(percentile >= 0.0d && percentile <= 100.0d))
+                throw new IllegalArgumentException();
+            if (totalCount == 0L)
+                return 0L;
+            long target = Math.max(1L, (long)Math.ceil(
+                                       percentile / 100.0d * totalCount));
+            long seen = 0L;
+            for (int j = 0; j < counts.length; ++j) {
+                if ((seen += counts[j]) >= target)
+                    return Math.max(min,
+                                    Math.min(max, upperBound(j, precision)));
+            }
+            return max;
+        }
+
+        /**
+         * Returns the number of buckets.
+         *
+         * @return the number of buckets
+         */
+        public int getBucketCount() {
+            return counts.length;
+        }
+
+        /**
+         * Returns the number of values counted in a bucket.
+         *
+         * @param index the bucket index
+         * @return the count
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public long getCount(int index) {
+            return counts[index];
+        }
+
+        /**
+         * Returns the smallest value counted in a bucket.
+         *
+         * @param index the bucket index
+         * @return the lower bound of the bucket
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public long getLowerBound(int index) {
+            if (index < 0 || index >= counts.length)
+                throw new IndexOutOfBoundsException(index);
+            return lowerBound(index, precision);
+        }
+
+        /**
+         * Returns the largest value counted in a bucket.
+         *
+         * @param index the bucket index
+         * @return the upper bound of the bucket
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public long getUpperBound(int index) {
+            if (index < 0 || index >= counts.length)
+                throw new IndexOutOfBoundsException(index);
+            return upperBound(index, precision);
+        }
+
+        /**
+         * Returns a new snapshot combining the counts of this snapshot
+         * and another.
+         *
+         * @param other the other snapshot
+         * @return the combined snapshot
+         * @throws IllegalArgumentException if the snapshots were taken
+         *         from histograms with a different precision or range
+         */
+        public Snapshot merge(Snapshot other) {
+            if (other.precision != precision ||
+                other.counts.length != counts.length)
+                throw new IllegalArgumentException("Incompatible histogram");
+            long[] c = counts.clone();
+            for (int j = 0; j < c.length; ++j)
+                c[j] += other.counts[j];
+            return new Snapshot(precision, c, totalCount + other.totalCount,
+                                sum + other.sum, Math.min(min, other.min),
+                                Math.max(max, other.max));
+        }
+
+        /**
+         * Returns a summary of this snapshot.
+         *
+         * @return a summary of this snapshot
+         */
+        public String toString() {
+            return String.format(
+                "%s{count=%d, min=%d, p50=%d, p99=%d, max=%d, mean=%f}",
+                getClass().getSimpleName(), totalCount,
+                (totalCount > 0L) ? min : 0L, getValueAtPercentile(50.0d),
+                getValueAtPercentile(99.0d), (totalCount > 0L) ? max : 0L,
+                getMean());
+        }
+    }
+
+    // VarHandle mechanics
+    private static final VarHandle STRIPESBUSY;
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            STRIPESBUSY = l.findVarHandle(LongHistogram.class,
+                    "stripesBusy", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new Error(e);
+        }
+    }
+}
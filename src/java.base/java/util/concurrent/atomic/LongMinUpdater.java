@@ -0,0 +1,256 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written with assistance from members of JCP JSR-166 Expert Group
+ * and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent.atomic;
+
+import java.io.Serializable;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * One or more variables that together maintain a running minimum of
+ * {@code long} values, initially {@code Long.MAX_VALUE}.  When updates
+ * (method {@link #update}) are contended across threads, the set of
+ * variables may grow dynamically to reduce contention.  Method {@link
+ * #min} (or, equivalently, {@link #longValue}) returns the current
+ * minimum across the variables maintaining updates.
+ *
+ * <p>This class behaves as {@code new LongAccumulator(Long::min,
+ * Long.MAX_VALUE)}, but an update that would not lower the variable it
+ * hashes to completes with a single read and no write, which is the
+ * common case once a minimum has been established.  It is suited to
+ * tracking low-water marks such as best-case latencies or free capacity.
+ *
+ * <p>This class extends {@link Number}, but does <em>not</em> define
+ * methods such as {@code equals}, {@code hashCode} and {@code
+ * compareTo} because instances are expected to be mutated, and so are
+ * not useful as collection keys.
+ *
+ * @see LongMaxUpdater
+ * @since 9
+ */
+public class LongMinUpdater extends Striped64 implements Serializable {
+    private static final long serialVersionUID = -4919238421983762314L;
+
+    private static final LongBinaryOperator MIN = Math::min;
+
+    /**
+     * Creates a new instance with initial minimum of {@code
+     * Long.MAX_VALUE}.
+     */
+    public LongMinUpdater() {
+        base = Long.MAX_VALUE;
+    }
+
+    /**
+     * Updates the minimum to be at most the given value.
+     *
+     * @param x the value
+     */
+    public void update(long x) {
+        Cell[] as; long b, v; int m; Cell a;
+        if ((as = cells) != null ||
+            (x < (b = base) && !casBase(b, x))) {
+            boolean uncontended = true;
+            if (as == null || (m = as.length - 1) < 0 ||
+                (a = as[getProbe() & m]) == null ||
+                !(uncontended = x >= (v = a.value) || a.cas(v, x)))
+                longAccumulate(x, MIN, uncontended);
+        }
+    }
+
+    /**
+     * Returns the current minimum.  The returned value is
+     * <em>NOT</em> an atomic snapshot; invocation in the absence of
+     * concurrent updates returns an accurate result, but concurrent
+     * updates that occur while the value is being calculated might
+     * not be incorporated.
+     *
+     * @return the minimum, or {@code Long.MAX_VALUE} if there have
+     * been no updates
+     */
+    public long min() {
+        Cell[] as = cells;
+        long min = base;
+        if (as != null) {
+            for (Cell a : as) {
+                long v;
+                if (a != null && (v = a.value) < min)
+                    min = v;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Resets variables maintaining updates to {@code Long.MAX_VALUE}.
+     * This method may be a useful alternative to creating a new
+     * updater, but is only effective if there are no concurrent
+     * updates.  Because this method is intrinsically racy, it should
+     * only be used when it is known that no threads are concurrently
+     * updating.
+     */
+    public void reset() {
+        Cell[] as = cells;
+        base = Long.MAX_VALUE;
+        if (as != null) {
+            for (Cell a : as)
+                if (a != null)
+                    a.reset(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Equivalent in effect to {@link #min} followed by {@link
+     * #reset}.  This method may apply for example during quiescent
+     * points between multithreaded computations, such as the end of
+     * a sampling interval.  If there are updates concurrent with this
+     * method, the returned value is <em>not</em> guaranteed to be the
+     * final value occurring before the reset.
+     *
+     * @return the minimum before reset
+     */
+    public long minThenReset() {
+        Cell[] as = cells;
+        long min = base;
+        base = Long.MAX_VALUE;
+        if (as != null) {
+            for (Cell a : as) {
+                if (a != null) {
+                    long v = a.value;
+                    a.reset(Long.MAX_VALUE);
+                    if (v < min)
+                        min = v;
+                }
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Returns the String representation of the {@link #min}.
+     * @return the String representation of the {@link #min}
+     */
+    public String toString() {
+        return Long.toString(min());
+    }
+
+    /**
+     * Equivalent to {@link #min}.
+     *
+     * @return the minimum
+     */
+    public long longValue() {
+        return min();
+    }
+
+    /**
+     * Returns the {@link #min} as an {@code int} after a
+     * narrowing primitive conversion.
+     */
+    public int intValue() {
+        return (int)min();
+    }
+
+    /**
+     * Returns the {@link #min} as a {@code float}
+     * after a widening primitive conversion.
+     */
+    public float floatValue() {
+        return (float)min();
+    }
+
+    /**
+     * Returns the {@link #min} as a {@code double} after a widening
+     * primitive conversion.
+     */
+    public double doubleValue() {
+        return (double)min();
+    }
+
+    /**
+     * Serialization proxy, used to avoid reference to the non-public
+     * Striped64 superclass in serialized forms.
+     * @serial include
+     */
+    private static class SerializationProxy implements Serializable {
+        private static final long serialVersionUID = -4919238421983762314L;
+
+        /**
+         * The current value returned by min().
+         * @serial
+         */
+        private final long value;
+
+        SerializationProxy(LongMinUpdater a) {
+            value = a.min();
+        }
+
+        /**
+         * Returns a {@code LongMinUpdater} object with initial state
+         * held by this proxy.
+         *
+         * @return a {@code LongMinUpdater} object with initial state
+         * held by this proxy
+         */
+        private Object readResolve() {
+            LongMinUpdater a = new LongMinUpdater();
+            a.base = value;
+            return a;
+        }
+    }
+
+    /**
+     * Returns a
+     * <a href="../../../../serialized-form.html#java.util.concurrent.atomic.LongMinUpdater.SerializationProxy">
+     * SerializationProxy</a>
+     * representing the state of this instance.
+     *
+     * @return a {@link SerializationProxy}
+     * representing the state of this instance
+     */
+    private Object writeReplace() {
+        return new SerializationProxy(this);
+    }
+
+    /**
+     * @param s the stream
+     * @throws java.io.InvalidObjectException always
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.InvalidObjectException {
+        throw new java.io.InvalidObjectException("Proxy required");
+    }
+
+}
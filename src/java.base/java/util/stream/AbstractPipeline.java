@@ -26,6 +26,9 @@ package java.util.stream;
 
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
@@ -148,6 +151,18 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     private boolean parallel;
 
+    /**
+     * The pool in which to evaluate a parallel pipeline, or null to use the
+     * common pool; only valid for the source stage.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The target leaf size for parallel evaluation, or zero to choose one
+     * automatically; only valid for the source stage.
+     */
+    private long targetLeafSize;
+
     /**
      * Constructor for the head of a stream pipeline.
      *
@@ -213,6 +228,26 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         this.depth = previousStage.depth + 1;
     }
 
+    /**
+     * Detaches this stage, the last stage of a pipeline, so that a new stage
+     * fusing this stage's operation with a following stateless operation can
+     * be appended to the upstream stage in its place.  As when appending a
+     * stage, this stage is marked as linked and may not be used further.
+     *
+     * @return the upstream stage, to which the fused stage is to be appended
+     * @throws IllegalStateException if this stage is linked or consumed
+     */
+    final AbstractPipeline<?, ?, ?> unlinkForFusion() {
+        if (linkedOrConsumed)
+            throw new IllegalStateException(MSG_STREAM_LINKED);
+        AbstractPipeline<?, ?, ?> p = previousStage;
+        assert p != null && p.nextStage == this;
+        linkedOrConsumed = true;
+        p.nextStage = null;
+        p.linkedOrConsumed = false;
+        return p;
+    }
+
 
     // Terminal evaluation methods
 
@@ -230,10 +265,33 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         linkedOrConsumed = true;
 
         return isParallel()
-               ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
+               ? invokeInPool(() -> terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags())))
                : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
     }
 
+    /**
+     * Performs a parallel evaluation.  If a pool was specified by
+     * {@link #parallel(ForkJoinPool, long)}, and the current thread is not
+     * already a worker of that pool, the evaluation is performed by a task
+     * submitted to the pool, so that all of the tasks it forks (which
+     * otherwise go to the common pool if not running in a pool) run in the
+     * pool; the current thread waits for the result.
+     *
+     * @param <R> the type of result
+     * @param evaluation the evaluation
+     * @return the result
+     */
+    private <R> R invokeInPool(Supplier<R> evaluation) {
+        ForkJoinPool p = sourceStage.pool;
+        Thread t;
+        if (p == null ||
+            ((t = Thread.currentThread()) instanceof ForkJoinWorkerThread &&
+             ((ForkJoinWorkerThread) t).getPool() == p))
+            return evaluation.get();
+        else
+            return p.invoke(ForkJoinTask.adapt(evaluation::get));
+    }
+
     /**
      * Collect the elements output from the pipeline stage.
      *
@@ -254,7 +312,10 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             // upstream slice and upstream operations will not be included
             // in this slice
             depth = 0;
-            return opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
+            return invokeInPool(() -> opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator));
+        }
+        else if (isParallel()) {
+            return invokeInPool(() -> evaluate(sourceSpliterator(0), true, generator));
         }
         else {
             return evaluate(sourceSpliterator(0), true, generator);
@@ -302,6 +363,8 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     @SuppressWarnings("unchecked")
     public final S sequential() {
         sourceStage.parallel = false;
+        sourceStage.pool = null;
+        sourceStage.targetLeafSize = 0L;
         return (S) this;
     }
 
@@ -309,6 +372,20 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     @SuppressWarnings("unchecked")
     public final S parallel() {
         sourceStage.parallel = true;
+        sourceStage.pool = null;
+        sourceStage.targetLeafSize = 0L;
+        return (S) this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final S parallel(ForkJoinPool pool, long targetLeafSize) {
+        Objects.requireNonNull(pool);
+        if (targetLeafSize < 0L)
+            throw new IllegalArgumentException("negative leaf size");
+        sourceStage.parallel = true;
+        sourceStage.pool = pool;
+        sourceStage.targetLeafSize = targetLeafSize;
         return (S) this;
     }
 
@@ -509,6 +586,11 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         return combinedFlags;
     }
 
+    @Override
+    final long getTargetLeafSize() {
+        return sourceStage.targetLeafSize;
+    }
+
     final boolean isOrdered() {
         return StreamOpFlag.ORDERED.isKnown(combinedFlags);
     }
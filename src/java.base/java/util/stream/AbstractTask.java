@@ -27,6 +27,7 @@ package java.util.stream;
 import java.util.Spliterator;
 import java.util.concurrent.CountedCompleter;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 /**
  * Abstract base class for most fork-join tasks used to implement stream ops.
@@ -181,10 +182,36 @@ abstract class AbstractTask<P_IN, P_OUT, R,
      * @return suggested target leaf size
      */
     public static long suggestTargetSize(long sizeEstimate) {
-        long est = sizeEstimate / LEAF_TARGET;
+        long est = sizeEstimate / leafTarget();
         return est > 0L ? est : 1L;
     }
 
+    /**
+     * Returns the target leaf size for a computation described by the
+     * given pipeline helper: the size specified for the pipeline if any,
+     * else that suggested by {@link #suggestTargetSize(long)}.
+     *
+     * @param helper the pipeline helper
+     * @param sizeEstimate the estimated size of the source
+     * @return the target leaf size
+     */
+    static long suggestTargetSize(PipelineHelper<?> helper, long sizeEstimate) {
+        long size = helper.getTargetLeafSize();
+        return size > 0L ? size : suggestTargetSize(sizeEstimate);
+    }
+
+    /**
+     * Returns the desired number of leaf tasks: {@link #LEAF_TARGET}, or,
+     * if the current thread is a {@link ForkJoinWorkerThread}, the
+     * corresponding value for its pool.
+     */
+    static int leafTarget() {
+        Thread t = Thread.currentThread();
+        return (t instanceof ForkJoinWorkerThread)
+            ? ((ForkJoinWorkerThread) t).getPool().getParallelism() << 2
+            : LEAF_TARGET;
+    }
+
     /**
      * Returns the targetSize, initializing it via the supplied
      * size estimate if not already initialized.
@@ -192,7 +219,7 @@ abstract class AbstractTask<P_IN, P_OUT, R,
     protected final long getTargetSize(long sizeEstimate) {
         long s;
         return ((s = targetSize) != 0 ? s :
-                (targetSize = suggestTargetSize(sizeEstimate)));
+                (targetSize = suggestTargetSize(helper, sizeEstimate)));
     }
 
     /**
@@ -29,8 +29,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.IntConsumer;
 import java.util.function.Predicate;
 
@@ -124,6 +126,49 @@ public interface BaseStream<T, S extends BaseStream<T, S>>
      */
     S parallel();
 
+    /**
+     * Returns an equivalent stream that is parallel, and whose terminal
+     * operation is evaluated using the given {@link ForkJoinPool} rather
+     * than the {@link ForkJoinPool#commonPool() common pool}.  All tasks
+     * forked by the evaluation then run in, and compete only for the
+     * threads of, the given pool; the thread invoking the terminal
+     * operation waits for its completion.  May return itself, either
+     * because the stream was already so configured, or because the
+     * underlying stream state was modified.
+     *
+     * <p>Parallel evaluation splits the stream source into portions of
+     * roughly {@code targetLeafSize} elements, each processed sequentially
+     * by a single task.  If {@code targetLeafSize} is zero, the size is
+     * chosen, as for other parallel streams, to provide a few portions per
+     * thread of the pool.
+     *
+     * <p>A subsequent call to {@link #sequential()} or {@link #parallel()}
+     * discards the effect of this method.  Traversal of a stream's
+     * {@link #iterator()} or {@link #spliterator()} is not affected.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>.
+     *
+     * @implSpec
+     * The default implementation checks its arguments and returns
+     * {@link #parallel()}, ignoring the pool and leaf size.  Streams
+     * created by the JDK evaluate using the pool as described above.
+     *
+     * @param pool the pool in which to evaluate the terminal operation
+     * @param targetLeafSize the target number of source elements processed
+     *        by each leaf task, or zero to choose it automatically
+     * @return a parallel stream
+     * @throws NullPointerException if pool is null
+     * @throws IllegalArgumentException if targetLeafSize is negative
+     * @since 9
+     */
+    default S parallel(ForkJoinPool pool, long targetLeafSize) {
+        Objects.requireNonNull(pool);
+        if (targetLeafSize < 0L)
+            throw new IllegalArgumentException("negative leaf size");
+        return parallel();
+    }
+
     /**
      * Returns an equivalent stream that is
      * <a href="package-summary.html#Ordering">unordered</a>.  May return
@@ -33,6 +33,7 @@ import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
+import java.util.function.Function;
 import java.util.function.IntBinaryOperator;
 import java.util.function.IntConsumer;
 import java.util.function.IntFunction;
@@ -171,17 +172,7 @@ abstract class IntPipeline<E_IN>
     }
 
     private <U> Stream<U> mapToObj(IntFunction<? extends U> mapper, int opFlags) {
-        return new ReferencePipeline.StatelessOp<Integer, U>(this, StreamShape.INT_VALUE, opFlags) {
-            @Override
-            Sink<Integer> opWrapSink(int flags, Sink<U> sink) {
-                return new Sink.ChainedInt<U>(sink) {
-                    @Override
-                    public void accept(int t) {
-                        downstream.accept(mapper.apply(t));
-                    }
-                };
-            }
-        };
+        return new MapToObjOp<>(this, mapper, opFlags);
     }
 
     // IntStream
@@ -236,18 +227,8 @@ abstract class IntPipeline<E_IN>
     @Override
     public final IntStream map(IntUnaryOperator mapper) {
         Objects.requireNonNull(mapper);
-        return new StatelessOp<Integer>(this, StreamShape.INT_VALUE,
-                                        StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT) {
-            @Override
-            Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
-                return new Sink.ChainedInt<Integer>(sink) {
-                    @Override
-                    public void accept(int t) {
-                        downstream.accept(mapper.applyAsInt(t));
-                    }
-                };
-            }
-        };
+        IntStream fused = fuseMap(mapper);
+        return (fused != null) ? fused : new MapOp(this, mapper);
     }
 
     @Override
@@ -331,24 +312,32 @@ abstract class IntPipeline<E_IN>
     @Override
     public final IntStream filter(IntPredicate predicate) {
         Objects.requireNonNull(predicate);
-        return new StatelessOp<Integer>(this, StreamShape.INT_VALUE,
-                                        StreamOpFlag.NOT_SIZED) {
-            @Override
-            Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
-                return new Sink.ChainedInt<Integer>(sink) {
-                    @Override
-                    public void begin(long size) {
-                        downstream.begin(-1);
-                    }
+        IntStream fused = fuseFilter(predicate);
+        return (fused != null) ? fused : new FilterOp(this, predicate);
+    }
 
-                    @Override
-                    public void accept(int t) {
-                        if (predicate.test(t))
-                            downstream.accept(t);
-                    }
-                };
-            }
-        };
+    /**
+     * If this stage can be fused with a following map operation, returns a
+     * stage, replacing this one, that performs both operations using a single
+     * sink; otherwise returns null.
+     *
+     * @param mapper the function of the following map operation
+     * @return the fused stage, or null if this stage cannot be fused
+     */
+    IntStream fuseMap(IntUnaryOperator mapper) {
+        return null;
+    }
+
+    /**
+     * If this stage can be fused with a following filter operation, returns
+     * a stage, replacing this one, that performs both operations using a
+     * single sink; otherwise returns null.
+     *
+     * @param predicate the predicate of the following filter operation
+     * @return the fused stage, or null if this stage cannot be fused
+     */
+    IntStream fuseFilter(IntPredicate predicate) {
+        return null;
     }
 
     @Override
@@ -465,7 +454,7 @@ abstract class IntPipeline<E_IN>
     }
 
     @Override
-    public final int reduce(int identity, IntBinaryOperator op) {
+    public int reduce(int identity, IntBinaryOperator op) {
         return evaluate(ReduceOps.makeInt(identity, op));
     }
 
@@ -487,17 +476,17 @@ abstract class IntPipeline<E_IN>
     }
 
     @Override
-    public final boolean anyMatch(IntPredicate predicate) {
+    public boolean anyMatch(IntPredicate predicate) {
         return evaluate(MatchOps.makeInt(predicate, MatchOps.MatchKind.ANY));
     }
 
     @Override
-    public final boolean allMatch(IntPredicate predicate) {
+    public boolean allMatch(IntPredicate predicate) {
         return evaluate(MatchOps.makeInt(predicate, MatchOps.MatchKind.ALL));
     }
 
     @Override
-    public final boolean noneMatch(IntPredicate predicate) {
+    public boolean noneMatch(IntPredicate predicate) {
         return evaluate(MatchOps.makeInt(predicate, MatchOps.MatchKind.NONE));
     }
 
@@ -584,6 +573,168 @@ abstract class IntPipeline<E_IN>
                 super.forEachOrdered(action);
             }
         }
+
+        @Override
+        public int reduce(int identity, IntBinaryOperator op) {
+            Objects.requireNonNull(op);
+            if (!isParallel()) {
+                class Reducer implements IntConsumer {
+                    int state = identity;
+
+                    @Override
+                    public void accept(int t) {
+                        state = op.applyAsInt(state, t);
+                    }
+                }
+
+                Reducer r = new Reducer();
+                adapt(sourceStageSpliterator()).forEachRemaining(r);
+                return r.state;
+            }
+            else {
+                return super.reduce(identity, op);
+            }
+        }
+
+        @Override
+        public boolean anyMatch(IntPredicate predicate) {
+            return match(predicate, MatchOps.MatchKind.ANY);
+        }
+
+        @Override
+        public boolean allMatch(IntPredicate predicate) {
+            return match(predicate, MatchOps.MatchKind.ALL);
+        }
+
+        @Override
+        public boolean noneMatch(IntPredicate predicate) {
+            return match(predicate, MatchOps.MatchKind.NONE);
+        }
+
+        private boolean match(IntPredicate predicate,
+                              MatchOps.MatchKind matchKind) {
+            Objects.requireNonNull(predicate);
+            if (!isParallel()) {
+                return MatchOps.matchInt(adapt(sourceStageSpliterator()),
+                                         predicate, matchKind);
+            }
+            else {
+                return evaluate(MatchOps.makeInt(predicate, matchKind));
+            }
+        }
+    }
+
+    /**
+     * A map stage, which may be fused with a following map stage.
+     */
+    static final class MapOp extends StatelessOp<Integer> {
+        private final IntUnaryOperator mapper;
+
+        MapOp(AbstractPipeline<?, Integer, ?> upstream,
+              IntUnaryOperator mapper) {
+            super(upstream, StreamShape.INT_VALUE,
+                  StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT);
+            this.mapper = mapper;
+        }
+
+        @Override
+        Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
+            return new Sink.ChainedInt<Integer>(sink) {
+                @Override
+                public void accept(int t) {
+                    downstream.accept(mapper.applyAsInt(t));
+                }
+            };
+        }
+
+        @Override
+        IntStream fuseMap(IntUnaryOperator after) {
+            IntUnaryOperator before = mapper;
+            @SuppressWarnings("unchecked")
+            AbstractPipeline<?, Integer, ?> upstream =
+                (AbstractPipeline<?, Integer, ?>) unlinkForFusion();
+            return new MapOp(upstream,
+                             t -> after.applyAsInt(before.applyAsInt(t)));
+        }
+    }
+
+    /**
+     * A filter stage, which may be fused with a following filter stage.
+     */
+    static final class FilterOp extends StatelessOp<Integer> {
+        private final IntPredicate predicate;
+
+        FilterOp(AbstractPipeline<?, Integer, ?> upstream,
+                 IntPredicate predicate) {
+            super(upstream, StreamShape.INT_VALUE, StreamOpFlag.NOT_SIZED);
+            this.predicate = predicate;
+        }
+
+        @Override
+        Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
+            return new Sink.ChainedInt<Integer>(sink) {
+                @Override
+                public void begin(long size) {
+                    downstream.begin(-1);
+                }
+
+                @Override
+                public void accept(int t) {
+                    if (predicate.test(t))
+                        downstream.accept(t);
+                }
+            };
+        }
+
+        @Override
+        IntStream fuseFilter(IntPredicate after) {
+            IntPredicate before = predicate;
+            @SuppressWarnings("unchecked")
+            AbstractPipeline<?, Integer, ?> upstream =
+                (AbstractPipeline<?, Integer, ?>) unlinkForFusion();
+            return new FilterOp(upstream,
+                                t -> before.test(t) && after.test(t));
+        }
+    }
+
+    /**
+     * A stage mapping int elements to objects, which may be fused with a
+     * following (reference) map stage, so that, for example, in
+     * {@code boxed().map(f)} the boxed values pass through a single sink.
+     *
+     * @param <U> type of elements in produced by this stage
+     */
+    static final class MapToObjOp<U>
+            extends ReferencePipeline.StatelessOp<Integer, U> {
+        private final IntFunction<? extends U> mapper;
+
+        MapToObjOp(AbstractPipeline<?, Integer, ?> upstream,
+                   IntFunction<? extends U> mapper, int opFlags) {
+            super(upstream, StreamShape.INT_VALUE, opFlags);
+            this.mapper = mapper;
+        }
+
+        @Override
+        Sink<Integer> opWrapSink(int flags, Sink<U> sink) {
+            return new Sink.ChainedInt<U>(sink) {
+                @Override
+                public void accept(int t) {
+                    downstream.accept(mapper.apply(t));
+                }
+            };
+        }
+
+        @Override
+        <R> Stream<R> fuseMap(Function<? super U, ? extends R> after) {
+            IntFunction<? extends U> before = mapper;
+            @SuppressWarnings("unchecked")
+            AbstractPipeline<?, Integer, ?> upstream =
+                (AbstractPipeline<?, Integer, ?>) unlinkForFusion();
+            return new MapToObjOp<R>(upstream,
+                                     t -> after.apply(before.apply(t)),
+                                     StreamOpFlag.NOT_SORTED |
+                                     StreamOpFlag.NOT_DISTINCT);
+        }
     }
 
     /**
@@ -26,7 +26,9 @@ package java.util.stream;
 
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.function.Consumer;
 import java.util.function.DoublePredicate;
+import java.util.function.IntConsumer;
 import java.util.function.IntPredicate;
 import java.util.function.LongPredicate;
 import java.util.function.Predicate;
@@ -97,6 +99,61 @@ final class MatchOps {
         return new MatchOp<>(StreamShape.REFERENCE, matchKind, MatchSink::new);
     }
 
+    /**
+     * Evaluates a quantified predicate directly over the elements of a
+     * spliterator, for the sequential evaluation of a {@code Stream} having
+     * no intermediate operations.
+     *
+     * @param <T> the type of stream elements
+     * @param spliterator the source spliterator
+     * @param predicate the {@code Predicate} to apply to stream elements
+     * @param matchKind the kind of quantified match (all, any, none)
+     * @return the result of the quantified match
+     */
+    static <T> boolean match(Spliterator<T> spliterator,
+                             Predicate<? super T> predicate,
+                             MatchKind matchKind) {
+        class Matcher implements Consumer<T> {
+            boolean stop;
+
+            @Override
+            public void accept(T t) {
+                stop = predicate.test(t) == matchKind.stopOnPredicateMatches;
+            }
+        }
+
+        Matcher m = new Matcher();
+        do { } while (!m.stop && spliterator.tryAdvance(m));
+        return m.stop == matchKind.shortCircuitResult;
+    }
+
+    /**
+     * Evaluates a quantified predicate directly over the elements of a
+     * spliterator, for the sequential evaluation of an {@code IntStream}
+     * having no intermediate operations.
+     *
+     * @param spliterator the source spliterator
+     * @param predicate the {@code IntPredicate} to apply to stream elements
+     * @param matchKind the kind of quantified match (all, any, none)
+     * @return the result of the quantified match
+     */
+    static boolean matchInt(Spliterator.OfInt spliterator,
+                            IntPredicate predicate,
+                            MatchKind matchKind) {
+        class Matcher implements IntConsumer {
+            boolean stop;
+
+            @Override
+            public void accept(int t) {
+                stop = predicate.test(t) == matchKind.stopOnPredicateMatches;
+            }
+        }
+
+        Matcher m = new Matcher();
+        do { } while (!m.stop && spliterator.tryAdvance(m));
+        return m.stop == matchKind.shortCircuitResult;
+    }
+
     /**
      * Constructs a quantified predicate matcher for an {@code IntStream}.
      *
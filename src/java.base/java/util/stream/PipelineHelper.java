@@ -71,6 +71,17 @@ abstract class PipelineHelper<P_OUT> {
      */
     abstract int getStreamAndOpFlags();
 
+    /**
+     * Gets the number of source elements to be processed by each leaf task
+     * in a parallel evaluation, as specified by
+     * {@link BaseStream#parallel(java.util.concurrent.ForkJoinPool, long)},
+     * or zero if it is to be chosen by
+     * {@link AbstractTask#suggestTargetSize(long)}.
+     *
+     * @return the target leaf size, or zero if not specified
+     */
+    abstract long getTargetLeafSize();
+
     /**
      * Returns the exact output size of the portion of the output resulting from
      * applying the pipeline stages described by this {@code PipelineHelper} to
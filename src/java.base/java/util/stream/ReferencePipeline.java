@@ -161,42 +161,40 @@ abstract class ReferencePipeline<P_IN, P_OUT>
     @Override
     public final Stream<P_OUT> filter(Predicate<? super P_OUT> predicate) {
         Objects.requireNonNull(predicate);
-        return new StatelessOp<P_OUT, P_OUT>(this, StreamShape.REFERENCE,
-                                     StreamOpFlag.NOT_SIZED) {
-            @Override
-            Sink<P_OUT> opWrapSink(int flags, Sink<P_OUT> sink) {
-                return new Sink.ChainedReference<P_OUT, P_OUT>(sink) {
-                    @Override
-                    public void begin(long size) {
-                        downstream.begin(-1);
-                    }
-
-                    @Override
-                    public void accept(P_OUT u) {
-                        if (predicate.test(u))
-                            downstream.accept(u);
-                    }
-                };
-            }
-        };
+        Stream<P_OUT> fused = fuseFilter(predicate);
+        return (fused != null) ? fused : new FilterOp<>(this, predicate);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public final <R> Stream<R> map(Function<? super P_OUT, ? extends R> mapper) {
         Objects.requireNonNull(mapper);
-        return new StatelessOp<P_OUT, R>(this, StreamShape.REFERENCE,
-                                     StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT) {
-            @Override
-            Sink<P_OUT> opWrapSink(int flags, Sink<R> sink) {
-                return new Sink.ChainedReference<P_OUT, R>(sink) {
-                    @Override
-                    public void accept(P_OUT u) {
-                        downstream.accept(mapper.apply(u));
-                    }
-                };
-            }
-        };
+        Stream<R> fused = fuseMap(mapper);
+        return (fused != null) ? fused : new MapOp<>(this, mapper);
+    }
+
+    /**
+     * If this stage can be fused with a following map operation, returns a
+     * stage, replacing this one, that performs both operations using a single
+     * sink; otherwise returns null.
+     *
+     * @param <R> the element type of the new stage
+     * @param mapper the function of the following map operation
+     * @return the fused stage, or null if this stage cannot be fused
+     */
+    <R> Stream<R> fuseMap(Function<? super P_OUT, ? extends R> mapper) {
+        return null;
+    }
+
+    /**
+     * If this stage can be fused with a following filter operation, returns
+     * a stage, replacing this one, that performs both operations using a
+     * single sink; otherwise returns null.
+     *
+     * @param predicate the predicate of the following filter operation
+     * @return the fused stage, or null if this stage cannot be fused
+     */
+    Stream<P_OUT> fuseFilter(Predicate<? super P_OUT> predicate) {
+        return null;
     }
 
     @Override
@@ -457,17 +455,17 @@ abstract class ReferencePipeline<P_IN, P_OUT>
     }
 
     @Override
-    public final boolean anyMatch(Predicate<? super P_OUT> predicate) {
+    public boolean anyMatch(Predicate<? super P_OUT> predicate) {
         return evaluate(MatchOps.makeRef(predicate, MatchOps.MatchKind.ANY));
     }
 
     @Override
-    public final boolean allMatch(Predicate<? super P_OUT> predicate) {
+    public boolean allMatch(Predicate<? super P_OUT> predicate) {
         return evaluate(MatchOps.makeRef(predicate, MatchOps.MatchKind.ALL));
     }
 
     @Override
-    public final boolean noneMatch(Predicate<? super P_OUT> predicate) {
+    public boolean noneMatch(Predicate<? super P_OUT> predicate) {
         return evaluate(MatchOps.makeRef(predicate, MatchOps.MatchKind.NONE));
     }
 
@@ -534,7 +532,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
     }
 
     @Override
-    public final long count() {
+    public long count() {
         return evaluate(ReduceOps.makeRefCounting());
     }
 
@@ -604,6 +602,128 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                 super.forEachOrdered(action);
             }
         }
+
+        @Override
+        public boolean anyMatch(Predicate<? super E_OUT> predicate) {
+            return match(predicate, MatchOps.MatchKind.ANY);
+        }
+
+        @Override
+        public boolean allMatch(Predicate<? super E_OUT> predicate) {
+            return match(predicate, MatchOps.MatchKind.ALL);
+        }
+
+        @Override
+        public boolean noneMatch(Predicate<? super E_OUT> predicate) {
+            return match(predicate, MatchOps.MatchKind.NONE);
+        }
+
+        private boolean match(Predicate<? super E_OUT> predicate,
+                              MatchOps.MatchKind matchKind) {
+            Objects.requireNonNull(predicate);
+            if (!isParallel()) {
+                return MatchOps.match(sourceStageSpliterator(), predicate,
+                                      matchKind);
+            }
+            else {
+                return evaluate(MatchOps.makeRef(predicate, matchKind));
+            }
+        }
+
+        @Override
+        public long count() {
+            if (!isParallel()) {
+                Spliterator<E_OUT> s = sourceStageSpliterator();
+                long size = s.getExactSizeIfKnown();
+                if (size == -1) {
+                    long[] count = new long[1];
+                    s.forEachRemaining(e -> count[0]++);
+                    size = count[0];
+                }
+                return size;
+            }
+            else {
+                return super.count();
+            }
+        }
+    }
+
+    /**
+     * A map stage, which may be fused with a following map stage.
+     *
+     * @param <E_IN> type of elements in the upstream source
+     * @param <E_OUT> type of elements in produced by this stage
+     */
+    static final class MapOp<E_IN, E_OUT> extends StatelessOp<E_IN, E_OUT> {
+        private final Function<? super E_IN, ? extends E_OUT> mapper;
+
+        MapOp(AbstractPipeline<?, E_IN, ?> upstream,
+              Function<? super E_IN, ? extends E_OUT> mapper) {
+            super(upstream, StreamShape.REFERENCE,
+                  StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT);
+            this.mapper = mapper;
+        }
+
+        @Override
+        Sink<E_IN> opWrapSink(int flags, Sink<E_OUT> sink) {
+            return new Sink.ChainedReference<E_IN, E_OUT>(sink) {
+                @Override
+                public void accept(E_IN u) {
+                    downstream.accept(mapper.apply(u));
+                }
+            };
+        }
+
+        @Override
+        <R> Stream<R> fuseMap(Function<? super E_OUT, ? extends R> after) {
+            Function<? super E_IN, ? extends E_OUT> before = mapper;
+            @SuppressWarnings("unchecked")
+            AbstractPipeline<?, E_IN, ?> upstream =
+                (AbstractPipeline<?, E_IN, ?>) unlinkForFusion();
+            return new MapOp<E_IN, R>(upstream,
+                                      u -> after.apply(before.apply(u)));
+        }
+    }
+
+    /**
+     * A filter stage, which may be fused with a following filter stage.
+     *
+     * @param <E_OUT> type of elements in produced by this stage
+     */
+    static final class FilterOp<E_OUT> extends StatelessOp<E_OUT, E_OUT> {
+        private final Predicate<? super E_OUT> predicate;
+
+        FilterOp(AbstractPipeline<?, E_OUT, ?> upstream,
+                 Predicate<? super E_OUT> predicate) {
+            super(upstream, StreamShape.REFERENCE, StreamOpFlag.NOT_SIZED);
+            this.predicate = predicate;
+        }
+
+        @Override
+        Sink<E_OUT> opWrapSink(int flags, Sink<E_OUT> sink) {
+            return new Sink.ChainedReference<E_OUT, E_OUT>(sink) {
+                @Override
+                public void begin(long size) {
+                    downstream.begin(-1);
+                }
+
+                @Override
+                public void accept(E_OUT u) {
+                    if (predicate.test(u))
+                        downstream.accept(u);
+                }
+            };
+        }
+
+        @Override
+        Stream<E_OUT> fuseFilter(Predicate<? super E_OUT> after) {
+            Predicate<? super E_OUT> before = predicate;
+            @SuppressWarnings("unchecked")
+            AbstractPipeline<?, E_OUT, ?> upstream =
+                (AbstractPipeline<?, E_OUT, ?>) unlinkForFusion();
+            return new FilterOp<E_OUT>(upstream,
+                                       u -> before.test(u) && after.test(u));
+        }
     }
 
     /**
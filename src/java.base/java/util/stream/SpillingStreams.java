@@ -0,0 +1,788 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Stream operations that bound the number of elements they hold in memory
+ * by spilling sorted runs of elements to temporary files, for use on
+ * streams too large for the buffering performed by {@link Stream#sorted()},
+ * {@link Stream#distinct()} and {@link Collectors#groupingBy(Function)}.
+ *
+ * <p>Each method consumes its input stream when the returned stream is first
+ * traversed.  Elements are accumulated in memory up to the given maximum
+ * number; each full buffer is sorted and written, using the given
+ * {@link Codec}, to a temporary file through a {@link FileChannel}.  The
+ * sorted runs are then merged lazily as the returned stream is traversed.
+ * A run's file is deleted when the run is exhausted or when the returned
+ * stream is {@linkplain BaseStream#close() closed}, which also closes the
+ * input stream.  Returned streams should therefore be closed, for example
+ * using a try-with-resources statement, if they may not be fully traversed.
+ * If the input fits in memory, no files are created.
+ *
+ * <p>The returned streams are sequential; the input stream may be parallel,
+ * in which case its elements are delivered through its
+ * {@link BaseStream#spliterator() spliterator}.  An {@link IOException}
+ * encountered while spilling or merging is thrown as an
+ * {@link UncheckedIOException}.
+ *
+ * @since 9
+ */
+public final class SpillingStreams {
+
+    private SpillingStreams() { }
+
+    /**
+     * Writes elements to, and reads them from, the temporary files used by
+     * spilling operations.
+     *
+     * @param <T> the type of elements
+     * @since 9
+     */
+    public interface Codec<T> {
+        /**
+         * Writes the given element.
+         *
+         * @param out the output
+         * @param t the element, which may be null if the input stream
+         *        contains null elements
+         * @throws IOException if an I/O error occurs
+         */
+        void write(DataOutput out, T t) throws IOException;
+
+        /**
+         * Reads an element written by {@link #write}.
+         *
+         * @param in the input
+         * @return the element
+         * @throws IOException if an I/O error occurs
+         */
+        T read(DataInput in) throws IOException;
+
+        /**
+         * Returns a codec using Java serialization, one element at a time.
+         * This is convenient but comparatively slow and space-consuming;
+         * a codec written for the element type is usually much faster.
+         *
+         * @param <T> the type of elements
+         * @return a codec using Java serialization
+         */
+        static <T extends Serializable> Codec<T> serialization() {
+            return new Codec<T>() {
+                public void write(DataOutput out, T t) throws IOException {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                        oos.writeObject(t);
+                    }
+                    out.writeInt(bytes.size());
+                    out.write(bytes.toByteArray());
+                }
+
+                @SuppressWarnings("unchecked")
+                public T read(DataInput in) throws IOException {
+                    byte[] b = new byte[in.readInt()];
+                    in.readFully(b);
+                    try (ObjectInputStream ois =
+                         new ObjectInputStream(new ByteArrayInputStream(b))) {
+                        return (T) ois.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e);
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Returns a stream consisting of the elements of the given stream,
+     * sorted according to the provided {@code Comparator}, holding at most
+     * {@code maxBufferedElements} elements in memory at a time.
+     *
+     * <p>For ordered streams, the sort is stable.
+     *
+     * @param <T> the type of stream elements
+     * @param stream the input stream
+     * @param comparator the comparator used to compare stream elements
+     * @param codec the codec used to spill elements
+     * @param maxBufferedElements the maximum number of elements to buffer in
+     *        memory
+     * @return the sorted stream
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if maxBufferedElements is less than 2
+     */
+    public static <T> Stream<T> sorted(Stream<T> stream,
+                                       Comparator<? super T> comparator,
+                                       Codec<T> codec,
+                                       int maxBufferedElements) {
+        Objects.requireNonNull(comparator);
+        Objects.requireNonNull(codec);
+        checkBuffer(maxBufferedElements);
+        Spliterator<T> source = stream.spliterator();
+        ExternalSorter<T> sorter =
+            new ExternalSorter<>(comparator, codec, maxBufferedElements);
+        return spilling(stream, sorter, null, () -> {
+            source.forEachRemaining(sorter::add);
+            return sorter.iterator();
+        }, Spliterator.ORDERED | Spliterator.SORTED, comparator);
+    }
+
+    /**
+     * Returns a stream consisting of the distinct elements (according to
+     * {@link Object#equals(Object)}) of the given stream, holding at most
+     * {@code maxBufferedElements} elements in memory at a time, in addition
+     * to the distinct elements having the same hash code.
+     *
+     * <p>If the input stream is ordered, the first occurrence of each
+     * distinct element is preserved, in encounter order.  Otherwise the
+     * order of the result is unspecified.
+     *
+     * @param <T> the type of stream elements
+     * @param stream the input stream
+     * @param codec the codec used to spill elements
+     * @param maxBufferedElements the maximum number of elements to buffer in
+     *        memory
+     * @return the stream of distinct elements
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if maxBufferedElements is less than 2
+     */
+    public static <T> Stream<T> distinct(Stream<T> stream, Codec<T> codec,
+                                         int maxBufferedElements) {
+        Objects.requireNonNull(codec);
+        checkBuffer(maxBufferedElements);
+        Spliterator<T> source = stream.spliterator();
+        boolean ordered = source.hasCharacteristics(Spliterator.ORDERED);
+        IndexedCodec<T> ic = new IndexedCodec<>(codec);
+        ExternalSorter<Indexed<T>> byHash =
+            new ExternalSorter<>(Indexed.byHash(Objects::hashCode), ic,
+                                 maxBufferedElements);
+        ExternalSorter<Indexed<T>> byIndex = !ordered ? null :
+            new ExternalSorter<>(Indexed.byIndex(), ic, maxBufferedElements);
+        return spilling(stream, byHash, byIndex, () -> {
+            addIndexed(source, byHash);
+            Iterator<Indexed<T>> it = new HashSweep<T, Indexed<T>>(
+                byHash.iterator(), Objects::hashCode) {
+                final Map<Object, Boolean> seen = new HashMap<>();
+
+                @Override
+                void accept(Indexed<T> e) {
+                    if (seen.putIfAbsent(maskNull(e.value), Boolean.TRUE) == null)
+                        out.add(e);
+                }
+
+                @Override
+                void endGroup() {
+                    seen.clear();
+                }
+            };
+            if (byIndex == null)
+                return new Values<>(it);
+            it.forEachRemaining(byIndex::add);
+            return new Values<>(byIndex.iterator());
+        }, ordered ? Spliterator.ORDERED | Spliterator.DISTINCT : Spliterator.DISTINCT);
+    }
+
+    /**
+     * Returns a stream of the groups of the elements of the given stream,
+     * classified by the given function, with each group's elements, in
+     * encounter order, reduced by the given downstream {@code Collector},
+     * holding at most {@code maxBufferedElements} elements in memory at a
+     * time, in addition to the accumulation states of the groups whose
+     * keys have the same hash code.
+     *
+     * <p>This is a counterpart of
+     * {@link Collectors#groupingBy(Function, Collector)} that delivers each
+     * group as a {@code Map.Entry} as soon as it is complete rather than
+     * building a {@code Map} of all groups.  The order of the groups is
+     * unspecified.  The classifier is applied again to each element read
+     * back from a spill file, so must be deterministic.
+     *
+     * @param <T> the type of stream elements
+     * @param <K> the type of keys
+     * @param <A> the intermediate accumulation type of the downstream
+     *        collector
+     * @param <D> the result type of the downstream reduction
+     * @param stream the input stream
+     * @param classifier the classifier function mapping elements to keys
+     * @param downstream the collector implementing the downstream reduction
+     * @param codec the codec used to spill elements
+     * @param maxBufferedElements the maximum number of elements to buffer in
+     *        memory
+     * @return the stream of groups
+     * @throws NullPointerException if any argument is null, or, when the
+     *         returned stream is traversed, if the classifier returns null
+     * @throws IllegalArgumentException if maxBufferedElements is less than 2
+     */
+    public static <T, K, A, D>
+    Stream<Map.Entry<K, D>> groupingBy(Stream<T> stream,
+                                       Function<? super T, ? extends K> classifier,
+                                       Collector<? super T, A, D> downstream,
+                                       Codec<T> codec,
+                                       int maxBufferedElements) {
+        Objects.requireNonNull(classifier);
+        Objects.requireNonNull(codec);
+        checkBuffer(maxBufferedElements);
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+        Function<A, D> finisher = downstream.finisher();
+        Function<T, K> key = t -> Objects.requireNonNull(
+            classifier.apply(t), "element cannot be mapped to a null key");
+        Spliterator<T> source = stream.spliterator();
+        ExternalSorter<Indexed<T>> byHash =
+            new ExternalSorter<>(Indexed.byHash(t -> key.apply(t).hashCode()),
+                                 new IndexedCodec<>(codec), maxBufferedElements);
+        return spilling(stream, byHash, null, () -> {
+            addIndexed(source, byHash);
+            return new HashSweep<T, Map.Entry<K, D>>(
+                byHash.iterator(), t -> key.apply(t).hashCode()) {
+                final Map<K, A> groups = new LinkedHashMap<>();
+
+                @Override
+                void accept(Indexed<T> e) {
+                    A container = groups.computeIfAbsent(key.apply(e.value),
+                                                         k -> supplier.get());
+                    accumulator.accept(container, e.value);
+                }
+
+                @Override
+                void endGroup() {
+                    for (Map.Entry<K, A> g : groups.entrySet())
+                        out.add(new AbstractMap.SimpleImmutableEntry<>(
+                                    g.getKey(), finisher.apply(g.getValue())));
+                    groups.clear();
+                }
+            };
+        }, Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    // Implementation
+
+    private static void checkBuffer(int maxBufferedElements) {
+        if (maxBufferedElements < 2)
+            throw new IllegalArgumentException(
+                "maxBufferedElements: " + maxBufferedElements);
+    }
+
+    private static final Object NULL_KEY = new Object();
+
+    static Object maskNull(Object o) {
+        return (o == null) ? NULL_KEY : o;
+    }
+
+    private static <T, R> Stream<R> spilling(Stream<T> input,
+                                             ExternalSorter<?> sorter,
+                                             ExternalSorter<?> second,
+                                             Supplier<Iterator<R>> evaluation,
+                                             int characteristics) {
+        return spilling(input, sorter, second, evaluation, characteristics,
+                        null);
+    }
+
+    /**
+     * Returns a sequential stream whose spliterator is obtained, on first
+     * traversal, from the iterator produced by the given evaluation, and
+     * which when closed closes the given sorters and the input stream.
+     * If the characteristics include SORTED, the comparator, or null for
+     * natural order, is the order the evaluation yields.  The stream
+     * itself reports SORTED only for natural order, since a SORTED stream
+     * skips a later sorted(); the spliterator reports it in either case,
+     * with the comparator.
+     */
+    private static <T, R> Stream<R> spilling(Stream<T> input,
+                                             ExternalSorter<?> sorter,
+                                             ExternalSorter<?> second,
+                                             Supplier<Iterator<R>> evaluation,
+                                             int characteristics,
+                                             Comparator<? super R> comparator) {
+        Stream<R> s;
+        if (comparator == null || Comparator.naturalOrder().equals(comparator))
+            s = StreamSupport.stream(
+                () -> Spliterators.spliteratorUnknownSize(evaluation.get(),
+                                                          characteristics),
+                characteristics, false);
+        else
+            s = StreamSupport.stream(
+                () -> new SortedIteratorSpliterator<>(evaluation.get(),
+                                                      characteristics,
+                                                      comparator),
+                characteristics & ~Spliterator.SORTED, false);
+        return s.onClose(() -> {
+            try {
+                sorter.close();
+                if (second != null)
+                    second.close();
+            } finally {
+                input.close();
+            }
+        });
+    }
+
+    private static <T> void addIndexed(Spliterator<T> source,
+                                       ExternalSorter<Indexed<T>> sorter) {
+        long[] index = new long[1];
+        source.forEachRemaining(t -> sorter.add(new Indexed<>(index[0]++, t)));
+    }
+
+    /**
+     * An element with its encounter index.
+     */
+    static final class Indexed<T> {
+        final long index;
+        final T value;
+
+        Indexed(long index, T value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        static <T> Comparator<Indexed<T>> byIndex() {
+            return (a, b) -> Long.compare(a.index, b.index);
+        }
+
+        /**
+         * Orders by the given hash of the values, then by encounter index.
+         * Hashes are recomputed on each comparison rather than stored, to
+         * bound the footprint of buffered elements.
+         */
+        static <T> Comparator<Indexed<T>> byHash(ToIntFunction<? super T> hash) {
+            return (a, b) -> {
+                int c = Integer.compare(hash.applyAsInt(a.value),
+                                        hash.applyAsInt(b.value));
+                return (c != 0) ? c : Long.compare(a.index, b.index);
+            };
+        }
+    }
+
+    /** Codec for Indexed elements, prefixing each with its index. */
+    static final class IndexedCodec<T> implements Codec<Indexed<T>> {
+        private final Codec<T> codec;
+
+        IndexedCodec(Codec<T> codec) {
+            this.codec = codec;
+        }
+
+        public void write(DataOutput out, Indexed<T> e) throws IOException {
+            out.writeLong(e.index);
+            codec.write(out, e.value);
+        }
+
+        public Indexed<T> read(DataInput in) throws IOException {
+            long index = in.readLong();
+            return new Indexed<>(index, codec.read(in));
+        }
+    }
+
+    /**
+     * Spliterator over an iterator whose elements are sorted by a
+     * comparator other than natural order.
+     */
+    static final class SortedIteratorSpliterator<T>
+        extends Spliterators.AbstractSpliterator<T> {
+        private final Iterator<? extends T> it;
+        private final Comparator<? super T> comparator;
+        static final int SPLIT_BATCH = 1 << 10;
+
+        SortedIteratorSpliterator(Iterator<? extends T> it,
+                                  int characteristics,
+                                  Comparator<? super T> comparator) {
+            super(Long.MAX_VALUE, characteristics | Spliterator.SORTED);
+            this.it = it;
+            this.comparator = comparator;
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            if (!it.hasNext())
+                return false;
+            action.accept(it.next());
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            it.forEachRemaining(action);
+        }
+
+        /**
+         * Splits off a batch as AbstractSpliterator does, but without
+         * SORTED, which an array spliterator can only report for natural
+         * order.
+         */
+        public Spliterator<T> trySplit() {
+            if (!it.hasNext())
+                return null;
+            Object[] a = new Object[SPLIT_BATCH];
+            int n = 0;
+            do { a[n++] = it.next(); } while (n < a.length && it.hasNext());
+            return Spliterators.spliterator(a, 0, n,
+                characteristics() & ~Spliterator.SORTED);
+        }
+
+        public Comparator<? super T> getComparator() {
+            return comparator;
+        }
+    }
+
+    /** Iterator over the values of an iterator of Indexed elements. */
+    static final class Values<T> implements Iterator<T> {
+        private final Iterator<Indexed<T>> it;
+
+        Values(Iterator<Indexed<T>> it) {
+            this.it = it;
+        }
+
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        public T next() {
+            return it.next().value;
+        }
+    }
+
+    /**
+     * Iterator sweeping an iterator of Indexed elements sorted by hash,
+     * one group of elements with equal hashes at a time.  Each element
+     * of a group is passed to accept, and endGroup is called at the end
+     * of the group; both may add results to out, which are returned
+     * before the next group is read.
+     */
+    abstract static class HashSweep<T, R> implements Iterator<R> {
+        private final Iterator<Indexed<T>> it;
+        private final ToIntFunction<? super T> hash;
+        final ArrayDeque<R> out = new ArrayDeque<>();
+        private Indexed<T> pending;   // first element of next group
+
+        HashSweep(Iterator<Indexed<T>> it, ToIntFunction<? super T> hash) {
+            this.it = it;
+            this.hash = hash;
+        }
+
+        abstract void accept(Indexed<T> e);
+
+        abstract void endGroup();
+
+        public boolean hasNext() {
+            while (out.isEmpty()) {
+                Indexed<T> e = pending;
+                pending = null;
+                if (e == null) {
+                    if (!it.hasNext())
+                        return false;
+                    e = it.next();
+                }
+                int h = hash.applyAsInt(e.value);
+                for (;;) {
+                    accept(e);
+                    if (!it.hasNext())
+                        break;
+                    e = it.next();
+                    if (hash.applyAsInt(e.value) != h) {
+                        pending = e;
+                        break;
+                    }
+                }
+                endGroup();
+            }
+            return true;
+        }
+
+        public R next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return out.poll();
+        }
+    }
+
+    /**
+     * Accumulates elements, spilling sorted runs of at most maxBuffered
+     * elements to temporary files, and then provides an iterator merging
+     * the runs with any remaining buffered elements.  Ties are broken in
+     * favor of earlier runs, so that the merge is stable.
+     */
+    static final class ExternalSorter<E> implements AutoCloseable {
+        /** The maximum number of runs merged at a time. */
+        static final int MAX_FAN_IN = 128;
+
+        /** The buffer size for reading and writing each run. */
+        static final int IO_BUFFER_SIZE = 1 << 16;
+
+        private final Comparator<? super E> comparator;
+        private final Codec<E> codec;
+        private final int maxBuffered;
+        private Object[] buffer;
+        private int count;
+        private final List<Path> runs = new ArrayList<>();
+        private final List<Run<E>> open = new ArrayList<>();
+
+        ExternalSorter(Comparator<? super E> comparator, Codec<E> codec,
+                       int maxBuffered) {
+            this.comparator = comparator;
+            this.codec = codec;
+            this.maxBuffered = maxBuffered;
+            this.buffer = new Object[Math.min(maxBuffered, 1 << 10)];
+        }
+
+        void add(E e) {
+            if (count == buffer.length) {
+                if (count < maxBuffered)
+                    buffer = Arrays.copyOf(buffer,
+                                           (int) Math.min(maxBuffered, 2L * count));
+                else
+                    spill();
+            }
+            buffer[count++] = e;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void sortBuffer() {
+            Arrays.sort((E[]) buffer, 0, count, comparator);
+        }
+
+        /** Writes the sorted buffer as a new run. */
+        @SuppressWarnings("unchecked")
+        private void spill() {
+            sortBuffer();
+            Path p = newRun();
+            try (DataOutputStream out = openOutput(p)) {
+                for (int i = 0; i < count; i++) {
+                    codec.write(out, (E) buffer[i]);
+                    buffer[i] = null;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            runs.add(p);
+            count = 0;
+        }
+
+        private static Path newRun() {
+            try {
+                return Files.createTempFile("stream-spill", ".run");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static DataOutputStream openOutput(Path p) throws IOException {
+            FileChannel ch = FileChannel.open(p, StandardOpenOption.WRITE,
+                                              StandardOpenOption.TRUNCATE_EXISTING);
+            return new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(ch), IO_BUFFER_SIZE));
+        }
+
+        private Run<E> openRun(Path p) {
+            try {
+                FileChannel ch = FileChannel.open(p, StandardOpenOption.READ,
+                                                  StandardOpenOption.DELETE_ON_CLOSE);
+                Run<E> r = new Run<>(new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(ch), IO_BUFFER_SIZE)), codec, open.size());
+                open.add(r);
+                return r;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Returns an iterator over all added elements in sorted order.  May
+         * be called only once, after all elements are added.
+         */
+        @SuppressWarnings("unchecked")
+        Iterator<E> iterator() {
+            sortBuffer();
+            Iterator<E> memory = Arrays.asList((E[]) buffer).subList(0, count).iterator();
+            if (runs.isEmpty())
+                return memory;
+            while (runs.size() > MAX_FAN_IN) {        // intermediate merges
+                List<Path> group = runs.subList(0, MAX_FAN_IN);
+                Path p = newRun();
+                try (DataOutputStream out = openOutput(p)) {
+                    Iterator<E> it = merge(group, null);
+                    while (it.hasNext())
+                        codec.write(out, it.next());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                group.clear();
+                runs.add(0, p);
+                open.clear();
+            }
+            return merge(runs, memory);
+        }
+
+        /**
+         * Returns an iterator merging the given runs, followed in tie order
+         * by the given sorted in-memory elements if non-null.
+         */
+        private Iterator<E> merge(List<Path> paths, Iterator<E> memory) {
+            PriorityQueue<Run<E>> queue = new PriorityQueue<>(
+                paths.size() + 1, (a, b) -> {
+                    int c = comparator.compare(a.head, b.head);
+                    return (c != 0) ? c : Integer.compare(a.order, b.order);
+                });
+            for (Path p : paths) {
+                Run<E> r = openRun(p);
+                if (r.advance())
+                    queue.add(r);
+            }
+            if (memory != null) {
+                Run<E> r = new Run<>(memory, Integer.MAX_VALUE);
+                if (r.advance())
+                    queue.add(r);
+            }
+            return new Iterator<E>() {
+                public boolean hasNext() {
+                    return !queue.isEmpty();
+                }
+
+                public E next() {
+                    Run<E> r = queue.poll();
+                    if (r == null)
+                        throw new NoSuchElementException();
+                    E e = r.head;
+                    if (r.advance())
+                        queue.add(r);
+                    return e;
+                }
+            };
+        }
+
+        /** Deletes any remaining runs. */
+        public void close() {
+            buffer = null;
+            for (Run<E> r : open)
+                r.close();
+            open.clear();
+            for (Path p : runs) {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignore) {
+                }
+            }
+            runs.clear();
+        }
+    }
+
+    /** A sorted run being merged, with its current head element. */
+    static final class Run<E> {
+        private DataInputStream in;       // null when closed or in memory
+        private final Codec<E> codec;
+        private final Iterator<E> memory;
+        final int order;
+        E head;
+
+        Run(DataInputStream in, Codec<E> codec, int order) {
+            this.in = in;
+            this.codec = codec;
+            this.memory = null;
+            this.order = order;
+        }
+
+        Run(Iterator<E> memory, int order) {
+            this.in = null;
+            this.codec = null;
+            this.memory = memory;
+            this.order = order;
+        }
+
+        /**
+         * Reads the next element into head, returning false, and closing
+         * (and so deleting) the run, if there are no more.
+         */
+        boolean advance() {
+            if (memory != null) {
+                if (!memory.hasNext())
+                    return false;
+                head = memory.next();
+                return true;
+            }
+            if (in == null)
+                return false;
+            try {
+                in.mark(1);
+                if (in.read() < 0) {
+                    close();
+                    return false;
+                }
+                in.reset();
+                head = codec.read(in);
+                return true;
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            head = null;
+            DataInputStream s = in;
+            if (s != null) {
+                in = null;
+                try {
+                    s.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+}
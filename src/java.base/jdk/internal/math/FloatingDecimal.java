@@ -25,6 +25,7 @@
 
 package jdk.internal.math;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.regex.*;
 
@@ -122,6 +123,214 @@ public class FloatingDecimal{
         return readJavaFormatString(s).floatValue();
     }
 
+    /**
+     * Converts the ASCII bytes <code>in[start, end)</code> to a double
+     * precision floating point value, accepting the same syntax as
+     * {@link #parseDouble(String)}. Plain decimals of up to 15 significant
+     * digits and a modest exponent are converted in place; anything else
+     * goes through the <code>String</code> based path.
+     *
+     * @param in The bytes to convert.
+     * @param start The index of the first byte, inclusive.
+     * @param end The index of the last byte, exclusive.
+     * @return The double precision value.
+     * @throws NumberFormatException If the bytes do not represent a
+     * properly formatted double precision value.
+     */
+    public static double parseDouble(byte[] in, int start, int end)
+            throws NumberFormatException {
+        double d = parseSimpleDecimal(in, start, end);
+        if (d == d) {
+            return d;
+        }
+        return readJavaFormatString(new String(in, start, end - start,
+                StandardCharsets.ISO_8859_1)).doubleValue();
+    }
+
+    /**
+     * Converts the characters <code>in[start, end)</code> to a double
+     * precision floating point value, accepting the same syntax as
+     * {@link #parseDouble(String)}.
+     *
+     * @param in The characters to convert.
+     * @param start The index of the first character, inclusive.
+     * @param end The index of the last character, exclusive.
+     * @return The double precision value.
+     * @throws NumberFormatException If the characters do not represent a
+     * properly formatted double precision value.
+     * @see #parseDouble(byte[], int, int)
+     */
+    public static double parseDouble(CharSequence in, int start, int end)
+            throws NumberFormatException {
+        double d = parseSimpleDecimal(in, start, end);
+        if (d == d) {
+            return d;
+        }
+        return readJavaFormatString(in.subSequence(start, end).toString())
+                .doubleValue();
+    }
+
+    //
+    // The simple decimals are [+-]digits[.digits][(e|E)[+-]digits] with at
+    // most MAX_DECIMAL_DIGITS significant digits, where the value is an
+    // exact double scaled by an exact power of ten, so that one rounding
+    // gives the correctly rounded result (see ASCIIToBinaryBuffer). NaN is
+    // returned for everything else, including whitespace and type suffixes,
+    // and leaves the work and the error reporting to readJavaFormatString.
+    //
+    private static double parseSimpleDecimal(byte[] in, int start, int end) {
+        int i = start;
+        boolean isNegative = false;
+        if (i < end && (in[i] == '-' || in[i] == '+')) {
+            isNegative = in[i++] == '-';
+        }
+        long value = 0;
+        int nDigits = 0;
+        int decExp = 0;
+        int mark = i;
+        int c;
+        while (i < end && (c = in[i] - '0') >= 0 && c <= 9) {
+            if (value != 0 || c != 0) {
+                if (++nDigits > MAX_DECIMAL_DIGITS) {
+                    return Double.NaN;
+                }
+                value = value * 10 + c;
+            }
+            i++;
+        }
+        boolean seen = i > mark;
+        if (i < end && in[i] == '.') {
+            mark = ++i;
+            while (i < end && (c = in[i] - '0') >= 0 && c <= 9) {
+                if (value != 0 || c != 0) {
+                    if (++nDigits > MAX_DECIMAL_DIGITS) {
+                        return Double.NaN;
+                    }
+                    value = value * 10 + c;
+                }
+                decExp--;
+                i++;
+            }
+            seen |= i > mark;
+        }
+        if (!seen) {
+            return Double.NaN;
+        }
+        if (i < end && (in[i] == 'e' || in[i] == 'E')) {
+            boolean expNegative = false;
+            if (++i < end && (in[i] == '-' || in[i] == '+')) {
+                expNegative = in[i++] == '-';
+            }
+            int exp = 0;
+            mark = i;
+            while (i < end && (c = in[i] - '0') >= 0 && c <= 9) {
+                if (exp > MAX_DECIMAL_EXPONENT) {
+                    return Double.NaN;
+                }
+                exp = exp * 10 + c;
+                i++;
+            }
+            if (i == mark) {
+                return Double.NaN;
+            }
+            decExp += expNegative ? -exp : exp;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+        return scaleSimpleDecimal(isNegative, value, nDigits, decExp);
+    }
+
+    private static double parseSimpleDecimal(CharSequence in, int start, int end) {
+        int i = start;
+        boolean isNegative = false;
+        if (i < end && (in.charAt(i) == '-' || in.charAt(i) == '+')) {
+            isNegative = in.charAt(i++) == '-';
+        }
+        long value = 0;
+        int nDigits = 0;
+        int decExp = 0;
+        int mark = i;
+        int c;
+        while (i < end && (c = in.charAt(i) - '0') >= 0 && c <= 9) {
+            if (value != 0 || c != 0) {
+                if (++nDigits > MAX_DECIMAL_DIGITS) {
+                    return Double.NaN;
+                }
+                value = value * 10 + c;
+            }
+            i++;
+        }
+        boolean seen = i > mark;
+        if (i < end && in.charAt(i) == '.') {
+            mark = ++i;
+            while (i < end && (c = in.charAt(i) - '0') >= 0 && c <= 9) {
+                if (value != 0 || c != 0) {
+                    if (++nDigits > MAX_DECIMAL_DIGITS) {
+                        return Double.NaN;
+                    }
+                    value = value * 10 + c;
+                }
+                decExp--;
+                i++;
+            }
+            seen |= i > mark;
+        }
+        if (!seen) {
+            return Double.NaN;
+        }
+        if (i < end && (in.charAt(i) == 'e' || in.charAt(i) == 'E')) {
+            boolean expNegative = false;
+            if (++i < end && (in.charAt(i) == '-' || in.charAt(i) == '+')) {
+                expNegative = in.charAt(i++) == '-';
+            }
+            int exp = 0;
+            mark = i;
+            while (i < end && (c = in.charAt(i) - '0') >= 0 && c <= 9) {
+                if (exp > MAX_DECIMAL_EXPONENT) {
+                    return Double.NaN;
+                }
+                exp = exp * 10 + c;
+                i++;
+            }
+            if (i == mark) {
+                return Double.NaN;
+            }
+            decExp += expNegative ? -exp : exp;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+        return scaleSimpleDecimal(isNegative, value, nDigits, decExp);
+    }
+
+    private static double scaleSimpleDecimal(boolean isNegative, long value,
+                                             int nDigits, int decExp) {
+        double dValue = (double) value;
+        if (value != 0 && decExp != 0) {
+            double[] pow10 = ASCIIToBinaryBuffer.SMALL_10_POW;
+            int maxSmallTen = pow10.length - 1;
+            if (decExp < 0) {
+                if (decExp < -maxSmallTen) {
+                    return Double.NaN;
+                }
+                dValue /= pow10[-decExp];
+            } else {
+                // Like ASCIIToBinaryBuffer, borrow the unused digits
+                int slop = MAX_DECIMAL_DIGITS - nDigits;
+                if (decExp > maxSmallTen + slop) {
+                    return Double.NaN;
+                }
+                if (decExp > maxSmallTen) {
+                    dValue *= pow10[slop];
+                    decExp -= slop;
+                }
+                dValue *= pow10[decExp];
+            }
+        }
+        return isNegative ? -dValue : dValue;
+    }
+
     /**
      * A converter which can process single or double precision floating point
      * values into an ASCII <code>String</code> representation.
@@ -25,7 +25,10 @@
 
 package jdk.internal.misc;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.util.Map;
 
 public interface JavaLangInvokeAccess {
@@ -85,4 +88,19 @@ public interface JavaLangInvokeAccess {
      */
     byte[] generateInvokersHolderClassBytes(String className,
             MethodType[] methodTypes);
+
+    /**
+     * Returns a direct method handle for the given method, without access
+     * checks.  Used by {@code jdk.internal.reflect} to implement
+     * {@code Method.invoke}.
+     */
+    MethodHandle unreflect(Method method) throws IllegalAccessException;
+
+    /**
+     * Returns a direct method handle for the given constructor, without
+     * access checks.  Used by {@code jdk.internal.reflect} to implement
+     * {@code Constructor.newInstance}.
+     */
+    MethodHandle unreflectConstructor(Constructor<?> ctor)
+        throws IllegalAccessException;
 }
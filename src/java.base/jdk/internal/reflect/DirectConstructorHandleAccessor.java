@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package jdk.internal.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import jdk.internal.misc.SharedSecrets;
+import jdk.internal.misc.Unsafe;
+import jdk.internal.misc.VM;
+
+/** ConstructorAccessor that invokes the constructor through a direct
+    method handle, adapted to take an argument array. See
+    DirectMethodHandleAccessor. */
+
+class DirectConstructorHandleAccessor extends ConstructorAccessorImpl {
+    private final Class<?>[] parameterTypes;
+    /** The constructor, as (Object[])Object */
+    private final MethodHandle target;
+
+    private DirectConstructorHandleAccessor(Constructor<?> c,
+                                            MethodHandle target) {
+        this.parameterTypes = c.getParameterTypes();
+        this.target = target;
+    }
+
+    /**
+     * Returns an accessor for the given constructor, or null if it must
+     * be invoked through the native or generated accessors, early in
+     * startup.
+     */
+    static ConstructorAccessorImpl newInstance(Constructor<?> c) {
+        if (!VM.isModuleSystemInited())
+            return null;
+        MethodHandle target;
+        try {
+            int n = c.getParameterCount();
+            target = SharedSecrets.getJavaLangInvokeAccess()
+                                  .unreflectConstructor(c)
+                                  .asFixedArity()     // as for methods
+                                  .asType(MethodType.genericMethodType(n))
+                                  .asSpreader(Object[].class, n);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+        // Initialize the class now, rather than have the invocation
+        // report a failure as coming from the constructor
+        Unsafe.getUnsafe().ensureClassInitialized(c.getDeclaringClass());
+        return new DirectConstructorHandleAccessor(c, target);
+    }
+
+    public Object newInstance(Object[] args)
+        throws InstantiationException,
+               IllegalArgumentException,
+               InvocationTargetException
+    {
+        args = DirectMethodHandleAccessor.checkArguments(parameterTypes, args);
+        try {
+            return (Object) target.invokeExact(args);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package jdk.internal.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import jdk.internal.misc.SharedSecrets;
+import jdk.internal.misc.Unsafe;
+import jdk.internal.misc.VM;
+import sun.invoke.util.Wrapper;
+
+/** <P> MethodAccessor that invokes the method through a direct method
+    handle, adapted to take the receiver and an argument array and to
+    return a boxed result. Unlike the accessors produced by
+    MethodAccessorGenerator, it loads no class of its own. </P>
+
+    <P> The arguments are checked here before the handle is invoked,
+    so that anything thrown by the invocation comes from the method
+    itself and can be wrapped in an InvocationTargetException. </P>
+*/
+
+class DirectMethodHandleAccessor extends MethodAccessorImpl {
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Class<?> declaringClass;
+    private final Class<?>[] parameterTypes;
+    private final boolean isStatic;
+    /** The method, as (Object, Object[])Object */
+    private final MethodHandle target;
+
+    private DirectMethodHandleAccessor(Method method, MethodHandle target) {
+        this.declaringClass = method.getDeclaringClass();
+        this.parameterTypes = method.getParameterTypes();
+        this.isStatic = Modifier.isStatic(method.getModifiers());
+        this.target = target;
+    }
+
+    /**
+     * Returns an accessor for the given method, or null if it must be
+     * invoked through the native or generated accessors: early in
+     * startup, before java.lang.invoke may be used; for
+     * caller-sensitive methods, which need the caller of
+     * Method.invoke; and for the signature-polymorphic methods of
+     * MethodHandle and VarHandle.
+     */
+    static MethodAccessorImpl newInstance(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (!VM.isModuleSystemInited()
+                || declaringClass == MethodHandle.class
+                || declaringClass == VarHandle.class
+                || Reflection.isCallerSensitive(method)) {
+            return null;
+        }
+        MethodHandle target;
+        try {
+            int n = method.getParameterCount();
+            // Fixed arity, so that asType passes a trailing array as is
+            target = SharedSecrets.getJavaLangInvokeAccess().unreflect(method)
+                                  .asFixedArity();
+            if (Modifier.isStatic(method.getModifiers()))
+                target = MethodHandles.dropArguments(target, 0, Object.class);
+            target = target.asType(MethodType.genericMethodType(n + 1))
+                           .asSpreader(Object[].class, n);
+        } catch (IllegalAccessException | RuntimeException e) {
+            // e.g. too many parameters to spread
+            return null;
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            // Initialize the class now, rather than have the invocation
+            // report a failure as coming from the method
+            Unsafe.getUnsafe().ensureClassInitialized(declaringClass);
+        }
+        return new DirectMethodHandleAccessor(method, target);
+    }
+
+    public Object invoke(Object obj, Object[] args)
+        throws IllegalArgumentException, InvocationTargetException
+    {
+        if (!isStatic) {
+            if (obj == null)
+                throw new NullPointerException();
+            if (!declaringClass.isInstance(obj))
+                throw new IllegalArgumentException(
+                    "object is not an instance of declaring class");
+        }
+        args = checkArguments(parameterTypes, args);
+        try {
+            return (Object) target.invokeExact(obj, args);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * Checks that the arguments can be passed to parameters of the given
+     * types, as by Method.invoke: a reference argument must be null or
+     * an instance of its parameter type, and a primitive parameter
+     * takes a wrapper whose value widens to it.
+     *
+     * @return the arguments, or an empty array if args is null
+     * @throws IllegalArgumentException if the arguments do not match
+     */
+    static Object[] checkArguments(Class<?>[] parameterTypes, Object[] args) {
+        if (args == null)
+            args = NO_ARGS;
+        if (args.length != parameterTypes.length)
+            throw new IllegalArgumentException("wrong number of arguments");
+        for (int i = 0; i < args.length; i++) {
+            Class<?> type = parameterTypes[i];
+            Object arg = args[i];
+            if (type.isPrimitive()) {
+                if (arg == null || !Wrapper.isWrapperType(arg.getClass()) ||
+                    !Wrapper.forPrimitiveType(type).isConvertibleFrom(
+                        Wrapper.forWrapperType(arg.getClass())))
+                    throw new IllegalArgumentException("argument type mismatch");
+            } else if (arg != null && !type.isInstance(arg)) {
+                throw new IllegalArgumentException("argument type mismatch");
+            }
+        }
+        return args;
+    }
+}
@@ -29,7 +29,8 @@ import java.lang.reflect.*;
 import sun.reflect.misc.ReflectUtil;
 
 /** Used only for the first few invocations of a Constructor;
-    afterward, switches to bytecode-based implementation */
+    afterward, switches to a method handle or bytecode-based
+    implementation */
 
 class NativeConstructorAccessorImpl extends ConstructorAccessorImpl {
     private final Constructor<?> c;
@@ -50,12 +51,16 @@ class NativeConstructorAccessorImpl extends ConstructorAccessorImpl {
         // be found from the generated bytecode.
         if (++numInvocations > ReflectionFactory.inflationThreshold()
                 && !ReflectUtil.isVMAnonymousClass(c.getDeclaringClass())) {
-            ConstructorAccessorImpl acc = (ConstructorAccessorImpl)
-                new MethodAccessorGenerator().
-                    generateConstructor(c.getDeclaringClass(),
-                                        c.getParameterTypes(),
-                                        c.getExceptionTypes(),
-                                        c.getModifiers());
+            ConstructorAccessorImpl acc = null;
+            if (ReflectionFactory.useDirectMethodHandle())
+                acc = DirectConstructorHandleAccessor.newInstance(c);
+            if (acc == null)
+                acc = (ConstructorAccessorImpl)
+                    new MethodAccessorGenerator().
+                        generateConstructor(c.getDeclaringClass(),
+                                            c.getParameterTypes(),
+                                            c.getExceptionTypes(),
+                                            c.getModifiers());
             parent.setDelegate(acc);
         }
 
@@ -29,7 +29,7 @@ import java.lang.reflect.*;
 import sun.reflect.misc.ReflectUtil;
 
 /** Used only for the first few invocations of a Method; afterward,
-    switches to bytecode-based implementation */
+    switches to a method handle or bytecode-based implementation */
 
 class NativeMethodAccessorImpl extends MethodAccessorImpl {
     private final Method method;
@@ -48,14 +48,18 @@ class NativeMethodAccessorImpl extends MethodAccessorImpl {
         // found from the generated bytecode.
         if (++numInvocations > ReflectionFactory.inflationThreshold()
                 && !ReflectUtil.isVMAnonymousClass(method.getDeclaringClass())) {
-            MethodAccessorImpl acc = (MethodAccessorImpl)
-                new MethodAccessorGenerator().
-                    generateMethod(method.getDeclaringClass(),
-                                   method.getName(),
-                                   method.getParameterTypes(),
-                                   method.getReturnType(),
-                                   method.getExceptionTypes(),
-                                   method.getModifiers());
+            MethodAccessorImpl acc = null;
+            if (ReflectionFactory.useDirectMethodHandle())
+                acc = DirectMethodHandleAccessor.newInstance(method);
+            if (acc == null)
+                acc = (MethodAccessorImpl)
+                    new MethodAccessorGenerator().
+                        generateMethod(method.getDeclaringClass(),
+                                       method.getName(),
+                                       method.getParameterTypes(),
+                                       method.getReturnType(),
+                                       method.getExceptionTypes(),
+                                       method.getModifiers());
             parent.setDelegate(acc);
         }
 
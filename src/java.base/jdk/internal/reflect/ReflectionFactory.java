@@ -88,6 +88,15 @@ public class ReflectionFactory {
     private static boolean noInflation        = false;
     private static int     inflationThreshold = 15;
 
+    // Unless -Djdk.reflect.useDirectMethodHandle=false is given,
+    // Method.invoke() and Constructor.newInstance() go through direct
+    // method handles instead, once java.lang.invoke can be used.  These
+    // need no class to be generated and loaded for each member, which
+    // saves metaspace and warm-up time in applications that reflect on
+    // many members.  Caller-sensitive methods, and members invoked
+    // early in startup, still use the mechanism above.
+    private static boolean useDirectMethodHandle = true;
+
     private ReflectionFactory() {
     }
 
@@ -160,6 +169,11 @@ public class ReflectionFactory {
     public MethodAccessor newMethodAccessor(Method method) {
         checkInitted();
 
+        if (useDirectMethodHandle) {
+            MethodAccessorImpl acc = DirectMethodHandleAccessor.newInstance(method);
+            if (acc != null)
+                return acc;
+        }
         if (noInflation && !ReflectUtil.isVMAnonymousClass(method.getDeclaringClass())) {
             return new MethodAccessorGenerator().
                 generateMethod(method.getDeclaringClass(),
@@ -197,6 +211,12 @@ public class ReflectionFactory {
             return new BootstrapConstructorAccessorImpl(c);
         }
 
+        if (useDirectMethodHandle) {
+            ConstructorAccessorImpl acc = DirectConstructorHandleAccessor.newInstance(c);
+            if (acc != null)
+                return acc;
+        }
+
         if (noInflation && !ReflectUtil.isVMAnonymousClass(c.getDeclaringClass())) {
             return new MethodAccessorGenerator().
                 generateConstructor(c.getDeclaringClass(),
@@ -577,6 +597,10 @@ public class ReflectionFactory {
         return inflationThreshold;
     }
 
+    static boolean useDirectMethodHandle() {
+        return useDirectMethodHandle;
+    }
+
     /** We have to defer full initialization of this class until after
         the static initializer is run since java.lang.reflect.Method's
         static initializer (more properly, that for
@@ -614,6 +638,11 @@ public class ReflectionFactory {
             }
         }
 
+        val = props.getProperty("jdk.reflect.useDirectMethodHandle");
+        if (val != null && val.equals("false")) {
+            useDirectMethodHandle = false;
+        }
+
         initted = true;
     }
 
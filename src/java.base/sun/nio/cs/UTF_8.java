@@ -33,6 +33,7 @@ import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
+import jdk.internal.misc.Unsafe;
 
 /* Legal UTF-8 Byte Sequences
  *
@@ -72,6 +73,42 @@ class UTF_8 extends Unicode
         return new Encoder(this);
     }
 
+    private static final Unsafe U = Unsafe.getUnsafe();
+
+    /**
+     * Returns the number of ASCII bytes at the start of sa[sp, sp+len),
+     * reading eight bytes at a time.
+     */
+    static int countASCII(byte[] sa, int sp, int len) {
+        int i = sp;
+        int limit = sp + len;
+        for (int wl = limit - 7; i < wl; i += 8) {
+            long w = U.getLongUnaligned(sa, Unsafe.ARRAY_BYTE_BASE_OFFSET + (long)i);
+            if ((w & 0x8080808080808080L) != 0)
+                break;
+        }
+        while (i < limit && sa[i] >= 0)
+            i++;
+        return i - sp;
+    }
+
+    /**
+     * Returns the number of ASCII chars at the start of sa[sp, sp+len),
+     * reading four chars at a time.
+     */
+    static int countASCII(char[] sa, int sp, int len) {
+        int i = sp;
+        int limit = sp + len;
+        for (int wl = limit - 3; i < wl; i += 4) {
+            long w = U.getLongUnaligned(sa, Unsafe.ARRAY_CHAR_BASE_OFFSET + ((long)i << 1));
+            if ((w & 0xff80ff80ff80ff80L) != 0)
+                break;
+        }
+        while (i < limit && sa[i] < '\u0080')
+            i++;
+        return i - sp;
+    }
+
     private static final void updatePositions(Buffer src, int sp,
                                               Buffer dst, int dp) {
         src.position(sp - src.arrayOffset());
@@ -229,8 +266,8 @@ class UTF_8 extends Unicode
             int dl = dst.arrayOffset() + dst.limit();
             int dlASCII = dp + Math.min(sl - sp, dl - dp);
 
-            // ASCII only loop
-            while (dp < dlASCII && sa[sp] >= 0)
+            // ASCII only loop, after finding the run eight bytes at a time
+            for (int n = countASCII(sa, sp, dlASCII - dp); n > 0; n--)
                 da[dp++] = (char) sa[sp++];
             while (sp < sl) {
                 int b1 = sa[sp];
@@ -430,8 +467,9 @@ class UTF_8 extends Unicode
             int dlASCII = Math.min(len, da.length);
             ByteBuffer bb = null;  // only necessary if malformed
 
-            // ASCII only optimized loop
-            while (dp < dlASCII && sa[sp] >= 0)
+            // ASCII only optimized loop, after finding the run eight
+            // bytes at a time
+            for (int n = countASCII(sa, sp, dlASCII); n > 0; n--)
                 da[dp++] = (char) sa[sp++];
 
             while (sp < sl) {
@@ -595,8 +633,8 @@ class UTF_8 extends Unicode
             int dl = dst.arrayOffset() + dst.limit();
             int dlASCII = dp + Math.min(sl - sp, dl - dp);
 
-            // ASCII only loop
-            while (dp < dlASCII && sa[sp] < '\u0080')
+            // ASCII only loop, after finding the run four chars at a time
+            for (int n = countASCII(sa, sp, dlASCII - dp); n > 0; n--)
                 da[dp++] = (byte) sa[sp++];
             while (sp < sl) {
                 char c = sa[sp];
@@ -709,8 +747,9 @@ class UTF_8 extends Unicode
             int dp = 0;
             int dlASCII = dp + Math.min(len, da.length);
 
-            // ASCII only optimized loop
-            while (dp < dlASCII && sa[sp] < '\u0080')
+            // ASCII only optimized loop, after finding the run four
+            // chars at a time
+            for (int n = countASCII(sa, sp, dlASCII); n > 0; n--)
                 da[dp++] = (byte) sa[sp++];
 
             while (sp < sl) {
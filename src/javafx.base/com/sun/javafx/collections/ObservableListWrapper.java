@@ -33,6 +33,7 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.RandomAccess;
+import java.util.function.ToLongFunction;
 import javafx.beans.InvalidationListener;
 import javafx.beans.Observable;
 import javafx.collections.ObservableList;
@@ -226,6 +227,17 @@ public class ObservableListWrapper<E> extends ModifiableObservableListBase<E> im
         fireChange(new SimplePermutationChange<E>(0, size(), perm, this));
     }
 
+    @Override
+    public void parallelSort(Comparator<? super E> comparator) {
+        // fire a single permutation change, as sort does
+        sort(comparator);
+    }
+
+    @Override
+    public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+        sort(Comparator.comparingLong(keyExtractor));
+    }
+
     private SortHelper getSortHelper() {
         if (helper == null) {
             helper = new SortHelper();
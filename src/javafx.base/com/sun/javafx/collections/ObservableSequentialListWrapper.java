@@ -30,6 +30,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
 import javafx.beans.InvalidationListener;
 import javafx.beans.Observable;
 import javafx.collections.ModifiableObservableListBase;
@@ -249,6 +250,17 @@ public final class ObservableSequentialListWrapper<E> extends ModifiableObservab
         fireChange(new NonIterableChange.SimplePermutationChange<E>(0, size(), perm, this));
     }
 
+    @Override
+    public void parallelSort(Comparator<? super E> comparator) {
+        // fire a single permutation change, as sort does
+        sort(comparator);
+    }
+
+    @Override
+    public void sortByLongKey(ToLongFunction<? super E> keyExtractor) {
+        sort(Comparator.comparingLong(keyExtractor));
+    }
+
     private SortHelper getSortHelper() {
         if (helper == null) {
             helper = new SortHelper();